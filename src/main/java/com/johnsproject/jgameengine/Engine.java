@@ -45,6 +45,7 @@ public final class Engine {
 	
 	public void stop() {
 		running = false;
+		RenderPool.getInstance().shutdown();
 	}
 	
 	private void startEngineLoop() {
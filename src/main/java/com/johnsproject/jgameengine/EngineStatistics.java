@@ -6,26 +6,30 @@ import java.util.List;
 
 import com.johnsproject.jgameengine.event.EngineEvent;
 import com.johnsproject.jgameengine.event.EngineListener;
+import com.johnsproject.jgameengine.model.DepthPyramid;
 import com.johnsproject.jgameengine.model.FrameBuffer;
 import com.johnsproject.jgameengine.model.Model;
+import com.johnsproject.jgameengine.util.FixedPointUtils;
 
 public class EngineStatistics implements EngineListener {
 
 	private static final int STATISTICS_X = 10;
 	private static final int STATISTICS_Y = 30;
 	private static final int STATISTICS_WIDTH = 180;
-	private static final int STATISTICS_HEIGHT = 130;
+	private static final int STATISTICS_HEIGHT = 220;
 	private static final Color STATISTICS_BACKROUND = Color.WHITE;
 	
 	private static final long BYTE_TO_MEGABYTE = 1024L * 1024L;
 	
 	private final TextArea textArea;
+	private final int[] writtenArea;
 	private GraphicsEngine graphicsEngine;
 	private long averageUpdates;
 	private long loops;
 	
 	public EngineStatistics(EngineWindow window) {
 		this.textArea = new TextArea("", 0, 0, TextArea.SCROLLBARS_NONE);
+		this.writtenArea = new int[4];
 		window.add(textArea, 0);
 	}
 	
@@ -69,6 +73,8 @@ public class EngineStatistics implements EngineListener {
 		output += getFrameBufferSize();
 		output += getVertexCount(models);
 		output += getTriangleCount(models);
+		output += getOcclusionCount();
+		output += getFragmentsPerPixel();
 		return output;
 	}
 	
@@ -95,7 +101,10 @@ public class EngineStatistics implements EngineListener {
 	
 	private String getFrameBufferSize() {
 		final FrameBuffer frameBuffer = graphicsEngine.getFrameBuffer();
-		return "Framebuffer\t" + frameBuffer.getWidth() + "x" + frameBuffer.getHeight() + "\n";
+		final int scale = (graphicsEngine.getRenderScale() * 100) >> FixedPointUtils.FP_BIT;
+		String frameBufferSize = "Framebuffer\t" + frameBuffer.getWidth() + "x" + frameBuffer.getHeight() + "\n";
+		frameBufferSize += "Render scale\t" + scale + "% " + frameBuffer.getViewportWidth() + "x" + frameBuffer.getViewportHeight() + "\n";
+		return frameBufferSize;
 	}
 	
 	private String getVertexCount(List<Model> models) {
@@ -113,4 +122,33 @@ public class EngineStatistics implements EngineListener {
 		
 		return "Triangles\t" + triangleCount + "\n";
 	}
+	
+	private String getOcclusionCount() {
+		final DepthPyramid depthPyramid = graphicsEngine.getFrameBuffer().getDepthPyramid();
+		String occlusionCount = "Hidden models\t" + depthPyramid.getRejectedModels() + "\n";
+		occlusionCount += "Hidden triangles\t" + depthPyramid.getRejectedFaces() + "\n";
+		occlusionCount += "Hidden fragments\t" + depthPyramid.getRejectedFragments() + "\n";
+		return occlusionCount;
+	}
+	
+	private String getFragmentsPerPixel() {
+		final DepthPyramid depthPyramid = graphicsEngine.getFrameBuffer().getDepthPyramid();
+		// the pixels are the ones of the blocks that have been drawn to, so the depth buffer isn't scanned
+		depthPyramid.getWrittenArea(writtenArea);
+		final int width = Math.max(writtenArea[2] - writtenArea[0], 0);
+		final int height = Math.max(writtenArea[3] - writtenArea[1], 0);
+		final int pixelCount = width * height;
+		// without the depth pre-pass of the camera the depth fragments are 0
+		String fragmentsPerPixel = "Depth / pixel\t" + getRatio(depthPyramid.getDepthFragments(), pixelCount) + "\n";
+		fragmentsPerPixel += "Shaded / pixel\t" + getRatio(depthPyramid.getShadedFragments(), pixelCount) + "\n";
+		return fragmentsPerPixel;
+	}
+	
+	private String getRatio(long value, long total) {
+		if(total <= 0)
+			return "0.00";
+		final long ratio = (value * 100) / total;
+		final long fraction = ratio % 100;
+		return (ratio / 100) + (fraction < 10 ? ".0" : ".") + fraction;
+	}
 }
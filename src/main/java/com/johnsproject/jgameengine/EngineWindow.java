@@ -21,6 +21,13 @@ public class EngineWindow extends Frame implements EngineListener {
 	private BufferStrategy bufferStrategy;
 	private Graphics graphics;
 	private FrameBuffer frameBuffer;
+	private SwapChain swapChain;
+	private Thread presenterThread;
+	
+	public EngineWindow(SwapChain swapChain) {
+		this(swapChain.getFrameBuffers()[0]);
+		setSwapChain(swapChain);
+	}
 	
 	public EngineWindow(FrameBuffer frameBuffer) {
 		canvas = new Canvas();
@@ -54,11 +61,20 @@ public class EngineWindow extends Frame implements EngineListener {
 	public void fixedUpdate(EngineEvent e) {}
 	
 	public void dynamicUpdate(EngineEvent e) {
+		// the frames of a swap chain are presented by the presenter thread
+		if(swapChain == null)
+			present(frameBuffer);
+	}
+	
+	private void present(FrameBuffer frameBuffer) {
 		synchronized (canvas) {
 			final int width = getWidth();
 			final int height = getHeight();
 			graphics.clearRect(0, 0, width, height);
-			graphics.drawImage(frameBuffer.getImage(), 0, 0, width, height, null);
+			// the viewport of the frame buffer is scaled to the size of the window
+			final int viewportWidth = frameBuffer.getViewportWidth();
+			final int viewportHeight = frameBuffer.getViewportHeight();
+			graphics.drawImage(frameBuffer.getImage(), 0, 0, width, height, 0, 0, viewportWidth, viewportHeight, null);
 			bufferStrategy.show();
 		}
 	}
@@ -116,6 +132,44 @@ public class EngineWindow extends Frame implements EngineListener {
 		return frameBuffer;
 	}
 	
+	public SwapChain getSwapChain() {
+		return swapChain;
+	}
+	
+	/**
+	 * Sets the {@link SwapChain} whose frames are presented by this window. The frames are presented
+	 * by a presenter thread as soon as they are presented to the SwapChain, and given back once they 
+	 * have been drawn to the window. If the SwapChain is null the frame buffer of this window is 
+	 * presented in {@link #dynamicUpdate(EngineEvent)}.
+	 * 
+	 * @param swapChain
+	 */
+	public void setSwapChain(SwapChain swapChain) {
+		if(presenterThread != null)
+			presenterThread.interrupt();
+		presenterThread = null;
+		this.swapChain = swapChain;
+		if(swapChain != null) {
+			setFrameBuffer(swapChain.getFrameBuffers()[0]);
+			startPresenter(swapChain);
+		}
+	}
+	
+	private void startPresenter(final SwapChain swapChain) {
+		presenterThread = new Thread(new Runnable() {
+			public void run() {
+				FrameBuffer frameBuffer;
+				while((frameBuffer = swapChain.acquirePresented()) != null) {
+					present(frameBuffer);
+					swapChain.release(frameBuffer);
+				}
+			}
+		});
+		presenterThread.setName("JGameEngine Presenter");
+		presenterThread.setDaemon(true);
+		presenterThread.start();
+	}
+	
 	public int getLayer() {
 		return GRAPHICS_ENGINE_LAYER + 1;
 	}
@@ -1,47 +1,99 @@
 package com.johnsproject.jgameengine;
 
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_SIZE;
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_X;
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_Y;
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_Z;
+import static com.johnsproject.jgameengine.util.TransformationUtils.SUBPIXEL_BIT;
+
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.johnsproject.jgameengine.event.EngineEvent;
 import com.johnsproject.jgameengine.event.EngineListener;
 import com.johnsproject.jgameengine.model.AnimationFrame;
 import com.johnsproject.jgameengine.model.Armature;
 import com.johnsproject.jgameengine.model.Camera;
-import com.johnsproject.jgameengine.model.Face;
+import com.johnsproject.jgameengine.model.DepthPyramid;
 import com.johnsproject.jgameengine.model.FrameBuffer;
+import com.johnsproject.jgameengine.model.Frustum;
 import com.johnsproject.jgameengine.model.Material;
 import com.johnsproject.jgameengine.model.Mesh;
 import com.johnsproject.jgameengine.model.Model;
 import com.johnsproject.jgameengine.model.Scene;
+import com.johnsproject.jgameengine.model.Texture;
 import com.johnsproject.jgameengine.model.Transform;
 import com.johnsproject.jgameengine.model.Vertex;
 import com.johnsproject.jgameengine.model.VertexGroup;
+import com.johnsproject.jgameengine.shading.DepthShader;
 import com.johnsproject.jgameengine.shading.DirectionalLightShadowShader;
 import com.johnsproject.jgameengine.shading.ForwardShaderBuffer;
 import com.johnsproject.jgameengine.shading.GouraudShader;
 import com.johnsproject.jgameengine.shading.Shader;
 import com.johnsproject.jgameengine.shading.ShaderBuffer;
 import com.johnsproject.jgameengine.shading.SpotLightShadowShader;
+import com.johnsproject.jgameengine.shading.ThreadedShader;
+import com.johnsproject.jgameengine.util.FixedPointUtils;
+import com.johnsproject.jgameengine.util.TransformationUtils;
 import com.johnsproject.jgameengine.util.VectorUtils;
 
 public class GraphicsEngine implements EngineListener {
 	
+	private static final int TRANSFORM_RANGE_SIZE = 256;
+	// clearing less rows than this in parallel isn't worth it
+	private static final int MIN_CLEAR_ROWS = 64;
+	// occlusion of the models in the pass of a camera, the screen space bounds of a model are projected once
+	private static final byte BOUNDS_UNKNOWN = 0;
+	private static final byte BOUNDS_PROJECTED = 1;
+	private static final byte NOT_OCCLUDABLE = 2;
+	private static final byte OCCLUDED = 3;
+	private static final int BOUNDS_SIZE = 5;
+	
 	private Shader defaultShader;
+	private final ThreadedShader depthShader;
 	private final List<Shader> shaders;
 	private ShaderBuffer shaderBuffer;
 	private FrameBuffer frameBuffer;
-	private final int[]	locationVector;
-	private final int[]	normalVector;
-	private final int[] multiplyVector;
+	private final RenderPool renderPool;
+	private final AtomicInteger transformRangeIndex;
+	private TransformRange[] transformRanges;
+	private int transformRangeCount;
+	private TransformTask[] transformTasks;
+	private boolean gatherNormals;
+	private final int[] boundsCenter;
+	private final int[] boundsCorner;
+	private boolean occlusionCull;
+	private byte[] modelOcclusion;
+	private int[] modelBounds;
+	private final ClearArea[] clearAreas;
+	private int clearAreaCount;
+	private ClearTask[] clearTasks;
+	private int clearTaskCount;
+	private final int[] writtenArea;
+	private boolean writtenAreaClear;
+	private SwapChain swapChain;
+	private int renderScale;
 	
 	public GraphicsEngine(FrameBuffer frameBuffer) {
 		this.shaderBuffer = new ForwardShaderBuffer();
 		this.shaders = new ArrayList<Shader>();
 		this.frameBuffer = frameBuffer;
-		this.locationVector = VectorUtils.emptyVector();
-		this.normalVector = VectorUtils.emptyVector();
-		this.multiplyVector = VectorUtils.emptyVector();
+		this.renderPool = RenderPool.getInstance();
+		this.transformRangeIndex = new AtomicInteger();
+		this.transformRanges = new TransformRange[0];
+		this.transformTasks = new TransformTask[0];
+		this.boundsCenter = VectorUtils.emptyVector();
+		this.boundsCorner = VectorUtils.emptyVector();
+		this.occlusionCull = true;
+		this.modelOcclusion = new byte[0];
+		this.modelBounds = new int[0];
+		this.clearAreas = new ClearArea[] {new ClearArea(), new ClearArea(), new ClearArea()};
+		this.clearTasks = new ClearTask[0];
+		this.writtenArea = new int[4];
+		this.writtenAreaClear = false;
+		this.renderScale = FixedPointUtils.FP_ONE;
+		this.depthShader = new DepthShader();
 		defaultShader = new GouraudShader();
 		addShader(new DirectionalLightShadowShader());
 		addShader(new SpotLightShadowShader());
@@ -63,78 +115,141 @@ public class GraphicsEngine implements EngineListener {
 	
 	public void dynamicUpdate(EngineEvent e) {
 		Scene scene = e.getScene();
-		frameBuffer.getColorBuffer().fill(0);
-		frameBuffer.getDepthBuffer().fill(Integer.MAX_VALUE);
-		frameBuffer.getStencilBuffer().fill(0);
+		final SwapChain swapChain = this.swapChain;
+		if(swapChain == null) {
+			render(scene);
+			return;
+		}
+		final FrameBuffer nextFrameBuffer = swapChain.acquire();
+		if(nextFrameBuffer == null)
+			return;
+		frameBuffer = nextFrameBuffer;
+		boolean isRendered = false;
+		try {
+			render(scene);
+			isRendered = true;
+		} finally {
+			// if rendering failed the frame buffer goes back to the free ones, else the swap chain runs out of them
+			if(isRendered)
+				swapChain.present(nextFrameBuffer);
+			else
+				swapChain.discard(nextFrameBuffer);
+		}
+	}
+	
+	private void render(Scene scene) {
+		final int viewportWidth = FixedPointUtils.multiply(frameBuffer.getWidth(), renderScale);
+		final int viewportHeight = FixedPointUtils.multiply(frameBuffer.getHeight(), renderScale);
+		frameBuffer.setViewportSize(viewportWidth, viewportHeight);
+		scene.updateTransforms();
+		clear(scene);
 		localToWorldSpace(scene);
 		renderForEachCamera(scene);
 	}
 	
+	private void clear(Scene scene) {
+		final int usedBuffers = getUsedBuffers(scene);
+		frameBuffer.getDepthPyramid().getWrittenArea(writtenArea);
+		clearAreaCount = 0;
+		addClearArea(usedBuffers, FrameBuffer.COLOR_BUFFER, frameBuffer.getColorBuffer(), 0);
+		addClearArea(usedBuffers, FrameBuffer.DEPTH_BUFFER, frameBuffer.getDepthBuffer(), Integer.MAX_VALUE);
+		addClearArea(usedBuffers, FrameBuffer.STENCIL_BUFFER, frameBuffer.getStencilBuffer(), 0);
+		frameBuffer.setClearedBuffers(usedBuffers);
+		final int parallelism = renderPool.getParallelism();
+		if(clearTasks.length != parallelism) {
+			clearTasks = new ClearTask[parallelism];
+			for (int i = 0; i < clearTasks.length; i++)
+				clearTasks[i] = new ClearTask(i);
+		}
+		// the rows of the buffers are split between the tasks
+		clearTaskCount = Math.max(Math.min(frameBuffer.getViewportHeight() / MIN_CLEAR_ROWS, clearTasks.length), 1);
+		renderPool.invoke(clearTasks, clearTaskCount);
+		frameBuffer.getDepthPyramid().reset();
+	}
+	
+	private int getUsedBuffers(Scene scene) {
+		int usedBuffers = 0;
+		for (int i = 0; i < shaders.size(); i++)
+			usedBuffers |= getUsedBuffers(shaders.get(i));
+		for (int i = 0; i < scene.getCameras().size(); i++) {
+			final Camera camera = scene.getCameras().get(i);
+			if(camera.isActive() && camera.hasDepthPrePass())
+				usedBuffers |= depthShader.getUsedBuffers();
+		}
+		return usedBuffers;
+	}
+	
+	private static int getUsedBuffers(Shader shader) {
+		if(shader instanceof ThreadedShader)
+			return ((ThreadedShader) shader).getUsedBuffers();
+		// other shaders don't tell which buffers they draw to
+		return FrameBuffer.COLOR_BUFFER | FrameBuffer.DEPTH_BUFFER | FrameBuffer.STENCIL_BUFFER;
+	}
+	
+	private void addClearArea(int usedBuffers, int buffer, Texture texture, int value) {
+		if((usedBuffers & buffer) == 0)
+			return;
+		final ClearArea clearArea = clearAreas[clearAreaCount++];
+		// a buffer that has been cleared in the last frame has only been drawn to inside the viewport,
+		// or in the written area, since. Outside of the viewport it keeps its clear value
+		if((frameBuffer.getClearedBuffers() & buffer) == 0) {
+			clearArea.set(texture, value, 0, 0, texture.getWidth(), texture.getHeight());
+		} else if(writtenAreaClear) {
+			clearArea.set(texture, value, writtenArea[0], writtenArea[1], writtenArea[2], writtenArea[3]);
+		} else {
+			clearArea.set(texture, value, 0, 0, frameBuffer.getViewportWidth(), frameBuffer.getViewportHeight());
+		}
+	}
+	
 	private void localToWorldSpace(Scene scene) {
+		// each model is split into ranges of vertices and faces that are transformed in parallel
+		transformRangeCount = 0;
 		for (int i = 0; i < scene.getModels().size(); i++) {
 			Model model = scene.getModels().get(i);
-			if(!model.isActive())
+			// models whose transform and armature haven't changed keep the world space of their mesh
+			if(!model.isActive() || !model.isWorldSpaceOutdated())
 				continue;
+			model.validateWorldSpace();
 			final Mesh mesh = model.getMesh();
 			final Armature armature = model.getArmature();
 			final Transform transform = model.getTransform();
-			transformVertices(mesh, transform, armature);
-			transformFaces(mesh, transform);
+			final int elementCount = Math.max(mesh.getVertices().length, mesh.getFaces().length);
+			for (int from = 0; from < elementCount; from += TRANSFORM_RANGE_SIZE)
+				addTransformRange(mesh, transform, armature, from, from + TRANSFORM_RANGE_SIZE);
 		}
+		if(transformRangeCount == 0)
+			return;
+		// the vertex normals are gathered from the normals of the faces once all of them are transformed
+		transform(false);
+		transform(true);
 	}
 	
-	private void transformVertices(Mesh mesh, Transform transform, Armature armature) {
-		AnimationFrame animationFrame = null;
-		if(armature != null) {
-			animationFrame = armature.getCurrentAnimationFrame();
-		}
-		for (int v = 0; v < mesh.getVertices().length; v++) {
-			final Vertex vertex = mesh.getVertex(v);
-			VectorUtils.copy(vertex.getWorldLocation(), vertex.getLocalLocation());
-			VectorUtils.copy(vertex.getWorldNormal(), VectorUtils.VECTOR_ZERO);
-			animateVertex(armature, animationFrame, vertex);
-			VectorUtils.multiply(vertex.getWorldLocation(), transform.getSpaceExitMatrix());
+	private void addTransformRange(Mesh mesh, Transform transform, Armature armature, int from, int to) {
+		if(transformRangeCount == transformRanges.length) {
+			final TransformRange[] newRanges = new TransformRange[transformRanges.length * 2 + 16];
+			System.arraycopy(transformRanges, 0, newRanges, 0, transformRangeCount);
+			for (int i = transformRangeCount; i < newRanges.length; i++)
+				newRanges[i] = new TransformRange();
+			transformRanges = newRanges;
 		}
+		transformRanges[transformRangeCount++].set(mesh, transform, armature, from, to);
 	}
 	
-	private void animateVertex(Armature armature, AnimationFrame animationFrame, Vertex vertex) {
-		if(animationFrame != null) {
-			VectorUtils.copy(locationVector, VectorUtils.VECTOR_ZERO);
-			VectorUtils.copy(normalVector, VectorUtils.VECTOR_ZERO);
-			for (int i = 0; i < armature.getVertexGroups().length; i++) {
-				final VertexGroup vertexGroup = armature.getVertexGroup(i);
-				final int boneWeight = vertexGroup.getWeight(vertex);
-				if(boneWeight != -1) {
-					final int[][] boneMatrix = animationFrame.getBoneMatrix(vertexGroup.getBoneIndex());
-					applyBone(vertex, boneWeight, boneMatrix);
-				}
-			}
-			VectorUtils.copy(vertex.getWorldLocation(), locationVector);
-			VectorUtils.copy(vertex.getWorldNormal(), normalVector);
-		}
-	}
-	
-	private void applyBone(Vertex vertex, int boneWeight, int[][] boneMatrix) {
-		VectorUtils.copy(multiplyVector, vertex.getWorldLocation());
-		VectorUtils.multiply(multiplyVector, boneMatrix);
-		VectorUtils.multiply(multiplyVector, boneWeight);
-		VectorUtils.add(locationVector, multiplyVector);
-		VectorUtils.copy(multiplyVector, vertex.getWorldNormal());
-		VectorUtils.multiply(multiplyVector, boneMatrix);
-		VectorUtils.multiply(multiplyVector, boneWeight);
-		VectorUtils.add(normalVector, multiplyVector);
+	private TransformRange nextTransformRange() {
+		final int index = transformRangeIndex.getAndIncrement();
+		return index < transformRangeCount ? transformRanges[index] : null;
 	}
 	
-	private void transformFaces(Mesh mesh, Transform transform) {
-		for (int f = 0; f < mesh.getFaces().length; f++) {
-			final Face face = mesh.getFace(f);
-			VectorUtils.copy(face.getWorldNormal(), face.getLocalNormal());
-			VectorUtils.multiply(face.getWorldNormal(), transform.getSpaceExitNormalMatrix());
-			// calculate vertex normals, just add the face the normals of the faces this vertex is a part of
-			VectorUtils.add(face.getVertex(0).getWorldNormal(), face.getWorldNormal());
-			VectorUtils.add(face.getVertex(1).getWorldNormal(), face.getWorldNormal());
-			VectorUtils.add(face.getVertex(2).getWorldNormal(), face.getWorldNormal());			
+	private void transform(boolean gatherNormals) {
+		final int parallelism = renderPool.getParallelism();
+		if(transformTasks.length != parallelism) {
+			transformTasks = new TransformTask[parallelism];
+			for (int i = 0; i < transformTasks.length; i++)
+				transformTasks[i] = new TransformTask();
 		}
+		this.gatherNormals = gatherNormals;
+		transformRangeIndex.set(0);
+		renderPool.invoke(transformTasks, Math.min(transformRangeCount, transformTasks.length));
 	}
 	
 	private void renderForEachCamera(Scene scene) {
@@ -144,17 +259,89 @@ public class GraphicsEngine implements EngineListener {
 				continue;
 			camera.setRenderTarget(frameBuffer);
 			shaderBuffer.initialize(camera, scene.getLights());
-			renderModels(scene);
+			cullModels(scene, camera);
+			resetOcclusion(scene);
+			if(camera.hasDepthPrePass())
+				renderDepth(scene, camera);
+			renderModels(scene, camera);
+		}
+	}
+	
+	private void cullModels(Scene scene, Camera camera) {
+		final Frustum frustum = camera.getFrustum();
+		frustum.recalculateWorldPlanes(camera.getTransform());
+		for (int i = 0; i < scene.getModels().size(); i++) {
+			Model model = scene.getModels().get(i);
+			if(!model.isActive())
+				continue;
+			// the vertices of animated models can leave the bounds of the mesh
+			if(model.getArmature() != null) {
+				model.setCulled(false);
+			} else {
+				model.setCulled(!isInView(model, frustum));
+			}
+		}
+	}
+	
+	boolean isInView(Model model, Frustum frustum) {
+		final Mesh mesh = model.getMesh();
+		final Transform transform = model.getTransform();
+		VectorUtils.copy(boundsCenter, mesh.getBoundingSphereCenter());
+		VectorUtils.multiplyAffineMatrix(boundsCenter, transform.getSpaceExitMatrix());
+		final int maxScale = getMaxScale(transform);
+		final int radius = FixedPointUtils.multiply(mesh.getBoundingSphereRadius(), maxScale);
+		return frustum.isSphereInside(boundsCenter, radius);
+	}
+	
+	private int getMaxScale(Transform transform) {
+		int maxScale = getMaxLocalScale(transform);
+		if(transform.getParent() == null)
+			return maxScale;
+		// rotations don't change lengths, so the product of the biggest scales of the transform and its parents
+		// is an upper bound of how much the world space matrix stretches the mesh. The axes of the world space
+		// matrix can be shorter than that, if a rotated transform has a non uniformly scaled parent
+		for (Transform parent = transform.getParent(); parent != null; parent = parent.getParent())
+			maxScale = FixedPointUtils.multiply(maxScale, getMaxLocalScale(parent));
+		// leave room for the rounding of the products
+		return maxScale + (maxScale >> 6);
+	}
+	
+	private int getMaxLocalScale(Transform transform) {
+		final int[] scale = transform.getScale();
+		final int maxScale = Math.max(Math.abs(scale[VECTOR_X]), Math.abs(scale[VECTOR_Y]));
+		return Math.max(maxScale, Math.abs(scale[VECTOR_Z]));
+	}
+	
+	private void renderDepth(Scene scene, Camera camera) {
+		depthShader.initialize(shaderBuffer);
+		frameBuffer.getDepthPyramid().update();
+		for (int m = 0; m < scene.getModels().size(); m++) {
+			Model model = scene.getModels().get(m);
+			if(!model.isActive() || model.isCulled() || isOccluded(m, model, camera))
+				continue;
+			final Mesh mesh = model.getMesh();
+			depthShader.vertexRange(mesh, 0, mesh.getVertices().length);
+			depthShader.waitForVertexQueue();
+			
+			shadeFaces(mesh, depthShader);
+			depthShader.waitForGeometryQueue();
 		}
 	}
 	
-	private void renderModels(Scene scene) {
+	private void renderModels(Scene scene, Camera camera) {
 		for (int s = 0; s < shaders.size(); s++) {
 			Shader shader = shaders.get(s);
 			shader.initialize(shaderBuffer);
+			// the depths drawn by the last pass are taken into account for the occlusion of the models
+			if(!shader.isGlobal())
+				frameBuffer.getDepthPyramid().update();
 			for (int m = 0; m < scene.getModels().size(); m++) {
 				Model model = scene.getModels().get(m);
-				if(!model.isActive() || model.isCulled())
+				// culled models can still cast shadows into the view
+				if(!model.isActive() || (model.isCulled() && !shader.isGlobal()))
+					continue;
+				// global shaders don't draw into the depth buffer of the camera
+				if(!shader.isGlobal() && isOccluded(m, model, camera))
 					continue;
 				final Mesh mesh = model.getMesh();
 				shadeVertices(mesh, shader);
@@ -163,35 +350,149 @@ public class GraphicsEngine implements EngineListener {
 				shadeFaces(mesh, shader);
 				shader.waitForGeometryQueue();
 			}
+			shader.waitForPixelQueue();
 		}
 	}
 	
+	private void resetOcclusion(Scene scene) {
+		final int modelCount = scene.getModels().size();
+		if(modelOcclusion.length < modelCount) {
+			modelOcclusion = new byte[modelCount];
+			modelBounds = new int[modelCount * BOUNDS_SIZE];
+		}
+		for (int i = 0; i < modelCount; i++)
+			modelOcclusion[i] = BOUNDS_UNKNOWN;
+	}
+	
+	/**
+	 * Returns if the model at the given index in the scene is hidden behind what's in the depth pyramid.
+	 * The bounds of the model are projected at the first test in the pass of a camera, and as depths only
+	 * get smaller while drawing, a model that is occluded once stays occluded for the rest of the pass.
+	 * 
+	 * @param index
+	 * @param model
+	 * @param camera
+	 * @return
+	 */
+	private boolean isOccluded(int index, Model model, Camera camera) {
+		if(!occlusionCull)
+			return false;
+		if(modelOcclusion[index] == BOUNDS_UNKNOWN)
+			modelOcclusion[index] = projectBounds(model, camera, index * BOUNDS_SIZE) ? BOUNDS_PROJECTED : NOT_OCCLUDABLE;
+		if(modelOcclusion[index] != BOUNDS_PROJECTED)
+			return modelOcclusion[index] == OCCLUDED;
+		final int offset = index * BOUNDS_SIZE;
+		final DepthPyramid depthPyramid = frameBuffer.getDepthPyramid();
+		if(depthPyramid.isHidden(modelBounds[offset], modelBounds[offset + 1],
+				modelBounds[offset + 2], modelBounds[offset + 3], modelBounds[offset + 4])) {
+			modelOcclusion[index] = OCCLUDED;
+			depthPyramid.addRejectedModel();
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Stores the screen space bounds of the given model as left, top, right, bottom and depth at the given
+	 * offset of the model bounds. Returns false if the model has no bounds that can be projected.
+	 * 
+	 * @param model
+	 * @param camera
+	 * @param offset
+	 * @return
+	 */
+	private boolean projectBounds(Model model, Camera camera, int offset) {
+		// the vertices of animated models can leave the bounds of the mesh
+		if(model.getArmature() != null)
+			return false;
+		final Mesh mesh = model.getMesh();
+		final Frustum frustum = camera.getFrustum();
+		final int[] boundingBoxMin = mesh.getBoundingBoxMin();
+		final int[] boundingBoxMax = mesh.getBoundingBoxMax();
+		int left = Integer.MAX_VALUE;
+		int right = Integer.MIN_VALUE;
+		int top = Integer.MAX_VALUE;
+		int bottom = Integer.MIN_VALUE;
+		int depth = Integer.MAX_VALUE;
+		// the screen space bounds of the model are the bounds of the corners of its bounding box
+		for (int i = 0; i < 8; i++) {
+			boundsCorner[VECTOR_X] = (i & 1) == 0 ? boundingBoxMin[VECTOR_X] : boundingBoxMax[VECTOR_X];
+			boundsCorner[VECTOR_Y] = (i & 2) == 0 ? boundingBoxMin[VECTOR_Y] : boundingBoxMax[VECTOR_Y];
+			boundsCorner[VECTOR_Z] = (i & 4) == 0 ? boundingBoxMin[VECTOR_Z] : boundingBoxMax[VECTOR_Z];
+			VectorUtils.multiplyAffineMatrix(boundsCorner, model.getTransform().getSpaceExitMatrix());
+			VectorUtils.multiplyAffineMatrix(boundsCorner, camera.getTransform().getSpaceEnterMatrix());
+			// corners in front of the near plane can't be projected
+			if(boundsCorner[VECTOR_Z] > -frustum.getNear())
+				return false;
+			VectorUtils.multiplyMatrix(boundsCorner, frustum.getProjectionMatrix());
+			TransformationUtils.screenportVector(boundsCorner, frustum);
+			left = Math.min(left, boundsCorner[VECTOR_X] >> SUBPIXEL_BIT);
+			right = Math.max(right, boundsCorner[VECTOR_X] >> SUBPIXEL_BIT);
+			top = Math.min(top, boundsCorner[VECTOR_Y] >> SUBPIXEL_BIT);
+			bottom = Math.max(bottom, boundsCorner[VECTOR_Y] >> SUBPIXEL_BIT);
+			depth = Math.min(depth, boundsCorner[VECTOR_Z]);
+		}
+		// leave room for the rounding of the vertices
+		modelBounds[offset] = left - 1;
+		modelBounds[offset + 1] = top - 1;
+		modelBounds[offset + 2] = right + 1;
+		modelBounds[offset + 3] = bottom + 1;
+		modelBounds[offset + 4] = depth - 1;
+		return true;
+	}
+	
 	private void shadeVertices(Mesh mesh, Shader shader) {
-		for (int v = 0; v < mesh.getVertices().length; v++) {
-			final Vertex vertex = mesh.getVertex(v);
-			final Material material = vertex.getMaterial();
-			if(canUseShader(shader, material)) {
-				shader.vertex(vertex);
+		// vertices are handed to the shader as ranges of consecutive vertices the shader can be used on
+		final Material[] materials = mesh.getVertexMaterials();
+		final int vertexCount = materials.length;
+		int from = 0;
+		for (int v = 0; v < vertexCount; v++) {
+			final Material material = materials[v];
+			if(!canUseShader(shader, material)) {
+				if(from < v)
+					shader.vertexRange(mesh, from, v);
+				from = v + 1;
 			}
 		}
+		if(from < vertexCount)
+			shader.vertexRange(mesh, from, vertexCount);
 	}
 	
 	private void shadeFaces(Mesh mesh, Shader shader) {
-		for (int f = 0; f < mesh.getFaces().length; f++) {
-			final Face face = mesh.getFace(f);
-			final Material material = face.getMaterial();
-			if(canUseShader(shader, material)) {
-				shader.geometry(face);
+		// faces are handed to the shader as ranges of consecutive faces the shader can be used on
+		final Material[] materials = mesh.getFaceMaterials();
+		final int faceCount = materials.length;
+		int from = 0;
+		for (int f = 0; f < faceCount; f++) {
+			final Material material = materials[f];
+			if(!canUseShader(shader, material)) {
+				if(from < f)
+					shader.geometryRange(mesh, from, f);
+				from = f + 1;
 			}
 		}
+		if(from < faceCount)
+			shader.geometryRange(mesh, from, faceCount);
 	}
 	
 	private boolean canUseShader(Shader shader, Material material) {
+		if(shader.equals(depthShader))
+			return isShadedInView(material);
 		return ((material.getShader() == null) && shader.equals(defaultShader))
 		|| shader.equals(material.getShader())
 		|| shader.isGlobal();
 	}
 
+	private boolean isShadedInView(Material material) {
+		// the depth pre-pass draws the faces the shaders that aren't global draw into the camera
+		for (int s = 0; s < shaders.size(); s++) {
+			final Shader shader = shaders.get(s);
+			if(!shader.isGlobal() && canUseShader(shader, material))
+				return true;
+		}
+		return false;
+	}
+
 	public int getLayer() {
 		return GRAPHICS_ENGINE_LAYER;
 	}
@@ -212,6 +513,69 @@ public class GraphicsEngine implements EngineListener {
 		return frameBuffer;
 	}
 	
+	public SwapChain getSwapChain() {
+		return swapChain;
+	}
+	
+	/**
+	 * Sets the {@link SwapChain} this GraphicsEngine renders to. Each frame is rendered to a frame buffer
+	 * acquired from the SwapChain, that is presented once the frame is done. Then {@link #getFrameBuffer()}
+	 * returns the frame buffer of the last frame. If the SwapChain is null the frame buffer of this 
+	 * GraphicsEngine is used for each frame.
+	 * 
+	 * @param swapChain
+	 */
+	public void setSwapChain(SwapChain swapChain) {
+		this.swapChain = swapChain;
+		if(swapChain != null)
+			this.frameBuffer = swapChain.getFrameBuffers()[0];
+	}
+	
+	public int getRenderScale() {
+		return renderScale;
+	}
+	
+	/**
+	 * Sets the scale of the resolution frames are rendered at, relative to the size of the frame buffer.
+	 * Frames are rendered into the viewport of the frame buffer, that is the size of the frame buffer 
+	 * multiplied with the scale, so changing the scale doesn't allocate new buffers.
+	 * 
+	 * @param renderScale fixed point scale between 0 and 1.
+	 * @see FrameBuffer#setViewportSize(int, int)
+	 */
+	public void setRenderScale(int renderScale) {
+		this.renderScale = Math.min(Math.max(renderScale, 1), FixedPointUtils.FP_ONE);
+	}
+	
+	public boolean isOcclusionCull() {
+		return occlusionCull;
+	}
+	
+	/**
+	 * Sets if models hidden behind the models that have already been drawn are skipped.
+	 * The test is done with the {@link DepthPyramid} of the frame buffer.
+	 * 
+	 * @param occlusionCull
+	 */
+	public void setOcclusionCull(boolean occlusionCull) {
+		this.occlusionCull = occlusionCull;
+	}
+	
+	public boolean isWrittenAreaClear() {
+		return writtenAreaClear;
+	}
+	
+	/**
+	 * Sets if only the area of the frame buffer that has been drawn to in the last frame is cleared.
+	 * The area is tracked by the {@link DepthPyramid} of the frame buffer, so this can only be used if
+	 * all shaders draw through rasterizers that use it and nothing else draws to the frame buffer.
+	 * 
+	 * @param writtenAreaClear
+	 */
+	public void setWrittenAreaClear(boolean writtenAreaClear) {
+		this.writtenAreaClear = writtenAreaClear;
+	}
+	
 	public List<Shader> getShaders() {
 		return shaders;
 	}
@@ -235,4 +599,174 @@ public class GraphicsEngine implements EngineListener {
 	public void setDefaultShader(Shader defaultShader) {
 		this.defaultShader = defaultShader;
 	}
+	
+	private static final class ClearArea {
+		
+		private Texture texture;
+		private int value;
+		private int left;
+		private int top;
+		private int right;
+		private int bottom;
+		
+		private void set(Texture texture, int value, int left, int top, int right, int bottom) {
+			this.texture = texture;
+			this.value = value;
+			this.left = left;
+			this.top = top;
+			this.right = right;
+			this.bottom = bottom;
+		}
+	}
+	
+	private final class ClearTask implements Runnable {
+		
+		private final int index;
+		
+		private ClearTask(int index) {
+			this.index = index;
+		}
+		
+		public void run() {
+			for (int i = 0; i < clearAreaCount; i++) {
+				final ClearArea clearArea = clearAreas[i];
+				final int rows = clearArea.bottom - clearArea.top;
+				final int top = clearArea.top + (rows * index) / clearTaskCount;
+				final int bottom = clearArea.top + (rows * (index + 1)) / clearTaskCount;
+				clearArea.texture.fill(clearArea.value, clearArea.left, top, clearArea.right, bottom);
+			}
+		}
+	}
+	
+	private static final class TransformRange {
+		
+		private Mesh mesh;
+		private int[] matrix;
+		private int[] normalMatrix;
+		private Armature armature;
+		private AnimationFrame animationFrame;
+		private int from;
+		private int to;
+		
+		private void set(Mesh mesh, Transform transform, Armature armature, int from, int to) {
+			this.mesh = mesh;
+			this.matrix = transform.getSpaceExitMatrix();
+			this.normalMatrix = transform.getSpaceExitNormalMatrix();
+			this.armature = armature;
+			this.animationFrame = null;
+			if(armature != null) {
+				animationFrame = armature.getCurrentAnimationFrame();
+			}
+			this.from = from;
+			this.to = to;
+		}
+	}
+	
+	private final class TransformTask implements Runnable {
+		
+		private final int[] worldLocation;
+		private final int[] worldNormal;
+		private final int[] locationVector;
+		private final int[] normalVector;
+		private final int[] multiplyVector;
+		
+		private TransformTask() {
+			this.worldLocation = VectorUtils.emptyVector();
+			this.worldNormal = VectorUtils.emptyVector();
+			this.locationVector = VectorUtils.emptyVector();
+			this.normalVector = VectorUtils.emptyVector();
+			this.multiplyVector = VectorUtils.emptyVector();
+		}
+		
+		public void run() {
+			TransformRange range;
+			while((range = nextTransformRange()) != null) {
+				if(gatherNormals) {
+					gatherVertexNormals(range);
+				} else {
+					transformVertices(range);
+					transformFaces(range);
+				}
+			}
+		}
+		
+		private void transformVertices(TransformRange range) {
+			final Vertex[] vertices = range.mesh.getVertices();
+			final int[] localLocations = range.mesh.getVertexLocalLocations();
+			final int[] worldLocations = range.mesh.getVertexWorldLocations();
+			final int[] worldNormals = range.mesh.getVertexWorldNormals();
+			final int to = Math.min(range.to, vertices.length);
+			for (int v = range.from; v < to; v++) {
+				final int offset = v * VECTOR_SIZE;
+				System.arraycopy(localLocations, offset, worldLocation, 0, VECTOR_SIZE);
+				VectorUtils.copy(worldNormal, VectorUtils.VECTOR_ZERO);
+				animateVertex(range.armature, range.animationFrame, vertices[v]);
+				VectorUtils.multiplyAffineMatrix(worldLocation, range.matrix);
+				System.arraycopy(worldLocation, 0, worldLocations, offset, VECTOR_SIZE);
+				System.arraycopy(worldNormal, 0, worldNormals, offset, VECTOR_SIZE);
+			}
+		}
+		
+		private void animateVertex(Armature armature, AnimationFrame animationFrame, Vertex vertex) {
+			if(animationFrame != null) {
+				VectorUtils.copy(locationVector, VectorUtils.VECTOR_ZERO);
+				VectorUtils.copy(normalVector, VectorUtils.VECTOR_ZERO);
+				for (int i = 0; i < armature.getVertexGroups().length; i++) {
+					final VertexGroup vertexGroup = armature.getVertexGroup(i);
+					final int boneWeight = vertexGroup.getWeight(vertex);
+					if(boneWeight != -1) {
+						final int[] boneMatrix = animationFrame.getBoneMatrix(vertexGroup.getBoneIndex());
+						applyBone(vertex, boneWeight, boneMatrix);
+					}
+				}
+				VectorUtils.copy(worldLocation, locationVector);
+				VectorUtils.copy(worldNormal, normalVector);
+			}
+		}
+		
+		private void applyBone(Vertex vertex, int boneWeight, int[] boneMatrix) {
+			VectorUtils.copy(multiplyVector, worldLocation);
+			VectorUtils.multiplyMatrix(multiplyVector, boneMatrix);
+			VectorUtils.multiply(multiplyVector, boneWeight);
+			VectorUtils.add(locationVector, multiplyVector);
+			VectorUtils.copy(multiplyVector, worldNormal);
+			VectorUtils.multiplyMatrix(multiplyVector, boneMatrix);
+			VectorUtils.multiply(multiplyVector, boneWeight);
+			VectorUtils.add(normalVector, multiplyVector);
+		}
+		
+		private void transformFaces(TransformRange range) {
+			final int[] localNormals = range.mesh.getFaceLocalNormals();
+			final int[] worldNormals = range.mesh.getFaceWorldNormals();
+			final int to = Math.min(range.to, range.mesh.getFaces().length);
+			for (int f = range.from; f < to; f++) {
+				final int offset = f * VECTOR_SIZE;
+				System.arraycopy(localNormals, offset, worldNormal, 0, VECTOR_SIZE);
+				VectorUtils.multiplyAffineMatrix(worldNormal, range.normalMatrix);
+				System.arraycopy(worldNormal, 0, worldNormals, offset, VECTOR_SIZE);
+			}
+		}
+		
+		private void gatherVertexNormals(TransformRange range) {
+			// calculate vertex normals, just add the normals of the faces this vertex is a part of
+			final int[] vertexNormals = range.mesh.getVertexWorldNormals();
+			final int[] faceNormals = range.mesh.getFaceWorldNormals();
+			final int[] vertexFaceOffsets = range.mesh.getVertexFaceOffsets();
+			final int[] vertexFaces = range.mesh.getVertexFaces();
+			final int to = Math.min(range.to, range.mesh.getVertices().length);
+			for (int v = range.from; v < to; v++) {
+				final int vertexOffset = v * VECTOR_SIZE;
+				System.arraycopy(vertexNormals, vertexOffset, worldNormal, 0, VECTOR_SIZE);
+				for (int i = vertexFaceOffsets[v]; i < vertexFaceOffsets[v + 1]; i++) {
+					final int faceOffset = vertexFaces[i] * VECTOR_SIZE;
+					worldNormal[VECTOR_X] += faceNormals[faceOffset + VECTOR_X];
+					worldNormal[VECTOR_Y] += faceNormals[faceOffset + VECTOR_Y];
+					worldNormal[VECTOR_Z] += faceNormals[faceOffset + VECTOR_Z];
+				}
+				// the normals are normalized once here, so the shaders don't need to do it for each vertex
+				VectorUtils.normalize(worldNormal);
+				System.arraycopy(worldNormal, 0, vertexNormals, vertexOffset, VECTOR_SIZE);
+			}
+		}
+	}
 }
\ No newline at end of file
@@ -0,0 +1,161 @@
+package com.johnsproject.jgameengine;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The RenderPool is the worker pool shared by all shaders and render passes of the engine.
+ * Work is submitted as batches of tasks through {@link #invoke(Runnable[], int)}. The
+ * submitting thread runs tasks of the batch too, so a pool with a parallelism of N only
+ * needs N - 1 worker threads. The workers are started when the first batch is submitted
+ * and are stopped by {@link #shutdown()}, which the {@link Engine} calls when it stops.
+ */
+public final class RenderPool {
+
+	private static RenderPool pool = new RenderPool();
+
+	public static RenderPool getInstance() {
+		return pool;
+	}
+
+	private final BlockingQueue<Runnable> taskQueue;
+	private final AtomicInteger pendingTasks;
+	private final Object completionLock;
+	// the first exception thrown by a task of the running batch
+	private final AtomicReference<Throwable> failure;
+	private Thread[] workers;
+	private int parallelism;
+
+	private RenderPool() {
+		this.taskQueue = new LinkedBlockingQueue<Runnable>();
+		this.pendingTasks = new AtomicInteger();
+		this.completionLock = new Object();
+		this.failure = new AtomicReference<Throwable>();
+		this.parallelism = Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Runs the first count tasks of the given array in parallel and returns when all of them are done.
+	 * Tasks must not submit batches to the pool themselves.
+	 * <br><br>
+	 * If tasks throw, the rest of the batch still runs and the first exception is rethrown once the batch
+	 * is done. If the calling thread is interrupted while waiting it keeps waiting for the batch, as the
+	 * workers still use the tasks, and its interrupt flag is set again before returning.
+	 *
+	 * @param tasks
+	 * @param count
+	 */
+	public synchronized void invoke(Runnable[] tasks, int count) {
+		if(count <= 0)
+			return;
+		if(workers == null)
+			startWorkers();
+		failure.set(null);
+		pendingTasks.set(count);
+		for (int i = 1; i < count; i++)
+			taskQueue.add(tasks[i]);
+		runTask(tasks[0]);
+		// help the workers with the rest of the batch, if there are no workers this runs all the tasks
+		Runnable task;
+		while((task = taskQueue.poll()) != null)
+			runTask(task);
+		boolean interrupted = false;
+		synchronized (completionLock) {
+			while(pendingTasks.get() > 0) {
+				try {
+					completionLock.wait();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		}
+		if(interrupted)
+			Thread.currentThread().interrupt();
+		final Throwable exception = failure.getAndSet(null);
+		if(exception instanceof RuntimeException)
+			throw (RuntimeException) exception;
+		if(exception instanceof Error)
+			throw (Error) exception;
+	}
+
+	private void runTask(Runnable task) {
+		try {
+			task.run();
+		} catch (RuntimeException e) {
+			failure.compareAndSet(null, e);
+		} catch (Error e) {
+			failure.compareAndSet(null, e);
+		} finally {
+			if(pendingTasks.decrementAndGet() == 0) {
+				synchronized (completionLock) {
+					completionLock.notify();
+				}
+			}
+		}
+	}
+
+	private void startWorkers() {
+		workers = new Thread[parallelism - 1];
+		for (int i = 0; i < workers.length; i++) {
+			workers[i] = new Thread(new Runnable() {
+				public void run() {
+					work();
+				}
+			});
+			workers[i].setName("RenderWorker" + i);
+			workers[i].setDaemon(true);
+			workers[i].start();
+		}
+	}
+
+	private void work() {
+		try {
+			while(true) {
+				runTask(taskQueue.take());
+			}
+		} catch (InterruptedException e) {
+			// the pool has been shut down
+		}
+	}
+
+	/**
+	 * Stops the worker threads after the running batch is done.
+	 * They are started again when the next batch is submitted.
+	 */
+	public synchronized void shutdown() {
+		if(workers == null)
+			return;
+		for (int i = 0; i < workers.length; i++)
+			workers[i].interrupt();
+		try {
+			for (int i = 0; i < workers.length; i++)
+				workers[i].join();
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+		}
+		workers = null;
+	}
+
+	/**
+	 * Returns how many tasks of a batch can run at the same time,
+	 * the calling thread included.
+	 *
+	 * @return
+	 */
+	public synchronized int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Sets how many tasks of a batch can run at the same time, the calling thread included.
+	 * The default is the number of available processors.
+	 *
+	 * @param parallelism
+	 */
+	public synchronized void setParallelism(int parallelism) {
+		shutdown();
+		this.parallelism = Math.max(parallelism, 1);
+	}
+}
@@ -0,0 +1,181 @@
+package com.johnsproject.jgameengine;
+
+import com.johnsproject.jgameengine.event.EngineEvent;
+import com.johnsproject.jgameengine.event.EngineListener;
+import com.johnsproject.jgameengine.util.FixedPointUtils;
+
+/**
+ * The ResolutionController changes the {@link GraphicsEngine#setRenderScale(int) render scale} of a
+ * {@link GraphicsEngine} between frames, so the time of a frame stays within the target frame time.
+ * <br><br>
+ * The time of the frames is measured from one dynamic update to the next and averaged over the last frames.
+ * If the average is above the target frame time the scale is decreased by one step. It's only increased
+ * again if the average is below the target frame time minus the hysteresis, as the frame time increases with
+ * the scale and the scale would otherwise change back and forth. After each change the scale is kept for the
+ * given number of frames, so the average can settle.
+ */
+public class ResolutionController implements EngineListener {
+
+	private static final int NANOSECONDS_PER_MILLISECOND = 1000000;
+	// the weight of the time of the last frame in the average is 1 / 2^AVERAGE_BIT
+	private static final int AVERAGE_BIT = 3;
+
+	private final GraphicsEngine graphicsEngine;
+	private int targetFrameTime;
+	private int minScale;
+	private int maxScale;
+	private int scaleStep;
+	private int hysteresis;
+	private int adjustDelay;
+	private long previousTime;
+	private long averageFrameTime;
+	private int framesSinceAdjust;
+
+	/**
+	 * Creates a new ResolutionController with a target frame time of 33 ms,
+	 * a scale between 50% and 100%, a scale step of 10% and a hysteresis of 20%.
+	 *
+	 * @param graphicsEngine whose render scale is controlled.
+	 */
+	public ResolutionController(GraphicsEngine graphicsEngine) {
+		this.graphicsEngine = graphicsEngine;
+		this.targetFrameTime = 33;
+		this.minScale = FixedPointUtils.FP_ONE / 2;
+		this.maxScale = FixedPointUtils.FP_ONE;
+		this.scaleStep = FixedPointUtils.FP_ONE / 10;
+		this.hysteresis = FixedPointUtils.FP_ONE / 5;
+		this.adjustDelay = 10;
+	}
+
+	public void initialize(EngineEvent e) {
+		previousTime = 0;
+		averageFrameTime = 0;
+		framesSinceAdjust = 0;
+	}
+
+	public void fixedUpdate(EngineEvent e) {}
+
+	public void dynamicUpdate(EngineEvent e) {
+		update(System.nanoTime());
+	}
+
+	/**
+	 * Measures the time of the frame that ended at the given time and changes the scale if needed.
+	 *
+	 * @param time in nanoseconds, not 0.
+	 */
+	void update(long time) {
+		if(previousTime == 0) {
+			previousTime = time;
+			return;
+		}
+		final long frameTime = time - previousTime;
+		previousTime = time;
+		if(averageFrameTime == 0) {
+			averageFrameTime = frameTime;
+		} else {
+			averageFrameTime += (frameTime - averageFrameTime) >> AVERAGE_BIT;
+		}
+		if(++framesSinceAdjust < adjustDelay)
+			return;
+		final long target = (long) targetFrameTime * NANOSECONDS_PER_MILLISECOND;
+		final long scaleUpTarget = target - ((target * hysteresis) >> FixedPointUtils.FP_BIT);
+		final int scale = graphicsEngine.getRenderScale();
+		int newScale = scale;
+		if(averageFrameTime > target) {
+			newScale = Math.max(scale - scaleStep, minScale);
+		} else if(averageFrameTime < scaleUpTarget) {
+			newScale = Math.min(scale + scaleStep, maxScale);
+		}
+		if(newScale != scale) {
+			graphicsEngine.setRenderScale(newScale);
+			framesSinceAdjust = 0;
+		}
+	}
+
+	public int getLayer() {
+		return GRAPHICS_ENGINE_LAYER - 1;
+	}
+
+	/**
+	 * Returns the average time of the last frames.
+	 *
+	 * @return The average frame time in microseconds.
+	 */
+	public int getAverageFrameTime() {
+		return (int) (averageFrameTime / 1000);
+	}
+
+	public int getScale() {
+		return graphicsEngine.getRenderScale();
+	}
+
+	public int getTargetFrameTime() {
+		return targetFrameTime;
+	}
+
+	/**
+	 * Sets the time in milliseconds a frame should take.
+	 *
+	 * @param targetFrameTime
+	 */
+	public void setTargetFrameTime(int targetFrameTime) {
+		this.targetFrameTime = targetFrameTime;
+	}
+
+	public int getMinScale() {
+		return minScale;
+	}
+
+	public void setMinScale(int minScale) {
+		this.minScale = minScale;
+	}
+
+	public int getMaxScale() {
+		return maxScale;
+	}
+
+	public void setMaxScale(int maxScale) {
+		this.maxScale = maxScale;
+	}
+
+	public int getScaleStep() {
+		return scaleStep;
+	}
+
+	/**
+	 * Sets the fixed point value the scale is changed by at once.
+	 *
+	 * @param scaleStep
+	 */
+	public void setScaleStep(int scaleStep) {
+		this.scaleStep = scaleStep;
+	}
+
+	public int getHysteresis() {
+		return hysteresis;
+	}
+
+	/**
+	 * Sets how much, relative to the target frame time, the average frame time needs
+	 * to be below the target frame time before the scale is increased.
+	 *
+	 * @param hysteresis fixed point value between 0 and 1.
+	 */
+	public void setHysteresis(int hysteresis) {
+		this.hysteresis = hysteresis;
+	}
+
+	public int getAdjustDelay() {
+		return adjustDelay;
+	}
+
+	/**
+	 * Sets the number of frames the scale is kept after it has been changed.
+	 *
+	 * @param adjustDelay
+	 */
+	public void setAdjustDelay(int adjustDelay) {
+		this.adjustDelay = adjustDelay;
+	}
+}
@@ -0,0 +1,154 @@
+package com.johnsproject.jgameengine;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import com.johnsproject.jgameengine.model.FrameBuffer;
+
+/**
+ * The SwapChain is a set of {@link FrameBuffer FrameBuffers} of the same size that are rendered to and
+ * presented in turns, so a frame can be presented while the next one is being rendered.
+ * <br><br>
+ * Each FrameBuffer is always owned by one side. The {@link GraphicsEngine} takes a free FrameBuffer with
+ * {@link #acquire()}, renders to it and hands it over with {@link #present(FrameBuffer)}. The presenter,
+ * like the {@link EngineWindow}, takes it with {@link #acquirePresented()} and gives it back with
+ * {@link #release(FrameBuffer)} once it's done with it. Both sides wait if there is no FrameBuffer for them,
+ * so the renderer can be at most the buffer count - 1 frames ahead of the presenter. If the renderer can't
+ * finish a frame it gives the FrameBuffer back with {@link #discard(FrameBuffer)}.
+ * <br><br>
+ * Handing over a FrameBuffer that doesn't belong to this SwapChain, or that isn't owned by the side
+ * handing it over, throws an IllegalArgumentException and leaves the SwapChain unchanged.
+ */
+public final class SwapChain {
+
+	private static final int STATE_FREE = 0;
+	private static final int STATE_RENDERING = 1;
+	private static final int STATE_PRESENTED = 2;
+	private static final int STATE_PRESENTING = 3;
+	
+	private final FrameBuffer[] frameBuffers;
+	// the state of each frame buffer, changes only while synchronized on this array
+	private final int[] states;
+	private final BlockingQueue<FrameBuffer> freeBuffers;
+	private final BlockingQueue<FrameBuffer> presentedBuffers;
+
+	/**
+	 * Creates a new SwapChain.
+	 *
+	 * @param width of the frame buffers.
+	 * @param height of the frame buffers.
+	 * @param bufferCount number of frame buffers, 2 for double and 3 for triple buffering.
+	 */
+	public SwapChain(int width, int height, int bufferCount) {
+		if(bufferCount < 2)
+			throw new IllegalArgumentException("A swap chain needs at least 2 frame buffers");
+		this.frameBuffers = new FrameBuffer[bufferCount];
+		this.states = new int[bufferCount];
+		this.freeBuffers = new ArrayBlockingQueue<FrameBuffer>(bufferCount);
+		this.presentedBuffers = new ArrayBlockingQueue<FrameBuffer>(bufferCount);
+		for (int i = 0; i < frameBuffers.length; i++) {
+			frameBuffers[i] = new FrameBuffer(width, height);
+			freeBuffers.add(frameBuffers[i]);
+		}
+	}
+
+	/**
+	 * Returns a FrameBuffer to render to, waits until one has been released by the presenter if there is none.
+	 *
+	 * @return The FrameBuffer to render to or null if the thread has been interrupted while waiting.
+	 */
+	public FrameBuffer acquire() {
+		return take(freeBuffers, STATE_FREE, STATE_RENDERING);
+	}
+
+	/**
+	 * Hands the given FrameBuffer, that has been acquired through {@link #acquire()}, over to the presenter.
+	 * The FrameBuffer must not be used by the renderer anymore after this.
+	 *
+	 * @param frameBuffer
+	 * @throws IllegalArgumentException if the FrameBuffer hasn't been acquired through {@link #acquire()}.
+	 */
+	public void present(FrameBuffer frameBuffer) {
+		put(presentedBuffers, frameBuffer, STATE_RENDERING, STATE_PRESENTED);
+	}
+
+	/**
+	 * Gives the given FrameBuffer, that has been acquired through {@link #acquire()}, back without presenting it.
+	 * This is used if the frame couldn't be rendered, so the FrameBuffer is not lost.
+	 *
+	 * @param frameBuffer
+	 * @throws IllegalArgumentException if the FrameBuffer hasn't been acquired through {@link #acquire()}.
+	 */
+	public void discard(FrameBuffer frameBuffer) {
+		put(freeBuffers, frameBuffer, STATE_RENDERING, STATE_FREE);
+	}
+
+	/**
+	 * Returns the oldest FrameBuffer that has been presented, waits until one has been presented if there is none.
+	 *
+	 * @return The FrameBuffer to present or null if the thread has been interrupted while waiting.
+	 */
+	public FrameBuffer acquirePresented() {
+		return take(presentedBuffers, STATE_PRESENTED, STATE_PRESENTING);
+	}
+
+	/**
+	 * Gives the given FrameBuffer, that has been acquired through {@link #acquirePresented()}, back to the renderer.
+	 *
+	 * @param frameBuffer
+	 * @throws IllegalArgumentException if the FrameBuffer hasn't been acquired through {@link #acquirePresented()}.
+	 */
+	public void release(FrameBuffer frameBuffer) {
+		put(freeBuffers, frameBuffer, STATE_PRESENTING, STATE_FREE);
+	}
+
+	private FrameBuffer take(BlockingQueue<FrameBuffer> queue, int state, int nextState) {
+		final FrameBuffer frameBuffer;
+		try {
+			frameBuffer = queue.take();
+		} catch (InterruptedException e) {
+			// let the caller see that it has been interrupted
+			Thread.currentThread().interrupt();
+			return null;
+		}
+		setState(frameBuffer, state, nextState);
+		return frameBuffer;
+	}
+
+	private void put(BlockingQueue<FrameBuffer> queue, FrameBuffer frameBuffer, int state, int nextState) {
+		// the state is changed before the frame buffer is in the queue, so the other side can't take it before
+		setState(frameBuffer, state, nextState);
+		queue.add(frameBuffer);
+	}
+
+	private void setState(FrameBuffer frameBuffer, int state, int nextState) {
+		int index = -1;
+		for (int i = 0; i < frameBuffers.length; i++) {
+			if(frameBuffers[i] == frameBuffer)
+				index = i;
+		}
+		if(index < 0)
+			throw new IllegalArgumentException("The frame buffer doesn't belong to this swap chain");
+		synchronized (states) {
+			if(states[index] != state)
+				throw new IllegalArgumentException("The frame buffer isn't owned by the caller");
+			states[index] = nextState;
+		}
+	}
+
+	public FrameBuffer[] getFrameBuffers() {
+		return frameBuffers;
+	}
+
+	public int getBufferCount() {
+		return frameBuffers.length;
+	}
+
+	public int getWidth() {
+		return frameBuffers[0].getWidth();
+	}
+
+	public int getHeight() {
+		return frameBuffers[0].getHeight();
+	}
+}
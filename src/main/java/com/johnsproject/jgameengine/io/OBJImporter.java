@@ -10,7 +10,6 @@ import com.johnsproject.jgameengine.model.Material;
 import com.johnsproject.jgameengine.model.Mesh;
 import com.johnsproject.jgameengine.model.Model;
 import com.johnsproject.jgameengine.model.Transform;
-import com.johnsproject.jgameengine.model.Vertex;
 import com.johnsproject.jgameengine.util.ColorUtils;
 import com.johnsproject.jgameengine.util.FileUtils;
 import com.johnsproject.jgameengine.util.FixedPointUtils;
@@ -116,9 +115,10 @@ public final class OBJImporter {
 		final List<FaceUV> faceUVs = parseFaceUVs(objectData);
 		final List<FaceData> facesData = parseFaces(objectData, materialsData);
 		final Material[] materials = materialsData.toArray(new Material[0]);
-		final Vertex[] vertices = createVertices(verticesData, facesData, materials);
-		final Face[] faces = createFaces(facesData, vertices, faceNormals, faceUVs);
-		return new Mesh(vertices, faces, materials);
+		final Mesh mesh = new Mesh(createLocalLocations(verticesData), createFaceVertices(facesData), materials);
+		createVertices(mesh, verticesData, facesData, materials);
+		createFaces(mesh, facesData, faceNormals, faceUVs);
+		return mesh;
 	}
 	
 	static List<Material> parseMaterials(String data) {
@@ -270,52 +270,53 @@ public final class OBJImporter {
 		return VectorUtils.toVector(x, y, z);
 	}
 	
-	private static Vertex[] createVertices(List<VertexData> verticesData, List<FaceData> faces, Material[] materials) {
+	private static int[] createLocalLocations(List<VertexData> verticesData) {
+		final int[] localLocations = new int[verticesData.size() * VectorUtils.VECTOR_SIZE];
+		for (int i = 0; i < verticesData.size(); i++)
+			System.arraycopy(verticesData.get(i).location, 0, localLocations, i * VectorUtils.VECTOR_SIZE, VectorUtils.VECTOR_SIZE);
+		return localLocations;
+	}
+	
+	private static int[] createFaceVertices(List<FaceData> facesData) {
+		final int[] faceVertices = new int[facesData.size() * Mesh.FACE_SIZE];
+		for (int i = 0; i < facesData.size(); i++) {
+			final FaceData faceData = facesData.get(i);
+			faceVertices[i * Mesh.FACE_SIZE] = faceData.vertexIndices[0];
+			faceVertices[i * Mesh.FACE_SIZE + 1] = faceData.vertexIndices[1];
+			faceVertices[i * Mesh.FACE_SIZE + 2] = faceData.vertexIndices[2];
+		}
+		return faceVertices;
+	}
+	
+	private static void createVertices(Mesh mesh, List<VertexData> verticesData, List<FaceData> faces, Material[] materials) {
 		for (FaceData face : faces) {
 			final int materialIndex = face.material.getIndex();
 			verticesData.get(face.vertexIndices[0]).materialIndex = materialIndex;
 			verticesData.get(face.vertexIndices[1]).materialIndex = materialIndex;
 			verticesData.get(face.vertexIndices[2]).materialIndex = materialIndex;
 		}
-		final Vertex[] vertices = new Vertex[verticesData.size()];
-		for (int i = 0; i < vertices.length; i++) {
+		for (int i = 0; i < verticesData.size(); i++) {
 			final VertexData vertexData = verticesData.get(i);
-			// clone the array so the object has no references and gets garbage collected
-			final int[] location = vertexData.location.clone();
-			final Material material = materials[vertexData.materialIndex];
-			final Vertex vertex = new Vertex(i, location, material);
-			vertices[i] = vertex;
+			mesh.getVertex(i).setMaterial(materials[vertexData.materialIndex]);
 		}
-		return vertices;
 	}
 	
-	private static Face[] createFaces(List<FaceData> facesData, Vertex[] faceVertices, List<FaceNormal> faceNormals, List<FaceUV> faceUVs) {
-		final Face[] faces = new Face[facesData.size()];
-		for (int i = 0; i < faces.length; i++) {
+	private static void createFaces(Mesh mesh, List<FaceData> facesData, List<FaceNormal> faceNormals, List<FaceUV> faceUVs) {
+		for (int i = 0; i < facesData.size(); i++) {
 			final FaceData faceData = facesData.get(i);
-			final Vertex[] vertices = new Vertex[3];
-			vertices[0] = faceVertices[faceData.vertexIndices[0]];
-			vertices[1] = faceVertices[faceData.vertexIndices[1]];
-			vertices[2] = faceVertices[faceData.vertexIndices[2]];
-			// clone the array so the object has no references and gets garbage collected
-			int[] normal = VectorUtils.emptyVector();
+			final Face face = mesh.getFace(i);
 			if(faceData.normalIndices[0] >= 0) {
-				normal = faceNormals.get(faceData.normalIndices[0]).normal.clone();
-			}
-			final int[][] uvs = new int[3][VectorUtils.VECTOR_SIZE];
-			if(faceData.uvIndices[0] >= 0) {
-				uvs[0] = faceUVs.get(faceData.uvIndices[0]).uv.clone();
+				final int[] normal = faceNormals.get(faceData.normalIndices[0]).normal;
+				face.setLocalNormal(normal);
+				face.setWorldNormal(normal);
 			}
-			if(faceData.uvIndices[1] >= 0) {
-				uvs[1] = faceUVs.get(faceData.uvIndices[1]).uv.clone();
-			}
-			if(faceData.uvIndices[2] >= 0) {
-				uvs[2] = faceUVs.get(faceData.uvIndices[2]).uv.clone();
+			for (int j = 0; j < Mesh.FACE_SIZE; j++) {
+				if(faceData.uvIndices[j] >= 0) {
+					face.setUV(j, faceUVs.get(faceData.uvIndices[j]).uv);
+				}
 			}
-			final Face face = new Face(i, vertices, normal, uvs, faceData.material);
-			faces[i] = face;
+			face.setMaterial(faceData.material);
 		}
-		return faces;
 	}
 	
 	private static Material getMaterial(List<Material> materials, String name) {
@@ -8,6 +8,7 @@ public class Armature {
 	private int currentFrame;
 	private int animationSpeed;
 	private boolean loopAnimation;
+	private int version;
 	
 	public Armature(VertexGroup[] vertexGroups, Animation[] animations) {
 		this.vertexGroups = vertexGroups;
@@ -42,7 +43,10 @@ public class Armature {
 	
 	public void playAnimation(int index, boolean loop) {
 		loopAnimation = loop;
-		currentAnimation = animations[index];
+		if(currentAnimation != animations[index]) {
+			currentAnimation = animations[index];
+			version++;
+		}
 	}
 
 	public Animation getCurrentAnimation() {
@@ -62,7 +66,11 @@ public class Armature {
 	}
 
 	public void nextFrame() {
+		// without an animation the armature doesn't change
+		if(currentAnimation == null)
+			return;
 		currentFrame += animationSpeed;
+		version++;
 		if(!isPlaying()) {
 			if(loopAnimation) {
 				currentFrame = 0;
@@ -81,9 +89,21 @@ public class Armature {
 	}
 	
 	public void stopPlaying() {
+		if((currentFrame != 0) || (currentAnimation != null))
+			version++;
 		currentFrame = 0;
 		currentAnimation = null;
 	}
+	
+	/**
+	 * Returns the version of this armature. The version changes each time the
+	 * animation frame of this armature changes.
+	 * 
+	 * @return The version of this armature.
+	 */
+	public int getVersion() {
+		return version;
+	}
 
 	public int getAnimationSpeed() {
 		return animationSpeed;
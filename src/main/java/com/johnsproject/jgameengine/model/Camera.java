@@ -10,6 +10,7 @@ public class Camera extends SceneObject {
 	private FrameBuffer renderTarget;
 	private int lightDistance;
 	private boolean isMain;
+	private boolean depthPrePass;
 
 	public Camera(String name, Transform transform) {
 		super(name, transform);
@@ -19,6 +20,7 @@ public class Camera extends SceneObject {
 		this.frustum = new Frustum(0, FP_ONE, 0, FP_ONE, FP_ONE, FP_ONE * 1000);
 		this.lightDistance = FP_ONE * 100;
 		this.isMain = false;
+		this.depthPrePass = false;
 	}
 	
 	public Camera(String name, Transform transform, Frustum frustum) {
@@ -34,10 +36,18 @@ public class Camera extends SceneObject {
 		return renderTarget;
 	}
 
+	/**
+	 * Sets the frame buffer this camera renders to. The camera renders to the viewport of the frame buffer.
+	 * 
+	 * @param renderTarget
+	 */
 	public void setRenderTarget(FrameBuffer renderTarget) {
-		if(this.renderTarget != renderTarget) {
+		final int width = renderTarget.getViewportWidth();
+		final int height = renderTarget.getViewportHeight();
+		if((this.renderTarget != renderTarget) || (frustum.getRenderTargetWidth() != width)
+				|| (frustum.getRenderTargetHeight() != height)) {
 			this.renderTarget = renderTarget;
-			frustum.setRenderTargetSize(renderTarget.getWidth(), renderTarget.getHeight());
+			frustum.setRenderTargetSize(width, height);
 		}
 	}
 
@@ -68,4 +78,19 @@ public class Camera extends SceneObject {
 	public void setMain(boolean isMain) {
 		this.isMain = isMain;
 	}
+
+	public boolean hasDepthPrePass() {
+		return depthPrePass;
+	}
+
+	/**
+	 * Sets if the depth of the models is drawn before they are shaded, when rendering this camera.
+	 * The shaders then only shade the closest fragment of each pixel, at the cost of drawing
+	 * the models twice.
+	 * 
+	 * @param depthPrePass Default is false.
+	 */
+	public void setDepthPrePass(boolean depthPrePass) {
+		this.depthPrePass = depthPrePass;
+	}
 }
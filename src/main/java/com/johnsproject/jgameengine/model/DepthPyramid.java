@@ -0,0 +1,367 @@
+package com.johnsproject.jgameengine.model;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The DepthPyramid is a hierarchical view of the depth buffer of a {@link FrameBuffer}.
+ * The first level stores the biggest depth of each block of {@value #BLOCK_SIZE}x{@value #BLOCK_SIZE}
+ * pixels, and each of the next levels the biggest depth of 2x2 blocks of the level below.
+ * If the biggest depth of the blocks an area covers isn't bigger than the depth of something
+ * drawn to that area, that is hidden behind what's already in the depth buffer.
+ * <br><br>
+ * Rasterizers mark the blocks they draw to through {@link #markDirty(int, int, int)}, the depths
+ * of the marked blocks are recalculated by {@link #update()}. As depths only get smaller while
+ * drawing, the depths of a block are never too small until it's updated, only less accurate.
+ * The marked blocks are also used to keep track of the area that has been drawn to since the last {@link #reset()}.
+ */
+public class DepthPyramid {
+	
+	private static final int BLOCK_SIZE_BIT = 3;
+	public static final int BLOCK_SIZE = 1 << BLOCK_SIZE_BIT;
+	private static final int MAX_QUERY_BLOCKS = 4;
+	
+	private final Texture depthBuffer;
+	private final int[][] levels;
+	private final int[] levelWidths;
+	private final int[] levelHeights;
+	private final boolean[] dirtyBlocks;
+	private final boolean[] dirtyRows;
+	private final boolean[] writtenColumns;
+	private final boolean[] writtenRows;
+	private final AtomicInteger rejectedModels;
+	private final AtomicInteger rejectedFaces;
+	private final AtomicInteger rejectedFragments;
+	private final int[] shadedFragments;
+	private final int[] depthFragments;
+	
+	public DepthPyramid(Texture depthBuffer) {
+		this.depthBuffer = depthBuffer;
+		int width = Math.max((depthBuffer.getWidth() + BLOCK_SIZE - 1) >> BLOCK_SIZE_BIT, 1);
+		int height = Math.max((depthBuffer.getHeight() + BLOCK_SIZE - 1) >> BLOCK_SIZE_BIT, 1);
+		int levelCount = 1;
+		for (int w = width, h = height; (w > 1) || (h > 1); w = (w + 1) >> 1, h = (h + 1) >> 1)
+			levelCount++;
+		this.levels = new int[levelCount][];
+		this.levelWidths = new int[levelCount];
+		this.levelHeights = new int[levelCount];
+		for (int i = 0; i < levelCount; i++) {
+			levelWidths[i] = width;
+			levelHeights[i] = height;
+			levels[i] = new int[width * height];
+			width = (width + 1) >> 1;
+			height = (height + 1) >> 1;
+		}
+		this.dirtyBlocks = new boolean[levels[0].length];
+		this.dirtyRows = new boolean[levelHeights[0]];
+		this.writtenColumns = new boolean[levelWidths[0]];
+		this.writtenRows = new boolean[levelHeights[0]];
+		this.rejectedModels = new AtomicInteger();
+		this.rejectedFaces = new AtomicInteger();
+		this.rejectedFragments = new AtomicInteger();
+		this.shadedFragments = new int[levels[0].length];
+		this.depthFragments = new int[levels[0].length];
+		reset();
+	}
+	
+	/**
+	 * Resets this DepthPyramid and its counters.
+	 * This method needs to be called after the depth buffer is filled with Integer.MAX_VALUE.
+	 */
+	public void reset() {
+		for (int i = 0; i < levels.length; i++) {
+			final int[] level = levels[i];
+			for (int j = 0; j < level.length; j++)
+				level[j] = Integer.MAX_VALUE;
+		}
+		for (int i = 0; i < dirtyBlocks.length; i++)
+			dirtyBlocks[i] = false;
+		for (int i = 0; i < dirtyRows.length; i++) {
+			dirtyRows[i] = false;
+			writtenRows[i] = false;
+		}
+		for (int i = 0; i < writtenColumns.length; i++)
+			writtenColumns[i] = false;
+		for (int i = 0; i < shadedFragments.length; i++) {
+			shadedFragments[i] = 0;
+			depthFragments[i] = 0;
+		}
+		rejectedModels.set(0);
+		rejectedFaces.set(0);
+		rejectedFragments.set(0);
+	}
+	
+	/**
+	 * Marks the blocks the given row of pixels is in, so their depths are recalculated in the next
+	 * {@link #update()}. Rasterizers running in parallel can mark blocks at the same time, but this
+	 * DepthPyramid must not be updated while they run.
+	 * 
+	 * @param left
+	 * @param right
+	 * @param y
+	 */
+	public void markDirty(int left, int right, int y) {
+		left = clampX(left) >> BLOCK_SIZE_BIT;
+		right = clampX(right) >> BLOCK_SIZE_BIT;
+		final int row = clampY(y) >> BLOCK_SIZE_BIT;
+		final int offset = row * levelWidths[0];
+		for (int x = left; x <= right; x++) {
+			dirtyBlocks[offset + x] = true;
+			writtenColumns[x] = true;
+		}
+		dirtyRows[row] = true;
+		writtenRows[row] = true;
+	}
+	
+	/**
+	 * Returns the bounds of the blocks that have been marked since the last {@link #reset()}, as left, top,
+	 * right (exclusive) and bottom (exclusive) pixel. If no block has been marked the bounds are empty.
+	 * 
+	 * @param result
+	 * @return The result array.
+	 */
+	public int[] getWrittenArea(int[] result) {
+		int left = writtenColumns.length;
+		int right = 0;
+		for (int x = 0; x < writtenColumns.length; x++) {
+			if(writtenColumns[x]) {
+				left = Math.min(left, x);
+				right = x + 1;
+			}
+		}
+		int top = writtenRows.length;
+		int bottom = 0;
+		for (int y = 0; y < writtenRows.length; y++) {
+			if(writtenRows[y]) {
+				top = Math.min(top, y);
+				bottom = y + 1;
+			}
+		}
+		result[0] = Math.min(left << BLOCK_SIZE_BIT, depthBuffer.getWidth());
+		result[1] = Math.min(top << BLOCK_SIZE_BIT, depthBuffer.getHeight());
+		result[2] = Math.min(right << BLOCK_SIZE_BIT, depthBuffer.getWidth());
+		result[3] = Math.min(bottom << BLOCK_SIZE_BIT, depthBuffer.getHeight());
+		return result;
+	}
+	
+	/**
+	 * Recalculates the depths of the blocks that have been marked as dirty.
+	 */
+	public void update() {
+		final int width = levelWidths[0];
+		for (int y = 0; y < dirtyRows.length; y++) {
+			if(!dirtyRows[y])
+				continue;
+			dirtyRows[y] = false;
+			for (int x = 0; x < width; x++) {
+				final int index = x + y * width;
+				if(dirtyBlocks[index]) {
+					dirtyBlocks[index] = false;
+					levels[0][index] = getBlockDepth(x, y);
+					updateParents(x, y);
+				}
+			}
+		}
+	}
+	
+	private int getBlockDepth(int blockX, int blockY) {
+		final int[] pixels = depthBuffer.getPixels();
+		final int bufferWidth = depthBuffer.getWidth();
+		final int left = blockX << BLOCK_SIZE_BIT;
+		final int top = blockY << BLOCK_SIZE_BIT;
+		final int right = Math.min(left + BLOCK_SIZE, bufferWidth);
+		final int bottom = Math.min(top + BLOCK_SIZE, depthBuffer.getHeight());
+		int depth = Integer.MIN_VALUE;
+		for (int y = top; y < bottom; y++) {
+			final int offset = y * bufferWidth;
+			for (int x = left; x < right; x++)
+				depth = Math.max(depth, pixels[x + offset]);
+		}
+		return depth;
+	}
+	
+	private void updateParents(int x, int y) {
+		for (int i = 1; i < levels.length; i++) {
+			x >>= 1;
+			y >>= 1;
+			final int[] children = levels[i - 1];
+			final int childWidth = levelWidths[i - 1];
+			final int childLeft = x << 1;
+			final int childTop = y << 1;
+			final int childRight = Math.min(childLeft + 1, childWidth - 1);
+			final int childBottom = Math.min(childTop + 1, levelHeights[i - 1] - 1);
+			int depth = children[childLeft + childTop * childWidth];
+			depth = Math.max(depth, children[childRight + childTop * childWidth]);
+			depth = Math.max(depth, children[childLeft + childBottom * childWidth]);
+			depth = Math.max(depth, children[childRight + childBottom * childWidth]);
+			levels[i][x + y * levelWidths[i]] = depth;
+		}
+	}
+	
+	/**
+	 * Returns if everything in the given area with a depth of at least the given depth
+	 * is hidden behind what's in the depth buffer. The test is done on the first level
+	 * where the area is at most {@value #MAX_QUERY_BLOCKS} blocks wide and high.
+	 * 
+	 * @param left
+	 * @param top
+	 * @param right
+	 * @param bottom
+	 * @param depth
+	 * @return
+	 */
+	public boolean isHidden(int left, int top, int right, int bottom, int depth) {
+		left = Math.max(left, 0);
+		top = Math.max(top, 0);
+		right = Math.min(right, depthBuffer.getWidth() - 1);
+		bottom = Math.min(bottom, depthBuffer.getHeight() - 1);
+		if((left > right) || (top > bottom))
+			return false;
+		int level = 0;
+		int shift = BLOCK_SIZE_BIT;
+		while((level < levels.length - 1)
+				&& (((right >> shift) - (left >> shift) >= MAX_QUERY_BLOCKS)
+				|| ((bottom >> shift) - (top >> shift) >= MAX_QUERY_BLOCKS))) {
+			level++;
+			shift++;
+		}
+		final int[] blocks = levels[level];
+		final int width = levelWidths[level];
+		for (int y = top >> shift; y <= bottom >> shift; y++) {
+			for (int x = left >> shift; x <= right >> shift; x++) {
+				if(blocks[x + y * width] > depth)
+					return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Returns if everything in the given row of pixels with a depth of at least the
+	 * given depth is hidden behind what's in the depth buffer.
+	 * 
+	 * @param left
+	 * @param right
+	 * @param y
+	 * @param depth
+	 * @return
+	 */
+	public boolean isHidden(int left, int right, int y, int depth) {
+		// pixels outside of the depth buffer are clamped to its edges, so are the blocks
+		left = clampX(left) >> BLOCK_SIZE_BIT;
+		right = clampX(right) >> BLOCK_SIZE_BIT;
+		final int offset = (clampY(y) >> BLOCK_SIZE_BIT) * levelWidths[0];
+		final int[] blocks = levels[0];
+		for (int x = left; x <= right; x++) {
+			if(blocks[offset + x] > depth)
+				return false;
+		}
+		return true;
+	}
+	
+	private int getBlockIndex(int x, int y) {
+		return (clampX(x) >> BLOCK_SIZE_BIT) + (clampY(y) >> BLOCK_SIZE_BIT) * levelWidths[0];
+	}
+	
+	private int clampX(int x) {
+		return Math.min(Math.max(x, 0), depthBuffer.getWidth() - 1);
+	}
+	
+	private int clampY(int y) {
+		return Math.min(Math.max(y, 0), depthBuffer.getHeight() - 1);
+	}
+	
+	public void addRejectedModel() {
+		rejectedModels.incrementAndGet();
+	}
+	
+	public void addRejectedFace() {
+		rejectedFaces.incrementAndGet();
+	}
+	
+	public void addRejectedFragments(int count) {
+		rejectedFragments.addAndGet(count);
+	}
+	
+	/**
+	 * Counts a fragment that has been shaded at the given pixel. The fragments are counted per block, 
+	 * so shaders running in parallel can count fragments as long as they don't draw to the same blocks.
+	 * 
+	 * @param x
+	 * @param y
+	 */
+	public void addShadedFragment(int x, int y) {
+		shadedFragments[getBlockIndex(x, y)]++;
+	}
+	
+	/**
+	 * Counts a fragment that has been written to the depth buffer by the depth pre-pass at the given pixel.
+	 * The fragments are counted per block, like the ones counted by {@link #addShadedFragment(int, int)}.
+	 * 
+	 * @param x
+	 * @param y
+	 */
+	public void addDepthFragment(int x, int y) {
+		depthFragments[getBlockIndex(x, y)]++;
+	}
+	
+	/**
+	 * Returns how many models have been skipped since the last {@link #reset()},
+	 * because they were hidden.
+	 * 
+	 * @return
+	 */
+	public int getRejectedModels() {
+		return rejectedModels.get();
+	}
+	
+	/**
+	 * Returns how many faces have been skipped by the rasterizers since the
+	 * last {@link #reset()}, because they were hidden.
+	 * 
+	 * @return
+	 */
+	public int getRejectedFaces() {
+		return rejectedFaces.get();
+	}
+	
+	/**
+	 * Returns how many fragments of drawn faces have been skipped by the rasterizers
+	 * since the last {@link #reset()}, because they were hidden.
+	 * 
+	 * @return
+	 */
+	public int getRejectedFragments() {
+		return rejectedFragments.get();
+	}
+	
+	/**
+	 * Returns how many fragments have been shaded since the last {@link #reset()}.
+	 * 
+	 * @return
+	 */
+	public int getShadedFragments() {
+		return sum(shadedFragments);
+	}
+	
+	/**
+	 * Returns how many fragments have been written by the depth pre-pass since the last {@link #reset()}.
+	 * As the depth pre-pass draws the faces in the same order as the shaders, this is how many fragments
+	 * would have been shaded without it.
+	 * 
+	 * @return
+	 */
+	public int getDepthFragments() {
+		return sum(depthFragments);
+	}
+	
+	private static int sum(int[] values) {
+		int sum = 0;
+		for (int i = 0; i < values.length; i++)
+			sum += values[i];
+		return sum;
+	}
+	
+	public Texture getDepthBuffer() {
+		return depthBuffer;
+	}
+}
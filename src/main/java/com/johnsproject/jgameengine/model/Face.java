@@ -1,54 +1,94 @@
 package com.johnsproject.jgameengine.model;
 
+import static com.johnsproject.jgameengine.model.Mesh.FACE_SIZE;
+import static com.johnsproject.jgameengine.model.Mesh.UV_SIZE;
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_SIZE;
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_X;
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_Y;
+
+/**
+ * The Face is a view to the data of one face of a {@link Mesh}.
+ * The vectors of the face are copied into and out of the arrays of the Mesh.
+ */
 public class Face {
-		
+	
+	private final Mesh mesh;
 	private final int index;
-	private final Vertex[] vertices;
-	private final int[] localNormal;
-	private final int[] worldNormal;
-	private final int[][] uvs;
-	private final Material material;
-	private int lightColor;
-	
-	public Face(int index, Vertex[] vertices, int[] normal, int[][] uvs, Material material) {
+	
+	Face(Mesh mesh, int index) {
+		this.mesh = mesh;
 		this.index = index;
-		this.vertices = vertices;
-		this.localNormal = normal;
-		this.worldNormal = normal.clone();
-		this.uvs = uvs;
-		this.material = material;
 	}
-
+	
 	public int getIndex() {
 		return index;
 	}
-
+	
+	public Mesh getMesh() {
+		return mesh;
+	}
+	
 	public Vertex getVertex(int index) {
-		return vertices[index];
+		return mesh.getVertex(getVertexIndex(index));
 	}
 	
-	public Vertex[] getVertices() {
-		return vertices;
+	public int getVertexIndex(int index) {
+		return mesh.getFaceVertices()[this.index * FACE_SIZE + index];
 	}
 	
-	public int[] getLocalNormal() {
-		return localNormal;
+	public int[] getLocalNormal(int[] result) {
+		System.arraycopy(mesh.getFaceLocalNormals(), index * VECTOR_SIZE, result, 0, VECTOR_SIZE);
+		return result;
 	}
-
-	public int[] getWorldNormal() {
-		return worldNormal;
+	
+	public void setLocalNormal(int[] localNormal) {
+		System.arraycopy(localNormal, 0, mesh.getFaceLocalNormals(), index * VECTOR_SIZE, VECTOR_SIZE);
+		mesh.invalidateWorldSpace();
 	}
-
-	public int[] getUV(int index) {
-		return uvs[index];
+	
+	public int[] getWorldNormal(int[] result) {
+		System.arraycopy(mesh.getFaceWorldNormals(), index * VECTOR_SIZE, result, 0, VECTOR_SIZE);
+		return result;
 	}
-
-	public int[][] getUVs() {
-		return uvs;
+	
+	public void setWorldNormal(int[] worldNormal) {
+		System.arraycopy(worldNormal, 0, mesh.getFaceWorldNormals(), index * VECTOR_SIZE, VECTOR_SIZE);
 	}
-
+	
+	/**
+	 * Copies the uv of the vertex at the given index of this {@link Face} into the
+	 * x and y components of result.
+	 * 
+	 * @param index of the vertex.
+	 * @param result vector to copy the uv into.
+	 * @return The result vector.
+	 */
+	public int[] getUV(int index, int[] result) {
+		final int offset = (this.index * FACE_SIZE + index) * UV_SIZE;
+		result[VECTOR_X] = mesh.getFaceUVs()[offset];
+		result[VECTOR_Y] = mesh.getFaceUVs()[offset + 1];
+		return result;
+	}
+	
+	/**
+	 * Sets the uv of the vertex at the given index of this {@link Face} to the
+	 * x and y components of uv.
+	 * 
+	 * @param index of the vertex.
+	 * @param uv to set.
+	 */
+	public void setUV(int index, int[] uv) {
+		final int offset = (this.index * FACE_SIZE + index) * UV_SIZE;
+		mesh.getFaceUVs()[offset] = uv[VECTOR_X];
+		mesh.getFaceUVs()[offset + 1] = uv[VECTOR_Y];
+	}
+	
 	public Material getMaterial() {
-		return material;
+		return mesh.getFaceMaterials()[index];
+	}
+	
+	public void setMaterial(Material material) {
+		mesh.getFaceMaterials()[index] = material;
 	}
 	
 	/**
@@ -59,17 +99,17 @@ public class Face {
 	 * @return The light color of this Face.
 	 */
 	public int getLightColor() {
-		return lightColor;
+		return mesh.getFaceLightColors()[index];
 	}
-
+	
 	/**
 	 * Sets the light color of this {@link Face}.
-	 * The light color is the color of all lights that reach and affect the illumination of 
+	 * The light color is the color of all lights that reach and affect the illumination of
 	 * this Vertex put together.
 	 * 
 	 * @param lightColor to set.
 	 */
 	public void setLightColor(int lightColor) {
-		this.lightColor = lightColor;
+		mesh.getFaceLightColors()[index] = lightColor;
 	}
 }
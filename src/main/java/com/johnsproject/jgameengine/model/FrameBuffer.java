@@ -7,11 +7,19 @@ import com.johnsproject.jgameengine.util.ColorUtils;
 
 public class FrameBuffer {
 
+	public static final int COLOR_BUFFER = 1;
+	public static final int DEPTH_BUFFER = 2;
+	public static final int STENCIL_BUFFER = 4;
+	
 	private final int[] size;
 	private final BufferedImage image;
 	private final Texture colorBuffer;
 	private final Texture depthBuffer;
 	private final Texture stencilBuffer;
+	private final DepthPyramid depthPyramid;
+	private int clearedBuffers;
+	private int viewportWidth;
+	private int viewportHeight;
 
 	public FrameBuffer(BufferedImage image) {
 		this.size = new int[] {image.getWidth(), image.getHeight(), 0, 0};
@@ -21,6 +29,9 @@ public class FrameBuffer {
 		this.colorBuffer = new Texture(size[0], size[1], pixelBuffer);
 		this.depthBuffer = new Texture(size[0], size[1]);
 		this.stencilBuffer = new Texture(size[0], size[1]);
+		this.depthPyramid = new DepthPyramid(depthBuffer);
+		this.viewportWidth = size[0];
+		this.viewportHeight = size[1];
 	}
 	
 	public FrameBuffer(int width, int height) {
@@ -31,6 +42,9 @@ public class FrameBuffer {
 		this.colorBuffer = new Texture(width, height, pixelBuffer);
 		this.depthBuffer = new Texture(width, height);
 		this.stencilBuffer = new Texture(width, height);
+		this.depthPyramid = new DepthPyramid(depthBuffer);
+		this.viewportWidth = size[0];
+		this.viewportHeight = size[1];
 	}
 
 	public BufferedImage getImage() {
@@ -48,6 +62,57 @@ public class FrameBuffer {
 	public Texture getStencilBuffer() {
 		return stencilBuffer;
 	}
+	
+	/**
+	 * Returns the hierarchical view of the depth buffer of this FrameBuffer.
+	 * It needs to be reset when the depth buffer is cleared.
+	 * 
+	 * @return The depth pyramid of this FrameBuffer.
+	 */
+	public DepthPyramid getDepthPyramid() {
+		return depthPyramid;
+	}
+
+	/**
+	 * Returns the buffers of this FrameBuffer that have been cleared before it has been rendered to 
+	 * the last time, as a combination of {@link #COLOR_BUFFER}, {@link #DEPTH_BUFFER} and {@link #STENCIL_BUFFER}.
+	 * 
+	 * @return The cleared buffers.
+	 */
+	public int getClearedBuffers() {
+		return clearedBuffers;
+	}
+
+	public void setClearedBuffers(int clearedBuffers) {
+		this.clearedBuffers = clearedBuffers;
+	}
+
+	/**
+	 * Sets the size of the area at the top left of this FrameBuffer that is rendered to and presented.
+	 * The buffers keep their size, so the viewport can be changed between frames without allocating 
+	 * new buffers. The size is clamped to the size of this FrameBuffer.
+	 * 
+	 * @param width
+	 * @param height
+	 */
+	public void setViewportSize(int width, int height) {
+		width = Math.min(Math.max(width, 1), size[0]);
+		height = Math.min(Math.max(height, 1), size[1]);
+		if((width != viewportWidth) || (height != viewportHeight)) {
+			viewportWidth = width;
+			viewportHeight = height;
+			// what has been drawn outside of the new viewport needs to be cleared
+			clearedBuffers = 0;
+		}
+	}
+
+	public int getViewportWidth() {
+		return viewportWidth;
+	}
+
+	public int getViewportHeight() {
+		return viewportHeight;
+	}
 
 	public int getWidth() {
 		return size[0];
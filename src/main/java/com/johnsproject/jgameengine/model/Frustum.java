@@ -1,12 +1,23 @@
 package com.johnsproject.jgameengine.model;
 
+import static com.johnsproject.jgameengine.util.FixedPointUtils.FP_BIT;
 import static com.johnsproject.jgameengine.util.FixedPointUtils.FP_ONE;
+import static com.johnsproject.jgameengine.util.MatrixUtils.M30;
+import static com.johnsproject.jgameengine.util.MatrixUtils.M31;
+import static com.johnsproject.jgameengine.util.MatrixUtils.M32;
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_W;
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_X;
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_Y;
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_Z;
 
 import com.johnsproject.jgameengine.util.FixedPointUtils;
 import com.johnsproject.jgameengine.util.MatrixUtils;
 import com.johnsproject.jgameengine.util.TransformationUtils;
+import com.johnsproject.jgameengine.util.VectorUtils;
 
 public class Frustum {
+	
+	private static final byte PLANE_COUNT = 6;
 
 	private int left;
 	private int right;
@@ -24,13 +35,18 @@ public class Frustum {
 	private int renderTargetHeight;
 
 	private int focalLength;
-	private int[][] projectionMatrix;
+	private int[] projectionMatrix;
+	
+	private final int[][] planes;
+	private final int[][] worldPlanes;
 	
 	private FrustumType type;
 	
 	public Frustum() {
 		this.focalLength = FP_ONE;
 		this.projectionMatrix = MatrixUtils.indentityMatrix();
+		this.planes = new int[PLANE_COUNT][VectorUtils.VECTOR_SIZE];
+		this.worldPlanes = new int[PLANE_COUNT][VectorUtils.VECTOR_SIZE];
 		this.type = FrustumType.PERSPECTIVE;
 	}
 
@@ -63,6 +79,96 @@ public class Frustum {
 			TransformationUtils.perspectiveMatrix(projectionMatrix, this);
 			break;
 		}
+		recalculatePlanes();
+	}
+	
+	/**
+	 * Calculates the camera space planes of this frustum from the render target frustum, the same way
+	 * the projection matrix and {@link TransformationUtils#screenportVector} port vectors to screen space.
+	 * The x, y and z components of a plane are its normal, pointing inside, and the w component
+	 * is its distance to the origin.
+	 */
+	private void recalculatePlanes() {
+		final int scaleFactor = FixedPointUtils.multiply(focalLength, renderTargetBottom - renderTargetTop + 1);
+		final int halfWidth = renderTargetLeft + ((renderTargetRight - renderTargetLeft) >> 1);
+		final int halfHeight = renderTargetTop + ((renderTargetBottom - renderTargetTop) >> 1);
+		final int leftSize = halfWidth - renderTargetLeft;
+		final int rightSize = renderTargetRight - halfWidth;
+		final int topSize = halfHeight - renderTargetTop;
+		final int bottomSize = renderTargetBottom - halfHeight;
+		switch (type) {
+		case ORTHOGRAPHIC:
+			final int scale = Math.max(scaleFactor >> 5, 1);
+			setPlane(planes[0], FP_ONE, 0, 0, FixedPointUtils.divide(leftSize, scale));
+			setPlane(planes[1], -FP_ONE, 0, 0, FixedPointUtils.divide(rightSize, scale));
+			setPlane(planes[2], 0, -FP_ONE, 0, FixedPointUtils.divide(topSize, scale));
+			setPlane(planes[3], 0, FP_ONE, 0, FixedPointUtils.divide(bottomSize, scale));
+			break;
+
+		case PERSPECTIVE:
+			// the side planes go through the camera, the ratio is used as it keeps more precision
+			final int perspectiveScale = Math.max(scaleFactor, 1);
+			setPlane(planes[0], FP_ONE, 0, -FixedPointUtils.divide(leftSize, perspectiveScale), 0);
+			setPlane(planes[1], -FP_ONE, 0, -FixedPointUtils.divide(rightSize, perspectiveScale), 0);
+			setPlane(planes[2], 0, -FP_ONE, -FixedPointUtils.divide(topSize, perspectiveScale), 0);
+			setPlane(planes[3], 0, FP_ONE, -FixedPointUtils.divide(bottomSize, perspectiveScale), 0);
+			break;
+		}
+		// the camera looks at -z
+		setPlane(planes[4], 0, 0, -FP_ONE, -near);
+		setPlane(planes[5], 0, 0, FP_ONE, far);
+	}
+	
+	private void setPlane(int[] plane, int x, int y, int z, int distance) {
+		plane[VECTOR_X] = x;
+		plane[VECTOR_Y] = y;
+		plane[VECTOR_Z] = z;
+		VectorUtils.normalize(plane);
+		plane[VECTOR_W] = distance;
+	}
+	
+	/**
+	 * Transforms the planes of this frustum to the world space of the given camera transform.
+	 * The transformed planes are returned by {@link #getWorldPlanes()}.
+	 * 
+	 * @param cameraTransform transform of the camera this frustum belongs to.
+	 */
+	public void recalculateWorldPlanes(Transform cameraTransform) {
+		final int[] normalMatrix = cameraTransform.getSpaceExitNormalMatrix();
+		final int[] matrix = cameraTransform.getSpaceExitMatrix();
+		for (int i = 0; i < PLANE_COUNT; i++) {
+			final int[] plane = planes[i];
+			final int[] worldPlane = worldPlanes[i];
+			VectorUtils.copy(worldPlane, plane);
+			VectorUtils.multiplyAffineMatrix(worldPlane, normalMatrix);
+			VectorUtils.normalize(worldPlane);
+			// move the plane to the location of the camera
+			long distance = (long)worldPlane[VECTOR_X] * matrix[M30];
+			distance += (long)worldPlane[VECTOR_Y] * matrix[M31];
+			distance += (long)worldPlane[VECTOR_Z] * matrix[M32];
+			worldPlane[VECTOR_W] = plane[VECTOR_W] - (int)(distance >> FP_BIT);
+		}
+	}
+	
+	/**
+	 * Returns if a sphere with the given world space center and radius is at least partly
+	 * inside of this frustum. Uses the planes calculated by {@link #recalculateWorldPlanes(Transform)}.
+	 * 
+	 * @param center world space center of the sphere.
+	 * @param radius fixed point radius of the sphere.
+	 * @return If the sphere is inside of this frustum.
+	 */
+	public boolean isSphereInside(int[] center, int radius) {
+		for (int i = 0; i < PLANE_COUNT; i++) {
+			final int[] plane = worldPlanes[i];
+			long distance = (long)plane[VECTOR_X] * center[VECTOR_X];
+			distance += (long)plane[VECTOR_Y] * center[VECTOR_Y];
+			distance += (long)plane[VECTOR_Z] * center[VECTOR_Z];
+			distance = (distance >> FP_BIT) + plane[VECTOR_W];
+			if(distance < -radius)
+				return false;
+		}
+		return true;
 	}
 
 	public void setFrustum(int left, int right, int top, int bottom, int near, int far) {
@@ -80,6 +186,7 @@ public class Frustum {
 		this.renderTargetRight = right;
 		this.renderTargetTop = top;
 		this.renderTargetBottom = bottom;
+		recalculatePlanes();
 	}
 	
 	public void setRenderTargetSize(int width, int height) {
@@ -154,9 +261,20 @@ public class Frustum {
 		return renderTargetHeight;
 	}
 
-	public int[][] getProjectionMatrix() {
+	public int[] getProjectionMatrix() {
 		return projectionMatrix;
 	}
+	
+	/**
+	 * Returns the world space planes of this frustum, left, right, top, bottom, near and far.
+	 * The x, y and z components of a plane are its normal, pointing inside, and the w component
+	 * is its distance to the origin.
+	 * 
+	 * @return The world space planes of this frustum.
+	 */
+	public int[][] getWorldPlanes() {
+		return worldPlanes;
+	}
 
 	public FrustumType getType() {
 		return type;
@@ -11,6 +11,9 @@ public class Light extends SceneObject {
 	
 	private static final int DIRECTIONAL_BIAS = FixedPointUtils.toFixedPoint(0.05f);
 	private static final int SPOT_BIAS = FixedPointUtils.toFixedPoint(2f);
+	// as colors are rounded, a light attenuated by more than 1 / 512 doesn't change colors with 8 bits
+	// per channel anymore, a bit more is added to leave room for the rounding of the attenuation
+	private static final double RANGE_ATTENUATION = 514;
 	
 	private LightType type;
 	private int intensity;
@@ -18,6 +21,8 @@ public class Light extends SceneObject {
 	private int ambientColor;
 	private final int[] directionRotation;
 	private final int[] direction;
+	private Transform directionParent;
+	private int directionParentVersion;
 	private int spotSize;
 	private int spotSizeCos;
 	private int innerSpotSize;
@@ -26,6 +31,7 @@ public class Light extends SceneObject {
 	private int constantAttenuation;
 	private int linearAttenuation;
 	private int quadraticAttenuation;
+	private int range;
 	private int shadowBias;
 	private boolean hasShadow;
 	private boolean isMain;
@@ -43,6 +49,7 @@ public class Light extends SceneObject {
 		this.constantAttenuation = FixedPointUtils.toFixedPoint(1);
 		this.linearAttenuation = FixedPointUtils.toFixedPoint(0.09);
 		this.quadraticAttenuation = FixedPointUtils.toFixedPoint(0.032);
+		calculateRange();
 		this.shadowBias = DIRECTIONAL_BIAS;
 		this.hasShadow = true;
 		this.isMain = false;
@@ -81,6 +88,7 @@ public class Light extends SceneObject {
 
 	public void setIntensity(int strength) {
 		this.intensity = strength;
+		calculateRange();
 	}
 
 	public int getColor() {
@@ -101,18 +109,31 @@ public class Light extends SceneObject {
 
 	/**
 	 * Returns the direction of this {@link Light}.
-	 * The direction is calculated based on the light's rotation.
+	 * The direction is calculated based on the light's rotation and the rotation and scale of its parents,
+	 * it's the normalized forward vector of the light transformed like the locations of its children.
 	 * 
 	 * @return The direction of this Light.
 	 */
 	public int[] getDirection() {
-		if(!VectorUtils.equals(directionRotation, transform.getRotation())) {
+		final Transform parent = transform.getParent();
+		final int parentVersion = parent == null ? 0 : parent.getVersion();
+		if(!VectorUtils.equals(directionRotation, transform.getRotation())
+				|| (directionParent != parent) || (directionParentVersion != parentVersion)) {
 			synchronized (directionRotation) {
 				VectorUtils.copy(directionRotation, transform.getRotation());
 				VectorUtils.copy(direction, VectorUtils.VECTOR_FORWARD);
 				TransformationUtils.rotateX(direction, directionRotation[VectorUtils.VECTOR_X]);
 				TransformationUtils.rotateY(direction, directionRotation[VectorUtils.VECTOR_Y]);
 				TransformationUtils.rotateZ(direction, directionRotation[VectorUtils.VECTOR_Z]);
+				if(parent != null) {
+					// directions are transformed like locations, without the translation, the normal matrix would
+					// scale them inversely. Subtracting the world location of the parent removes its translation
+					VectorUtils.multiplyAffineMatrix(direction, parent.getSpaceExitMatrix());
+					VectorUtils.subtract(direction, parent.getWorldLocation());
+					VectorUtils.normalize(direction);
+				}
+				directionParent = parent;
+				directionParentVersion = parentVersion;
 			}
 		}
 		return direction;
@@ -180,6 +201,7 @@ public class Light extends SceneObject {
 
 	public void setConstantAttenuation(int constantAttenuation) {
 		this.constantAttenuation = constantAttenuation;
+		calculateRange();
 	}
 
 	public int getLinearAttenuation() {
@@ -188,6 +210,7 @@ public class Light extends SceneObject {
 
 	public void setLinearAttenuation(int linearAttenuation) {
 		this.linearAttenuation = linearAttenuation;
+		calculateRange();
 	}
 
 	public int getQuadraticAttenuation() {
@@ -196,6 +219,39 @@ public class Light extends SceneObject {
 
 	public void setQuadraticAttenuation(int quadraticAttenuation) {
 		this.quadraticAttenuation = quadraticAttenuation;
+		calculateRange();
+	}
+
+	/**
+	 * Returns the distance from this {@link Light} where it is attenuated so much, that it doesn't
+	 * change the color of what it lights anymore. The brighter the light the bigger the range, as the
+	 * attenuated light is multiplied with the intensity. The range is only used by point and spot lights,
+	 * if their attenuation doesn't grow with the distance the range is Integer.MAX_VALUE.
+	 * 
+	 * @return The range of this Light.
+	 */
+	public int getRange() {
+		return range;
+	}
+	
+	private void calculateRange() {
+		// the light is multiplied with the intensity after the attenuation, so it needs to be attenuated more
+		final double attenuation = RANGE_ATTENUATION * FixedPointUtils.toDouble(intensity);
+		final double constant = FixedPointUtils.toDouble(constantAttenuation) - attenuation;
+		final double linear = FixedPointUtils.toDouble(linearAttenuation);
+		final double quadratic = FixedPointUtils.toDouble(quadraticAttenuation);
+		// solve quadratic * distance^2 + linear * distance + constant = 0
+		double distance = Double.MAX_VALUE;
+		if(constant >= 0)
+			distance = 0;
+		else if(quadratic > 0)
+			distance = (-linear + Math.sqrt((linear * linear) - (4 * quadratic * constant))) / (2 * quadratic);
+		else if(linear > 0)
+			distance = -constant / linear;
+		if(distance * FixedPointUtils.FP_ONE >= Integer.MAX_VALUE)
+			range = Integer.MAX_VALUE;
+		else
+			range = FixedPointUtils.toFixedPoint(distance);
 	}
 
 	public int getShadowBias() {
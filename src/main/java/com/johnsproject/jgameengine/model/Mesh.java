@@ -1,17 +1,167 @@
 package com.johnsproject.jgameengine.model;
 
-public class Mesh {
+import static com.johnsproject.jgameengine.util.FixedPointUtils.FP_ONE;
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_SIZE;
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_W;
+
+import com.johnsproject.jgameengine.util.FixedPointUtils;
+import com.johnsproject.jgameengine.util.VectorUtils;
 
+/**
+ * The Mesh stores the data of its vertices and faces packed in one array per attribute,
+ * so the passes that go through all vertices or faces of a Mesh can stream over the arrays.
+ * Vectors are stored one after the other, so the vector of the element at index i starts at
+ * i * {@link com.johnsproject.jgameengine.util.VectorUtils#VECTOR_SIZE VECTOR_SIZE}.
+ * The {@link Vertex} and {@link Face} objects of a Mesh are views to the data of one element.
+ */
+public class Mesh {
+	
+	/**
+	 * The amount of vertices of a face.
+	 */
+	public static final byte FACE_SIZE = 3;
+	
+	/**
+	 * The amount of values of a uv, u and v.
+	 */
+	public static final byte UV_SIZE = 2;
+	
 	private final Vertex[] vertices;
 	private final Face[] faces;
 	private final Material[] materials;
 	
-	public Mesh(Vertex[] vertices, Face[] faces, Material[] materials) {
-		this.vertices = vertices;
-		this.faces = faces;
+	private final int[] vertexLocalLocations;
+	private final int[] vertexWorldLocations;
+	private final int[] vertexWorldNormals;
+	private final int[] vertexLocations;
+	private final int[] vertexLightColors;
+	private final Material[] vertexMaterials;
+	
+	private final int[] faceVertices;
+	private final int[] faceLocalNormals;
+	private final int[] faceWorldNormals;
+	private final int[] faceUVs;
+	private final int[] faceLightColors;
+	private final Material[] faceMaterials;
+	
+	private final int[] vertexFaceOffsets;
+	private final int[] vertexFaces;
+	
+	private final int[] boundingBoxMin;
+	private final int[] boundingBoxMax;
+	private final int[] boundingSphereCenter;
+	private int boundingSphereRadius;
+	private int version;
+	
+	/**
+	 * Creates a Mesh with the given vertices and faces.
+	 * The vertices are defined by their local locations, vector after vector, and the faces
+	 * by the faceVertices array, that contains the indices of the vertices of each face, face
+	 * after face. The other data of the vertices and faces is set through the {@link Vertex}
+	 * and {@link Face} objects of this Mesh.
+	 * 
+	 * @param vertexLocalLocations local locations of the vertices.
+	 * @param faceVertices vertex indices of the faces.
+	 * @param materials materials used by the vertices and faces.
+	 */
+	public Mesh(int[] vertexLocalLocations, int[] faceVertices, Material[] materials) {
+		final int vertexCount = vertexLocalLocations.length / VECTOR_SIZE;
+		final int faceCount = faceVertices.length / FACE_SIZE;
 		this.materials = materials;
+		this.vertexLocalLocations = vertexLocalLocations;
+		this.vertexWorldLocations = createVectors(vertexCount);
+		this.vertexWorldNormals = createVectors(vertexCount);
+		this.vertexLocations = createVectors(vertexCount);
+		this.vertexLightColors = new int[vertexCount];
+		this.vertexMaterials = new Material[vertexCount];
+		this.faceVertices = faceVertices;
+		this.faceLocalNormals = createVectors(faceCount);
+		this.faceWorldNormals = createVectors(faceCount);
+		this.faceUVs = new int[faceCount * FACE_SIZE * UV_SIZE];
+		this.faceLightColors = new int[faceCount];
+		this.faceMaterials = new Material[faceCount];
+		this.vertices = new Vertex[vertexCount];
+		for (int i = 0; i < vertices.length; i++)
+			vertices[i] = new Vertex(this, i);
+		this.faces = new Face[faceCount];
+		for (int i = 0; i < faces.length; i++)
+			faces[i] = new Face(this, i);
+		this.vertexFaceOffsets = new int[vertexCount + 1];
+		this.vertexFaces = new int[faceVertices.length];
+		createVertexFaces();
+		this.boundingBoxMin = VectorUtils.emptyVector();
+		this.boundingBoxMax = VectorUtils.emptyVector();
+		this.boundingSphereCenter = VectorUtils.emptyVector();
+		recalculateBounds();
 	}
-
+	
+	private static int[] createVectors(int count) {
+		final int[] vectors = new int[count * VECTOR_SIZE];
+		for (int i = VECTOR_W; i < vectors.length; i += VECTOR_SIZE)
+			vectors[i] = FP_ONE;
+		return vectors;
+	}
+	
+	private void createVertexFaces() {
+		for (int i = 0; i < faceVertices.length; i++)
+			vertexFaceOffsets[faceVertices[i] + 1]++;
+		for (int v = 0; v < vertices.length; v++)
+			vertexFaceOffsets[v + 1] += vertexFaceOffsets[v];
+		final int[] vertexFaceCounts = new int[vertices.length];
+		for (int i = 0; i < faceVertices.length; i++) {
+			final int vertexIndex = faceVertices[i];
+			vertexFaces[vertexFaceOffsets[vertexIndex] + vertexFaceCounts[vertexIndex]++] = i / FACE_SIZE;
+		}
+	}
+	
+	/**
+	 * Recalculates the bounding box and bounding sphere of this Mesh from the local locations
+	 * of its vertices. This method needs to be called after the local locations are changed.
+	 */
+	public void recalculateBounds() {
+		invalidateWorldSpace();
+		VectorUtils.copy(boundingBoxMin, VectorUtils.VECTOR_ZERO);
+		VectorUtils.copy(boundingBoxMax, VectorUtils.VECTOR_ZERO);
+		for (int i = 0; i < vertexLocalLocations.length; i += VECTOR_SIZE) {
+			for (int j = 0; j < VECTOR_W; j++) {
+				final int value = vertexLocalLocations[i + j];
+				if((i == 0) || (value < boundingBoxMin[j]))
+					boundingBoxMin[j] = value;
+				if((i == 0) || (value > boundingBoxMax[j]))
+					boundingBoxMax[j] = value;
+			}
+		}
+		for (int j = 0; j < VECTOR_W; j++)
+			boundingSphereCenter[j] = boundingBoxMin[j] + ((boundingBoxMax[j] - boundingBoxMin[j]) >> 1);
+		long squaredRadius = 0;
+		final int[] location = VectorUtils.emptyVector();
+		for (int i = 0; i < vertices.length; i++) {
+			vertices[i].getLocalLocation(location);
+			squaredRadius = Math.max(squaredRadius, VectorUtils.squaredDistance(location, boundingSphereCenter));
+		}
+		// the square root is rounded down, make sure no vertex is outside of the sphere
+		boundingSphereRadius = FixedPointUtils.sqrt(squaredRadius) + (FP_ONE >> 6);
+	}
+	
+	/**
+	 * Marks the world space locations and normals of this Mesh as outdated, so they are calculated again.
+	 * Setting the local locations or normals through the {@link Vertex} and {@link Face} objects
+	 * of this Mesh does this, changing the arrays of the local normals directly doesn't.
+	 */
+	public void invalidateWorldSpace() {
+		version++;
+	}
+	
+	/**
+	 * Returns the version of this Mesh. The version changes each time the world space
+	 * of this Mesh is marked as outdated.
+	 * 
+	 * @return The version of this Mesh.
+	 */
+	public int getVersion() {
+		return version;
+	}
+	
 	public Vertex[] getVertices(){
 		return vertices;
 	}
@@ -44,6 +194,128 @@ public class Mesh {
 			}
 		}
 		return materials[0];
-	}	
+	}
+	
+	public int[] getVertexLocalLocations() {
+		return vertexLocalLocations;
+	}
+	
+	public int[] getVertexWorldLocations() {
+		return vertexWorldLocations;
+	}
 	
+	public int[] getVertexWorldNormals() {
+		return vertexWorldNormals;
+	}
+	
+	/**
+	 * Returns the locations of the vertices of this Mesh after they have been transformed
+	 * to screen space by a {@link com.johnsproject.jgameengine.shading.Shader Shader}.
+	 * 
+	 * @return The vertex locations of this Mesh.
+	 */
+	public int[] getVertexLocations() {
+		return vertexLocations;
+	}
+	
+	public int[] getVertexLightColors() {
+		return vertexLightColors;
+	}
+	
+	public Material[] getVertexMaterials() {
+		return vertexMaterials;
+	}
+	
+	/**
+	 * Returns the indices of the vertices of the faces of this Mesh, face after face.
+	 * 
+	 * @return The face vertices of this Mesh.
+	 */
+	public int[] getFaceVertices() {
+		return faceVertices;
+	}
+	
+	public int[] getFaceLocalNormals() {
+		return faceLocalNormals;
+	}
+	
+	public int[] getFaceWorldNormals() {
+		return faceWorldNormals;
+	}
+	
+	/**
+	 * Returns the uvs of the faces of this Mesh. Each face has {@link #FACE_SIZE} uvs,
+	 * that are made of {@link #UV_SIZE} values.
+	 * 
+	 * @return The face uvs of this Mesh.
+	 */
+	public int[] getFaceUVs() {
+		return faceUVs;
+	}
+	
+	public int[] getFaceLightColors() {
+		return faceLightColors;
+	}
+	
+	public Material[] getFaceMaterials() {
+		return faceMaterials;
+	}
+	
+	/**
+	 * Returns the offsets of the vertices into the array returned by {@link #getVertexFaces()}.
+	 * The faces of the vertex at index i are stored from offsets[i] up to, but not including,
+	 * offsets[i + 1], so this array has one element more than there are vertices.
+	 * 
+	 * @return The vertex face offsets of this Mesh.
+	 */
+	public int[] getVertexFaceOffsets() {
+		return vertexFaceOffsets;
+	}
+	
+	/**
+	 * Returns the indices of the faces each vertex is a part of, vertex after vertex,
+	 * in the order of the faces.
+	 * 
+	 * @return The vertex faces of this Mesh.
+	 */
+	public int[] getVertexFaces() {
+		return vertexFaces;
+	}
+	
+	/**
+	 * Returns the corner of the local space bounding box of this Mesh with the smallest values.
+	 * 
+	 * @return The bounding box min of this Mesh.
+	 */
+	public int[] getBoundingBoxMin() {
+		return boundingBoxMin;
+	}
+	
+	/**
+	 * Returns the corner of the local space bounding box of this Mesh with the biggest values.
+	 * 
+	 * @return The bounding box max of this Mesh.
+	 */
+	public int[] getBoundingBoxMax() {
+		return boundingBoxMax;
+	}
+	
+	/**
+	 * Returns the center of the local space bounding sphere of this Mesh,
+	 * that is the center of the bounding box.
+	 * 
+	 * @return The bounding sphere center of this Mesh.
+	 */
+	public int[] getBoundingSphereCenter() {
+		return boundingSphereCenter;
+	}
+	
+	/**
+	 * Returns the radius of the local space bounding sphere of this Mesh.
+	 * 
+	 * @return The bounding sphere radius of this Mesh.
+	 */
+	public int getBoundingSphereRadius() {
+		return boundingSphereRadius;
+	}
 }
@@ -6,12 +6,16 @@ public class Model extends SceneObject {
 	
 	private final Mesh mesh;
 	private final Armature armature;
+	private int worldSpaceTransformVersion;
+	private int worldSpaceMeshVersion;
+	private int worldSpaceArmatureVersion;
 	
 	public Model (String name, Transform transform, Mesh mesh) {
 		super(name, transform);
 		super.tag = MODEL_TAG;
 		this.mesh = mesh;
 		this.armature = null;
+		this.worldSpaceMeshVersion = mesh.getVersion() - 1;
 	}
 	
 	public Model (String name, Transform transform, Mesh mesh, Armature armature) {
@@ -19,6 +23,7 @@ public class Model extends SceneObject {
 		super.tag = MODEL_TAG;
 		this.mesh = mesh;
 		this.armature = armature;
+		this.worldSpaceMeshVersion = mesh.getVersion() - 1;
 	}
 
 	public Mesh getMesh() {
@@ -27,5 +32,31 @@ public class Model extends SceneObject {
 	
 	public Armature getArmature() {
 		return armature;
+	}
+	
+	/**
+	 * Returns if the transform, mesh or armature of this model have changed since the world space
+	 * locations and normals of its mesh have been calculated the last time.
+	 * 
+	 * @return If the world space of this model needs to be updated.
+	 * @see Mesh#invalidateWorldSpace()
+	 */
+	public boolean isWorldSpaceOutdated() {
+		if(worldSpaceTransformVersion != transform.getVersion())
+			return true;
+		if(worldSpaceMeshVersion != mesh.getVersion())
+			return true;
+		return (armature != null) && (worldSpaceArmatureVersion != armature.getVersion());
+	}
+	
+	/**
+	 * Marks the world space locations and normals of the mesh of this model as up to date
+	 * with the current transform, mesh and armature of this model.
+	 */
+	public void validateWorldSpace() {
+		worldSpaceTransformVersion = transform.getVersion();
+		worldSpaceMeshVersion = mesh.getVersion();
+		if(armature != null)
+			worldSpaceArmatureVersion = armature.getVersion();
 	}
 }
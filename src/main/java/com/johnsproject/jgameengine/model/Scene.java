@@ -1,6 +1,7 @@
 package com.johnsproject.jgameengine.model;
 
 import java.util.ArrayList;
+import java.util.List;
 
 public class Scene {
 	
@@ -10,12 +11,16 @@ public class Scene {
 	private final ArrayList<Model> models;
 	private final ArrayList<Camera> cameras;
 	private final ArrayList<Light> lights;
+	private final ArrayList<SceneObject> hierarchy;
+	private int hierarchyVersion;
 	
 	public Scene() {
 		this.sceneObjects = new ArrayList<SceneObject>();
 		this.models = new ArrayList<Model>();
 		this.cameras = new ArrayList<Camera>();
 		this.lights = new ArrayList<Light>();
+		this.hierarchy = new ArrayList<SceneObject>();
+		this.hierarchyVersion = -1;
 	}
 	
 	public ArrayList<SceneObject> getSceneObjects() {
@@ -32,16 +37,58 @@ public class Scene {
 		return null;
 	}
 	
+	private void addSceneObject(SceneObject sceneObject) {
+		sceneObjects.add(sceneObject);
+		hierarchyVersion = -1;
+	}
+	
 	private void removeSceneObject(String name) {
 		for (int i = 0; i < sceneObjects.size(); i++) {
 			if(sceneObjects.get(i).getName().equals(name)) {
 				sceneObjects.remove(i);
 			}
 		}
+		hierarchyVersion = -1;
+	}
+	
+	/**
+	 * Returns the scene objects of this scene, their ancestors and their descendants in breadth first order,
+	 * so each scene object comes after its parent.
+	 * 
+	 * @return The hierarchy of this scene.
+	 */
+	public List<SceneObject> getHierarchy() {
+		final int version = SceneObject.getHierarchyVersion();
+		if(hierarchyVersion != version) {
+			hierarchy.clear();
+			// the roots of the hierarchy are the top most ancestors of the scene objects
+			for (int i = 0; i < sceneObjects.size(); i++) {
+				SceneObject root = sceneObjects.get(i);
+				while(root.getParent() != null)
+					root = root.getParent();
+				if(!hierarchy.contains(root))
+					hierarchy.add(root);
+			}
+			for (int i = 0; i < hierarchy.size(); i++)
+				hierarchy.addAll(hierarchy.get(i).getChildren());
+			hierarchyVersion = version;
+		}
+		return hierarchy;
+	}
+	
+	/**
+	 * Updates the matrices of the transforms of the scene objects in this scene. The transforms are updated in 
+	 * the order of the hierarchy, so the matrices of each parent are up to date before its children are updated, 
+	 * and only the transforms that changed or whose parent changed are recalculated.
+	 */
+	public void updateTransforms() {
+		final List<SceneObject> hierarchy = getHierarchy();
+		for (int i = 0; i < hierarchy.size(); i++)
+			hierarchy.get(i).getTransform().updateMatrices();
 	}
 
 	public void addModel(Model model){
-		sceneObjects.add(model);
+		addSceneObject(model);
 		models.add(model);
 	}
 	
@@ -66,7 +113,7 @@ public class Scene {
 		if(mainLight == null) {
 			setMainDirectionalLight(light);
 		}
-		sceneObjects.add(light);
+		addSceneObject(light);
 		lights.add(light);
 	}
 	
@@ -103,7 +150,7 @@ public class Scene {
 		if(mainCamera == null) {
 			setMainCamera(camera);
 		}
-		sceneObjects.add(camera);
+		addSceneObject(camera);
 		cameras.add(camera);
 	}
 	
@@ -1,13 +1,21 @@
 package com.johnsproject.jgameengine.model;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class SceneObject {
 	
+	private static final AtomicInteger hierarchyVersion = new AtomicInteger();
+	
 	protected String tag;
 	protected boolean active;
 	protected boolean culled;
 	protected final String name;
 	protected final Transform transform;
 	protected final RigidBody rigidBody;
+	private SceneObject parent;
+	private final List<SceneObject> children;
 	
 	public SceneObject(String name, Transform transform) {
 		this.tag = "";
@@ -16,6 +24,7 @@ public class SceneObject {
 		this.active = true;
 		this.culled = false;
 		this.rigidBody = new RigidBody();
+		this.children = new ArrayList<SceneObject>();
 	}
 
 	public Transform getTransform() {
@@ -46,6 +55,42 @@ public class SceneObject {
 		this.tag = tag;
 	}
 
+	public SceneObject getParent() {
+		return parent;
+	}
+
+	/**
+	 * Sets the parent of this scene object. The transform of this scene object is then relative to the 
+	 * transform of the parent, so this scene object moves, rotates and scales with it.
+	 * If parent is null this scene object is in world space.
+	 * 
+	 * @param parent
+	 * @throws IllegalArgumentException if this scene object is the parent or an ancestor of the parent.
+	 */
+	public void setParent(SceneObject parent) {
+		transform.setParent(parent == null ? null : parent.getTransform());
+		if(this.parent != null)
+			this.parent.children.remove(this);
+		this.parent = parent;
+		if(parent != null)
+			parent.children.add(this);
+		hierarchyVersion.incrementAndGet();
+	}
+
+	public List<SceneObject> getChildren() {
+		return children;
+	}
+
+	/**
+	 * Returns the version of the hierarchy of all scene objects. It changes each time the parent
+	 * of a scene object is set.
+	 * 
+	 * @return The version of the hierarchy.
+	 */
+	static int getHierarchyVersion() {
+		return hierarchyVersion.get();
+	}
+
 	public boolean isCulled() {
 		return culled;
 	}
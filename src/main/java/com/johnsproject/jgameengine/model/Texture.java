@@ -1,34 +1,177 @@
 package com.johnsproject.jgameengine.model;
 
+import static com.johnsproject.jgameengine.util.FixedPointUtils.FP_BIT;
+import static com.johnsproject.jgameengine.util.TransformationUtils.SUBPIXEL_BIT;
+
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferInt;
+import java.util.Arrays;
 
-public class Texture {
-	
-	private final int[] pixels;
-	private final int[] size;
+import com.johnsproject.jgameengine.util.ColorUtils;
+
+public class Texture {
+	
+	/**
+	 * Texels outside of the texture are the texels at the nearest border.
+	 */
+	public static final int WRAP_CLAMP = 0;
+	
+	/**
+	 * Texels outside of the texture are taken from the texture repeated over and over.
+	 */
+	public static final int WRAP_REPEAT = 1;
+	
+	/**
+	 * The pixels are stored row by row.
+	 */
+	public static final int LAYOUT_LINEAR = 0;
+	
+	/**
+	 * The pixels are stored in tiles of {@value #TILE_SIZE}x{@value #TILE_SIZE} pixels, so that the pixels above
+	 * and below a pixel are usually a few cache lines away instead of a whole row. Textures that are sampled
+	 * along columns, like the ones on rotated faces, miss the cache less often. Only power of two textures that
+	 * are at least one tile big can be tiled, and they should be only read, like the textures of materials.
+	 */
+	public static final int LAYOUT_TILED = 1;
+	
+	private static final int TILE_BIT = 3;
+	public static final int TILE_SIZE = 1 << TILE_BIT;
+	private static final int TILE_MASK = TILE_SIZE - 1;
+	
+	private final int[] pixels;
+	private final int[] size;
+	// if width and height are powers of two, texels are addressed with shifts and masks
+	private final boolean isPowerOfTwo;
+	private final int widthBit;
+	private final int widthMask;
+	private final int heightMask;
+	// TILE_BIT if the pixels are stored in tiles, 0 if they're stored in rows
+	private int tileBit;
+	// masks that make getTexel clamp or repeat without branching, see setWrapMode
+	private int clampMask;
+	private int repeatMask;
+	// level 0 is this texture, each level is half the size of the previous one
+	private Texture[] mipMaps;
 	
+	/**
+	 * Creates a texture from the given image, sharing its pixels, and builds its mip maps.
+	 * 
+	 * @param bufferedImage
+	 */
 	public Texture (BufferedImage bufferedImage){
-		int width = bufferedImage.getWidth();
-		int height = bufferedImage.getHeight();
-		this.size = new int[] {width, height, width * height, 0};
-		this.pixels = ((DataBufferInt)bufferedImage.getRaster().getDataBuffer()).getData();
+		this(bufferedImage, LAYOUT_LINEAR);
+	}
+	
+	/**
+	 * Creates a texture from the given image and builds its mip maps. With {@link #LAYOUT_LINEAR}
+	 * the texture shares the pixels of the image, with {@link #LAYOUT_TILED} the pixels are copied
+	 * into tiles, if the size of the image allows it, and changes to the image don't affect the texture.
+	 * 
+	 * @param bufferedImage
+	 * @param layout {@link #LAYOUT_LINEAR} or {@link #LAYOUT_TILED}.
+	 */
+	public Texture (BufferedImage bufferedImage, int layout){
+		this(bufferedImage.getWidth(), bufferedImage.getHeight(), getPixels(bufferedImage, layout));
+		if(layout == LAYOUT_TILED)
+			convertToTiles();
+		createMipMaps();
 	}
 	
 	public Texture (int width, int height, int[] pixels){
 		this.size = new int[] {width, height, width * height, 0};
 		this.pixels = pixels;
+		this.isPowerOfTwo = isPowerOfTwo(width) && isPowerOfTwo(height);
+		this.widthBit = Integer.numberOfTrailingZeros(width);
+		this.widthMask = width - 1;
+		this.heightMask = height - 1;
+		this.mipMaps = new Texture[] {this};
+		setWrapMode(WRAP_CLAMP);
 	}
-	
+	
 	public Texture (int width, int height){
-		this.size = new int[] {width, height, width * height, 0};
-		this.pixels = new int[size[2]];
-	}
-	
-	public int[] getPixels() {
-		return pixels;
-	}
-	
+		this(width, height, new int[width * height]);
+	}
+	
+	private static int[] getPixels(BufferedImage bufferedImage, int layout) {
+		final int[] pixels = ((DataBufferInt)bufferedImage.getRaster().getDataBuffer()).getData();
+		if(layout == LAYOUT_LINEAR)
+			return pixels;
+		if(layout == LAYOUT_TILED)
+			return pixels.clone();
+		throw new IllegalArgumentException("Unknown layout: " + layout);
+	}
+	
+	private static boolean isPowerOfTwo(int value) {
+		return (value & (value - 1)) == 0;
+	}
+	
+	/**
+	 * Reorders the pixels into tiles, if this texture is a power of two and at least one tile big.
+	 */
+	private void convertToTiles() {
+		if(!isPowerOfTwo || (size[0] < TILE_SIZE) || (size[1] < TILE_SIZE))
+			return;
+		final int[] rows = pixels.clone();
+		tileBit = TILE_BIT;
+		for (int y = 0; y < size[1]; y++) {
+			for (int x = 0; x < size[0]; x++) {
+				pixels[getTileIndex(x, y)] = rows[x + y * size[0]];
+			}
+		}
+	}
+	
+	/**
+	 * Returns the index of the pixel at x and y in a tiled texture. The tiles are stored row by row,
+	 * and the pixels of each tile too.
+	 */
+	private int getTileIndex(int x, int y) {
+		return ((x & ~TILE_MASK) << TILE_BIT) | (x & TILE_MASK) | ((y & TILE_MASK) << TILE_BIT) | ((y & ~TILE_MASK) << widthBit);
+	}
+	
+	/**
+	 * Builds the mip maps of this texture. Each texel of a mip map is the average of the
+	 * 2x2 texels it covers in the previous one, until the mip map is 1x1 texels big.
+	 * The mip maps must be built again if the pixels of this texture change.
+	 */
+	public void createMipMaps() {
+		int levels = 1;
+		for (int width = size[0], height = size[1]; (width > 1) || (height > 1); width >>= 1, height >>= 1)
+			levels++;
+		mipMaps = new Texture[levels];
+		mipMaps[0] = this;
+		for (int i = 1; i < levels; i++) {
+			mipMaps[i] = createMipMap(mipMaps[i - 1]);
+			mipMaps[i].setWrapMode(getWrapMode());
+			if(getLayout() == LAYOUT_TILED)
+				mipMaps[i].convertToTiles();
+		}
+	}
+	
+	private static Texture createMipMap(Texture texture) {
+		final int width = Math.max(texture.getWidth() >> 1, 1);
+		final int height = Math.max(texture.getHeight() >> 1, 1);
+		final Texture mipMap = new Texture(width, height);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				// getPixel clamps, so mip maps of 1 texel wide or high textures read the same texel twice
+				final int color00 = texture.getPixel(x << 1, y << 1);
+				final int color10 = texture.getPixel((x << 1) + 1, y << 1);
+				final int color01 = texture.getPixel(x << 1, (y << 1) + 1);
+				final int color11 = texture.getPixel((x << 1) + 1, (y << 1) + 1);
+				final int a = ColorUtils.getAlpha(color00) + ColorUtils.getAlpha(color10) + ColorUtils.getAlpha(color01) + ColorUtils.getAlpha(color11);
+				final int r = ColorUtils.getRed(color00) + ColorUtils.getRed(color10) + ColorUtils.getRed(color01) + ColorUtils.getRed(color11);
+				final int g = ColorUtils.getGreen(color00) + ColorUtils.getGreen(color10) + ColorUtils.getGreen(color01) + ColorUtils.getGreen(color11);
+				final int b = ColorUtils.getBlue(color00) + ColorUtils.getBlue(color10) + ColorUtils.getBlue(color01) + ColorUtils.getBlue(color11);
+				mipMap.setPixel(x, y, ColorUtils.toColor((a + 2) >> 2, (r + 2) >> 2, (g + 2) >> 2, (b + 2) >> 2));
+			}
+		}
+		return mipMap;
+	}
+	
+	public int[] getPixels() {
+		return pixels;
+	}
+	
 	public int getWidth() {
 		return size[0];
 	}
@@ -37,26 +180,173 @@ public class Texture {
 		return size[1];
 	}
 	
+	/**
+	 * Returns the layout of the pixels of this texture. The pixels returned by {@link #getPixels()}
+	 * are in this layout, {@link #getPixel(int, int)} and {@link #getTexel(int, int)} handle both.
+	 * 
+	 * @return {@link #LAYOUT_LINEAR} or {@link #LAYOUT_TILED}.
+	 */
+	public int getLayout() {
+		return tileBit == 0 ? LAYOUT_LINEAR : LAYOUT_TILED;
+	}
+	
+	public boolean isPowerOfTwo() {
+		return isPowerOfTwo;
+	}
+	
+	public int getWrapMode() {
+		return repeatMask == 0 ? WRAP_CLAMP : WRAP_REPEAT;
+	}
+	
+	/**
+	 * Sets how {@link #getTexel(int, int)} handles texels outside of this texture and its mip maps.
+	 * 
+	 * @param wrapMode {@link #WRAP_CLAMP} or {@link #WRAP_REPEAT}.
+	 */
+	public void setWrapMode(int wrapMode) {
+		if((wrapMode != WRAP_CLAMP) && (wrapMode != WRAP_REPEAT))
+			throw new IllegalArgumentException("Unknown wrap mode: " + wrapMode);
+		clampMask = wrapMode == WRAP_CLAMP ? -1 : 0;
+		repeatMask = ~clampMask;
+		for (int i = 1; i < mipMaps.length; i++)
+			mipMaps[i].setWrapMode(wrapMode);
+	}
+	
+	public int getMipMapCount() {
+		return mipMaps.length;
+	}
+	
+	/**
+	 * Returns the mip map at the given level, level 0 is this texture. If the level is
+	 * bigger than the last level, the last level is returned.
+	 * 
+	 * @param level
+	 * @return
+	 */
+	public Texture getMipMap(int level) {
+		return mipMaps[Math.min(level, mipMaps.length - 1)];
+	}
+	
+	/**
+	 * Returns the mip map level that has about one texel per pixel for a face that covers the given
+	 * areas in this texture and on the screen. With fewer texels per pixel level 0 is returned.
+	 * 
+	 * @param textureArea doubled area of the face in fixed point texels of this texture.
+	 * @param screenArea doubled area of the face on the screen in sub-pixels.
+	 * @return
+	 */
+	public int getMipMapLevel(long textureArea, long screenArea) {
+		// log2 of the texels per pixel ratio of the areas, the ratio of the sizes is its square root
+		final int textureBits = getLog2(textureArea) - (FP_BIT << 1);
+		final int screenBits = getLog2(screenArea) - (SUBPIXEL_BIT << 1);
+		final int level = (textureBits - screenBits) >> 1;
+		return Math.max(Math.min(level, mipMaps.length - 1), 0);
+	}
+	
+	/**
+	 * Returns the shift that ports fixed point uvs in texels of a texture to texels of 
+	 * its mip map at the given level.
+	 * 
+	 * @param level
+	 * @return
+	 */
+	public static int getMipMapShift(int level) {
+		return FP_BIT + level;
+	}
+	
+	private static int getLog2(long value) {
+		return 63 - Long.numberOfLeadingZeros(Math.abs(value));
+	}
+	
 	public int getPixel(int x, int y) {
 		x = x >= 0 ? x : 0;
 		x = x < size[0] ? x : size[0] - 1;
 		y = y >= 0 ? y : 0;
 		y = y < size[1] ? y : size[1] - 1;
+		if(tileBit != 0)
+			return pixels[getTileIndex(x, y)];
 		return pixels[x + (y * size[0])];
 	}
 	
+	/**
+	 * Returns the texel at x and y, texels outside of this texture are handled as set by
+	 * {@link #setWrapMode(int)}. Textures with a power of two width and height are addressed
+	 * with shifts and masks without branching, other textures fall back to {@link #getPixel(int, int)}
+	 * when clamping. Tiled textures only take a few more shifts and masks to find the tile of the texel.
+	 * 
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public int getTexel(int x, int y) {
+		if(!isPowerOfTwo)
+			return getWrappedPixel(x, y);
+		// clamp: negative values become 0, values bigger than the mask become -1, the mask cuts them to the border
+		// repeat: the mask alone wraps the values
+		x &= ~(x >> 31) | repeatMask;
+		x |= ((widthMask - x) >> 31) & clampMask;
+		y &= ~(y >> 31) | repeatMask;
+		y |= ((heightMask - y) >> 31) & clampMask;
+		x &= widthMask;
+		y &= heightMask;
+		if(tileBit != 0)
+			return pixels[getTileIndex(x, y)];
+		return pixels[x | (y << widthBit)];
+	}
+	
+	private int getWrappedPixel(int x, int y) {
+		if(repeatMask != 0) {
+			x %= size[0];
+			y %= size[1];
+			x = x >= 0 ? x : x + size[0];
+			y = y >= 0 ? y : y + size[1];
+		}
+		return getPixel(x, y);
+	}
+	
 	public void setPixel(int x, int y, int value) {
 		x = x >= 0 ? x : 0;
 		x = x < size[0] ? x : size[0] - 1;
 		y = y >= 0 ? y : 0;
 		y = y < size[1] ? y : size[1] - 1;
-		pixels[x + (y * size[0])] = value;
+		if(tileBit != 0)
+			pixels[getTileIndex(x, y)] = value;
+		else
+			pixels[x + (y * size[0])] = value;
 	}
 	
 	public void fill(int value) {
-		int[] pixelBuffer = getPixels();
-		for (int i = 0; i < pixelBuffer.length; i++) {
-			pixelBuffer[i] = value;
+		Arrays.fill(getPixels(), value);
+	}
+	
+	/**
+	 * Fills the pixels from left to right (exclusive) of the rows from top to bottom (exclusive) with the given value.
+	 * 
+	 * @param value
+	 * @param left
+	 * @param top
+	 * @param right
+	 * @param bottom
+	 */
+	public void fill(int value, int left, int top, int right, int bottom) {
+		final int[] pixelBuffer = getPixels();
+		left = Math.max(left, 0);
+		right = Math.min(right, size[0]);
+		top = Math.max(top, 0);
+		bottom = Math.min(bottom, size[1]);
+		if(left >= right)
+			return;
+		if(tileBit != 0) {
+			for (int y = top; y < bottom; y++) {
+				for (int x = left; x < right; x++) {
+					pixels[getTileIndex(x, y)] = value;
+				}
+			}
+			return;
 		}
-	}
-}
+		for (int y = top; y < bottom; y++) {
+			final int offset = y * size[0];
+			Arrays.fill(pixelBuffer, left + offset, right + offset, value);
+		}
+	}
+}
@@ -1,7 +1,8 @@
 package com.johnsproject.jgameengine.model;
 
 
-import static com.johnsproject.jgameengine.util.FixedPointUtils.FP_ONE;
+import static com.johnsproject.jgameengine.util.FixedPointUtils.FP_BIT;
+import static com.johnsproject.jgameengine.util.MatrixUtils.*;
 import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_X;
 import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_Y;
 import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_Z;
@@ -17,12 +18,21 @@ public class Transform {
 	private final int[] rotation;
 	private final int[] scale;
 	
-	private final int[][] matrixCache1;
-	private final int[][] matrixCache2;
-	private final int[][] spaceEnterMatrix;
-	private final int[][] spaceEnterNormalMatrix;
-	private final int[][] spaceExitMatrix;
-	private final int[][] spaceExitNormalMatrix;
+	private final int[] matrixCache;
+	private final int[] localVector;
+	private final int[] localEnterMatrix;
+	private final int[] localEnterNormalMatrix;
+	private final int[] localExitMatrix;
+	private final int[] localExitNormalMatrix;
+	private final int[] spaceEnterMatrix;
+	private final int[] spaceEnterNormalMatrix;
+	private final int[] spaceExitMatrix;
+	private final int[] spaceExitNormalMatrix;
+	private final int[] worldLocation;
+	private Transform parent;
+	private int parentVersion;
+	private volatile boolean dirty;
+	private volatile int version;
 	
 	public Transform() {
 		this(VectorUtils.emptyVector(), VectorUtils.emptyVector(), VectorUtils.VECTOR_ONE.clone());
@@ -32,131 +42,191 @@ public class Transform {
 		this.location = location;
 		this.rotation = rotation;
 		this.scale = scale;
-		this.matrixCache1 = MatrixUtils.indentityMatrix();
-		this.matrixCache2 = MatrixUtils.indentityMatrix();
+		this.matrixCache = MatrixUtils.indentityMatrix();
+		this.localVector = VectorUtils.emptyVector();
+		this.localEnterMatrix = MatrixUtils.indentityMatrix();
+		this.localEnterNormalMatrix = MatrixUtils.indentityMatrix();
+		this.localExitMatrix = MatrixUtils.indentityMatrix();
+		this.localExitNormalMatrix = MatrixUtils.indentityMatrix();
 		this.spaceEnterMatrix = MatrixUtils.indentityMatrix();
 		this.spaceEnterNormalMatrix = MatrixUtils.indentityMatrix();
 		this.spaceExitMatrix = MatrixUtils.indentityMatrix();
 		this.spaceExitNormalMatrix = MatrixUtils.indentityMatrix();
-		recalculateMatrices();
+		this.worldLocation = VectorUtils.emptyVector();
+		setDirty();
+	}
+	
+	/**
+	 * Marks the matrices as outdated, they are recalculated the next time one of them is accessed.
+	 */
+	private void setDirty() {
+		dirty = true;
+	}
+	
+	/**
+	 * Recalculates the matrices of this transform if its location, rotation, scale or parent have changed,
+	 * or if the matrices of its parent have changed. The matrices of the parent are updated first.
+	 * <br><br>
+	 * The matrices are updated when they are accessed, but updating the transforms of a scene in the
+	 * order of their hierarchy, like {@link Scene#updateTransforms()} does, updates each of them only once.
+	 */
+	public void updateMatrices() {
+		final Transform parent = this.parent;
+		if(parent != null)
+			parent.updateMatrices();
+		if(dirty || ((parent != null) && (parent.version != parentVersion))) {
+			// the matrices can be accessed by more than one thread at once
+			synchronized (this) {
+				final boolean localChanged = dirty;
+				// cleared before the matrices are recalculated, so a change made meanwhile marks them again
+				dirty = false;
+				if(localChanged)
+					recalculateMatrices();
+				if(localChanged || ((parent != null) && (parent.version != parentVersion))) {
+					recalculateWorldMatrices(parent);
+					version++;
+				}
+			}
+		}
 	}
 	
 	private void recalculateMatrices() {
-		spaceExitMatrix();
-		spaceExitNormalMatrix();
-		spaceEnterMatrix();
-		spaceEnterNormalMatrix();
-	}
-	
-	private void spaceExitMatrix() {
-		MatrixUtils.copy(spaceExitMatrix, MatrixUtils.MATRIX_IDENTITY);
-		scale(spaceExitMatrix);
-		rotateX(spaceExitMatrix, rotation[VECTOR_X]);
-		rotateY(spaceExitMatrix, rotation[VECTOR_Y]);
-		rotateZ(spaceExitMatrix, rotation[VECTOR_Z]);
-		translate(spaceExitMatrix);
-	}
-
-	private void spaceExitNormalMatrix() {
-		MatrixUtils.copy(spaceExitNormalMatrix, MatrixUtils.MATRIX_IDENTITY);
-		scale(spaceExitNormalMatrix);
-		rotateX(spaceExitNormalMatrix, rotation[VECTOR_X]);
-		rotateY(spaceExitNormalMatrix, rotation[VECTOR_Y]);
-		rotateZ(spaceExitNormalMatrix, rotation[VECTOR_Z]);
+		localExitMatrix();
+		localEnterMatrix();
 		if ((scale[VECTOR_X] != scale[VECTOR_Y]) || (scale[VECTOR_Y] != scale[VECTOR_Z])) {
-			MatrixUtils.inverse(spaceExitNormalMatrix, matrixCache2);
-			MatrixUtils.transpose(matrixCache2, spaceExitNormalMatrix);
+			// the normal matrices are the inverse transpose of the rotation and scale of the matrices
+			normalMatrix(localExitNormalMatrix, localEnterMatrix, true);
+			normalMatrix(localEnterNormalMatrix, localExitMatrix, true);
+		} else {
+			normalMatrix(localExitNormalMatrix, localExitMatrix, false);
+			normalMatrix(localEnterNormalMatrix, localEnterMatrix, false);
 		}
 	}
 	
-	private void spaceEnterMatrix() {
-		int scaleX = FixedPointUtils.divide(FP_ONE, scale[VECTOR_X] == 0 ? 1 : scale[VECTOR_X]);
-		int scaleY = FixedPointUtils.divide(FP_ONE, scale[VECTOR_Y] == 0 ? 1 : scale[VECTOR_Y]);
-		int scaleZ = FixedPointUtils.divide(FP_ONE, scale[VECTOR_Z] == 0 ? 1 : scale[VECTOR_Z]);
-		VectorUtils.invert(location);
-		VectorUtils.invert(rotation);
-		MatrixUtils.copy(spaceEnterMatrix, MatrixUtils.MATRIX_IDENTITY);
-		translate(spaceEnterMatrix);
-		rotateZ(spaceEnterMatrix, rotation[VECTOR_Z]);
-		rotateY(spaceEnterMatrix, rotation[VECTOR_Y]);
-		rotateX(spaceEnterMatrix, rotation[VECTOR_X]);
-		scale(spaceEnterMatrix, scaleX, scaleY, scaleZ);
-		VectorUtils.invert(location);
-		VectorUtils.invert(rotation);
-	}
-	
-	private void spaceEnterNormalMatrix() {
-		int scaleX = FixedPointUtils.divide(FP_ONE, scale[VECTOR_X] == 0 ? 1 : scale[VECTOR_X]);
-		int scaleY = FixedPointUtils.divide(FP_ONE, scale[VECTOR_Y] == 0 ? 1 : scale[VECTOR_Y]);
-		int scaleZ = FixedPointUtils.divide(FP_ONE, scale[VECTOR_Z] == 0 ? 1 : scale[VECTOR_Z]);
-		VectorUtils.invert(rotation);
-		MatrixUtils.copy(spaceEnterNormalMatrix, MatrixUtils.MATRIX_IDENTITY);
-		rotateZ(spaceEnterNormalMatrix, rotation[VECTOR_Z]);
-		rotateY(spaceEnterNormalMatrix, rotation[VECTOR_Y]);
-		rotateX(spaceEnterNormalMatrix, rotation[VECTOR_X]);
-		scale(spaceEnterNormalMatrix, scaleX, scaleY, scaleZ);
-		VectorUtils.invert(rotation);
-		if ((scale[VECTOR_X] != scale[VECTOR_Y]) || (scale[VECTOR_Y] != scale[VECTOR_Z])) {
-			MatrixUtils.inverse(spaceEnterNormalMatrix, matrixCache2);
-			MatrixUtils.transpose(matrixCache2, spaceEnterNormalMatrix);
+	/**
+	 * The world matrices of a transform with a parent are its local matrices combined 
+	 * with the world matrices of the parent, else they are the local matrices.
+	 */
+	private void recalculateWorldMatrices(Transform parent) {
+		if(parent == null) {
+			MatrixUtils.copy(spaceExitMatrix, localExitMatrix);
+			MatrixUtils.copy(spaceExitNormalMatrix, localExitNormalMatrix);
+			MatrixUtils.copy(spaceEnterMatrix, localEnterMatrix);
+			MatrixUtils.copy(spaceEnterNormalMatrix, localEnterNormalMatrix);
+		} else {
+			// like the dirty flag, the version of the parent is taken before its matrices are used
+			parentVersion = parent.version;
+			MatrixUtils.multiply(parent.spaceExitMatrix, localExitMatrix, spaceExitMatrix);
+			MatrixUtils.multiply(parent.spaceExitNormalMatrix, localExitNormalMatrix, spaceExitNormalMatrix);
+			MatrixUtils.multiply(localEnterMatrix, parent.spaceEnterMatrix, spaceEnterMatrix);
+			MatrixUtils.multiply(localEnterNormalMatrix, parent.spaceEnterNormalMatrix, spaceEnterNormalMatrix);
+		}
+		worldLocation[VECTOR_X] = spaceExitMatrix[M30];
+		worldLocation[VECTOR_Y] = spaceExitMatrix[M31];
+		worldLocation[VECTOR_Z] = spaceExitMatrix[M32];
+	}
+	
+	private void localExitMatrix() {
+		MatrixUtils.copy(localExitMatrix, MatrixUtils.MATRIX_IDENTITY);
+		scale(localExitMatrix);
+		rotateX(localExitMatrix, rotation[VECTOR_X]);
+		rotateY(localExitMatrix, rotation[VECTOR_Y]);
+		rotateZ(localExitMatrix, rotation[VECTOR_Z]);
+		translate(localExitMatrix);
+	}
+	
+	/**
+	 * The local exit matrix is a rotation and scale followed by a translation, so its inverse 
+	 * is the transposed rotation and inverted scale followed by the inverted translation.
+	 * The columns of the rotation and scale are the columns of the rotation multiplied with the scale,
+	 * so its transpose only needs to be divided by the squared scale to get its inverse.
+	 */
+	private void localEnterMatrix() {
+		MatrixUtils.copy(localEnterMatrix, MatrixUtils.MATRIX_IDENTITY);
+		for (int row = 0; row < 3; row++) {
+			final long scaleValue = scale[row] == 0 ? 1 : scale[row];
+			final long squaredScale = scaleValue * scaleValue;
+			for (int column = 0; column < 3; column++) {
+				final long value = (long) localExitMatrix[row * MATRIX_SIZE + column] << (FP_BIT << 1);
+				localEnterMatrix[column * MATRIX_SIZE + row] = (int) ((value + (squaredScale >> 1)) / squaredScale);
+			}
+		}
+		for (int row = 0; row < 3; row++) {
+			int translation = 0;
+			for (int column = 0; column < 3; column++)
+				translation -= FixedPointUtils.multiply(localEnterMatrix[column * MATRIX_SIZE + row], localExitMatrix[M30 + column]);
+			localEnterMatrix[M30 + row] = translation;
 		}
 	}
 	
-	private void translate(int[][] matrix) {
-		TransformationUtils.translationMatrix(matrixCache1, location);
-		MatrixUtils.copy(matrixCache2, matrix);
-		MatrixUtils.multiply(matrixCache1, matrixCache2, matrix);
+	private void normalMatrix(int[] normalMatrix, int[] matrix, boolean transpose) {
+		MatrixUtils.copy(normalMatrix, MatrixUtils.MATRIX_IDENTITY);
+		for (int column = 0; column < 3; column++) {
+			for (int row = 0; row < 3; row++) {
+				normalMatrix[column * MATRIX_SIZE + row] = transpose ? matrix[row * MATRIX_SIZE + column] : matrix[column * MATRIX_SIZE + row];
+			}
+		}
+	}
+	
+	private void translate(int[] matrix) {
+		TransformationUtils.translationMatrix(matrixCache, location);
+		MatrixUtils.multiply(matrixCache, matrix, matrix);
 	}
 	
-	private void scale(int[][] matrix) {
+	private void scale(int[] matrix) {
 		scale(matrix, scale[VECTOR_X], scale[VECTOR_Y], scale[VECTOR_Z]);
 	}
 	
-	private void scale(int[][] matrix, int x, int y, int z) {
-		TransformationUtils.scaleMatrix(matrixCache1, x, y, z);
-		MatrixUtils.copy(matrixCache2, matrix);
-		MatrixUtils.multiply(matrixCache1, matrixCache2, matrix);
+	private void scale(int[] matrix, int x, int y, int z) {
+		TransformationUtils.scaleMatrix(matrixCache, x, y, z);
+		MatrixUtils.multiply(matrixCache, matrix, matrix);
 	}
 	
-	private void rotateX(int[][] matrix, int angle) {
-		TransformationUtils.xRotationMatrix(matrixCache1, angle);
-		MatrixUtils.copy(matrixCache2, matrix);
-		MatrixUtils.multiply(matrixCache1, matrixCache2, matrix);
+	private void rotateX(int[] matrix, int angle) {
+		TransformationUtils.xRotationMatrix(matrixCache, angle);
+		MatrixUtils.multiply(matrixCache, matrix, matrix);
 	}
 	
-	private void rotateY(int[][] matrix, int angle) {
-		TransformationUtils.yRotationMatrix(matrixCache1, angle);
-		MatrixUtils.copy(matrixCache2, matrix);
-		MatrixUtils.multiply(matrixCache1, matrixCache2, matrix);
+	private void rotateY(int[] matrix, int angle) {
+		TransformationUtils.yRotationMatrix(matrixCache, angle);
+		MatrixUtils.multiply(matrixCache, matrix, matrix);
 	}
 	
-	private void rotateZ(int[][] matrix, int angle) {
-		TransformationUtils.zRotationMatrix(matrixCache1, angle);
-		MatrixUtils.copy(matrixCache2, matrix);
-		MatrixUtils.multiply(matrixCache1, matrixCache2, matrix);
+	private void rotateZ(int[] matrix, int angle) {
+		TransformationUtils.zRotationMatrix(matrixCache, angle);
+		MatrixUtils.multiply(matrixCache, matrix, matrix);
 	}
 	
 	public void setLocation(int x, int y, int z) {
 		location[VECTOR_X] = x;
 		location[VECTOR_Y] = y;
 		location[VECTOR_Z] = z;
-		recalculateMatrices();
+		setDirty();
 	}
 
 	public void setRotation(int x, int y, int z) {
 		rotation[VECTOR_X] = x;
 		rotation[VECTOR_Y] = y;
 		rotation[VECTOR_Z] = z;
-		recalculateMatrices();
+		setDirty();
 	}
 	
 	public void setScale(int x, int y, int z) {
 		scale[VECTOR_X] = x;
 		scale[VECTOR_Y] = y;
 		scale[VECTOR_Z] = z;
-		recalculateMatrices();
+		setDirty();
 	}
 	
+	/**
+	 * Translates this transform along the axes of its parent, or of the world if it has no parent.
+	 * The translation is not transformed, so for a transform with a rotated or scaled parent it
+	 * doesn't move this transform along the world axes.
+	 * 
+	 * @param x
+	 * @param y
+	 * @param z
+	 */
 	public void worldTranslate(int x, int y, int z) {
 		setLocation(location[VECTOR_X] + x, location[VECTOR_Y] + y, location[VECTOR_Z] + z);
 	}
@@ -173,6 +243,14 @@ public class Transform {
 		localTranslate(vector[VECTOR_X], vector[VECTOR_Y], vector[VECTOR_Z]);
 	}
 
+	/**
+	 * Rotates this transform around the axes of its parent, or of the world if it has no parent,
+	 * by adding the angles to its rotation. The rotation of the parent is not taken into account.
+	 * 
+	 * @param x
+	 * @param y
+	 * @param z
+	 */
 	public void worldRotate(int x, int y, int z) {
 		setRotation(rotation[VECTOR_X] + x, rotation[VECTOR_Y] + y, rotation[VECTOR_Z] + z);
 	}
@@ -189,6 +267,14 @@ public class Transform {
 		localRotate(angles[VECTOR_X], angles[VECTOR_Y], angles[VECTOR_Z]);
 	}
 	
+	/**
+	 * Scales this transform by adding the given values to its scale, which is relative to its parent,
+	 * or to the world if it has no parent. The scale of the parent is not taken into account.
+	 * 
+	 * @param x
+	 * @param y
+	 * @param z
+	 */
 	public void worldScale(int x, int y, int z) {
 		setScale(scale[VECTOR_X] + x, scale[VECTOR_Y] + y, scale[VECTOR_Z] + z);
 	}
@@ -206,7 +292,7 @@ public class Transform {
 	}
 	
 	private int[] localToWorld(int x, int y, int z) {
-		final int[] vector = matrixCache1[0];
+		final int[] vector = localVector;
 		VectorUtils.copy(vector, VectorUtils.VECTOR_ZERO);
 		vector[VECTOR_X] = x;
 		vector[VECTOR_Y] = y;
@@ -229,19 +315,67 @@ public class Transform {
 		return scale;
 	}
 
-	public int[][] getSpaceEnterMatrix() {
+	/**
+	 * Returns the version of this transform. The version changes each time the matrices of this transform
+	 * change, because its location, rotation, scale or parent have been set or the matrices of its parent
+	 * have changed. Changing the arrays of the location, rotation or scale directly doesn't change it.
+	 * 
+	 * @return The version of this transform.
+	 */
+	public int getVersion() {
+		updateMatrices();
+		return version;
+	}
+
+	public Transform getParent() {
+		return parent;
+	}
+
+	/**
+	 * Sets the parent of this transform. The location, rotation and scale of this transform are relative
+	 * to its parent and the matrices of this transform transform from and to world space through the 
+	 * matrices of the parent. If parent is null this transform is in world space.
+	 * 
+	 * @param parent
+	 * @throws IllegalArgumentException if this transform is the parent or an ancestor of the parent.
+	 */
+	public void setParent(Transform parent) {
+		for (Transform ancestor = parent; ancestor != null; ancestor = ancestor.parent) {
+			if(ancestor == this)
+				throw new IllegalArgumentException("A transform can't be its own ancestor");
+		}
+		this.parent = parent;
+		setDirty();
+	}
+
+	/**
+	 * Returns the location of this transform in world space. If this transform has no parent 
+	 * this is its location.
+	 * 
+	 * @return The world space location.
+	 */
+	public int[] getWorldLocation() {
+		updateMatrices();
+		return worldLocation;
+	}
+
+	public int[] getSpaceEnterMatrix() {
+		updateMatrices();
 		return spaceEnterMatrix;
 	}
 
-	public int[][] getSpaceEnterNormalMatrix() {
+	public int[] getSpaceEnterNormalMatrix() {
+		updateMatrices();
 		return spaceEnterNormalMatrix;
 	}
 
-	public int[][] getSpaceExitMatrix() {
+	public int[] getSpaceExitMatrix() {
+		updateMatrices();
 		return spaceExitMatrix;
 	}
 
-	public int[][] getSpaceExitNormalMatrix() {
+	public int[] getSpaceExitNormalMatrix() {
+		updateMatrices();
 		return spaceExitNormalMatrix;
 	}
 }
\ No newline at end of file
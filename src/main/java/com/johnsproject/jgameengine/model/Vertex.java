@@ -1,50 +1,85 @@
 package com.johnsproject.jgameengine.model;
 
-import com.johnsproject.jgameengine.util.VectorUtils;
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_SIZE;
 
+/**
+ * The Vertex is a view to the data of one vertex of a {@link Mesh}.
+ * The vectors of the vertex are copied into and out of the arrays of the Mesh.
+ */
 public class Vertex {
 	
+	private final Mesh mesh;
 	private final int index;
-	private final int[] localLocation;
-	private final int[] worldLocation;
-	private final int[] worldNormal;
-	private final int[] location;
-	private final Material material;
-	private int lightColor;
-	
-	public Vertex(int index, int[] location, Material material) {
+	
+	Vertex(Mesh mesh, int index) {
+		this.mesh = mesh;
 		this.index = index;
-		this.localLocation = location;
-		this.worldLocation = VectorUtils.emptyVector();
-		this.worldNormal = VectorUtils.emptyVector();
-		this.location = VectorUtils.emptyVector();
-		this.material = material;
 	}
-
+	
 	public int getIndex() {
 		return index;
 	}
 	
-	public int[] getLocalLocation() {
-		return localLocation;
+	public Mesh getMesh() {
+		return mesh;
 	}
-
-	public int[] getWorldLocation() {
-		return worldLocation;
+	
+	public int[] getLocalLocation(int[] result) {
+		return getVector(mesh.getVertexLocalLocations(), result);
 	}
-
-	public int[] getWorldNormal() {
-		return worldNormal;
+	
+	/**
+	 * Sets the local location of this {@link Vertex}. The bounds of the mesh are not updated,
+	 * call {@link Mesh#recalculateBounds()} after changing the local locations.
+	 * 
+	 * @param localLocation to set.
+	 */
+	public void setLocalLocation(int[] localLocation) {
+		setVector(mesh.getVertexLocalLocations(), localLocation);
+		mesh.invalidateWorldSpace();
 	}
-
-	public int[] getLocation() {
-		return location;
+	
+	public int[] getWorldLocation(int[] result) {
+		return getVector(mesh.getVertexWorldLocations(), result);
 	}
-
+	
+	public void setWorldLocation(int[] worldLocation) {
+		setVector(mesh.getVertexWorldLocations(), worldLocation);
+	}
+	
+	public int[] getWorldNormal(int[] result) {
+		return getVector(mesh.getVertexWorldNormals(), result);
+	}
+	
+	public void setWorldNormal(int[] worldNormal) {
+		setVector(mesh.getVertexWorldNormals(), worldNormal);
+	}
+	
+	public int[] getLocation(int[] result) {
+		return getVector(mesh.getVertexLocations(), result);
+	}
+	
+	public void setLocation(int[] location) {
+		setVector(mesh.getVertexLocations(), location);
+	}
+	
+	private int[] getVector(int[] vectors, int[] result) {
+		System.arraycopy(vectors, index * VECTOR_SIZE, result, 0, VECTOR_SIZE);
+		return result;
+	}
+	
+	private void setVector(int[] vectors, int[] vector) {
+		System.arraycopy(vector, 0, vectors, index * VECTOR_SIZE, VECTOR_SIZE);
+	}
+	
 	public Material getMaterial() {
-		return material;
+		return mesh.getVertexMaterials()[index];
 	}
-
+	
+	public void setMaterial(Material material) {
+		mesh.getVertexMaterials()[index] = material;
+	}
+	
 	/**
 	 * Returns the light color of this {@link Vertex}.
 	 * The light color is the color of all lights that reach and affect the illumination of
@@ -53,17 +88,17 @@ public class Vertex {
 	 * @return The light color of this Vertex.
 	 */
 	public int getLightColor() {
-		return lightColor;
+		return mesh.getVertexLightColors()[index];
 	}
-
+	
 	/**
 	 * Sets the light color of this {@link Vertex}.
-	 * The light color is the color of all lights that reach and affect the illumination of 
+	 * The light color is the color of all lights that reach and affect the illumination of
 	 * this Vertex put together.
 	 * 
 	 * @param lightColor to set.
 	 */
 	public void setLightColor(int lightColor) {
-		this.lightColor = lightColor;
+		mesh.getVertexLightColors()[index] = lightColor;
 	}
 }
\ No newline at end of file
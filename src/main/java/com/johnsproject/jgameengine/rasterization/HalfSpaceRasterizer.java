@@ -0,0 +1,258 @@
+package com.johnsproject.jgameengine.rasterization;
+
+import static com.johnsproject.jgameengine.util.FixedPointUtils.FP_BIT;
+import static com.johnsproject.jgameengine.util.TransformationUtils.SUBPIXEL_BIT;
+import static com.johnsproject.jgameengine.util.TransformationUtils.SUBPIXEL_HALF;
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_X;
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_Y;
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_Z;
+
+import com.johnsproject.jgameengine.model.DepthPyramid;
+import com.johnsproject.jgameengine.model.Face;
+import com.johnsproject.jgameengine.model.Frustum;
+import com.johnsproject.jgameengine.shading.Shader;
+
+/**
+ * The HalfSpaceRasterizer draws triangles with edge functions instead of scanlines. A pixel is inside of a
+ * triangle if it's on the inner side of all three edges, the value of each edge function changes by a constant
+ * for each pixel in x and y direction, so it's stepped incrementally.
+ * <br><br>
+ * The bounds of the triangle are walked in blocks of {@value #BLOCK_SIZE}x{@value #BLOCK_SIZE} pixels,
+ * aligned to the blocks of the {@link DepthPyramid}.
+ * Blocks outside of an edge are skipped, blocks inside of all edges are drawn without testing each pixel,
+ * and only the pixels of the blocks an edge goes through are tested. With a depth pyramid each block is
+ * also tested against it before it's drawn.
+ * <br><br>
+ * It has the same interface as the {@link LinearRasterizer}, so it can be used by any shader that uses
+ * a {@link Rasterizer} or {@link LinearRasterizer}. It draws the same pixels with the same depth and attributes,
+ * following the same top-left fill rule, only in a different order.
+ */
+public class HalfSpaceRasterizer extends LinearRasterizer {
+
+	private static final int BLOCK_SIZE_BIT = 3;
+	public static final int BLOCK_SIZE = 1 << BLOCK_SIZE_BIT;
+
+	// the edge i goes from vertex i + 1 to vertex i + 2, its value is the weight of vertex i
+	// multiplied by the area, the values are in sub-pixels so they are kept in longs
+	private long edge0, edge1, edge2;
+	private long edgeDx0, edgeDx1, edgeDx2;
+	private long edgeDy0, edgeDy1, edgeDy2;
+	private int bias0, bias1, bias2;
+	private int minDepth;
+	// the depth of the plane of the triangle outside of it doesn't always fit into an int,
+	// so the blocks are tested against it with longs
+	private long blockOriginZ;
+	private long blockZDx, blockZDy;
+
+	public HalfSpaceRasterizer(Shader shader) {
+		this(shader, 0);
+	}
+
+	public HalfSpaceRasterizer(Shader shader, int attributeCount) {
+		super(shader, attributeCount);
+	}
+
+	@Override
+	public void draw(Face face, Frustum frustum) {
+		copyLocations(face);
+		copyFrustum(frustum);
+		if(isCulled())
+			return;
+		// sorted like the Rasterizer does, so the depth and the attributes are calculated from the same origin
+		sortY();
+		area = getArea();
+		if(area == 0)
+			return;
+		initializeEdges();
+		initializeGradients();
+		initializeBlockGradients();
+		final int left = Math.max(Math.min(location0[VECTOR_X], Math.min(location1[VECTOR_X], location2[VECTOR_X])) >> SUBPIXEL_BIT, fragmentLeft);
+		final int right = Math.min(Math.max(location0[VECTOR_X], Math.max(location1[VECTOR_X], location2[VECTOR_X])) >> SUBPIXEL_BIT, fragmentRight);
+		final int top = Math.max(Math.min(location0[VECTOR_Y], Math.min(location1[VECTOR_Y], location2[VECTOR_Y])) >> SUBPIXEL_BIT, fragmentTop);
+		final int bottom = Math.min(Math.max(location0[VECTOR_Y], Math.max(location1[VECTOR_Y], location2[VECTOR_Y])) >> SUBPIXEL_BIT, fragmentBottom);
+		final int blockMask = ~(BLOCK_SIZE - 1);
+		for (int blockY = top & blockMask; blockY <= bottom; blockY += BLOCK_SIZE) {
+			final int blockTop = Math.max(blockY, top);
+			final int blockBottom = Math.min(blockY + BLOCK_SIZE - 1, bottom);
+			for (int blockX = left & blockMask; blockX <= right; blockX += BLOCK_SIZE) {
+				final int blockLeft = Math.max(blockX, left);
+				final int blockRight = Math.min(blockX + BLOCK_SIZE - 1, right);
+				drawBlock(blockLeft, blockTop, blockRight, blockBottom);
+			}
+		}
+	}
+
+	/**
+	 * Sets up the edge functions of the triangle. If the vertices are in counterclockwise order
+	 * the last two are swapped, so the inside of the triangle is where all edge values are positive.
+	 */
+	private void initializeEdges() {
+		if(area < 0) {
+			swapVertices(1, 2);
+			area = -area;
+		}
+		final long x0 = location0[VECTOR_X];
+		final long y0 = location0[VECTOR_Y];
+		final long x1 = location1[VECTOR_X];
+		final long y1 = location1[VECTOR_Y];
+		final long x2 = location2[VECTOR_X];
+		final long y2 = location2[VECTOR_Y];
+		edgeDx0 = y1 - y2;
+		edgeDy0 = x2 - x1;
+		edge0 = x1 * y2 - x2 * y1;
+		edgeDx1 = y2 - y0;
+		edgeDy1 = x0 - x2;
+		edge1 = x2 * y0 - x0 * y2;
+		edgeDx2 = y0 - y1;
+		edgeDy2 = x1 - x0;
+		edge2 = x0 * y1 - x1 * y0;
+		bias0 = getBias(edgeDx0, edgeDy0);
+		bias1 = getBias(edgeDx1, edgeDy1);
+		bias2 = getBias(edgeDx2, edgeDy2);
+		minDepth = Math.min(location0[VECTOR_Z], Math.min(location1[VECTOR_Z], location2[VECTOR_Z]));
+	}
+
+	private void initializeBlockGradients() {
+		final long z0 = (long) location0[VECTOR_Z] << FP_BIT;
+		final long z1 = (long) location1[VECTOR_Z] << FP_BIT;
+		final long z2 = (long) location2[VECTOR_Z] << FP_BIT;
+		blockOriginZ = getLongOriginValue(z0, z1, z2);
+		blockZDx = getLongDx(z0, z1, z2);
+		blockZDy = getLongDy(z0, z1, z2);
+	}
+
+	/**
+	 * Returns the value that is added to the edge function of the given edge. Pixels exactly on a top
+	 * or left edge are inside of the triangle, the ones on the other edges belong to the next triangle.
+	 *
+	 * @param edgeDx
+	 * @param edgeDy
+	 * @return
+	 */
+	private int getBias(long edgeDx, long edgeDy) {
+		final boolean isTopLeft = (edgeDx > 0) || ((edgeDx == 0) && (edgeDy > 0));
+		return isTopLeft ? 0 : -1;
+	}
+
+	private void drawBlock(int left, int top, int right, int bottom) {
+		final int width = right - left;
+		final int height = bottom - top;
+		// the values of the edge functions at the center of the top left pixel of the block
+		final long x = ((long) left << SUBPIXEL_BIT) + SUBPIXEL_HALF;
+		final long y = ((long) top << SUBPIXEL_BIT) + SUBPIXEL_HALF;
+		final long value0 = edge0 + bias0 + edgeDx0 * x + edgeDy0 * y;
+		final long value1 = edge1 + bias1 + edgeDx1 * x + edgeDy1 * y;
+		final long value2 = edge2 + bias2 + edgeDx2 * x + edgeDy2 * y;
+		// the edge values change linearly, so the biggest and smallest values of the block are at its corners
+		if((getMaxValue(value0, edgeDx0, edgeDy0, width, height) < 0)
+				|| (getMaxValue(value1, edgeDx1, edgeDy1, width, height) < 0)
+				|| (getMaxValue(value2, edgeDx2, edgeDy2, width, height) < 0))
+			return;
+		final boolean isCovered = (getMinValue(value0, edgeDx0, edgeDy0, width, height) >= 0)
+				&& (getMinValue(value1, edgeDx1, edgeDy1, width, height) >= 0)
+				&& (getMinValue(value2, edgeDx2, edgeDy2, width, height) >= 0);
+		if(isBlockOccluded(left, top, right, bottom, value0, value1, value2, isCovered))
+			return;
+		if(isCovered)
+			drawCoveredBlock(left, top, right, bottom);
+		else
+			drawPartialBlock(left, top, right, bottom, value0, value1, value2);
+	}
+
+	private long getMaxValue(long value, long dx, long dy, int width, int height) {
+		return value + ((Math.max(dx, 0) * width + Math.max(dy, 0) * height) << SUBPIXEL_BIT);
+	}
+
+	private long getMinValue(long value, long dx, long dy, int width, int height) {
+		return value + ((Math.min(dx, 0) * width + Math.min(dy, 0) * height) << SUBPIXEL_BIT);
+	}
+
+	/**
+	 * Returns if the given block is hidden. If it's not hidden, the block of the
+	 * depth pyramid it's in is marked as dirty, as it will be drawn.
+	 */
+	private boolean isBlockOccluded(int left, int top, int right, int bottom, long value0, long value1, long value2, boolean isCovered) {
+		final DepthPyramid depthPyramid = getDepthPyramid();
+		if(depthPyramid == null)
+			return false;
+		final int width = right - left;
+		final int height = bottom - top;
+		// the smallest depth of the plane of the triangle is at one of the corners of the block,
+		// but the corner can be outside of the triangle
+		final long cornerZ = blockOriginZ + blockZDx * (left - originX) + blockZDy * (top - originY);
+		final long blockMinZ = cornerZ + Math.min(blockZDx, 0) * width + Math.min(blockZDy, 0) * height;
+		final int depth = (int) Math.min(Math.max(blockMinZ >> FP_BIT, minDepth), Integer.MAX_VALUE);
+		// the interpolated depth can be rounded a bit below the smallest depth of the block
+		if(depthPyramid.isHidden(left, top, right, bottom, depth - 1)) {
+			if(isCovered)
+				depthPyramid.addRejectedFragments((width + 1) * (height + 1));
+			else
+				depthPyramid.addRejectedFragments(countFragments(left, top, right, bottom, value0, value1, value2));
+			return true;
+		}
+		depthPyramid.markDirty(left, right, top);
+		return false;
+	}
+
+	private int countFragments(int left, int top, int right, int bottom, long value0, long value1, long value2) {
+		final long stepX0 = edgeDx0 << SUBPIXEL_BIT;
+		final long stepX1 = edgeDx1 << SUBPIXEL_BIT;
+		final long stepX2 = edgeDx2 << SUBPIXEL_BIT;
+		int count = 0;
+		for (int y = top; y <= bottom; y++) {
+			long pixelValue0 = value0;
+			long pixelValue1 = value1;
+			long pixelValue2 = value2;
+			for (int x = left; x <= right; x++) {
+				if((pixelValue0 | pixelValue1 | pixelValue2) >= 0)
+					count++;
+				pixelValue0 += stepX0;
+				pixelValue1 += stepX1;
+				pixelValue2 += stepX2;
+			}
+			value0 += edgeDy0 << SUBPIXEL_BIT;
+			value1 += edgeDy1 << SUBPIXEL_BIT;
+			value2 += edgeDy2 << SUBPIXEL_BIT;
+		}
+		return count;
+	}
+
+	private void drawCoveredBlock(int left, int top, int right, int bottom) {
+		for (int y = top; y <= bottom; y++)
+			drawSpan(left, right, y);
+	}
+
+	private void drawPartialBlock(int left, int top, int right, int bottom, long value0, long value1, long value2) {
+		final long stepX0 = edgeDx0 << SUBPIXEL_BIT;
+		final long stepX1 = edgeDx1 << SUBPIXEL_BIT;
+		final long stepX2 = edgeDx2 << SUBPIXEL_BIT;
+		for (int y = top; y <= bottom; y++) {
+			// the triangle is convex, so the pixels of a row inside of it are next to each other
+			int spanLeft = right + 1;
+			int spanRight = left - 1;
+			long pixelValue0 = value0;
+			long pixelValue1 = value1;
+			long pixelValue2 = value2;
+			for (int x = left; x <= right; x++) {
+				if((pixelValue0 | pixelValue1 | pixelValue2) >= 0) {
+					spanLeft = Math.min(spanLeft, x);
+					spanRight = x;
+				}
+				pixelValue0 += stepX0;
+				pixelValue1 += stepX1;
+				pixelValue2 += stepX2;
+			}
+			if(spanLeft <= spanRight)
+				drawSpan(spanLeft, spanRight, y);
+			value0 += edgeDy0 << SUBPIXEL_BIT;
+			value1 += edgeDy1 << SUBPIXEL_BIT;
+			value2 += edgeDy2 << SUBPIXEL_BIT;
+		}
+	}
+
+	private void drawSpan(int left, int right, int y) {
+		span.set(left, right, y, getZ(left, y), zDx);
+		interpolateAttributes(left, y);
+		shader.fragments(span);
+	}
+}
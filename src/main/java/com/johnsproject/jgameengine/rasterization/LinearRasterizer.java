@@ -0,0 +1,150 @@
+package com.johnsproject.jgameengine.rasterization;
+
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_X;
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_Y;
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_Z;
+
+import com.johnsproject.jgameengine.model.Face;
+import com.johnsproject.jgameengine.model.Texture;
+import com.johnsproject.jgameengine.shading.Shader;
+
+/**
+ * The LinearRasterizer draws triangles like the {@link Rasterizer}, and linearly interpolates the
+ * given number of attributes of the vertices over them. The attributes are fixed point values,
+ * their meaning is up to the shader, vectors are just three attributes next to each other.
+ * The interpolated attributes are passed to the shader in the {@link Span spans}.
+ */
+public class LinearRasterizer extends Rasterizer {
+
+	protected final int attributeCount;
+	// attribute i of vertex j is at j * attributeCount + i
+	protected final int[] vertexAttributes;
+	// the attributes at the center of the origin pixel, and how much they change per pixel
+	protected final int[] originAttributes;
+	protected final int[] attributeDx;
+	protected final int[] attributeDy;
+
+	public LinearRasterizer(Shader shader, int attributeCount) {
+		super(shader, attributeCount);
+		this.attributeCount = attributeCount;
+		this.vertexAttributes = new int[3 * attributeCount];
+		this.originAttributes = new int[attributeCount];
+		this.attributeDx = new int[attributeCount];
+		this.attributeDy = new int[attributeCount];
+	}
+
+	public int getAttributeCount() {
+		return attributeCount;
+	}
+
+	/**
+	 * Sets the attribute at the given index of the given vertex of the next face that is drawn.
+	 *
+	 * @param vertex index of the vertex in the face.
+	 * @param index
+	 * @param value
+	 */
+	public void setAttribute(int vertex, int index, int value) {
+		vertexAttributes[vertex * attributeCount + index] = value;
+	}
+
+	/**
+	 * Sets the three attributes starting at the given index of the given vertex of the next
+	 * face that is drawn to the x, y and z components of the given vector.
+	 *
+	 * @param vertex index of the vertex in the face.
+	 * @param index
+	 * @param vector
+	 */
+	public void setVector(int vertex, int index, int[] vector) {
+		final int offset = vertex * attributeCount + index;
+		vertexAttributes[offset] = vector[VECTOR_X];
+		vertexAttributes[offset + 1] = vector[VECTOR_Y];
+		vertexAttributes[offset + 2] = vector[VECTOR_Z];
+	}
+
+	/**
+	 * Sets the three attributes starting at the given index of the given vertex of the next
+	 * face that is drawn to x, y and z.
+	 *
+	 * @param vertex index of the vertex in the face.
+	 * @param index
+	 * @param x
+	 * @param y
+	 * @param z
+	 */
+	public void setVector(int vertex, int index, int x, int y, int z) {
+		final int offset = vertex * attributeCount + index;
+		vertexAttributes[offset] = x;
+		vertexAttributes[offset + 1] = y;
+		vertexAttributes[offset + 2] = z;
+	}
+
+	/**
+	 * Returns the doubled signed area of the triangle the two given attributes of the vertices
+	 * of the next face make up, like the area of the face in texture space.
+	 *
+	 * @param indexX index of the attribute used as x.
+	 * @param indexY index of the attribute used as y.
+	 * @return
+	 */
+	public long getAttributeArea(int indexX, int indexY) {
+		final long x0 = vertexAttributes[indexX];
+		final long y0 = vertexAttributes[indexY];
+		final long x1 = vertexAttributes[attributeCount + indexX];
+		final long y1 = vertexAttributes[attributeCount + indexY];
+		final long x2 = vertexAttributes[2 * attributeCount + indexX];
+		final long y2 = vertexAttributes[2 * attributeCount + indexY];
+		return (x1 - x0) * (y2 - y0) - (x2 - x0) * (y1 - y0);
+	}
+
+	/**
+	 * Returns the level of the mip map of the given texture with about one texel per pixel for the given face,
+	 * picked from how many texels the face covers per pixel on the screen. The two given attributes of the
+	 * vertices of the face have to be set to its uvs in fixed point texels of the texture.
+	 * 
+	 * @param texture
+	 * @param face
+	 * @param indexU index of the u attribute.
+	 * @param indexV index of the v attribute.
+	 * @return
+	 */
+	public int getMipMapLevel(Texture texture, Face face, int indexU, int indexV) {
+		return texture.getMipMapLevel(getAttributeArea(indexU, indexV), getArea(face));
+	}
+
+	@Override
+	protected void swapVertices(int vertex1, int vertex2) {
+		super.swapVertices(vertex1, vertex2);
+		final int offset1 = vertex1 * attributeCount;
+		final int offset2 = vertex2 * attributeCount;
+		for (int i = 0; i < attributeCount; i++) {
+			final int attribute = vertexAttributes[offset1 + i];
+			vertexAttributes[offset1 + i] = vertexAttributes[offset2 + i];
+			vertexAttributes[offset2 + i] = attribute;
+		}
+	}
+
+	@Override
+	protected void initializeGradients() {
+		super.initializeGradients();
+		final int offset1 = attributeCount;
+		final int offset2 = 2 * attributeCount;
+		for (int i = 0; i < attributeCount; i++) {
+			final long attribute0 = vertexAttributes[i];
+			final long attribute1 = vertexAttributes[offset1 + i];
+			final long attribute2 = vertexAttributes[offset2 + i];
+			originAttributes[i] = getOriginValue(attribute0, attribute1, attribute2);
+			attributeDx[i] = getDx(attribute0, attribute1, attribute2);
+			attributeDy[i] = getDy(attribute0, attribute1, attribute2);
+		}
+	}
+
+	@Override
+	protected void interpolateAttributes(int x, int y) {
+		final int dx = x - originX;
+		final int dy = y - originY;
+		for (int i = 0; i < attributeCount; i++)
+			span.setAttribute(i, originAttributes[i] + attributeDx[i] * dx + attributeDy[i] * dy, attributeDx[i]);
+	}
+}
@@ -2,101 +2,171 @@ package com.johnsproject.jgameengine.rasterization;
 
 import static com.johnsproject.jgameengine.util.FixedPointUtils.FP_BIT;
 import static com.johnsproject.jgameengine.util.FixedPointUtils.FP_ONE;
+import static com.johnsproject.jgameengine.util.TransformationUtils.SUBPIXEL_BIT;
+import static com.johnsproject.jgameengine.util.TransformationUtils.SUBPIXEL_HALF;
 import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_X;
 import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_Y;
 import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_Z;
 
+import com.johnsproject.jgameengine.model.DepthPyramid;
 import com.johnsproject.jgameengine.model.Face;
 import com.johnsproject.jgameengine.model.Frustum;
 import com.johnsproject.jgameengine.shading.Shader;
-import com.johnsproject.jgameengine.util.FixedPointUtils;
 import com.johnsproject.jgameengine.util.VectorUtils;
 
+/**
+ * The Rasterizer draws triangles one row of pixels at a time and passes the rows to the shader as {@link Span spans}.
+ * <br><br>
+ * The x and y of the screen space locations of the vertices are in sub-pixels, see
+ * {@link com.johnsproject.jgameengine.util.TransformationUtils#SUBPIXEL_BIT TransformationUtils.SUBPIXEL_BIT}.
+ * A pixel is drawn if its center is inside of the triangle. Pixels whose center is exactly on an edge are only
+ * drawn if it's a top or left edge (top-left fill rule), so two triangles sharing an edge never draw the same pixel
+ * and there are no gaps between them.
+ * <br><br>
+ * The depth is interpolated from the plane of the triangle, it's the same no matter in which order
+ * or by which rasterizer the pixels are drawn.
+ */
 public class Rasterizer {
-	
+
 	protected final Shader shader;
-	protected final int[] location;
+	protected final Span span;
 	protected final int[] location0;
 	protected final int[] location1;
 	protected final int[] location2;
-	protected final int[] location3;
-	
-	protected int sortY00, sortY01;
-	protected int sortY10, sortY11;
-	protected int sortY20, sortY21;
-	
-	protected int y2y1, y3y1, y3y2;
-	protected int dx1, dx2;
-	protected int dz1, dz2;
-	protected int x1, x2;
-	protected int y1, y2;
-	protected int z;
-	protected int dxdx;
-	protected int dz;
-	
-	private int renderTargetLeft;
-	private int renderTargetRight;
-	private int renderTargetTop;
-	private int renderTargetBottom;
+
+	// the doubled signed area of the triangle, in sub-pixels
+	protected long area;
+	// the pixel the depth and the attributes are calculated relative to
+	protected int originX, originY;
+	// the fixed point depth at the center of the origin pixel, and how much it changes per pixel
+	protected int originZ;
+	protected int zDx, zDy;
+
+	private final Edge longEdge;
+	private final Edge shortEdge;
+
+	protected int renderTargetLeft;
+	protected int renderTargetRight;
+	protected int renderTargetTop;
+	protected int renderTargetBottom;
 	private boolean frustumCull;
 	private int faceCull;
-	
-	
+	private DepthPyramid depthPyramid;
+
+	protected int clipLeft;
+	protected int clipRight;
+	protected int clipTop;
+	protected int clipBottom;
+
+	// the pixels that can be drawn, inside of the render target and the clipping rectangle
+	protected int fragmentLeft;
+	protected int fragmentRight;
+	protected int fragmentTop;
+	protected int fragmentBottom;
+
 	public Rasterizer(Shader shader) {
+		this(shader, 0);
+	}
+
+	/**
+	 * Creates a new Rasterizer whose spans have the given number of interpolated attributes.
+	 *
+	 * @param shader
+	 * @param attributeCount
+	 */
+	protected Rasterizer(Shader shader, int attributeCount) {
 		this.shader = shader;
-		this.location = VectorUtils.emptyVector();
+		this.span = new Span(attributeCount);
 		this.location0 = VectorUtils.emptyVector();
 		this.location1 = VectorUtils.emptyVector();
 		this.location2 = VectorUtils.emptyVector();
-		this.location3 = VectorUtils.emptyVector();
+		this.longEdge = new Edge();
+		this.shortEdge = new Edge();
 		this.frustumCull = true;
 		this.faceCull = -1;
+		resetClip();
 	}
 
 	public void setFrustumCull(boolean frustumCull) {
 		this.frustumCull = frustumCull;
 	}
-	
+
 	public void setFaceCull(int faceCull) {
 		this.faceCull = faceCull;
 	}
-	
+
+	/**
+	 * Sets the depth pyramid used to skip faces and scanlines that are hidden.
+	 * Only shaders that draw a fragment if its depth is smaller than the depth in the
+	 * depth buffer of the pyramid should set it. If it's null, nothing is skipped.
+	 *
+	 * @param depthPyramid
+	 */
+	public void setDepthPyramid(DepthPyramid depthPyramid) {
+		this.depthPyramid = depthPyramid;
+	}
+
+	public DepthPyramid getDepthPyramid() {
+		return depthPyramid;
+	}
+
+	/**
+	 * Sets the rectangle fragments are clipped to. Only fragments inside the
+	 * given bounds, including the bounds themselves, are passed to the shader.
+	 *
+	 * @param left
+	 * @param top
+	 * @param right
+	 * @param bottom
+	 */
+	public void setClip(int left, int top, int right, int bottom) {
+		this.clipLeft = left;
+		this.clipTop = top;
+		this.clipRight = right;
+		this.clipBottom = bottom;
+	}
+
+	/**
+	 * Removes the clipping rectangle, so that all fragments are passed to the shader.
+	 */
+	public void resetClip() {
+		setClip(Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE);
+	}
+
 	public void draw(Face face, Frustum frustum) {
 		copyLocations(face);
 		copyFrustum(frustum);
 		if(isCulled())
 			return;
 		sortY();
-        if (location1[VECTOR_Y] == location2[VECTOR_Y]) {
-        	drawBottomTriangle();
-        } else if (location0[VECTOR_Y] == location1[VECTOR_Y]) {
-        	drawTopTriangle();
-        } else {
-            splitTriangle();
-            swapSplitedBottomTriangle();
-            drawBottomTriangle();
-            swapSplitedTopTriangle();
-            drawTopTriangle();
-        }
-	}
-	
+		area = getArea();
+		if(area == 0)
+			return;
+		initializeGradients();
+		drawTriangle();
+	}
+
 	protected void copyLocations(Face face) {
-		VectorUtils.copy(location0, face.getVertex(0).getLocation());
-		VectorUtils.copy(location1, face.getVertex(1).getLocation());
-		VectorUtils.copy(location2, face.getVertex(2).getLocation());
+		face.getVertex(0).getLocation(location0);
+		face.getVertex(1).getLocation(location1);
+		face.getVertex(2).getLocation(location2);
 	}
-	
+
 	protected void copyFrustum(Frustum frustum) {
 		renderTargetLeft = frustum.getRenderTargetLeft();
 		renderTargetRight = frustum.getRenderTargetRight();
 		renderTargetTop = frustum.getRenderTargetTop();
 		renderTargetBottom = frustum.getRenderTargetBottom();
+		fragmentLeft = Math.max(clipLeft, renderTargetLeft);
+		fragmentRight = Math.min(clipRight, renderTargetRight - 1);
+		fragmentTop = Math.max(clipTop, renderTargetTop);
+		fragmentBottom = Math.min(clipBottom, renderTargetBottom - 1);
 	}
-	
+
 	protected boolean isCulled() {
-		return isBiggerThanRenderTarget() || isOutOfFrustum() || isBackface();
+		return isBiggerThanRenderTarget() || isOutOfFrustum() || isBackface() || isOccluded();
 	}
-	
+
 	private boolean isBiggerThanRenderTarget() {
 		final int width0 = Math.abs(location0[VECTOR_X] - location1[VECTOR_X]);
 		final int width1 = Math.abs(location2[VECTOR_X] - location1[VECTOR_X]);
@@ -104,26 +174,32 @@ public class Rasterizer {
 		final int height0 = Math.abs(location0[VECTOR_Y] - location1[VECTOR_Y]);
 		final int height1 = Math.abs(location2[VECTOR_Y] - location1[VECTOR_Y]);
 		final int height2 = Math.abs(location2[VECTOR_Y] - location0[VECTOR_Y]);
-		final int width = Math.max(width0, Math.max(width1, width2));
-		final int height = Math.max(height0, Math.max(height1, height2));
+		final int width = Math.max(width0, Math.max(width1, width2)) >> SUBPIXEL_BIT;
+		final int height = Math.max(height0, Math.max(height1, height2)) >> SUBPIXEL_BIT;
 		if((width > (renderTargetRight - renderTargetLeft)) || (height > (renderTargetBottom - renderTargetTop))) {
 			return true;
 		}
 		return false;
 	}
-	
+
 	private boolean isOutOfFrustum() {
 		if(frustumCull) {
-			final boolean insideWidth1 = (location0[VECTOR_X] > renderTargetLeft) && (location0[VECTOR_X] < renderTargetRight);
-			final boolean insideWidth2 = (location1[VECTOR_X] > renderTargetLeft) && (location1[VECTOR_X] < renderTargetRight);
-			final boolean insideWidth3 = (location2[VECTOR_X] > renderTargetLeft) && (location2[VECTOR_X] < renderTargetRight);
-			final boolean insideHeight1 = (location0[VECTOR_Y] > renderTargetTop) && (location0[VECTOR_Y] < renderTargetBottom);
-			final boolean insideHeight2 = (location1[VECTOR_Y] > renderTargetTop) && (location1[VECTOR_Y] < renderTargetBottom);
-			final boolean insideHeight3 = (location2[VECTOR_Y] > renderTargetTop) && (location2[VECTOR_Y] < renderTargetBottom);
+			final int x0 = location0[VECTOR_X] >> SUBPIXEL_BIT;
+			final int x1 = location1[VECTOR_X] >> SUBPIXEL_BIT;
+			final int x2 = location2[VECTOR_X] >> SUBPIXEL_BIT;
+			final int y0 = location0[VECTOR_Y] >> SUBPIXEL_BIT;
+			final int y1 = location1[VECTOR_Y] >> SUBPIXEL_BIT;
+			final int y2 = location2[VECTOR_Y] >> SUBPIXEL_BIT;
+			final boolean insideWidth1 = (x0 > renderTargetLeft) && (x0 < renderTargetRight);
+			final boolean insideWidth2 = (x1 > renderTargetLeft) && (x1 < renderTargetRight);
+			final boolean insideWidth3 = (x2 > renderTargetLeft) && (x2 < renderTargetRight);
+			final boolean insideHeight1 = (y0 > renderTargetTop) && (y0 < renderTargetBottom);
+			final boolean insideHeight2 = (y1 > renderTargetTop) && (y1 < renderTargetBottom);
+			final boolean insideHeight3 = (y2 > renderTargetTop) && (y2 < renderTargetBottom);
 			final boolean insideDepth1 = (location0[VECTOR_Z] > 0) && (location0[VECTOR_Z] < FP_ONE);
 			final boolean insideDepth2 = (location1[VECTOR_Z] > 0) && (location1[VECTOR_Z] < FP_ONE);
 			final boolean insideDepth3 = (location2[VECTOR_Z] > 0) && (location2[VECTOR_Z] < FP_ONE);
-			if ((!insideDepth1 && !insideDepth2 && !insideDepth3) 
+			if ((!insideDepth1 && !insideDepth2 && !insideDepth3)
 					|| (!insideHeight1 && !insideHeight2 && !insideHeight3)
 						|| (!insideWidth1 && !insideWidth2 && !insideWidth3)) {
 							return true;
@@ -131,176 +207,339 @@ public class Rasterizer {
 		}
 		return false;
 	}
-	
+
 	private boolean isBackface() {
-		final int x0 = location0[VECTOR_X];
-		final int x1 = location1[VECTOR_X];
-		final int x2 = location2[VECTOR_X];
-		final int y0 = location0[VECTOR_Y];
-		final int y1 = location1[VECTOR_Y];
-		final int y2 = location2[VECTOR_Y];
-		final int triangleSize = (x1 - x0) * (y2 - y0) - (x2 - x0) * (y1 - y0);
-		return triangleSize * faceCull < 0;
-	}
-	
+		return getArea() * faceCull < 0;
+	}
+
+	private boolean isOccluded() {
+		if(depthPyramid == null)
+			return false;
+		final int left = Math.max(Math.min(location0[VECTOR_X], Math.min(location1[VECTOR_X], location2[VECTOR_X])) >> SUBPIXEL_BIT, fragmentLeft);
+		final int right = Math.min(Math.max(location0[VECTOR_X], Math.max(location1[VECTOR_X], location2[VECTOR_X])) >> SUBPIXEL_BIT, fragmentRight);
+		final int top = Math.max(Math.min(location0[VECTOR_Y], Math.min(location1[VECTOR_Y], location2[VECTOR_Y])) >> SUBPIXEL_BIT, fragmentTop);
+		final int bottom = Math.min(Math.max(location0[VECTOR_Y], Math.max(location1[VECTOR_Y], location2[VECTOR_Y])) >> SUBPIXEL_BIT, fragmentBottom);
+		final int depth = Math.min(location0[VECTOR_Z], Math.min(location1[VECTOR_Z], location2[VECTOR_Z]));
+		// the interpolated depth can be rounded a bit below the smallest depth of the vertices
+		if(depthPyramid.isHidden(left, top, right, bottom, depth - 1)) {
+			depthPyramid.addRejectedFace();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the doubled signed area of the given face on the screen in sub-pixels. It's positive
+	 * if the vertices are in clockwise order on the screen.
+	 *
+	 * @param face
+	 * @return
+	 */
+	public long getArea(Face face) {
+		copyLocations(face);
+		return getArea();
+	}
+
+	/**
+	 * Returns the doubled signed area of the triangle in sub-pixels. It's positive if the vertices
+	 * are in clockwise order on the screen, and zero if the triangle has no area.
+	 *
+	 * @return
+	 */
+	protected long getArea() {
+		final long x0 = location0[VECTOR_X];
+		final long y0 = location0[VECTOR_Y];
+		return (location1[VECTOR_X] - x0) * (location2[VECTOR_Y] - y0) - (location2[VECTOR_X] - x0) * (location1[VECTOR_Y] - y0);
+	}
+
 	protected void sortY() {
-		sortY00 = location0[VECTOR_Y];
-		sortY01 = location1[VECTOR_Y];
-		if (sortY00 > sortY01) {
-			VectorUtils.swap(location0, location1);
+		if (location0[VECTOR_Y] > location1[VECTOR_Y])
+			swapVertices(0, 1);
+		if (location1[VECTOR_Y] > location2[VECTOR_Y])
+			swapVertices(1, 2);
+		if (location0[VECTOR_Y] > location1[VECTOR_Y])
+			swapVertices(0, 1);
+	}
+
+	protected void swapVertices(int vertex1, int vertex2) {
+		VectorUtils.swap(getLocation(vertex1), getLocation(vertex2));
+	}
+
+	private int[] getLocation(int vertex) {
+		switch (vertex) {
+		case 0:
+			return location0;
+		case 1:
+			return location1;
+		default:
+			return location2;
 		}
-		sortY10 = location1[VECTOR_Y];
-		sortY11 = location2[VECTOR_Y];
-		if (sortY10 > sortY11) {
-			VectorUtils.swap(location1, location2);
+	}
+
+	/**
+	 * Calculates the depth at the center of the origin pixel and how much it changes per pixel.
+	 * The origin is the pixel the first vertex is in.
+	 */
+	protected void initializeGradients() {
+		originX = location0[VECTOR_X] >> SUBPIXEL_BIT;
+		originY = location0[VECTOR_Y] >> SUBPIXEL_BIT;
+		final long z0 = (long) location0[VECTOR_Z] << FP_BIT;
+		final long z1 = (long) location1[VECTOR_Z] << FP_BIT;
+		final long z2 = (long) location2[VECTOR_Z] << FP_BIT;
+		originZ = getOriginValue(z0, z1, z2);
+		zDx = getDx(z0, z1, z2);
+		zDy = getDy(z0, z1, z2);
+	}
+
+	/**
+	 * Returns the value at the center of the origin pixel of the plane that goes
+	 * through the given values at the vertices.
+	 *
+	 * @param value0
+	 * @param value1
+	 * @param value2
+	 * @return
+	 */
+	protected final int getOriginValue(long value0, long value1, long value2) {
+		return (int) getLongOriginValue(value0, value1, value2);
+	}
+
+	/**
+	 * Returns the value at the center of the origin pixel like {@link #getOriginValue(long, long, long)},
+	 * without wrapping it around if it doesn't fit into an int.
+	 *
+	 * @param value0
+	 * @param value1
+	 * @param value2
+	 * @return
+	 */
+	protected final long getLongOriginValue(long value0, long value1, long value2) {
+		final long dx10 = location1[VECTOR_X] - location0[VECTOR_X];
+		final long dy10 = location1[VECTOR_Y] - location0[VECTOR_Y];
+		final long dx20 = location2[VECTOR_X] - location0[VECTOR_X];
+		final long dy20 = location2[VECTOR_Y] - location0[VECTOR_Y];
+		final long x = (originX << SUBPIXEL_BIT) + SUBPIXEL_HALF - location0[VECTOR_X];
+		final long y = (originY << SUBPIXEL_BIT) + SUBPIXEL_HALF - location0[VECTOR_Y];
+		// the weights of the second and third vertex multiplied by the area
+		final long weight1 = x * dy20 - dx20 * y;
+		final long weight2 = dx10 * y - x * dy10;
+		return value0 + ((value1 - value0) * weight1 + (value2 - value0) * weight2) / area;
+	}
+
+	/**
+	 * Returns how much the plane that goes through the given values at the vertices changes per pixel in x direction.
+	 *
+	 * @param value0
+	 * @param value1
+	 * @param value2
+	 * @return
+	 */
+	protected final int getDx(long value0, long value1, long value2) {
+		return (int) getLongDx(value0, value1, value2);
+	}
+
+	/**
+	 * Returns how much the plane changes per pixel in x direction like {@link #getDx(long, long, long)},
+	 * without wrapping it around if it doesn't fit into an int.
+	 *
+	 * @param value0
+	 * @param value1
+	 * @param value2
+	 * @return
+	 */
+	protected final long getLongDx(long value0, long value1, long value2) {
+		final long dy10 = location1[VECTOR_Y] - location0[VECTOR_Y];
+		final long dy20 = location2[VECTOR_Y] - location0[VECTOR_Y];
+		return (((value1 - value0) * dy20 - (value2 - value0) * dy10) << SUBPIXEL_BIT) / area;
+	}
+
+	/**
+	 * Returns how much the plane that goes through the given values at the vertices changes per pixel in y direction.
+	 *
+	 * @param value0
+	 * @param value1
+	 * @param value2
+	 * @return
+	 */
+	protected final int getDy(long value0, long value1, long value2) {
+		return (int) getLongDy(value0, value1, value2);
+	}
+
+	/**
+	 * Returns how much the plane changes per pixel in y direction like {@link #getDy(long, long, long)},
+	 * without wrapping it around if it doesn't fit into an int.
+	 *
+	 * @param value0
+	 * @param value1
+	 * @param value2
+	 * @return
+	 */
+	protected final long getLongDy(long value0, long value1, long value2) {
+		final long dx10 = location1[VECTOR_X] - location0[VECTOR_X];
+		final long dx20 = location2[VECTOR_X] - location0[VECTOR_X];
+		return (((value2 - value0) * dx10 - (value1 - value0) * dx20) << SUBPIXEL_BIT) / area;
+	}
+
+	/**
+	 * Returns the fixed point depth at the center of the given pixel.
+	 *
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	protected int getZ(int x, int y) {
+		return originZ + zDx * (x - originX) + zDy * (y - originY);
+	}
+
+	/**
+	 * Draws the triangle, the vertices have to be sorted by y.
+	 * The rows above the second vertex are between the long edge, from the first to the third vertex,
+	 * and the edge from the first to the second vertex. The rows below are between the long edge and the
+	 * edge from the second to the third vertex.
+	 */
+	private void drawTriangle() {
+		final int middle = getFirstRow(location1[VECTOR_Y]);
+		final int top = Math.max(getFirstRow(location0[VECTOR_Y]), fragmentTop);
+		final int bottom = Math.min(getFirstRow(location2[VECTOR_Y]), fragmentBottom + 1);
+		if(top >= bottom)
+			return;
+		longEdge.initialize(location0, location2, top);
+		int y = top;
+		if(y < middle) {
+			shortEdge.initialize(location0, location1, y);
+			y = drawRows(y, Math.min(middle, bottom));
 		}
-		sortY20 = location0[VECTOR_Y];
-		sortY21 = location1[VECTOR_Y];
-		if (sortY20 > sortY21) {
-			VectorUtils.swap(location0, location1);
+		if(y < bottom) {
+			shortEdge.initialize(location1, location2, y);
+			drawRows(y, bottom);
 		}
 	}
-	
-	protected int splitTriangle() {
-        int dy = FixedPointUtils.divide(location1[VECTOR_Y] - location0[VECTOR_Y], location2[VECTOR_Y] - location0[VECTOR_Y]);
-        location3[VECTOR_X] = location0[VECTOR_X] + FixedPointUtils.multiply(dy, location2[VECTOR_X] - location0[VECTOR_X]);
-        location3[VECTOR_Y] = location1[VECTOR_Y];
-        location3[VECTOR_Z] = location0[VECTOR_Z] + FixedPointUtils.multiply(dy, location2[VECTOR_Z] - location0[VECTOR_Z]);
-        return dy;
-	}
-	
-	protected void swapSplitedBottomTriangle() {
-        VectorUtils.swap(location3, location2);
-	}
-	
-	protected void swapSplitedTopTriangle() {
-        VectorUtils.swap(location3, location2);
-        VectorUtils.swap(location0, location1);
-        VectorUtils.swap(location1, location3);		
-	}
-	
-	private void drawBottomTriangle() {
-		initializeBottomTriangle();
-        if(dx1 < dx2) {
-        	initializeDx2GreaterDx1();
-	        for (; y1 <= y2; y1++) {
-	        	drawScanline(x1, x2, y1, z, dz);
-	        	incrementBottomDx2GreaterDx1();
-	        }
-        } else {
-        	initializeDx1GreaterDx2();
-        	for (; y1 <= y2; y1++) {
-        		drawScanline(x1, x2, y1, z, dz);
-        		incrementBottomDx1GreaterDx2();
-	        }
-        }
-    }
-	
-	protected void initializeBottomTriangle() {
-		final int xShifted = location0[VECTOR_X] << FP_BIT;
-		y2y1 = location1[VECTOR_Y] - location0[VECTOR_Y];
-		y2y1 = y2y1 == 0 ? 1 : y2y1;
-		y3y1 = y2y1;
-		y2y1 = FixedPointUtils.divide(FP_ONE, y2y1);
-		y3y1 = FixedPointUtils.divide(FP_ONE, y3y1);
-		dx1 = FixedPointUtils.multiply(location1[VECTOR_X] - location0[VECTOR_X], y2y1);
-		dx2 = FixedPointUtils.multiply(location2[VECTOR_X] - location0[VECTOR_X], y3y1);
-		dz1 = FixedPointUtils.multiply(location1[VECTOR_Z] - location0[VECTOR_Z], y2y1);
-		dz2 = FixedPointUtils.multiply(location2[VECTOR_Z] - location0[VECTOR_Z], y3y1);
-        x1 = xShifted;
-        x2 = xShifted;
-        y1 = location0[VECTOR_Y];
-        y2 = location1[VECTOR_Y];
-        z = location0[VECTOR_Z] << FP_BIT;
-	}
-	
-	protected void incrementBottomDx2GreaterDx1() {
-        x1 += dx1;
-        x2 += dx2;
-        z += dz1;		
-	}
-	
-	protected void incrementBottomDx1GreaterDx2() {
-        x1 += dx2;
-        x2 += dx1;
-        z += dz2;	
-	}
-    
-	private void drawTopTriangle() {
-		initializeTopTriangle();
-		if (dx1 > dx2) {
-			initializeDx1GreaterDx2();
-	        for (; y1 > y2; y1--) {
-	        	drawScanline(x1, x2, y1, z, dz);
-	        	incrementTopDx2GreaterDx1();
-	        }
-		} else {
-			initializeDx2GreaterDx1();
-	        for (; y1 > y2; y1--) {
-	        	drawScanline(x1, x2, y1, z, dz);
-	        	incrementTopDx1GreaterDx2();
-	        }
+
+	/**
+	 * Returns the first row of pixels whose center is on or below the given y.
+	 *
+	 * @param y in sub-pixels.
+	 * @return
+	 */
+	private static int getFirstRow(int y) {
+		return (y + SUBPIXEL_HALF - 1) >> SUBPIXEL_BIT;
+	}
+
+	private int drawRows(int top, int bottom) {
+		// if the area is positive the second vertex is right of the long edge
+		final Edge left = area > 0 ? longEdge : shortEdge;
+		final Edge right = area > 0 ? shortEdge : longEdge;
+		for (int y = top; y < bottom; y++) {
+			drawScanline(left.x, right.x - 1, y);
+			longEdge.step();
+			shortEdge.step();
 		}
-    }
-	
-	protected void initializeTopTriangle() {
-		final int xShifted = location2[VECTOR_X] << FP_BIT;
-		y3y1 = location2[VECTOR_Y] - location0[VECTOR_Y];
-		y3y2 = location2[VECTOR_Y] - location1[VECTOR_Y];
-		y3y1 = y3y1 == 0 ? 1 : y3y1;
-		y3y2 = y3y2 == 0 ? 1 : y3y2;
-		y3y1 = FixedPointUtils.divide(FP_ONE, y3y1);
-		y3y2 = FixedPointUtils.divide(FP_ONE, y3y2);
-		dx1 = FixedPointUtils.multiply(location2[VECTOR_X] - location0[VECTOR_X], y3y1);
-		dx2 = FixedPointUtils.multiply(location2[VECTOR_X] - location1[VECTOR_X], y3y2);
-		dz1 = FixedPointUtils.multiply(location2[VECTOR_Z] - location0[VECTOR_Z], y3y1);
-		dz2 = FixedPointUtils.multiply(location2[VECTOR_Z] - location1[VECTOR_Z], y3y2);
-		x1 = xShifted;
-		x2 = xShifted;
-		y1 = location2[VECTOR_Y];
-        y2 = location0[VECTOR_Y];
-		z = location2[VECTOR_Z] << FP_BIT;
-	}
-	
-	protected void incrementTopDx2GreaterDx1() {
-        x1 -= dx1;
-        x2 -= dx2;
-        z -= dz1;	
-	}
-	
-	protected void incrementTopDx1GreaterDx2() {
-        x1 -= dx2;
-        x2 -= dx1;
-        z -= dz2;
-	}
-	
-	protected void initializeDx2GreaterDx1() {
-		dxdx = dx2 - dx1;
-		dxdx = dxdx == 0 ? 1 : dxdx;
-		dxdx = FixedPointUtils.divide(FP_ONE, dxdx);
-		dz = FixedPointUtils.multiply(dz2 - dz1, dxdx);
-	}
-	
-	protected void initializeDx1GreaterDx2() {
-		dxdx = dx1 - dx2;
-		dxdx = dxdx == 0 ? 1 : dxdx;
-		dxdx = FixedPointUtils.divide(FP_ONE, dxdx);
-		dz = FixedPointUtils.multiply(dz1 - dz2, dxdx);
-	}
-	
-	private void drawScanline(int x1, int x2, int y, int z, int dz) {
-		x1 >>= FP_BIT;
-		x2 >>= FP_BIT;
-		for (; x1 <= x2; x1++) {
-			location[VECTOR_X] = x1;
-			location[VECTOR_Y] = y;
-			location[VECTOR_Z] = z >> FP_BIT;
-			shader.fragment();
-			z += dz;
+		return bottom;
+	}
+
+	private void drawScanline(int x1, int x2, int y) {
+		x1 = Math.max(x1, fragmentLeft);
+		x2 = Math.min(x2, fragmentRight);
+		if(x1 > x2)
+			return;
+		final int z = getZ(x1, y);
+		if(isScanlineOccluded(x1, x2, y, z, zDx))
+			return;
+		span.set(x1, x2, y, z, zDx);
+		interpolateAttributes(x1, y);
+		shader.fragments(span);
+	}
+
+	/**
+	 * Sets the attributes of the span at the given pixel, the span starts at it.
+	 * The Rasterizer has no attributes.
+	 *
+	 * @param x
+	 * @param y
+	 */
+	protected void interpolateAttributes(int x, int y) { }
+
+	/**
+	 * Returns if the given clipped scanline is hidden. If it's not hidden, the blocks
+	 * of the depth pyramid the scanline is in are marked as dirty, as it will be drawn.
+	 *
+	 * @param x1
+	 * @param x2
+	 * @param y
+	 * @param z
+	 * @param dz
+	 * @return
+	 */
+	protected boolean isScanlineOccluded(int x1, int x2, int y, int z, int dz) {
+		if((depthPyramid == null) || (x1 > x2))
+			return false;
+		// depth changes linearly along the scanline, the smallest depth is at one of its ends
+		final int depth = Math.min(z, z + dz * (x2 - x1)) >> FP_BIT;
+		if(depthPyramid.isHidden(x1, x2, y, depth)) {
+			depthPyramid.addRejectedFragments(x2 - x1 + 1);
+			return true;
 		}
+		depthPyramid.markDirty(x1, x2, y);
+		return false;
 	}
 
-	public int[] getLocation() {
-		return location;
+	/**
+	 * An edge of a triangle that is walked from top to bottom, one row of pixels at a time.
+	 * The x of the edge is the first pixel whose center is on or right of the edge. It's calculated
+	 * exactly with a quotient and a remainder, so it's the same for all triangles that share the edge.
+	 */
+	private static class Edge {
+
+		private int x;
+		// x times the denominator minus the exact x of the edge times the denominator
+		private int error;
+		private int step;
+		private int stepError;
+		private int denominator;
+
+		/**
+		 * Initializes this edge at the given row.
+		 *
+		 * @param top the location of the upper vertex of the edge.
+		 * @param bottom the location of the lower vertex of the edge, below the upper vertex.
+		 * @param row
+		 */
+		public void initialize(int[] top, int[] bottom, int row) {
+			final long x0 = top[VECTOR_X];
+			final long y0 = top[VECTOR_Y];
+			final long dx = bottom[VECTOR_X] - x0;
+			final long dy = bottom[VECTOR_Y] - y0;
+			final long denominator = dy << SUBPIXEL_BIT;
+			final long y = ((long) row << SUBPIXEL_BIT) + SUBPIXEL_HALF;
+			// the edge is at x0 + dx * (y - y0) / dy, the center of the pixel is half a pixel right of its left border
+			final long numerator = (x0 - SUBPIXEL_HALF) * dy + dx * (y - y0);
+			final long x = ceilDivide(numerator, denominator);
+			final long stepNumerator = dx << SUBPIXEL_BIT;
+			final long step = floorDivide(stepNumerator, denominator);
+			this.x = (int) x;
+			this.error = (int) (x * denominator - numerator);
+			this.step = (int) step;
+			this.stepError = (int) (stepNumerator - step * denominator);
+			this.denominator = (int) denominator;
+		}
+
+		public void step() {
+			x += step;
+			error -= stepError;
+			if(error < 0) {
+				error += denominator;
+				x++;
+			}
+		}
+
+		private static long floorDivide(long dividend, long divisor) {
+			final long quotient = dividend / divisor;
+			return ((dividend % divisor) < 0) ? quotient - 1 : quotient;
+		}
+
+		private static long ceilDivide(long dividend, long divisor) {
+			final long quotient = dividend / divisor;
+			return ((dividend % divisor) > 0) ? quotient + 1 : quotient;
+		}
 	}
 }
@@ -0,0 +1,143 @@
+package com.johnsproject.jgameengine.rasterization;
+
+import static com.johnsproject.jgameengine.util.FixedPointUtils.FP_BIT;
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_X;
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_Y;
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_Z;
+
+import com.johnsproject.jgameengine.model.Texture;
+
+/**
+ * A Span is a row of fragments, from left to right (both inclusive), that a {@link Rasterizer} passes to
+ * {@link com.johnsproject.jgameengine.shading.Shader#fragments(Span) Shader.fragments(Span)}.
+ * The depth and the interpolated attributes change linearly along the span, so only their values at the left
+ * fragment and how much they change from one fragment to the next are stored. The shader loops over the
+ * fragments itself and only calculates the attributes of the fragments it draws.
+ * <br><br>
+ * The values of a fragment are the same a rasterizer stepping through the span one fragment at a time would have.
+ */
+public class Span {
+
+	private int left;
+	private int right;
+	private int y;
+	private int z;
+	private int dz;
+	private final int[] attributes;
+	private final int[] deltas;
+
+	public Span(int attributeCount) {
+		this.attributes = new int[attributeCount];
+		this.deltas = new int[attributeCount];
+	}
+
+	void set(int left, int right, int y, int z, int dz) {
+		this.left = left;
+		this.right = right;
+		this.y = y;
+		this.z = z;
+		this.dz = dz;
+	}
+
+	void setAttribute(int index, int value, int delta) {
+		attributes[index] = value;
+		deltas[index] = delta;
+	}
+
+	public int getAttributeCount() {
+		return attributes.length;
+	}
+
+	public int getLeft() {
+		return left;
+	}
+
+	public int getRight() {
+		return right;
+	}
+
+	public int getY() {
+		return y;
+	}
+
+	/**
+	 * Returns the fixed point depth of the left fragment. The depth of a fragment is
+	 * the fixed point depth shifted right by {@link com.johnsproject.jgameengine.util.FixedPointUtils#FP_BIT FP_BIT}.
+	 *
+	 * @return
+	 */
+	public int getZ() {
+		return z;
+	}
+
+	/**
+	 * Returns how much the fixed point depth changes from one fragment to the next.
+	 *
+	 * @return
+	 */
+	public int getDz() {
+		return dz;
+	}
+
+	/**
+	 * Returns the depth of the fragment at x.
+	 *
+	 * @param x
+	 * @return
+	 */
+	public int getDepth(int x) {
+		return (z + dz * (x - left)) >> FP_BIT;
+	}
+
+	/**
+	 * Returns the interpolated attribute at the given index at the fragment at x.
+	 *
+	 * @param index
+	 * @param x
+	 * @return
+	 */
+	public int getAttribute(int index, int x) {
+		return attributes[index] + deltas[index] * (x - left);
+	}
+
+	/**
+	 * Sets result equals the vector made of the three interpolated attributes
+	 * starting at the given index at the fragment at x.
+	 *
+	 * @param index
+	 * @param x
+	 * @param result
+	 * @return The result vector.
+	 */
+	public int[] getVector(int index, int x, int[] result) {
+		final int steps = x - left;
+		result[VECTOR_X] = attributes[index] + deltas[index] * steps;
+		result[VECTOR_Y] = attributes[index + 1] + deltas[index + 1] * steps;
+		result[VECTOR_Z] = attributes[index + 2] + deltas[index + 2] * steps;
+		return result;
+	}
+
+	/**
+	 * Writes the depth of each fragment plus the given bias into the depth buffer,
+	 * if it's smaller than the depth that is already there. The interpolated attributes are not used.
+	 *
+	 * @param depthBuffer
+	 * @param bias
+	 */
+	public void fillDepth(Texture depthBuffer, int bias) {
+		final int width = depthBuffer.getWidth();
+		if((y < 0) || (y >= depthBuffer.getHeight()))
+			return;
+		final int start = Math.max(left, 0);
+		final int end = Math.min(right, width - 1);
+		final int[] pixels = depthBuffer.getPixels();
+		final int rowOffset = y * width;
+		int z = this.z + dz * (start - left);
+		for (int x = start; x <= end; x++) {
+			final int depth = (z >> FP_BIT) + bias;
+			if(pixels[rowOffset + x] > depth)
+				pixels[rowOffset + x] = depth;
+			z += dz;
+		}
+	}
+}
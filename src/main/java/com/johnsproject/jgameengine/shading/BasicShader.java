@@ -3,15 +3,17 @@ package com.johnsproject.jgameengine.shading;
 import static com.johnsproject.jgameengine.util.FixedPointUtils.FP_BIT;
 import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_X;
 import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_Y;
-import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_Z;
 
 import com.johnsproject.jgameengine.model.Camera;
+import com.johnsproject.jgameengine.model.DepthPyramid;
 import com.johnsproject.jgameengine.model.Face;
 import com.johnsproject.jgameengine.model.Frustum;
 import com.johnsproject.jgameengine.model.Material;
+import com.johnsproject.jgameengine.model.Mesh;
 import com.johnsproject.jgameengine.model.Texture;
 import com.johnsproject.jgameengine.model.Vertex;
-import com.johnsproject.jgameengine.rasterization.LinearRasterizer2;
+import com.johnsproject.jgameengine.rasterization.LinearRasterizer;
+import com.johnsproject.jgameengine.rasterization.Span;
 import com.johnsproject.jgameengine.util.ColorUtils;
 import com.johnsproject.jgameengine.util.TransformationUtils;
 import com.johnsproject.jgameengine.util.VectorUtils;
@@ -25,10 +27,15 @@ import com.johnsproject.jgameengine.util.VectorUtils;
  */
 public class BasicShader implements Shader {
 
+	// layout of the attributes interpolated by the rasterizer, vectors take three attributes
+	private static final int U = 0;
+	private static final int V = 1;
+	private static final int ATTRIBUTE_COUNT = 2;
+
 	private ForwardShaderBuffer shaderBuffer;
 	
 	// rasterizer used to draw the faces
-	private LinearRasterizer2 rasterizer;	
+	private LinearRasterizer rasterizer;	
 	// camera that the graphics engine is currently rendering to
 	private Camera camera;
 	// frustum that vertices will be projected to
@@ -37,27 +44,39 @@ public class BasicShader implements Shader {
 	private int diffuseColor;
 	// texture of the face to draw
 	private Texture texture;
+	// vectors the location of the vertices and the uvs of the faces are copied into
+	private final int[] location;
+	private final int[] uv;
 	
 	public BasicShader() {
-		rasterizer = new LinearRasterizer2(this);
+		rasterizer = new LinearRasterizer(this, ATTRIBUTE_COUNT);
+		location = VectorUtils.emptyVector();
+		uv = VectorUtils.emptyVector();
 	}
 
 	public void initialize(ShaderBuffer shaderBuffer) {
 		this.shaderBuffer = (ForwardShaderBuffer) shaderBuffer;
 		this.camera = shaderBuffer.getCamera();
 		this.frustum = camera.getFrustum();
+		rasterizer.setDepthPyramid(camera.getRenderTarget().getDepthPyramid());
 	}
 	
 	public void vertex(Vertex vertex) {
-		final int[] location = vertex.getLocation();
-		// reset the location of the vertex
-		VectorUtils.copy(location, vertex.getWorldLocation());
+		// copy the world location of the vertex
+		final int[] location = vertex.getWorldLocation(this.location);
 		// transform the vertex to camera space
-		VectorUtils.multiply(location, camera.getTransform().getSpaceEnterMatrix());
+		VectorUtils.multiplyAffineMatrix(location, camera.getTransform().getSpaceEnterMatrix());
 		// transform the vertex to screen space
-		VectorUtils.multiply(location, frustum.getProjectionMatrix());
+		VectorUtils.multiplyMatrix(location, frustum.getProjectionMatrix());
 		// port the vertex to the center of the screen
 		TransformationUtils.screenportVector(location, frustum);
+		vertex.setLocation(location);
+	}
+
+	public void vertexRange(Mesh mesh, int from, int to) {
+		// this shader doesn't shade vertices in batches, so just shade one after the other
+		for (int i = from; i < to; i++)
+			vertex(mesh.getVertex(i));
 	}
 
 	// nothing to do here
@@ -70,61 +89,78 @@ public class BasicShader implements Shader {
 		// set the texture space location of the vertices to the rasterizer so they're interpolated
 		setUVs(face);
 		// draw face
-		rasterizer.linearDraw2(face, frustum);
+		rasterizer.draw(face, frustum);
 	}
 
 	private void setUVs(Face face) {
 		if(texture != null) {
 			// port uvs to texture space, don't use FixedPointUtils.multiply as the rasterizer interpolates fixed point vectors
-			int[] uv = face.getUV(0);
+			face.getUV(0, uv);
 			int u = uv[VECTOR_X] * texture.getWidth();
 			int v = uv[VECTOR_Y] * texture.getHeight();
-			rasterizer.setVector00(u, v, 0);
+			rasterizer.setAttribute(0, U, u);
+			rasterizer.setAttribute(0, V, v);
 			
-			uv = face.getUV(1);
+			face.getUV(1, uv);
 			u = uv[VECTOR_X] * texture.getWidth();
 			v = uv[VECTOR_Y] * texture.getHeight();
-			rasterizer.setVector01(u, v, 0);
+			rasterizer.setAttribute(1, U, u);
+			rasterizer.setAttribute(1, V, v);
 			
-			uv = face.getUV(2);
+			face.getUV(2, uv);
 			u = uv[VECTOR_X] * texture.getWidth();
 			v = uv[VECTOR_Y] * texture.getHeight();
-			rasterizer.setVector02(u, v, 0);
+			rasterizer.setAttribute(2, U, u);
+			rasterizer.setAttribute(2, V, v);
 		}
 	}
 	
+	public void geometryRange(Mesh mesh, int from, int to) {
+		// this shader doesn't shade faces in batches, so just shade one after the other
+		for (int i = from; i < to; i++)
+			geometry(mesh.getFace(i));
+	}
+	
 	// nothing to do here
 	public void waitForGeometryQueue() {}
+	
+	// nothing to do here
+	public void waitForPixelQueue() {}
 
-	public void fragment() {
+	public void fragments(Span span) {
 		final Texture depthBuffer = shaderBuffer.getCamera().getRenderTarget().getDepthBuffer();
 		final Texture colorBuffer = shaderBuffer.getCamera().getRenderTarget().getColorBuffer();
-		// get the location of this fragment in screen space
-		final int x = rasterizer.getLocation()[VECTOR_X];
-		final int y = rasterizer.getLocation()[VECTOR_Y];
-		final int z = rasterizer.getLocation()[VECTOR_Z];
-		// test if there is a fragment front of this fragment, if not draw this fragment
-		if (depthBuffer.getPixel(x, y) > z) {
-			// get location of this fragment in texture space
-			final int[] uv = rasterizer.getVector0();
-			// get texture color of this fragment
-			final int textureColor = getFragmentTexelColor(uv);
-			// calculate the color of this fragment
-			final int color = ColorUtils.multiplyColor(textureColor, diffuseColor);
-			// update the color and depth buffers
-			colorBuffer.setPixel(x, y, color);
-			depthBuffer.setPixel(x, y, z);
+		final DepthPyramid depthPyramid = rasterizer.getDepthPyramid();
+		// the span is a row of fragments, the depth changes by dz from one fragment to the next
+		final int y = span.getY();
+		final int dz = span.getDz();
+		int spanZ = span.getZ();
+		for (int x = span.getLeft(); x <= span.getRight(); x++, spanZ += dz) {
+			// get the depth of this fragment in screen space
+			final int z = spanZ >> FP_BIT;
+			// test if there is a fragment front of this fragment, if not draw this fragment
+			if (depthBuffer.getPixel(x, y) > z) {
+				// get location of this fragment in texture space
+				final int u = span.getAttribute(U, x);
+				final int v = span.getAttribute(V, x);
+				// get texture color of this fragment
+				final int textureColor = getFragmentTexelColor(u, v);
+				// calculate the color of this fragment
+				final int color = ColorUtils.multiplyColor(textureColor, diffuseColor);
+				// update the color and depth buffers
+				colorBuffer.setPixel(x, y, color);
+				depthBuffer.setPixel(x, y, z);
+				depthPyramid.addShadedFragment(x, y);
+			}
 		}
 	}
 	
-	private int getFragmentTexelColor(int[] uv) {
+	private int getFragmentTexelColor(int u, int v) {
 		if(texture == null) {
 			return ColorUtils.WHITE;
 		} else {
 			// The result will be, but pixels are not accessed with fixed point
-			final int u = uv[VECTOR_X] >> FP_BIT;
-			final int v = uv[VECTOR_Y] >> FP_BIT;
-			return texture.getPixel(u, v);
+			return texture.getPixel(u >> FP_BIT, v >> FP_BIT);
 		}
 	}
 
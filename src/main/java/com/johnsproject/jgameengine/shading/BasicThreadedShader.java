@@ -3,16 +3,17 @@ package com.johnsproject.jgameengine.shading;
 import static com.johnsproject.jgameengine.util.FixedPointUtils.FP_BIT;
 import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_X;
 import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_Y;
-import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_Z;
 
 import com.johnsproject.jgameengine.model.Camera;
+import com.johnsproject.jgameengine.model.DepthPyramid;
 import com.johnsproject.jgameengine.model.Face;
 import com.johnsproject.jgameengine.model.FrameBuffer;
 import com.johnsproject.jgameengine.model.Frustum;
 import com.johnsproject.jgameengine.model.Material;
 import com.johnsproject.jgameengine.model.Texture;
 import com.johnsproject.jgameengine.model.Vertex;
-import com.johnsproject.jgameengine.rasterization.LinearRasterizer2;
+import com.johnsproject.jgameengine.rasterization.LinearRasterizer;
+import com.johnsproject.jgameengine.rasterization.Span;
 import com.johnsproject.jgameengine.util.ColorUtils;
 import com.johnsproject.jgameengine.util.TransformationUtils;
 import com.johnsproject.jgameengine.util.VectorUtils;
@@ -26,11 +27,34 @@ import com.johnsproject.jgameengine.util.VectorUtils;
  */
 public class BasicThreadedShader extends ThreadedShader {
 
+	// layout of the attributes interpolated by the rasterizer, vectors take three attributes
+	private static final int U = 0;
+	private static final int V = 1;
+	private static final int ATTRIBUTE_COUNT = 2;
+
 	public boolean isGlobal() {
 		// global shaders are applied to all models
 		return false;
 	}
 	
+	public int getUsedBuffers() {
+		return FrameBuffer.COLOR_BUFFER | FrameBuffer.DEPTH_BUFFER;
+	}
+	
+	public BasicThreadedShader() {
+		super();
+	}
+	
+	/**
+	 * Creates a new BasicThreadedShader.
+	 * 
+	 * @param halfSpaceRasterization if the faces are drawn with a
+	 * {@link com.johnsproject.jgameengine.rasterization.HalfSpaceRasterizer HalfSpaceRasterizer}.
+	 */
+	public BasicThreadedShader(boolean halfSpaceRasterization) {
+		super(halfSpaceRasterization);
+	}
+	
 	@Override
 	public ThreadedVertexShader[] createVertexShaders(int count) {
 		// create shaders used by the threads
@@ -45,7 +69,7 @@ public class BasicThreadedShader extends ThreadedShader {
 		// create shaders used by the threads
 		final ThreadedGeometryShader[] shaders = new GeometryShader[count];
 		for (int i = 0; i < shaders.length; i++)
-			shaders[i] = new GeometryShader();
+			shaders[i] = new GeometryShader(this);
 		return shaders;
 	}
 	
@@ -57,6 +81,8 @@ public class BasicThreadedShader extends ThreadedShader {
 		private Camera camera;
 		// frustum that vertices will be projected to
 		private Frustum frustum;
+		// vector the location of the vertices is copied into
+		private final int[] location = VectorUtils.emptyVector();
 
 		public void initialize(ShaderBuffer shaderBuffer) {
 			this.shaderBuffer = (ForwardShaderBuffer) shaderBuffer;
@@ -65,15 +91,15 @@ public class BasicThreadedShader extends ThreadedShader {
 		}
 		
 		public void vertex(Vertex vertex) {
-			final int[] location = vertex.getLocation();
-			// reset the location of the vertex
-			VectorUtils.copy(location, vertex.getWorldLocation());
+			// copy the world location of the vertex
+			final int[] location = vertex.getWorldLocation(this.location);
 			// transform the vertex to camera space
-			VectorUtils.multiply(location, camera.getTransform().getSpaceEnterMatrix());
+			VectorUtils.multiplyAffineMatrix(location, camera.getTransform().getSpaceEnterMatrix());
 			// transform the vertex to screen space
-			VectorUtils.multiply(location, frustum.getProjectionMatrix());
+			VectorUtils.multiplyMatrix(location, frustum.getProjectionMatrix());
 			// port the vertex to the center of the screen
 			TransformationUtils.screenportVector(location, frustum);
+			vertex.setLocation(location);
 		}
 
 		public ShaderBuffer getShaderBuffer() {
@@ -86,7 +112,7 @@ public class BasicThreadedShader extends ThreadedShader {
 		private ForwardShaderBuffer shaderBuffer;
 		
 		// rasterizer used to draw the faces
-		private LinearRasterizer2 rasterizer;	
+		private LinearRasterizer rasterizer;	
 		// camera that the graphics engine is currently rendering to
 		private Camera camera;
 		// frustum used to cull the faces before drawing
@@ -97,9 +123,14 @@ public class BasicThreadedShader extends ThreadedShader {
 		private int diffuseColor;
 		// texture of the face to draw
 		private Texture texture;
+		private Texture mipMap;
+		private int mipMapShift;
+		// vector the uvs of the faces are copied into
+		private final int[] uv;
 		
-		public GeometryShader() {
-			rasterizer = new LinearRasterizer2(this);
+		public GeometryShader(ThreadedShader shader) {
+			rasterizer = shader.createRasterizer(this, ATTRIBUTE_COUNT);
+			uv = VectorUtils.emptyVector();
 		}
 
 		public void initialize(ShaderBuffer shaderBuffer) {
@@ -107,6 +138,7 @@ public class BasicThreadedShader extends ThreadedShader {
 			this.camera = shaderBuffer.getCamera();
 			this.frustum = camera.getFrustum();
 			this.frameBuffer = camera.getRenderTarget();
+			rasterizer.setDepthPyramid(frameBuffer.getDepthPyramid());
 		}
 		
 		public void geometry(Face face) {
@@ -116,63 +148,82 @@ public class BasicThreadedShader extends ThreadedShader {
 			// set the texture space location of the vertices to the rasterizer so they're interpolated
 			setUVs(face);
 			// draw face
-			rasterizer.linearDraw2(face, frustum);
+			rasterizer.draw(face, frustum);
 		}
 
 		private void setUVs(Face face) {
 			if(texture != null) {
 				// port uvs to texture space, don't use FixedPointUtils.multiply as the rasterizer interpolates fixed point vectors
-				int[] uv = face.getUV(0);
+				face.getUV(0, uv);
 				int u = uv[VECTOR_X] * texture.getWidth();
 				int v = uv[VECTOR_Y] * texture.getHeight();
-				rasterizer.setVector00(u, v, 0);
+				rasterizer.setAttribute(0, U, u);
+				rasterizer.setAttribute(0, V, v);
 				
-				uv = face.getUV(1);
+				face.getUV(1, uv);
 				u = uv[VECTOR_X] * texture.getWidth();
 				v = uv[VECTOR_Y] * texture.getHeight();
-				rasterizer.setVector01(u, v, 0);
+				rasterizer.setAttribute(1, U, u);
+				rasterizer.setAttribute(1, V, v);
 				
-				uv = face.getUV(2);
+				face.getUV(2, uv);
 				u = uv[VECTOR_X] * texture.getWidth();
 				v = uv[VECTOR_Y] * texture.getHeight();
-				rasterizer.setVector02(u, v, 0);
+				rasterizer.setAttribute(2, U, u);
+				rasterizer.setAttribute(2, V, v);
+				final int mipMapLevel = rasterizer.getMipMapLevel(texture, face, U, V);
+				mipMap = texture.getMipMap(mipMapLevel);
+				mipMapShift = Texture.getMipMapShift(mipMapLevel);
 			}
 		}
 
-		public void fragment() {
+		public void fragments(Span span) {
 			final Texture depthBuffer = frameBuffer.getDepthBuffer();
 			final Texture colorBuffer = frameBuffer.getColorBuffer();
-			// get the location of this fragment in screen space
-			final int x = rasterizer.getLocation()[VECTOR_X];
-			final int y = rasterizer.getLocation()[VECTOR_Y];
-			final int z = rasterizer.getLocation()[VECTOR_Z];
-			// test if there is a fragment front of this fragment, if not draw this fragment
-			if (depthBuffer.getPixel(x, y) > z) {
-				// get location of this fragment in texture space
-				final int[] uv = rasterizer.getVector0();
-				// get texture color of this fragment
-				final int textureColor = getFragmentTexelColor(uv);
-				// calculate the color of this fragment
-				final int color = ColorUtils.multiplyColor(textureColor, diffuseColor);
-				// update the color and depth buffers
-				colorBuffer.setPixel(x, y, color);
-				depthBuffer.setPixel(x, y, z);
+			final DepthPyramid depthPyramid = rasterizer.getDepthPyramid();
+			// the span is a row of fragments, the depth changes by dz from one fragment to the next
+			final int y = span.getY();
+			final int dz = span.getDz();
+			int spanZ = span.getZ();
+			for (int x = span.getLeft(); x <= span.getRight(); x++, spanZ += dz) {
+				// get the depth of this fragment in screen space
+				final int z = spanZ >> FP_BIT;
+				// test if there is a fragment front of this fragment, if not draw this fragment
+				if (depthBuffer.getPixel(x, y) > z) {
+					// get location of this fragment in texture space
+					final int u = span.getAttribute(U, x);
+					final int v = span.getAttribute(V, x);
+					// get texture color of this fragment
+					final int textureColor = getFragmentTexelColor(u, v);
+					// calculate the color of this fragment
+					final int color = ColorUtils.multiplyColor(textureColor, diffuseColor);
+					// update the color and depth buffers
+					colorBuffer.setPixel(x, y, color);
+					depthBuffer.setPixel(x, y, z);
+					depthPyramid.addShadedFragment(x, y);
+				}
 			}
 		}
 		
-		private int getFragmentTexelColor(int[] uv) {
+		private int getFragmentTexelColor(int u, int v) {
 			if(texture == null) {
 				return ColorUtils.WHITE;
 			} else {
 				// The result will be, but pixels are not accessed with fixed point
-				final int u = uv[VECTOR_X] >> FP_BIT;
-				final int v = uv[VECTOR_Y] >> FP_BIT;
-				return texture.getPixel(u, v);
+				return mipMap.getTexel(u >> mipMapShift, v >> mipMapShift);
 			}
 		}
 
 		public ShaderBuffer getShaderBuffer() {
 			return shaderBuffer;
 		}
+
+		public LinearRasterizer getRasterizer() {
+			return rasterizer;
+		}
+		
+		public Frustum getFrustum() {
+			return frustum;
+		}
 	}
 }
@@ -0,0 +1,566 @@
+package com.johnsproject.jgameengine.shading;
+
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_X;
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_Y;
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_Z;
+import static com.johnsproject.jgameengine.util.FixedPointUtils.FP_BIT;
+import static com.johnsproject.jgameengine.util.FixedPointUtils.FP_ONE;
+import static com.johnsproject.jgameengine.util.TransformationUtils.SUBPIXEL_BIT;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.johnsproject.jgameengine.RenderPool;
+import com.johnsproject.jgameengine.model.Camera;
+import com.johnsproject.jgameengine.model.DepthPyramid;
+import com.johnsproject.jgameengine.model.Face;
+import com.johnsproject.jgameengine.model.FrameBuffer;
+import com.johnsproject.jgameengine.model.Frustum;
+import com.johnsproject.jgameengine.model.Light;
+import com.johnsproject.jgameengine.model.Material;
+import com.johnsproject.jgameengine.model.Texture;
+import com.johnsproject.jgameengine.model.Vertex;
+import com.johnsproject.jgameengine.rasterization.LinearRasterizer;
+import com.johnsproject.jgameengine.rasterization.Span;
+import com.johnsproject.jgameengine.util.ColorUtils;
+import com.johnsproject.jgameengine.util.FixedPointUtils;
+import com.johnsproject.jgameengine.util.TransformationUtils;
+import com.johnsproject.jgameengine.util.VectorUtils;
+
+/**
+ * The DeferredShader lights the models like the {@link PhongShader}, but instead of lighting each fragment
+ * it draws, it only writes the data needed to light it into the geometry buffers of the {@link DeferredShaderBuffer}.
+ * Once all models have been drawn, each pixel of the render target is lit once in {@link #waitForPixelQueue()},
+ * so the cost of the lights doesn't depend on how many fragments are drawn over each other. The pixels are lit
+ * by the tasks of the {@link RenderPool}, in rows of {@value DepthPyramid#BLOCK_SIZE} pixels.
+ * <br><br>
+ * This shader needs a {@link DeferredShaderBuffer} to be set as the shader buffer of the graphics engine.
+ */
+public class DeferredShader extends ThreadedShader {
+
+	// layout of the attributes interpolated by the rasterizer, vectors take three attributes
+	private static final int U = 0;
+	private static final int V = 1;
+	private static final int LOCATION = 2;
+	private static final int NORMAL = 5;
+	private static final int DIRECTIONAL_LIGHT_LOCATION = 8;
+	private static final int SPOT_LIGHT_LOCATION = 11;
+	private static final int ATTRIBUTE_COUNT = 14;
+
+	private static final int ROW_COUNT = DepthPyramid.BLOCK_SIZE;
+
+	private final RenderPool renderPool;
+	private final AtomicInteger rowIndex;
+	private LightingTask[] lightingTasks;
+
+	private DeferredShaderBuffer shaderBuffer;
+	private int renderTargetLeft;
+	private int renderTargetRight;
+	private int renderTargetTop;
+	private int renderTargetBottom;
+
+	public DeferredShader() {
+		this(false);
+	}
+
+	/**
+	 * Creates a new DeferredShader.
+	 * 
+	 * @param halfSpaceRasterization if the faces are drawn with a
+	 * {@link com.johnsproject.jgameengine.rasterization.HalfSpaceRasterizer HalfSpaceRasterizer}.
+	 */
+	public DeferredShader(boolean halfSpaceRasterization) {
+		super(halfSpaceRasterization);
+		this.renderPool = RenderPool.getInstance();
+		this.rowIndex = new AtomicInteger();
+		this.lightingTasks = new LightingTask[0];
+	}
+
+	@Override
+	public ThreadedVertexShader[] createVertexShaders(int count) {
+		final ThreadedVertexShader[] shaders = new VertexShader[count];
+		for (int i = 0; i < shaders.length; i++)
+			shaders[i] = new VertexShader();
+		return shaders;
+	}
+
+	@Override
+	public ThreadedGeometryShader[] createGeometryShaders(int count) {
+		final ThreadedGeometryShader[] shaders = new GeometryShader[count];
+		for (int i = 0; i < shaders.length; i++)
+			shaders[i] = new GeometryShader(this);
+		return shaders;
+	}
+
+	@Override
+	public void initialize(ShaderBuffer shaderBuffer) {
+		super.initialize(shaderBuffer);
+		this.shaderBuffer = (DeferredShaderBuffer) shaderBuffer;
+		final Frustum frustum = shaderBuffer.getCamera().getFrustum();
+		renderTargetLeft = frustum.getRenderTargetLeft();
+		renderTargetRight = frustum.getRenderTargetRight() - 1;
+		renderTargetTop = frustum.getRenderTargetTop();
+		renderTargetBottom = frustum.getRenderTargetBottom() - 1;
+	}
+
+	public boolean isGlobal() {
+		return false;
+	}
+	
+	public int getUsedBuffers() {
+		return FrameBuffer.COLOR_BUFFER | FrameBuffer.DEPTH_BUFFER;
+	}
+
+	/**
+	 * Lights the pixels that have been drawn by this shader.
+	 */
+	@Override
+	public void waitForPixelQueue() {
+		final int parallelism = renderPool.getParallelism();
+		if(lightingTasks.length != parallelism) {
+			lightingTasks = new LightingTask[parallelism];
+			for (int i = 0; i < lightingTasks.length; i++)
+				lightingTasks[i] = new LightingTask();
+		}
+		for (int i = 0; i < lightingTasks.length; i++)
+			lightingTasks[i].initialize();
+		// the rows are aligned to the blocks of the depth pyramid, so each block is lit by one task
+		rowIndex.set(renderTargetTop - (renderTargetTop % ROW_COUNT));
+		final int rowCount = (renderTargetBottom - renderTargetTop) / ROW_COUNT + 2;
+		renderPool.invoke(lightingTasks, Math.min(rowCount, lightingTasks.length));
+	}
+
+	private int nextRow() {
+		final int row = rowIndex.getAndAdd(ROW_COUNT);
+		return row <= renderTargetBottom ? row : -1;
+	}
+
+	private static class VertexShader extends ThreadedVertexShader {
+
+		private ForwardShaderBuffer shaderBuffer;
+
+		private Camera camera;
+		private Frustum frustum;
+		private final int[] location = VectorUtils.emptyVector();
+
+		public void initialize(ShaderBuffer shaderBuffer) {
+			this.shaderBuffer = (ForwardShaderBuffer) shaderBuffer;
+			this.camera = shaderBuffer.getCamera();
+			this.frustum = camera.getFrustum();
+		}
+
+		public void vertex(Vertex vertex) {
+			final int[] location = vertex.getWorldLocation(this.location);
+			VectorUtils.multiplyAffineMatrix(location, camera.getTransform().getSpaceEnterMatrix());
+			VectorUtils.multiplyMatrix(location, frustum.getProjectionMatrix());
+			TransformationUtils.screenportVector(location, frustum);
+			vertex.setLocation(location);
+		}
+
+		public ShaderBuffer getShaderBuffer() {
+			return shaderBuffer;
+		}
+	}
+
+	private static class GeometryShader extends ThreadedGeometryShader {
+
+		private DeferredShaderBuffer shaderBuffer;
+		private final LinearRasterizer rasterizer;
+
+		private Frustum frustum;
+		private FrameBuffer frameBuffer;
+
+		private Frustum directionalLightFrustum;
+		private Texture directionalLightShadowMap;
+		private Frustum spotLightFrustum;
+		private Texture spotLightShadowMap;
+
+		private final int[] lightSpaceLocation;
+		private final int[] worldLocation;
+		private final int[] worldNormal;
+		private final int[] uv;
+
+		private Material material;
+		private Texture texture;
+		private Texture mipMap;
+		private int mipMapShift;
+
+		public GeometryShader(ThreadedShader shader) {
+			this.rasterizer = shader.createRasterizer(this, ATTRIBUTE_COUNT);
+			this.lightSpaceLocation = VectorUtils.emptyVector();
+			this.worldLocation = VectorUtils.emptyVector();
+			this.worldNormal = VectorUtils.emptyVector();
+			this.uv = VectorUtils.emptyVector();
+		}
+
+		public void initialize(ShaderBuffer shaderBuffer) {
+			this.shaderBuffer = (DeferredShaderBuffer) shaderBuffer;
+			this.frustum = shaderBuffer.getCamera().getFrustum();
+			this.frameBuffer = shaderBuffer.getCamera().getRenderTarget();
+			rasterizer.setDepthPyramid(frameBuffer.getDepthPyramid());
+			initialize();
+		}
+
+		private void initialize() {
+			if(shaderBuffer.getShadowDirectionalLight() == null) {
+				directionalLightFrustum = null;
+				directionalLightShadowMap = null;
+			} else {
+				directionalLightFrustum = shaderBuffer.getDirectionalLightFrustum();
+				directionalLightShadowMap = shaderBuffer.getDirectionalShadowMap();
+			}
+			if(shaderBuffer.getShadowSpotLight() == null) {
+				spotLightFrustum = null;
+				spotLightShadowMap = null;
+			} else {
+				spotLightFrustum = shaderBuffer.getSpotLightFrustum();
+				spotLightShadowMap = shaderBuffer.getSpotShadowMap();
+			}
+		}
+
+		public void geometry(Face face) {
+			material = face.getMaterial();
+			texture = material.getTexture();
+			setUVs(face);
+			setWorldSpaceVetors(face);
+			setDirectionalLightSpaceVectors(face);
+			setSpotLightSpaceVectors(face);
+			rasterizer.draw(face, frustum);
+		}
+
+		private void setUVs(Face face) {
+			if(texture != null) {
+				// port uvs to texture space
+				face.getUV(0, uv);
+				int u = uv[VECTOR_X] * texture.getWidth();
+				int v = uv[VECTOR_Y] * texture.getHeight();
+				rasterizer.setAttribute(0, U, u);
+				rasterizer.setAttribute(0, V, v);
+				face.getUV(1, uv);
+				u = uv[VECTOR_X] * texture.getWidth();
+				v = uv[VECTOR_Y] * texture.getHeight();
+				rasterizer.setAttribute(1, U, u);
+				rasterizer.setAttribute(1, V, v);
+				face.getUV(2, uv);
+				u = uv[VECTOR_X] * texture.getWidth();
+				v = uv[VECTOR_Y] * texture.getHeight();
+				rasterizer.setAttribute(2, U, u);
+				rasterizer.setAttribute(2, V, v);
+				final int mipMapLevel = rasterizer.getMipMapLevel(texture, face, U, V);
+				mipMap = texture.getMipMap(mipMapLevel);
+				mipMapShift = Texture.getMipMapShift(mipMapLevel);
+			}
+		}
+
+		private void setWorldSpaceVetors(Face face) {
+			rasterizer.setVector(0, LOCATION, face.getVertex(0).getWorldLocation(worldLocation));
+			rasterizer.setVector(1, LOCATION, face.getVertex(1).getWorldLocation(worldLocation));
+			rasterizer.setVector(2, LOCATION, face.getVertex(2).getWorldLocation(worldLocation));
+			rasterizer.setVector(0, NORMAL, getInterpolatedNormal(face.getVertex(0), worldNormal));
+			rasterizer.setVector(1, NORMAL, getInterpolatedNormal(face.getVertex(1), worldNormal));
+			rasterizer.setVector(2, NORMAL, getInterpolatedNormal(face.getVertex(2), worldNormal));
+		}
+
+
+		private void setDirectionalLightSpaceVectors(Face face) {
+			if(directionalLightShadowMap != null) {
+				final int[] lightMatrix = directionalLightFrustum.getProjectionMatrix();
+
+				face.getVertex(0).getWorldLocation(worldLocation);
+				rasterizer.setVector(0, DIRECTIONAL_LIGHT_LOCATION, transformToLightSpace(worldLocation, lightMatrix, directionalLightFrustum));
+
+				face.getVertex(1).getWorldLocation(worldLocation);
+				rasterizer.setVector(1, DIRECTIONAL_LIGHT_LOCATION, transformToLightSpace(worldLocation, lightMatrix, directionalLightFrustum));
+
+				face.getVertex(2).getWorldLocation(worldLocation);
+				rasterizer.setVector(2, DIRECTIONAL_LIGHT_LOCATION, transformToLightSpace(worldLocation, lightMatrix, directionalLightFrustum));
+			}
+		}
+
+		private void setSpotLightSpaceVectors(Face face) {
+			if(spotLightShadowMap != null) {
+				final int[] lightMatrix = spotLightFrustum.getProjectionMatrix();
+
+				face.getVertex(0).getWorldLocation(worldLocation);
+				rasterizer.setVector(0, SPOT_LIGHT_LOCATION, transformToLightSpace(worldLocation, lightMatrix, spotLightFrustum));
+
+				face.getVertex(1).getWorldLocation(worldLocation);
+				rasterizer.setVector(1, SPOT_LIGHT_LOCATION, transformToLightSpace(worldLocation, lightMatrix, spotLightFrustum));
+
+				face.getVertex(2).getWorldLocation(worldLocation);
+				rasterizer.setVector(2, SPOT_LIGHT_LOCATION, transformToLightSpace(worldLocation, lightMatrix, spotLightFrustum));
+			}
+		}
+
+		private int[] transformToLightSpace(int[] worldLocation, int[] lightMatrix, Frustum lightFrustum) {
+			VectorUtils.copy(lightSpaceLocation, worldLocation);
+			VectorUtils.multiplyMatrix(lightSpaceLocation, lightMatrix);
+			TransformationUtils.screenportVector(lightSpaceLocation, lightFrustum);
+			// The rasterizer will interpolate fixed point vectors but screen space vectors are not fixed point,
+			// x and y are in sub-pixels
+			lightSpaceLocation[VECTOR_X] <<= FP_BIT - SUBPIXEL_BIT;
+			lightSpaceLocation[VECTOR_Y] <<= FP_BIT - SUBPIXEL_BIT;
+			lightSpaceLocation[VECTOR_Z] <<= FP_BIT;
+			return lightSpaceLocation;
+		}
+
+		public void fragments(Span span) {
+			final Texture depthBuffer = frameBuffer.getDepthBuffer();
+			final int y = span.getY();
+			final int dz = span.getDz();
+			int spanZ = span.getZ();
+			for (int x = span.getLeft(); x <= span.getRight(); x++, spanZ += dz) {
+				final int z = spanZ >> FP_BIT;
+				if (depthBuffer.getPixel(x, y) <= z)
+					continue;
+				final int texelColor = getFragmentTexelColor(span.getAttribute(U, x), span.getAttribute(V, x));
+
+				boolean isInShadow = isFragmentInShadow(span.getVector(DIRECTIONAL_LIGHT_LOCATION, x, lightSpaceLocation), directionalLightShadowMap);
+				if(!isInShadow)
+					isInShadow = isFragmentInShadow(span.getVector(SPOT_LIGHT_LOCATION, x, lightSpaceLocation), spotLightShadowMap);
+
+				final int[] location = span.getVector(LOCATION, x, worldLocation);
+				final int[] normal = span.getVector(NORMAL, x, worldNormal);
+				VectorUtils.fastNormalize(normal);
+				shaderBuffer.getNormalBuffer().setPixel(x, y, DeferredShaderBuffer.packNormal(normal));
+				shaderBuffer.getLocationXBuffer().setPixel(x, y, location[VECTOR_X]);
+				shaderBuffer.getLocationYBuffer().setPixel(x, y, location[VECTOR_Y]);
+				shaderBuffer.getLocationZBuffer().setPixel(x, y, location[VECTOR_Z]);
+				shaderBuffer.getAlbedoBuffer().setPixel(x, y, texelColor);
+				shaderBuffer.getDiffuseBuffer().setPixel(x, y, ColorUtils.multiplyColor(material.getDiffuseColor(), texelColor));
+				shaderBuffer.getSpecularBuffer().setPixel(x, y, ColorUtils.multiplyColor(material.getSpecularColor(), texelColor));
+				shaderBuffer.getShininessBuffer().setPixel(x, y, (material.getShininess() << 1) | (isInShadow ? 1 : 0));
+				depthBuffer.setPixel(x, y, z);
+			}
+		}
+
+		private int getFragmentTexelColor(int u, int v) {
+			if(texture == null) {
+				return ColorUtils.WHITE;
+			} else {
+				// The result will be, but pixels are not accessed with fixed point
+				return mipMap.getTexel(u >> mipMapShift, v >> mipMapShift);
+			}
+		}
+
+		private boolean isFragmentInShadow(int[] lightSpaceLocation, Texture shadowMap) {
+			if(shadowMap == null) {
+				return false;
+			} else {
+				// The result will be, but pixels are not accessed with fixed point
+				final int x = lightSpaceLocation[VECTOR_X] >> FP_BIT;
+				final int y = lightSpaceLocation[VECTOR_Y] >> FP_BIT;
+				final int depth = shadowMap.getPixel(x, y);
+				return depth < lightSpaceLocation[VECTOR_Z] >> FP_BIT;
+			}
+		}
+
+		public ShaderBuffer getShaderBuffer() {
+			return shaderBuffer;
+		}
+
+		public LinearRasterizer getRasterizer() {
+			return rasterizer;
+		}
+
+		public Frustum getFrustum() {
+			return frustum;
+		}
+	}
+
+	private final class LightingTask implements Runnable {
+
+		private Camera camera;
+		private LightTiles lightTiles;
+		private Texture colorBuffer;
+		private DepthPyramid depthPyramid;
+
+		private final int[] lightDirection;
+		private final int[] viewDirection;
+		private final int[] spotDirection;
+		private final int[] location;
+		private final int[] normal;
+
+		private int texelColor;
+		private int diffuseColor;
+		private int specularColor;
+		private int shininess;
+		private boolean isInShadow;
+
+		private LightingTask() {
+			this.lightDirection = VectorUtils.emptyVector();
+			this.viewDirection = VectorUtils.emptyVector();
+			this.spotDirection = VectorUtils.emptyVector();
+			this.location = VectorUtils.emptyVector();
+			this.normal = VectorUtils.emptyVector();
+		}
+
+		private void initialize() {
+			this.camera = shaderBuffer.getCamera();
+			this.lightTiles = shaderBuffer.getLightTiles();
+			this.colorBuffer = camera.getRenderTarget().getColorBuffer();
+			this.depthPyramid = camera.getRenderTarget().getDepthPyramid();
+		}
+
+		public void run() {
+			int row;
+			while((row = nextRow()) >= 0) {
+				final int bottom = Math.min(row + ROW_COUNT - 1, renderTargetBottom);
+				for (int y = Math.max(row, renderTargetTop); y <= bottom; y++) {
+					for (int x = renderTargetLeft; x <= renderTargetRight; x++) {
+						lightPixel(x, y);
+					}
+				}
+			}
+		}
+
+		private void lightPixel(int x, int y) {
+			final int packedNormal = shaderBuffer.getNormalBuffer().getPixel(x, y);
+			// this pixel hasn't been drawn by the shader
+			if(packedNormal == 0)
+				return;
+			DeferredShaderBuffer.unpackNormal(packedNormal, normal);
+			VectorUtils.fastNormalize(normal);
+			location[VECTOR_X] = shaderBuffer.getLocationXBuffer().getPixel(x, y);
+			location[VECTOR_Y] = shaderBuffer.getLocationYBuffer().getPixel(x, y);
+			location[VECTOR_Z] = shaderBuffer.getLocationZBuffer().getPixel(x, y);
+			texelColor = shaderBuffer.getAlbedoBuffer().getPixel(x, y);
+			diffuseColor = shaderBuffer.getDiffuseBuffer().getPixel(x, y);
+			specularColor = shaderBuffer.getSpecularBuffer().getPixel(x, y);
+			shininess = shaderBuffer.getShininessBuffer().getPixel(x, y);
+			isInShadow = (shininess & 1) == 1;
+			shininess >>= 1;
+			colorBuffer.setPixel(x, y, calculateLights(lightTiles.getTile(x, y), location, normal));
+			depthPyramid.addShadedFragment(x, y);
+		}
+
+		private int calculateLights(int tile, int[] location, int[] normal) {
+			VectorUtils.copy(viewDirection, camera.getTransform().getWorldLocation());
+			VectorUtils.subtract(viewDirection, location);
+			VectorUtils.fastNormalize(viewDirection);
+			int color = ColorUtils.multiplyColor(texelColor, shaderBuffer.getAmbientColor());
+			final Light[] lights = lightTiles.getLights(tile);
+			final int lightCount = lightTiles.getLightCount(tile);
+			for (int i = 0; i < lightCount; i++) {
+				final Light light = lights[i];
+				int lighting = calculateLight(location, normal, light);
+				lighting = ColorUtils.multiply(lighting, light.getIntensity());
+				color = ColorUtils.add(color, lighting);
+			}
+			return color;
+		}
+
+		private int calculateLight(int[] location, int[] normal, Light light) {
+			// if this pixel is in shadow the light with the shadow doesn't affect it
+			if(!light.isMain() || (light.isMain() && !isInShadow)) {
+				switch (light.getType()) {
+				case DIRECTIONAL:
+					return calculateDirectionalLight(location, normal, light);
+
+				case POINT:
+					return calculatePointLight(location, normal, light);
+
+				case SPOT:
+					return calculateSpotLight(location, normal, light);
+				}
+			}
+			return ColorUtils.BLACK;
+		}
+
+		private int calculateDirectionalLight(int[] location, int[] normal, Light light) {
+			int color = 0;
+			calculateDirectionalLightDirection(light);
+			int diffuse = calculateDiffuseColor(normal, light);
+			color = ColorUtils.add(color, diffuse);
+			if(shininess > 0) {
+				int specular = calculateSpecularColor(location, normal, light);
+				color = ColorUtils.add(color, specular);
+			}
+			return color;
+		}
+
+		private int calculatePointLight(int[] location, int[] normal, Light light) {
+			int color = 0;
+			calculateLightDirection(location, light);
+			final int attenuation = calculateAttenuation(location, light);
+			int diffuse = calculateDiffuseColor(normal, light);
+			diffuse = ColorUtils.multiply(diffuse, attenuation);
+			color = ColorUtils.add(color, diffuse);
+			if(shininess > 0) {
+				int specular = calculateSpecularColor(location, normal, light);
+				specular = ColorUtils.multiply(specular, attenuation);
+				color = ColorUtils.add(color, specular);
+			}
+			return color;
+		}
+
+		private int calculateSpotLight(int[] location, int[] normal, Light light) {
+			int color = 0;
+			calculateLightDirection(location, light);
+			final int spotIntensity = calculateSpotIntensity(light);
+			final int attenuation = calculateAttenuation(location, light);
+			final int lightIntensity = FixedPointUtils.multiply(attenuation, spotIntensity);
+			int diffuse = calculateDiffuseColor(normal, light);
+			diffuse = ColorUtils.multiply(diffuse, lightIntensity);
+			color = ColorUtils.add(color, diffuse);
+			if(shininess > 0) {
+				int specular = calculateSpecularColor(location, normal, light);
+				specular = ColorUtils.multiply(specular, lightIntensity);
+				color = ColorUtils.add(color, specular);
+			}
+			return color;
+		}
+
+		private void calculateDirectionalLightDirection(Light light) {
+			VectorUtils.copy(lightDirection, light.getDirection());
+			VectorUtils.invert(lightDirection);
+		}
+
+		private void calculateLightDirection(int[] location, Light light) {
+			VectorUtils.copy(lightDirection, light.getTransform().getWorldLocation());
+			VectorUtils.subtract(lightDirection, location);
+			VectorUtils.fastNormalize(lightDirection);
+		}
+
+		private int calculateDiffuseColor(int[] normal, Light light) {
+			int diffuseIntesity = (int)VectorUtils.dotProduct(normal, lightDirection);
+			diffuseIntesity = Math.max(diffuseIntesity, 0);
+			int diffuse = ColorUtils.multiply(diffuseColor, diffuseIntesity);
+			diffuse = ColorUtils.multiplyColor(diffuse, light.getColor());
+			return diffuse;
+		}
+
+		private int calculateSpecularColor(int[] location, int[] normal, Light light) {
+			VectorUtils.invert(lightDirection);
+			TransformationUtils.reflect(lightDirection, normal);
+			int specularIntensity = (int)VectorUtils.dotProduct(viewDirection, lightDirection);
+			specularIntensity = Math.max(specularIntensity, 0);
+			specularIntensity = FixedPointUtils.fastPow(specularIntensity, shininess);
+			int specular = ColorUtils.multiply(specularColor, specularIntensity);
+			specular = ColorUtils.multiplyColor(specular, light.getColor());
+			return specular;
+		}
+
+		private int calculateAttenuation(int[] location, Light light) {
+			final int lightConstant = light.getConstantAttenuation();
+			final int lightLinear = light.getLinearAttenuation();
+			final int lightQuadratic = light.getQuadraticAttenuation();
+			final int distance = VectorUtils.distance(light.getTransform().getWorldLocation(), location);
+			final int distanceSquared = FixedPointUtils.multiply(distance, distance);
+			int attenuation = lightConstant;
+			attenuation += FixedPointUtils.multiply(lightLinear, distance);
+			attenuation += FixedPointUtils.multiply(lightQuadratic, distanceSquared);
+			attenuation = FixedPointUtils.divide(FP_ONE, attenuation);
+			return attenuation;
+		}
+
+		private int calculateSpotIntensity(Light light) {
+			int[] direction = VectorUtils.copy(spotDirection, light.getDirection());
+			VectorUtils.invert(direction);
+			int theta = (int)VectorUtils.dotProduct(lightDirection, direction);
+			int intesity = theta - light.getSpotSizeCosine();
+			intesity = FixedPointUtils.divide(intesity, light.getSpotSoftness());
+			intesity = FixedPointUtils.clamp(intesity, 0, FP_ONE);
+			return intesity;
+		}
+	}
+}
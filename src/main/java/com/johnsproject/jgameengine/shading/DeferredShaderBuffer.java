@@ -0,0 +1,176 @@
+package com.johnsproject.jgameengine.shading;
+
+import static com.johnsproject.jgameengine.util.FixedPointUtils.FP_ONE;
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_X;
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_Y;
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_Z;
+
+import java.util.List;
+
+import com.johnsproject.jgameengine.model.Camera;
+import com.johnsproject.jgameengine.model.FrameBuffer;
+import com.johnsproject.jgameengine.model.Light;
+import com.johnsproject.jgameengine.model.Texture;
+import com.johnsproject.jgameengine.util.FixedPointUtils;
+
+/**
+ * The DeferredShaderBuffer holds the geometry buffers of the camera that is being rendered, in addition to the
+ * data of the {@link ForwardShaderBuffer}. The geometry buffers store what is needed to light each pixel, so
+ * a {@link DeferredShader} can draw the models first and then light each pixel only once.
+ * <br><br>
+ * The buffers have the size of the render target of the camera and are cleared when the buffer is initialized.
+ * A pixel that hasn't been drawn has a packed normal of 0.
+ */
+public class DeferredShaderBuffer extends ForwardShaderBuffer {
+
+	private static final int NORMAL_MASK = 0xFFFF;
+	// keeps the packed coordinates above 0, so a packed normal is never 0
+	private static final int NORMAL_OFFSET = (FP_ONE >> 1) + 1;
+
+	private Texture normalBuffer;
+	private Texture locationXBuffer;
+	private Texture locationYBuffer;
+	private Texture locationZBuffer;
+	private Texture albedoBuffer;
+	private Texture diffuseBuffer;
+	private Texture specularBuffer;
+	private Texture shininessBuffer;
+
+	public DeferredShaderBuffer() {
+		super();
+		createBuffers(1, 1);
+	}
+
+	@Override
+	public void initialize(Camera camera, List<Light> lights) {
+		super.initialize(camera, lights);
+		final FrameBuffer renderTarget = camera.getRenderTarget();
+		final int width = renderTarget.getWidth();
+		final int height = renderTarget.getHeight();
+		if((normalBuffer.getWidth() != width) || (normalBuffer.getHeight() != height)) {
+			createBuffers(width, height);
+		} else {
+			// the pixels outside of the viewport are not drawn to
+			normalBuffer.fill(0, 0, 0, renderTarget.getViewportWidth(), renderTarget.getViewportHeight());
+		}
+	}
+
+	private void createBuffers(int width, int height) {
+		normalBuffer = new Texture(width, height);
+		locationXBuffer = new Texture(width, height);
+		locationYBuffer = new Texture(width, height);
+		locationZBuffer = new Texture(width, height);
+		albedoBuffer = new Texture(width, height);
+		diffuseBuffer = new Texture(width, height);
+		specularBuffer = new Texture(width, height);
+		shininessBuffer = new Texture(width, height);
+	}
+
+	/**
+	 * Packs the given normalized normal into an int. The normal is mapped onto an octahedron, 
+	 * whose x and y coordinates are stored with 16 bits each. The packed normal is never 0.
+	 *
+	 * @param normal normalized fixed point normal.
+	 * @return The packed normal.
+	 */
+	public static int packNormal(int[] normal) {
+		int length = Math.abs(normal[VECTOR_X]) + Math.abs(normal[VECTOR_Y]) + Math.abs(normal[VECTOR_Z]);
+		length = length == 0 ? 1 : length;
+		int x = FixedPointUtils.divide(normal[VECTOR_X], length);
+		int y = FixedPointUtils.divide(normal[VECTOR_Y], length);
+		if(normal[VECTOR_Z] < 0) {
+			// fold the lower half of the octahedron over the upper half
+			final int foldedX = (FP_ONE - Math.abs(y)) * sign(x);
+			y = (FP_ONE - Math.abs(x)) * sign(y);
+			x = foldedX;
+		}
+		return (((x >> 1) + NORMAL_OFFSET) << 16) | ((y >> 1) + NORMAL_OFFSET);
+	}
+
+	/**
+	 * Unpacks the given normal into result. The unpacked normal is not normalized.
+	 *
+	 * @param packedNormal
+	 * @param result
+	 * @return The result vector.
+	 */
+	public static int[] unpackNormal(int packedNormal, int[] result) {
+		final int x = ((packedNormal >>> 16) - NORMAL_OFFSET) << 1;
+		final int y = ((packedNormal & NORMAL_MASK) - NORMAL_OFFSET) << 1;
+		final int z = FP_ONE - Math.abs(x) - Math.abs(y);
+		if(z < 0) {
+			result[VECTOR_X] = (FP_ONE - Math.abs(y)) * sign(x);
+			result[VECTOR_Y] = (FP_ONE - Math.abs(x)) * sign(y);
+		} else {
+			result[VECTOR_X] = x;
+			result[VECTOR_Y] = y;
+		}
+		result[VECTOR_Z] = z;
+		return result;
+	}
+
+	private static int sign(int value) {
+		return value < 0 ? -1 : 1;
+	}
+
+	/**
+	 * Returns the buffer that contains the packed world space normal of each pixel.
+	 *
+	 * @return The normal buffer.
+	 * @see #packNormal(int[])
+	 */
+	public Texture getNormalBuffer() {
+		return normalBuffer;
+	}
+
+	public Texture getLocationXBuffer() {
+		return locationXBuffer;
+	}
+
+	public Texture getLocationYBuffer() {
+		return locationYBuffer;
+	}
+
+	public Texture getLocationZBuffer() {
+		return locationZBuffer;
+	}
+
+	/**
+	 * Returns the buffer that contains the texture color of each pixel.
+	 *
+	 * @return The albedo buffer.
+	 */
+	public Texture getAlbedoBuffer() {
+		return albedoBuffer;
+	}
+
+	/**
+	 * Returns the buffer that contains the diffuse color of each pixel,
+	 * multiplied with its texture color.
+	 *
+	 * @return The diffuse buffer.
+	 */
+	public Texture getDiffuseBuffer() {
+		return diffuseBuffer;
+	}
+
+	/**
+	 * Returns the buffer that contains the specular color of each pixel,
+	 * multiplied with its texture color.
+	 *
+	 * @return The specular buffer.
+	 */
+	public Texture getSpecularBuffer() {
+		return specularBuffer;
+	}
+
+	/**
+	 * Returns the buffer that contains the shininess of each pixel, shifted one bit to the left.
+	 * The lowest bit is set if the pixel is in the shadow of the main light.
+	 *
+	 * @return The shininess buffer.
+	 */
+	public Texture getShininessBuffer() {
+		return shininessBuffer;
+	}
+}
@@ -0,0 +1,130 @@
+package com.johnsproject.jgameengine.shading;
+
+import static com.johnsproject.jgameengine.util.FixedPointUtils.FP_BIT;
+
+import com.johnsproject.jgameengine.model.Camera;
+import com.johnsproject.jgameengine.model.DepthPyramid;
+import com.johnsproject.jgameengine.model.Face;
+import com.johnsproject.jgameengine.model.FrameBuffer;
+import com.johnsproject.jgameengine.model.Frustum;
+import com.johnsproject.jgameengine.model.Texture;
+import com.johnsproject.jgameengine.model.Vertex;
+import com.johnsproject.jgameengine.rasterization.Rasterizer;
+import com.johnsproject.jgameengine.rasterization.Span;
+import com.johnsproject.jgameengine.util.TransformationUtils;
+import com.johnsproject.jgameengine.util.VectorUtils;
+
+/**
+ * The DepthShader is used by the depth pre-pass of the {@link com.johnsproject.jgameengine.GraphicsEngine GraphicsEngine}.
+ * It only draws the depth of the faces into the depth buffer of the camera, so the shaders that run after it
+ * only shade the fragments that are visible. The depth of each fragment is written one bigger than it is,
+ * so the depth test of the shaders, that draw a fragment if its depth is smaller than the one in the depth buffer,
+ * passes only for the closest fragment of each pixel. The shaders then write the real depth, so if more than one
+ * face has the closest depth only the first one is shaded.
+ */
+public class DepthShader extends ThreadedShader {
+
+	public boolean isGlobal() {
+		return false;
+	}
+	
+	public int getUsedBuffers() {
+		return FrameBuffer.DEPTH_BUFFER;
+	}
+
+	@Override
+	public ThreadedVertexShader[] createVertexShaders(int count) {
+		final ThreadedVertexShader[] shaders = new VertexShader[count];
+		for (int i = 0; i < shaders.length; i++)
+			shaders[i] = new VertexShader();
+		return shaders;
+	}
+
+	@Override
+	public ThreadedGeometryShader[] createGeometryShaders(int count) {
+		final ThreadedGeometryShader[] shaders = new GeometryShader[count];
+		for (int i = 0; i < shaders.length; i++)
+			shaders[i] = new GeometryShader();
+		return shaders;
+	}
+
+	private static class VertexShader extends ThreadedVertexShader {
+
+		private ShaderBuffer shaderBuffer;
+		private Camera camera;
+		private Frustum frustum;
+		private final int[] location = VectorUtils.emptyVector();
+
+		public void initialize(ShaderBuffer shaderBuffer) {
+			this.shaderBuffer = shaderBuffer;
+			this.camera = shaderBuffer.getCamera();
+			this.frustum = camera.getFrustum();
+		}
+
+		public void vertex(Vertex vertex) {
+			final int[] location = vertex.getWorldLocation(this.location);
+			VectorUtils.multiplyAffineMatrix(location, camera.getTransform().getSpaceEnterMatrix());
+			VectorUtils.multiplyMatrix(location, frustum.getProjectionMatrix());
+			TransformationUtils.screenportVector(location, frustum);
+			vertex.setLocation(location);
+		}
+
+		public ShaderBuffer getShaderBuffer() {
+			return shaderBuffer;
+		}
+	}
+
+	private static class GeometryShader extends ThreadedGeometryShader {
+
+		private ShaderBuffer shaderBuffer;
+		private final Rasterizer rasterizer;
+		private Frustum frustum;
+		private Texture depthBuffer;
+		private DepthPyramid depthPyramid;
+
+		public GeometryShader() {
+			rasterizer = new Rasterizer(this);
+		}
+
+		public void initialize(ShaderBuffer shaderBuffer) {
+			this.shaderBuffer = shaderBuffer;
+			final Camera camera = shaderBuffer.getCamera();
+			this.frustum = camera.getFrustum();
+			this.depthBuffer = camera.getRenderTarget().getDepthBuffer();
+			this.depthPyramid = camera.getRenderTarget().getDepthPyramid();
+			rasterizer.setDepthPyramid(depthPyramid);
+		}
+
+		public void geometry(Face face) {
+			rasterizer.draw(face, frustum);
+		}
+
+		public void fragments(Span span) {
+			// the spans are clipped to the render target, so the depth buffer can be accessed directly
+			final int[] depths = depthBuffer.getPixels();
+			final int y = span.getY();
+			final int rowOffset = y * depthBuffer.getWidth();
+			final int dz = span.getDz();
+			int spanZ = span.getZ();
+			for (int x = span.getLeft(); x <= span.getRight(); x++, spanZ += dz) {
+				final int z = (spanZ >> FP_BIT) + 1;
+				if (depths[rowOffset + x] > z) {
+					depths[rowOffset + x] = z;
+					depthPyramid.addDepthFragment(x, y);
+				}
+			}
+		}
+
+		public ShaderBuffer getShaderBuffer() {
+			return shaderBuffer;
+		}
+
+		public Rasterizer getRasterizer() {
+			return rasterizer;
+		}
+
+		public Frustum getFrustum() {
+			return frustum;
+		}
+	}
+}
@@ -4,6 +4,7 @@ import static com.johnsproject.jgameengine.util.FixedPointUtils.FP_ONE;
 import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_X;
 import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_Y;
 import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_Z;
+import static com.johnsproject.jgameengine.util.TransformationUtils.SUBPIXEL_BIT;
 
 import com.johnsproject.jgameengine.model.Camera;
 import com.johnsproject.jgameengine.model.Face;
@@ -12,6 +13,7 @@ import com.johnsproject.jgameengine.model.Light;
 import com.johnsproject.jgameengine.model.Texture;
 import com.johnsproject.jgameengine.model.Vertex;
 import com.johnsproject.jgameengine.rasterization.Rasterizer;
+import com.johnsproject.jgameengine.rasterization.Span;
 import com.johnsproject.jgameengine.util.MatrixUtils;
 import com.johnsproject.jgameengine.util.TransformationUtils;
 import com.johnsproject.jgameengine.util.VectorUtils;
@@ -21,6 +23,11 @@ public class DirectionalLightShadowShader extends ThreadedShader {
 	public boolean isGlobal() {
 		return true;
 	}
+	
+	public int getUsedBuffers() {
+		// shadow shaders only draw to the shadow maps
+		return 0;
+	}
 
 	@Override
 	public ThreadedVertexShader[] createVertexShaders(int count) {
@@ -42,6 +49,7 @@ public class DirectionalLightShadowShader extends ThreadedShader {
 
 		private ForwardShaderBuffer shaderBuffer;
 		private Frustum lightFrustum;
+		private final int[] location = VectorUtils.emptyVector();
 		
 		public void initialize(ShaderBuffer shaderBuffer) {
 			this.shaderBuffer = (ForwardShaderBuffer) shaderBuffer;
@@ -54,10 +62,10 @@ public class DirectionalLightShadowShader extends ThreadedShader {
 
 		public void vertex(Vertex vertex) {
 			if(shaderBuffer.getShadowDirectionalLight() != null) {
-				final int[] location = vertex.getLocation();
-				VectorUtils.copy(location, vertex.getWorldLocation());
-				VectorUtils.multiply(location, lightFrustum.getProjectionMatrix());
+				final int[] location = vertex.getWorldLocation(this.location);
+				VectorUtils.multiplyMatrix(location, lightFrustum.getProjectionMatrix());
 				TransformationUtils.screenportVector(location, lightFrustum);
+				vertex.setLocation(location);
 			}
 		}
 
@@ -76,7 +84,7 @@ public class DirectionalLightShadowShader extends ThreadedShader {
 		private int shadowBias;
 		
 		private Frustum cameraFrustum;
-		private int[][] cameraMatrix = MatrixUtils.indentityMatrix();
+		private int[] cameraMatrix = MatrixUtils.indentityMatrix();
 		private int renderTargetLeft;
 		private int renderTargetRight;
 		private int renderTargetTop;
@@ -98,16 +106,17 @@ public class DirectionalLightShadowShader extends ThreadedShader {
 				shadowBias = light.getShadowBias() >> 10;
 				final Camera camera = shaderBuffer.getCamera();
 				cameraFrustum = camera.getFrustum();
-				final int[][] cameraSpaceMatrix = camera.getTransform().getSpaceEnterMatrix();
-				final int[][] projectionMatrix = cameraFrustum.getProjectionMatrix();
+				final int[] cameraSpaceMatrix = camera.getTransform().getSpaceEnterMatrix();
+				final int[] projectionMatrix = cameraFrustum.getProjectionMatrix();
 				
 				MatrixUtils.multiply(projectionMatrix, cameraSpaceMatrix, cameraMatrix);
 				
 				final int tolerance = 1024;
-				renderTargetLeft = cameraFrustum.getRenderTargetLeft() - tolerance;
-				renderTargetRight = cameraFrustum.getRenderTargetRight() + tolerance;
-				renderTargetTop = cameraFrustum.getRenderTargetTop() - tolerance;
-				renderTargetBottom = cameraFrustum.getRenderTargetBottom() + tolerance;
+				// the screen space locations are in sub-pixels
+				renderTargetLeft = (cameraFrustum.getRenderTargetLeft() - tolerance) << SUBPIXEL_BIT;
+				renderTargetRight = (cameraFrustum.getRenderTargetRight() + tolerance) << SUBPIXEL_BIT;
+				renderTargetTop = (cameraFrustum.getRenderTargetTop() - tolerance) << SUBPIXEL_BIT;
+				renderTargetBottom = (cameraFrustum.getRenderTargetBottom() + tolerance) << SUBPIXEL_BIT;
 			}
 		}
 
@@ -119,16 +128,16 @@ public class DirectionalLightShadowShader extends ThreadedShader {
 		}
 		
 		private boolean isInCameraView(Face face) {
-			VectorUtils.copy(location0, face.getVertex(0).getWorldLocation());
-			VectorUtils.multiply(location0, cameraMatrix);
+			face.getVertex(0).getWorldLocation(location0);
+			VectorUtils.multiplyMatrix(location0, cameraMatrix);
 			TransformationUtils.screenportVector(location0, cameraFrustum);
 			
-			VectorUtils.copy(location1, face.getVertex(1).getWorldLocation());
-			VectorUtils.multiply(location1, cameraMatrix);
+			face.getVertex(1).getWorldLocation(location1);
+			VectorUtils.multiplyMatrix(location1, cameraMatrix);
 			TransformationUtils.screenportVector(location1, cameraFrustum);
 			
-			VectorUtils.copy(location2, face.getVertex(2).getWorldLocation());
-			VectorUtils.multiply(location2, cameraMatrix);
+			face.getVertex(2).getWorldLocation(location2);
+			VectorUtils.multiplyMatrix(location2, cameraMatrix);
 			TransformationUtils.screenportVector(location2, cameraFrustum);
 			
 			final boolean insideWidth1 = (location0[VECTOR_X] > renderTargetLeft) && (location0[VECTOR_X] < renderTargetRight);
@@ -148,17 +157,20 @@ public class DirectionalLightShadowShader extends ThreadedShader {
 			return true;
 		}
 
-		public void fragment() {
-			final int x = rasterizer.getLocation()[VECTOR_X];
-			final int y = rasterizer.getLocation()[VECTOR_Y];
-			final int z = rasterizer.getLocation()[VECTOR_Z] + shadowBias;
-			if (shadowMap.getPixel(x, y) > z) {
-				shadowMap.setPixel(x, y, z);
-			}
+		public void fragments(Span span) {
+			span.fillDepth(shadowMap, shadowBias);
 		}
 
 		public ShaderBuffer getShaderBuffer() {
 			return shaderBuffer;
 		}
+
+		public Rasterizer getRasterizer() {
+			return rasterizer;
+		}
+		
+		public Frustum getFrustum() {
+			return lightFrustum;
+		}
 	}
 }
@@ -6,10 +6,12 @@ import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_Z;
 import static com.johnsproject.jgameengine.util.FixedPointUtils.FP_BIT;
 import static com.johnsproject.jgameengine.util.FixedPointUtils.FP_ONE;
 import static com.johnsproject.jgameengine.util.FixedPointUtils.FP_HALF;
+import static com.johnsproject.jgameengine.util.TransformationUtils.SUBPIXEL_BIT;
 
 import java.util.List;
 
 import com.johnsproject.jgameengine.model.Camera;
+import com.johnsproject.jgameengine.model.DepthPyramid;
 import com.johnsproject.jgameengine.model.Face;
 import com.johnsproject.jgameengine.model.FrameBuffer;
 import com.johnsproject.jgameengine.model.Frustum;
@@ -17,7 +19,8 @@ import com.johnsproject.jgameengine.model.Light;
 import com.johnsproject.jgameengine.model.Material;
 import com.johnsproject.jgameengine.model.Texture;
 import com.johnsproject.jgameengine.model.Vertex;
-import com.johnsproject.jgameengine.rasterization.LinearRasterizer4;
+import com.johnsproject.jgameengine.rasterization.LinearRasterizer;
+import com.johnsproject.jgameengine.rasterization.Span;
 import com.johnsproject.jgameengine.util.ColorUtils;
 import com.johnsproject.jgameengine.util.FixedPointUtils;
 import com.johnsproject.jgameengine.util.TransformationUtils;
@@ -25,6 +28,27 @@ import com.johnsproject.jgameengine.util.VectorUtils;
 
 public class FlatShader extends ThreadedShader {
 	
+	// layout of the attributes interpolated by the rasterizer, vectors take three attributes
+	private static final int U = 0;
+	private static final int V = 1;
+	private static final int DIRECTIONAL_LIGHT_LOCATION = 2;
+	private static final int SPOT_LIGHT_LOCATION = 5;
+	private static final int ATTRIBUTE_COUNT = 8;
+
+	public FlatShader() {
+		super();
+	}
+	
+	/**
+	 * Creates a new FlatShader.
+	 * 
+	 * @param halfSpaceRasterization if the faces are drawn with a
+	 * {@link com.johnsproject.jgameengine.rasterization.HalfSpaceRasterizer HalfSpaceRasterizer}.
+	 */
+	public FlatShader(boolean halfSpaceRasterization) {
+		super(halfSpaceRasterization);
+	}
+	
 	@Override
 	public ThreadedVertexShader[] createVertexShaders(int count) {
 		final ThreadedVertexShader[] shaders = new VertexShader[count];
@@ -37,12 +61,16 @@ public class FlatShader extends ThreadedShader {
 	public ThreadedGeometryShader[] createGeometryShaders(int count) {
 		final ThreadedGeometryShader[] shaders = new GeometryShader[count];
 		for (int i = 0; i < shaders.length; i++)
-			shaders[i] = new GeometryShader();
+			shaders[i] = new GeometryShader(this);
 		return shaders;
 	}
 	
 	public boolean isGlobal() {
 		return false;
+	}
+	
+	public int getUsedBuffers() {
+		return FrameBuffer.COLOR_BUFFER | FrameBuffer.DEPTH_BUFFER;
 	}	
 
 	private static class VertexShader extends ThreadedVertexShader {
@@ -51,6 +79,7 @@ public class FlatShader extends ThreadedShader {
 		
 		private Camera camera;
 		private Frustum frustum;
+		private final int[] location = VectorUtils.emptyVector();
 
 		public void initialize(ShaderBuffer shaderBuffer) {
 			this.shaderBuffer = (ForwardShaderBuffer) shaderBuffer;
@@ -59,11 +88,11 @@ public class FlatShader extends ThreadedShader {
 		}
 		
 		public void vertex(Vertex vertex) {
-			final int[] location = vertex.getLocation();
-			VectorUtils.copy(location, vertex.getWorldLocation());			
-			VectorUtils.multiply(location, camera.getTransform().getSpaceEnterMatrix());
-			VectorUtils.multiply(location, frustum.getProjectionMatrix());
+			final int[] location = vertex.getWorldLocation(this.location);
+			VectorUtils.multiplyAffineMatrix(location, camera.getTransform().getSpaceEnterMatrix());
+			VectorUtils.multiplyMatrix(location, frustum.getProjectionMatrix());
 			TransformationUtils.screenportVector(location, frustum);
+			vertex.setLocation(location);
 		}
 
 		public ShaderBuffer getShaderBuffer() {
@@ -74,7 +103,7 @@ public class FlatShader extends ThreadedShader {
 	private static class GeometryShader extends ThreadedGeometryShader {
 
 		private ForwardShaderBuffer shaderBuffer;
-		private final LinearRasterizer4 rasterizer = new LinearRasterizer4(this);
+		private final LinearRasterizer rasterizer;
 		
 		private Camera camera;
 		private Frustum frustum;
@@ -87,19 +116,28 @@ public class FlatShader extends ThreadedShader {
 		private Texture spotLightShadowMap;
 		
 		private Texture texture;
+		private Texture mipMap;
+		private int mipMapShift;
 		private int lightColor;
 		private int texelColor;
 		private final int[] lightSpaceLocation;		
 		private final int[] lightDirection;
 		private final int[] viewDirection;
 		private final int[] faceLocation;
+		private final int[] faceNormal;
+		private final int[] worldLocation;
+		private final int[] uv;
 		private boolean isInShadow;
 		
-		public GeometryShader() {
+		public GeometryShader(ThreadedShader shader) {
+			this.rasterizer = shader.createRasterizer(this, ATTRIBUTE_COUNT);
 			this.lightSpaceLocation = VectorUtils.emptyVector();
 			this.lightDirection = VectorUtils.emptyVector();
 			this.viewDirection = VectorUtils.emptyVector();
 			this.faceLocation = VectorUtils.emptyVector();
+			this.faceNormal = VectorUtils.emptyVector();
+			this.worldLocation = VectorUtils.emptyVector();
+			this.uv = VectorUtils.emptyVector();
 		}
 
 		public void initialize(ShaderBuffer shaderBuffer) {
@@ -107,6 +145,7 @@ public class FlatShader extends ThreadedShader {
 			this.camera = shaderBuffer.getCamera();
 			this.frustum = camera.getFrustum();
 			this.frameBuffer = camera.getRenderTarget();
+			rasterizer.setDepthPyramid(frameBuffer.getDepthPyramid());
 			this.lights = shaderBuffer.getLights();
 			initialize();
 		}
@@ -131,76 +170,90 @@ public class FlatShader extends ThreadedShader {
 		public void geometry(Face face) {
 			final Material material = face.getMaterial();
 			texture = material.getTexture();
-			VectorUtils.copy(faceLocation, face.getVertex(0).getWorldLocation());
-			VectorUtils.add(faceLocation, face.getVertex(1).getWorldLocation());
-			VectorUtils.add(faceLocation, face.getVertex(2).getWorldLocation());
+			face.getVertex(0).getWorldLocation(faceLocation);
+			VectorUtils.add(faceLocation, face.getVertex(1).getWorldLocation(worldLocation));
+			VectorUtils.add(faceLocation, face.getVertex(2).getWorldLocation(worldLocation));
 			VectorUtils.divide(faceLocation, 3 << FP_BIT);
-			lightColor = calculateLights(faceLocation, face.getWorldNormal(), material);
+			// faces are shared by the tiles they overlap, so the normal is normalized in a copy
+			face.getWorldNormal(faceNormal);
+			lightColor = calculateLights(faceLocation, faceNormal, material);
 			setUVs(face);
 			setDirectionalLightSpaceVectors(face);
 			setSpotLightSpaceVectors(face);
-			rasterizer.linearDraw4(face, frustum);
+			rasterizer.draw(face, frustum);
 		}
 
 		private void setUVs(Face face) {
 			if(texture != null) {
 				// port uvs to texture space
-				int u = face.getUV(0)[VECTOR_X] * texture.getWidth();
-				int v = face.getUV(0)[VECTOR_Y] * texture.getHeight();
-				rasterizer.setVector00(u, v, 0);
-				u = face.getUV(1)[VECTOR_X] * texture.getWidth();
-				v = face.getUV(1)[VECTOR_Y] * texture.getHeight();
-				rasterizer.setVector01(u, v, 0);
-				u = face.getUV(2)[VECTOR_X] * texture.getWidth();
-				v = face.getUV(2)[VECTOR_Y] * texture.getHeight();
-				rasterizer.setVector02(u, v, 0);
+				face.getUV(0, uv);
+				int u = uv[VECTOR_X] * texture.getWidth();
+				int v = uv[VECTOR_Y] * texture.getHeight();
+				rasterizer.setAttribute(0, U, u);
+				rasterizer.setAttribute(0, V, v);
+				face.getUV(1, uv);
+				u = uv[VECTOR_X] * texture.getWidth();
+				v = uv[VECTOR_Y] * texture.getHeight();
+				rasterizer.setAttribute(1, U, u);
+				rasterizer.setAttribute(1, V, v);
+				face.getUV(2, uv);
+				u = uv[VECTOR_X] * texture.getWidth();
+				v = uv[VECTOR_Y] * texture.getHeight();
+				rasterizer.setAttribute(2, U, u);
+				rasterizer.setAttribute(2, V, v);
+				final int mipMapLevel = rasterizer.getMipMapLevel(texture, face, U, V);
+				mipMap = texture.getMipMap(mipMapLevel);
+				mipMapShift = Texture.getMipMapShift(mipMapLevel);
 			}
 		}
 		
 		private void setDirectionalLightSpaceVectors(Face face) {
 			if(directionalLightShadowMap != null) {
-				final int[][] lightMatrix = directionalLightFrustum.getProjectionMatrix();
+				final int[] lightMatrix = directionalLightFrustum.getProjectionMatrix();
 				
-				int[] worldLocation = face.getVertex(0).getWorldLocation();
-				rasterizer.setVector10(transformToLightSpace(worldLocation, lightMatrix, directionalLightFrustum));
+				face.getVertex(0).getWorldLocation(worldLocation);
+				rasterizer.setVector(0, DIRECTIONAL_LIGHT_LOCATION, transformToLightSpace(worldLocation, lightMatrix, directionalLightFrustum));
 				
-				worldLocation = face.getVertex(1).getWorldLocation();
-				rasterizer.setVector11(transformToLightSpace(worldLocation, lightMatrix, directionalLightFrustum));
+				face.getVertex(1).getWorldLocation(worldLocation);
+				rasterizer.setVector(1, DIRECTIONAL_LIGHT_LOCATION, transformToLightSpace(worldLocation, lightMatrix, directionalLightFrustum));
 				
-				worldLocation = face.getVertex(2).getWorldLocation();
-				rasterizer.setVector12(transformToLightSpace(worldLocation, lightMatrix, directionalLightFrustum));
+				face.getVertex(2).getWorldLocation(worldLocation);
+				rasterizer.setVector(2, DIRECTIONAL_LIGHT_LOCATION, transformToLightSpace(worldLocation, lightMatrix, directionalLightFrustum));
 			}
 		}
 		
 		private void setSpotLightSpaceVectors(Face face) {
 			if(spotLightShadowMap != null) {
-				final int[][] lightMatrix = spotLightFrustum.getProjectionMatrix();
+				final int[] lightMatrix = spotLightFrustum.getProjectionMatrix();
 				
-				int[] worldLocation = face.getVertex(0).getWorldLocation();
-				rasterizer.setVector20(transformToLightSpace(worldLocation, lightMatrix, spotLightFrustum));
+				face.getVertex(0).getWorldLocation(worldLocation);
+				rasterizer.setVector(0, SPOT_LIGHT_LOCATION, transformToLightSpace(worldLocation, lightMatrix, spotLightFrustum));
 				
-				worldLocation = face.getVertex(1).getWorldLocation();
-				rasterizer.setVector21(transformToLightSpace(worldLocation, lightMatrix, spotLightFrustum));
+				face.getVertex(1).getWorldLocation(worldLocation);
+				rasterizer.setVector(1, SPOT_LIGHT_LOCATION, transformToLightSpace(worldLocation, lightMatrix, spotLightFrustum));
 				
-				worldLocation = face.getVertex(2).getWorldLocation();
-				rasterizer.setVector22(transformToLightSpace(worldLocation, lightMatrix, spotLightFrustum));
+				face.getVertex(2).getWorldLocation(worldLocation);
+				rasterizer.setVector(2, SPOT_LIGHT_LOCATION, transformToLightSpace(worldLocation, lightMatrix, spotLightFrustum));
 			}
 		}
 		
-		private int[] transformToLightSpace(int[] worldLocation, int[][] lightMatrix, Frustum lightFrustum) {
+		private int[] transformToLightSpace(int[] worldLocation, int[] lightMatrix, Frustum lightFrustum) {
 			VectorUtils.copy(lightSpaceLocation, worldLocation);
-			VectorUtils.multiply(lightSpaceLocation, lightMatrix);
+			VectorUtils.multiplyMatrix(lightSpaceLocation, lightMatrix);
 			TransformationUtils.screenportVector(lightSpaceLocation, lightFrustum);
-			// The rasterizer will interpolate fixed point vectors but screen space vectors are not fixed point
-			VectorUtils.multiply(lightSpaceLocation, FP_ONE << FP_BIT);
+			// The rasterizer will interpolate fixed point vectors but screen space vectors are not fixed point,
+			// x and y are in sub-pixels
+			lightSpaceLocation[VECTOR_X] <<= FP_BIT - SUBPIXEL_BIT;
+			lightSpaceLocation[VECTOR_Y] <<= FP_BIT - SUBPIXEL_BIT;
+			lightSpaceLocation[VECTOR_Z] <<= FP_BIT;
 			return lightSpaceLocation;
 		}
 		
 		private int calculateLights(int[] location, int[] normal, Material material) {
-			VectorUtils.copy(viewDirection, camera.getTransform().getLocation());
+			VectorUtils.copy(viewDirection, camera.getTransform().getWorldLocation());
 			VectorUtils.subtract(viewDirection, location);
-			VectorUtils.normalize(viewDirection);
-			VectorUtils.normalize(normal);
+			VectorUtils.fastNormalize(viewDirection);
+			VectorUtils.fastNormalize(normal);
 			int color = ColorUtils.BLACK;
 			for (int i = 0; i < lights.size(); i++) {
 				final Light light = lights.get(i);
@@ -279,9 +332,9 @@ public class FlatShader extends ThreadedShader {
 		}
 		
 		private void calculateLightDirection(int[] location, Light light) {
-			VectorUtils.copy(lightDirection, light.getTransform().getLocation());
+			VectorUtils.copy(lightDirection, light.getTransform().getWorldLocation());
 			VectorUtils.subtract(lightDirection, location);
-			VectorUtils.normalize(lightDirection);
+			VectorUtils.fastNormalize(lightDirection);
 		}
 		
 		private int calculateDiffuseColor(int[] normal, Material material, Light light) {
@@ -297,7 +350,7 @@ public class FlatShader extends ThreadedShader {
 			TransformationUtils.reflect(lightDirection, normal);
 			int specularIntensity = (int)VectorUtils.dotProduct(viewDirection, lightDirection);
 			specularIntensity = Math.max(specularIntensity, 0);
-			specularIntensity = FixedPointUtils.pow(specularIntensity, material.getShininess());
+			specularIntensity = FixedPointUtils.fastPow(specularIntensity, material.getShininess());
 			int specular = ColorUtils.multiply(material.getSpecularColor(), specularIntensity);
 			specular = ColorUtils.multiplyColor(specular, light.getColor());
 			return specular;
@@ -307,7 +360,7 @@ public class FlatShader extends ThreadedShader {
 			final int lightConstant = light.getConstantAttenuation();
 			final int lightLinear = light.getLinearAttenuation();
 			final int lightQuadratic = light.getQuadraticAttenuation();
-			final int distance = VectorUtils.distance(light.getTransform().getLocation(), location);
+			final int distance = VectorUtils.distance(light.getTransform().getWorldLocation(), location);
 			final int distanceSquared = FixedPointUtils.multiply(distance, distance);
 			int attenuation = lightConstant;
 			attenuation += FixedPointUtils.multiply(lightLinear, distance);
@@ -326,22 +379,27 @@ public class FlatShader extends ThreadedShader {
 			return intesity;
 		}
 		
-		public void fragment() {
+		public void fragments(Span span) {
 			final Texture depthBuffer = frameBuffer.getDepthBuffer();
 			final Texture colorBuffer = frameBuffer.getColorBuffer();
-			final int x = rasterizer.getLocation()[VECTOR_X];
-			final int y = rasterizer.getLocation()[VECTOR_Y];
-			final int z = rasterizer.getLocation()[VECTOR_Z];
-			if (depthBuffer.getPixel(x, y) > z) {
+			final DepthPyramid depthPyramid = rasterizer.getDepthPyramid();
+			final int y = span.getY();
+			final int dz = span.getDz();
+			int spanZ = span.getZ();
+			for (int x = span.getLeft(); x <= span.getRight(); x++, spanZ += dz) {
+				final int z = spanZ >> FP_BIT;
+				if (depthBuffer.getPixel(x, y) <= z)
+					continue;
 				
-				final int[] uv = rasterizer.getVector0();
-				texelColor = getFragmentTexelColor(uv);
+				final int u = span.getAttribute(U, x);
+				final int v = span.getAttribute(V, x);
+				texelColor = getFragmentTexelColor(u, v);
 				
-				final int[] directionalLightSpaceLocation = rasterizer.getVector1();
-				isInShadow = isFragmentInShadow(directionalLightSpaceLocation, directionalLightShadowMap);
+				span.getVector(DIRECTIONAL_LIGHT_LOCATION, x, lightSpaceLocation);
+				isInShadow = isFragmentInShadow(lightSpaceLocation, directionalLightShadowMap);
 				if(!isInShadow) {
-					final int[] spotLightSpaceLocation = rasterizer.getVector2();
-					isInShadow = isFragmentInShadow(spotLightSpaceLocation, spotLightShadowMap);
+					span.getVector(SPOT_LIGHT_LOCATION, x, lightSpaceLocation);
+					isInShadow = isFragmentInShadow(lightSpaceLocation, spotLightShadowMap);
 				}
 				
 				int color = ColorUtils.multiplyColor(lightColor, texelColor);
@@ -350,17 +408,16 @@ public class FlatShader extends ThreadedShader {
 				
 				colorBuffer.setPixel(x, y, color);
 				depthBuffer.setPixel(x, y, z);
+				depthPyramid.addShadedFragment(x, y);
 			}
 		}
 		
-		private int getFragmentTexelColor(int[] uv) {
+		private int getFragmentTexelColor(int u, int v) {
 			if(texture == null) {
 				return ColorUtils.WHITE;
 			} else {
 				// The result will be, but pixels are not accessed with fixed point
-				final int u = uv[VECTOR_X] >> FP_BIT;
-				final int v = uv[VECTOR_Y] >> FP_BIT;
-				return texture.getPixel(u, v);
+				return mipMap.getTexel(u >> mipMapShift, v >> mipMapShift);
 			}
 		}
 		
@@ -379,5 +436,13 @@ public class FlatShader extends ThreadedShader {
 		public ShaderBuffer getShaderBuffer() {
 			return shaderBuffer;
 		}
+
+		public LinearRasterizer getRasterizer() {
+			return rasterizer;
+		}
+		
+		public Frustum getFrustum() {
+			return frustum;
+		}
 	}
 }
@@ -10,6 +10,7 @@ import com.johnsproject.jgameengine.model.Frustum;
 import com.johnsproject.jgameengine.model.FrustumType;
 import com.johnsproject.jgameengine.model.Light;
 import com.johnsproject.jgameengine.model.Texture;
+import com.johnsproject.jgameengine.util.ColorUtils;
 import com.johnsproject.jgameengine.util.MatrixUtils;
 import com.johnsproject.jgameengine.util.VectorUtils;
 
@@ -17,8 +18,10 @@ public class ForwardShaderBuffer implements ShaderBuffer {
 	
 	private Camera camera;
 	private List<Light> lights;
+	private final LightTiles lightTiles;
+	private int ambientColor;
 	
-	private final int[][] projectionMatrix;
+	private final int[] projectionMatrix;
 
 	private Light shadowDirectionalLight;
 	private final Frustum directionalLightFrustum;
@@ -33,6 +36,7 @@ public class ForwardShaderBuffer implements ShaderBuffer {
 	
 	public ForwardShaderBuffer() {
 		this.projectionMatrix = MatrixUtils.indentityMatrix();
+		this.lightTiles = new LightTiles();
 		
 		this.directionalLightFrustum = new Frustum(0, FP_ONE, 0, FP_ONE, FP_ONE, FP_ONE * 10000);
 		this.directionalLightFrustum.setType(FrustumType.ORTHOGRAPHIC);
@@ -47,22 +51,27 @@ public class ForwardShaderBuffer implements ShaderBuffer {
 	public void initialize(Camera camera, List<Light> lights) {
 		this.camera = camera;
 		this.lights = lights;
-		final int[] cameraLocation = camera.getTransform().getLocation();
+		final int[] cameraLocation = camera.getTransform().getWorldLocation();
 		long maxLightDistance = camera.getMaxLightDistance();
 		// square the far distance because square distance calculation is used to save performance
 		maxLightDistance = (maxLightDistance * maxLightDistance) >> FP_BIT;
 		resetLightIndices();
+		ambientColor = ColorUtils.BLACK;
 		for(int i = 0; i < lights.size(); i++) {
 			final Light light = lights.get(i);
 			if(!light.isActive())
 				continue;
-			final int[] lightLocation = light.getTransform().getLocation();
+			final int[] lightLocation = light.getTransform().getWorldLocation();
 			final long lightDistance = VectorUtils.squaredDistance(lightLocation, cameraLocation);
 			light.setCulled(lightDistance > maxLightDistance);
-			if(light.isCulled() || !light.hasShadow())
+			if(light.isCulled())
+				continue;
+			ambientColor = ColorUtils.add(ambientColor, light.getAmbientColor());
+			if(!light.hasShadow())
 				continue;
 			searchNearestLights(light, lightDistance);
 		}
+		lightTiles.update(camera, lights);
 		initializeLightMatrices();
 	}
 	
@@ -120,8 +129,8 @@ public class ForwardShaderBuffer implements ShaderBuffer {
 			final int portHeight = directionalShadowMap.getHeight();
 			directionalLightFrustum.setRenderTargetSize(portWidth, portHeight);
 			directionalShadowMap.fill(Integer.MAX_VALUE);
-			final int[][] lightSpaceMatrix = shadowDirectionalLight.getTransform().getSpaceEnterMatrix();
-			final int[][] frustumProjectionMatrix = directionalLightFrustum.getProjectionMatrix();
+			final int[] lightSpaceMatrix = shadowDirectionalLight.getTransform().getSpaceEnterMatrix();
+			final int[] frustumProjectionMatrix = directionalLightFrustum.getProjectionMatrix();
 			MatrixUtils.copy(projectionMatrix, frustumProjectionMatrix);
 			MatrixUtils.multiply(projectionMatrix, lightSpaceMatrix, frustumProjectionMatrix);
 		}
@@ -133,8 +142,8 @@ public class ForwardShaderBuffer implements ShaderBuffer {
 			final int portHeight = spotShadowMap.getHeight();
 			spotLightFrustum.setRenderTargetSize(portWidth, portHeight);
 			spotShadowMap.fill(Integer.MAX_VALUE);
-			final int[][] lightSpaceMatrix = shadowSpotLight.getTransform().getSpaceEnterMatrix();
-			final int[][] frustumProjectionMatrix = spotLightFrustum.getProjectionMatrix();
+			final int[] lightSpaceMatrix = shadowSpotLight.getTransform().getSpaceEnterMatrix();
+			final int[] frustumProjectionMatrix = spotLightFrustum.getProjectionMatrix();
 			MatrixUtils.copy(projectionMatrix, frustumProjectionMatrix);
 			MatrixUtils.multiply(projectionMatrix, lightSpaceMatrix, frustumProjectionMatrix);
 		}
@@ -148,6 +157,26 @@ public class ForwardShaderBuffer implements ShaderBuffer {
 		return lights;
 	}
 
+	/**
+	 * Returns the {@link LightTiles} with the lights that reach each tile of the render target of the camera.
+	 * 
+	 * @return The LightTiles of the camera.
+	 */
+	public LightTiles getLightTiles() {
+		return lightTiles;
+	}
+	
+	/**
+	 * Returns the ambient colors of all lights that aren't culled put together.
+	 * The ambient color of a light doesn't depend on the distance to it,
+	 * so it is added to all pixels and not only to the ones in the tiles of the light.
+	 * 
+	 * @return The ambient color.
+	 */
+	public int getAmbientColor() {
+		return ambientColor;
+	}
+
 	public Light getShadowDirectionalLight() {
 		return shadowDirectionalLight;
 	}
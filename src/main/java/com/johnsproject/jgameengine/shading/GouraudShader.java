@@ -6,10 +6,10 @@ import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_Z;
 import static com.johnsproject.jgameengine.util.FixedPointUtils.FP_BIT;
 import static com.johnsproject.jgameengine.util.FixedPointUtils.FP_ONE;
 import static com.johnsproject.jgameengine.util.FixedPointUtils.FP_HALF;
-
-import java.util.List;
+import static com.johnsproject.jgameengine.util.TransformationUtils.SUBPIXEL_BIT;
 
 import com.johnsproject.jgameengine.model.Camera;
+import com.johnsproject.jgameengine.model.DepthPyramid;
 import com.johnsproject.jgameengine.model.Face;
 import com.johnsproject.jgameengine.model.FrameBuffer;
 import com.johnsproject.jgameengine.model.Frustum;
@@ -17,7 +17,8 @@ import com.johnsproject.jgameengine.model.Light;
 import com.johnsproject.jgameengine.model.Material;
 import com.johnsproject.jgameengine.model.Texture;
 import com.johnsproject.jgameengine.model.Vertex;
-import com.johnsproject.jgameengine.rasterization.LinearRasterizer4;
+import com.johnsproject.jgameengine.rasterization.LinearRasterizer;
+import com.johnsproject.jgameengine.rasterization.Span;
 import com.johnsproject.jgameengine.util.ColorUtils;
 import com.johnsproject.jgameengine.util.FixedPointUtils;
 import com.johnsproject.jgameengine.util.TransformationUtils;
@@ -25,6 +26,28 @@ import com.johnsproject.jgameengine.util.VectorUtils;
 
 public class GouraudShader extends ThreadedShader {
 	
+	// layout of the attributes interpolated by the rasterizer, vectors take three attributes
+	private static final int U = 0;
+	private static final int V = 1;
+	private static final int LIGHT_COLOR = 2;
+	private static final int DIRECTIONAL_LIGHT_LOCATION = 5;
+	private static final int SPOT_LIGHT_LOCATION = 8;
+	private static final int ATTRIBUTE_COUNT = 11;
+
+	public GouraudShader() {
+		super();
+	}
+	
+	/**
+	 * Creates a new GouraudShader.
+	 * 
+	 * @param halfSpaceRasterization if the faces are drawn with a
+	 * {@link com.johnsproject.jgameengine.rasterization.HalfSpaceRasterizer HalfSpaceRasterizer}.
+	 */
+	public GouraudShader(boolean halfSpaceRasterization) {
+		super(halfSpaceRasterization);
+	}
+	
 	@Override
 	public ThreadedVertexShader[] createVertexShaders(int count) {
 		final ThreadedVertexShader[] shaders = new VertexShader[count];
@@ -37,12 +60,16 @@ public class GouraudShader extends ThreadedShader {
 	public ThreadedGeometryShader[] createGeometryShaders(int count) {
 		final ThreadedGeometryShader[] shaders = new GeometryShader[count];
 		for (int i = 0; i < shaders.length; i++)
-			shaders[i] = new GeometryShader();
+			shaders[i] = new GeometryShader(this);
 		return shaders;
 	}
 	
 	public boolean isGlobal() {
 		return false;
+	}
+	
+	public int getUsedBuffers() {
+		return FrameBuffer.COLOR_BUFFER | FrameBuffer.DEPTH_BUFFER;
 	}	
 
 	private static class VertexShader extends ThreadedVertexShader {
@@ -51,51 +78,60 @@ public class GouraudShader extends ThreadedShader {
 		
 		private Camera camera;
 		private Frustum frustum;
-		private List<Light> lights;
+		private LightTiles lightTiles;
 		
 		private final int[] lightDirection;
 		private final int[] viewDirection;
+		private final int[] spotDirection;
+		private final int[] location;
+		private final int[] screenLocation;
+		private final int[] normal;
 
 		public VertexShader() {
 			this.lightDirection = VectorUtils.emptyVector();
 			this.viewDirection = VectorUtils.emptyVector();
+			this.spotDirection = VectorUtils.emptyVector();
+			this.location = VectorUtils.emptyVector();
+			this.screenLocation = VectorUtils.emptyVector();
+			this.normal = VectorUtils.emptyVector();
 		}
 
 		public void initialize(ShaderBuffer shaderBuffer) {
 			this.shaderBuffer = (ForwardShaderBuffer) shaderBuffer;
 			this.camera = shaderBuffer.getCamera();
 			this.frustum = camera.getFrustum();
-			this.lights = shaderBuffer.getLights();
+			this.lightTiles = this.shaderBuffer.getLightTiles();
 		}
 		
 		public void vertex(Vertex vertex) {
 			final Material material = vertex.getMaterial();
-			final int[] location = vertex.getLocation();
-			final int[] normal = vertex.getWorldNormal();
-			VectorUtils.copy(location, vertex.getWorldLocation());
+			final int[] location = vertex.getWorldLocation(this.location);
+			final int[] normal = vertex.getWorldNormal(this.normal);
 			
-			vertex.setLightColor(calculateLights(location, normal, material));
+			final int[] screenLocation = VectorUtils.copy(this.screenLocation, location);
+			VectorUtils.multiplyAffineMatrix(screenLocation, camera.getTransform().getSpaceEnterMatrix());
+			VectorUtils.multiplyMatrix(screenLocation, frustum.getProjectionMatrix());
+			TransformationUtils.screenportVector(screenLocation, frustum);
+			vertex.setLocation(screenLocation);
 			
-			VectorUtils.multiply(location, camera.getTransform().getSpaceEnterMatrix());
-			VectorUtils.multiply(location, frustum.getProjectionMatrix());
-			TransformationUtils.screenportVector(location, frustum);
+			final int tile = lightTiles.getTile(screenLocation[VECTOR_X] >> SUBPIXEL_BIT, screenLocation[VECTOR_Y] >> SUBPIXEL_BIT);
+			vertex.setLightColor(calculateLights(tile, location, normal, material));
 		}
 		
-		private int calculateLights(int[] location, int[] normal, Material material) {
-			VectorUtils.copy(viewDirection, camera.getTransform().getLocation());
+		private int calculateLights(int tile, int[] location, int[] normal, Material material) {
+			VectorUtils.copy(viewDirection, camera.getTransform().getWorldLocation());
 			VectorUtils.subtract(viewDirection, location);
-			VectorUtils.normalize(viewDirection);
-			VectorUtils.normalize(normal);
-			int color = ColorUtils.BLACK;
-			for (int i = 0; i < lights.size(); i++) {
-				final Light light = lights.get(i);
-				if(!light.isActive() || light.isCulled())
-					continue;
-				final int ambient = light.getAmbientColor();
+			VectorUtils.fastNormalize(viewDirection);
+			// the vertex normals are already normalized
+			int color = shaderBuffer.getAmbientColor();
+			// only the lights of the tile of this vertex can reach it
+			final Light[] lights = lightTiles.getLights(tile);
+			final int lightCount = lightTiles.getLightCount(tile);
+			for (int i = 0; i < lightCount; i++) {
+				final Light light = lights[i];
 				int lighting = calculateLight(location, normal, material, light);
 				lighting = ColorUtils.multiply(lighting, light.getIntensity());
 				color = ColorUtils.add(color, lighting);
-				color = ColorUtils.add(color, ambient);
 			}
 			return color;
 		}
@@ -164,9 +200,9 @@ public class GouraudShader extends ThreadedShader {
 		}
 		
 		private void calculateLightDirection(int[] location, Light light) {
-			VectorUtils.copy(lightDirection, light.getTransform().getLocation());
+			VectorUtils.copy(lightDirection, light.getTransform().getWorldLocation());
 			VectorUtils.subtract(lightDirection, location);
-			VectorUtils.normalize(lightDirection);
+			VectorUtils.fastNormalize(lightDirection);
 		}
 		
 		private int calculateDiffuseColor(int[] normal, Material material, Light light) {
@@ -182,7 +218,7 @@ public class GouraudShader extends ThreadedShader {
 			TransformationUtils.reflect(lightDirection, normal);
 			int specularIntensity = (int)VectorUtils.dotProduct(viewDirection, lightDirection);
 			specularIntensity = Math.max(specularIntensity, 0);
-			specularIntensity = FixedPointUtils.pow(specularIntensity, material.getShininess());
+			specularIntensity = FixedPointUtils.fastPow(specularIntensity, material.getShininess());
 			int specular = ColorUtils.multiply(material.getSpecularColor(), specularIntensity);
 			specular = ColorUtils.multiplyColor(specular, light.getColor());
 			return specular;
@@ -192,7 +228,7 @@ public class GouraudShader extends ThreadedShader {
 			final int lightConstant = light.getConstantAttenuation();
 			final int lightLinear = light.getLinearAttenuation();
 			final int lightQuadratic = light.getQuadraticAttenuation();
-			final int distance = VectorUtils.distance(light.getTransform().getLocation(), location);
+			final int distance = VectorUtils.distance(light.getTransform().getWorldLocation(), location);
 			final int distanceSquared = FixedPointUtils.multiply(distance, distance);
 			int attenuation = lightConstant;
 			attenuation += FixedPointUtils.multiply(lightLinear, distance);
@@ -202,7 +238,7 @@ public class GouraudShader extends ThreadedShader {
 		}
 		
 		private int calculateSpotIntensity(Light light) {
-			int[] direction = VectorUtils.copy(viewDirection, light.getDirection());
+			int[] direction = VectorUtils.copy(spotDirection, light.getDirection());
 			VectorUtils.invert(direction);
 			int theta = (int)VectorUtils.dotProduct(lightDirection, direction);
 			int intesity = theta - light.getSpotSizeCosine();
@@ -219,7 +255,7 @@ public class GouraudShader extends ThreadedShader {
 	private static class GeometryShader extends ThreadedGeometryShader {
 
 		private ForwardShaderBuffer shaderBuffer;
-		private final LinearRasterizer4 rasterizer = new LinearRasterizer4(this);
+		private final LinearRasterizer rasterizer;
 		
 		private Camera camera;
 		private Frustum frustum;
@@ -231,12 +267,21 @@ public class GouraudShader extends ThreadedShader {
 		private Texture spotLightShadowMap;
 		
 		private Texture texture;
+		private Texture mipMap;
+		private int mipMapShift;
 		private int texelColor;
 		private final int[] lightSpaceLocation;
+		private final int[] worldLocation;
+		private final int[] uv;
+		private final int[] lightColorVector;
 		private boolean isInShadow;
 		
-		public GeometryShader() {
+		public GeometryShader(ThreadedShader shader) {
+			this.rasterizer = shader.createRasterizer(this, ATTRIBUTE_COUNT);
 			this.lightSpaceLocation = VectorUtils.emptyVector();
+			this.worldLocation = VectorUtils.emptyVector();
+			this.uv = VectorUtils.emptyVector();
+			this.lightColorVector = VectorUtils.emptyVector();
 		}
 
 		public void initialize(ShaderBuffer shaderBuffer) {
@@ -244,6 +289,7 @@ public class GouraudShader extends ThreadedShader {
 			this.camera = shaderBuffer.getCamera();
 			this.frustum = camera.getFrustum();
 			this.frameBuffer = camera.getRenderTarget();
+			rasterizer.setDepthPyramid(frameBuffer.getDepthPyramid());
 			initialize();
 		}
 		
@@ -271,21 +317,30 @@ public class GouraudShader extends ThreadedShader {
 			setColors(face);
 			setDirectionalLightSpaceVectors(face);
 			setSpotLightSpaceVectors(face);
-			rasterizer.linearDraw4(face, frustum);
+			rasterizer.draw(face, frustum);
 		}
 
 		private void setUVs(Face face) {
 			if(texture != null) {
 				// port uvs to texture space
-				int u = face.getUV(0)[VECTOR_X] * texture.getWidth();
-				int v = face.getUV(0)[VECTOR_Y] * texture.getHeight();
-				rasterizer.setVector00(u, v, 0);
-				u = face.getUV(1)[VECTOR_X] * texture.getWidth();
-				v = face.getUV(1)[VECTOR_Y] * texture.getHeight();
-				rasterizer.setVector01(u, v, 0);
-				u = face.getUV(2)[VECTOR_X] * texture.getWidth();
-				v = face.getUV(2)[VECTOR_Y] * texture.getHeight();
-				rasterizer.setVector02(u, v, 0);
+				face.getUV(0, uv);
+				int u = uv[VECTOR_X] * texture.getWidth();
+				int v = uv[VECTOR_Y] * texture.getHeight();
+				rasterizer.setAttribute(0, U, u);
+				rasterizer.setAttribute(0, V, v);
+				face.getUV(1, uv);
+				u = uv[VECTOR_X] * texture.getWidth();
+				v = uv[VECTOR_Y] * texture.getHeight();
+				rasterizer.setAttribute(1, U, u);
+				rasterizer.setAttribute(1, V, v);
+				face.getUV(2, uv);
+				u = uv[VECTOR_X] * texture.getWidth();
+				v = uv[VECTOR_Y] * texture.getHeight();
+				rasterizer.setAttribute(2, U, u);
+				rasterizer.setAttribute(2, V, v);
+				final int mipMapLevel = rasterizer.getMipMapLevel(texture, face, U, V);
+				mipMap = texture.getMipMap(mipMapLevel);
+				mipMapShift = Texture.getMipMapShift(mipMapLevel);
 			}
 		}
 		
@@ -293,75 +348,83 @@ public class GouraudShader extends ThreadedShader {
 			int r = ColorUtils.getRed(face.getVertex(0).getLightColor()) << FP_BIT;
 			int g = ColorUtils.getGreen(face.getVertex(0).getLightColor()) << FP_BIT;
 			int b = ColorUtils.getBlue(face.getVertex(0).getLightColor()) << FP_BIT;
-			rasterizer.setVector10(r, g, b);
+			rasterizer.setVector(0, LIGHT_COLOR, r, g, b);
 			r = ColorUtils.getRed(face.getVertex(1).getLightColor()) << FP_BIT;
 			g = ColorUtils.getGreen(face.getVertex(1).getLightColor()) << FP_BIT;
 			b = ColorUtils.getBlue(face.getVertex(1).getLightColor()) << FP_BIT;
-			rasterizer.setVector11(r, g, b);
+			rasterizer.setVector(1, LIGHT_COLOR, r, g, b);
 			r = ColorUtils.getRed(face.getVertex(2).getLightColor()) << FP_BIT;
 			g = ColorUtils.getGreen(face.getVertex(2).getLightColor()) << FP_BIT;
 			b = ColorUtils.getBlue(face.getVertex(2).getLightColor()) << FP_BIT;
-			rasterizer.setVector12(r, g, b);
+			rasterizer.setVector(2, LIGHT_COLOR, r, g, b);
 		}
 		
 		private void setDirectionalLightSpaceVectors(Face face) {
 			if(directionalLightShadowMap != null) {
-				final int[][] lightMatrix = directionalLightFrustum.getProjectionMatrix();
+				final int[] lightMatrix = directionalLightFrustum.getProjectionMatrix();
 				
-				int[] worldLocation = face.getVertex(0).getWorldLocation();
-				rasterizer.setVector20(transformToLightSpace(worldLocation, lightMatrix, directionalLightFrustum));
+				face.getVertex(0).getWorldLocation(worldLocation);
+				rasterizer.setVector(0, DIRECTIONAL_LIGHT_LOCATION, transformToLightSpace(worldLocation, lightMatrix, directionalLightFrustum));
 				
-				worldLocation = face.getVertex(1).getWorldLocation();
-				rasterizer.setVector21(transformToLightSpace(worldLocation, lightMatrix, directionalLightFrustum));
+				face.getVertex(1).getWorldLocation(worldLocation);
+				rasterizer.setVector(1, DIRECTIONAL_LIGHT_LOCATION, transformToLightSpace(worldLocation, lightMatrix, directionalLightFrustum));
 				
-				worldLocation = face.getVertex(2).getWorldLocation();
-				rasterizer.setVector22(transformToLightSpace(worldLocation, lightMatrix, directionalLightFrustum));
+				face.getVertex(2).getWorldLocation(worldLocation);
+				rasterizer.setVector(2, DIRECTIONAL_LIGHT_LOCATION, transformToLightSpace(worldLocation, lightMatrix, directionalLightFrustum));
 			}
 		}
 		
 		private void setSpotLightSpaceVectors(Face face) {
 			if(spotLightShadowMap != null) {
-				final int[][] lightMatrix = spotLightFrustum.getProjectionMatrix();
+				final int[] lightMatrix = spotLightFrustum.getProjectionMatrix();
 				
-				int[] worldLocation = face.getVertex(0).getWorldLocation();
-				rasterizer.setVector30(transformToLightSpace(worldLocation, lightMatrix, spotLightFrustum));
+				face.getVertex(0).getWorldLocation(worldLocation);
+				rasterizer.setVector(0, SPOT_LIGHT_LOCATION, transformToLightSpace(worldLocation, lightMatrix, spotLightFrustum));
 				
-				worldLocation = face.getVertex(1).getWorldLocation();
-				rasterizer.setVector31(transformToLightSpace(worldLocation, lightMatrix, spotLightFrustum));
+				face.getVertex(1).getWorldLocation(worldLocation);
+				rasterizer.setVector(1, SPOT_LIGHT_LOCATION, transformToLightSpace(worldLocation, lightMatrix, spotLightFrustum));
 				
-				worldLocation = face.getVertex(2).getWorldLocation();
-				rasterizer.setVector32(transformToLightSpace(worldLocation, lightMatrix, spotLightFrustum));
+				face.getVertex(2).getWorldLocation(worldLocation);
+				rasterizer.setVector(2, SPOT_LIGHT_LOCATION, transformToLightSpace(worldLocation, lightMatrix, spotLightFrustum));
 			}
 		}
 		
-		private int[] transformToLightSpace(int[] worldLocation, int[][] lightMatrix, Frustum lightFrustum) {
+		private int[] transformToLightSpace(int[] worldLocation, int[] lightMatrix, Frustum lightFrustum) {
 			VectorUtils.copy(lightSpaceLocation, worldLocation);
-			VectorUtils.multiply(lightSpaceLocation, lightMatrix);
+			VectorUtils.multiplyMatrix(lightSpaceLocation, lightMatrix);
 			TransformationUtils.screenportVector(lightSpaceLocation, lightFrustum);
-			// The rasterizer will interpolate fixed point vectors but screen space vectors are not fixed point
-			VectorUtils.multiply(lightSpaceLocation, FP_ONE << FP_BIT);
+			// The rasterizer will interpolate fixed point vectors but screen space vectors are not fixed point,
+			// x and y are in sub-pixels
+			lightSpaceLocation[VECTOR_X] <<= FP_BIT - SUBPIXEL_BIT;
+			lightSpaceLocation[VECTOR_Y] <<= FP_BIT - SUBPIXEL_BIT;
+			lightSpaceLocation[VECTOR_Z] <<= FP_BIT;
 			return lightSpaceLocation;
 		}
 		
-		public void fragment() {
+		public void fragments(Span span) {
 			final Texture depthBuffer = frameBuffer.getDepthBuffer();
 			final Texture colorBuffer = frameBuffer.getColorBuffer();
-			final int x = rasterizer.getLocation()[VECTOR_X];
-			final int y = rasterizer.getLocation()[VECTOR_Y];
-			final int z = rasterizer.getLocation()[VECTOR_Z];
-			if (depthBuffer.getPixel(x, y) > z) {
+			final DepthPyramid depthPyramid = rasterizer.getDepthPyramid();
+			final int y = span.getY();
+			final int dz = span.getDz();
+			int spanZ = span.getZ();
+			for (int x = span.getLeft(); x <= span.getRight(); x++, spanZ += dz) {
+				final int z = spanZ >> FP_BIT;
+				if (depthBuffer.getPixel(x, y) <= z)
+					continue;
 				
-				final int[] uv = rasterizer.getVector0();
-				texelColor = getFragmentTexelColor(uv);
+				final int u = span.getAttribute(U, x);
+				final int v = span.getAttribute(V, x);
+				texelColor = getFragmentTexelColor(u, v);
 				
-				final int[] directionalLightSpaceLocation = rasterizer.getVector2();
-				isInShadow = isFragmentInShadow(directionalLightSpaceLocation, directionalLightShadowMap);
+				span.getVector(DIRECTIONAL_LIGHT_LOCATION, x, lightSpaceLocation);
+				isInShadow = isFragmentInShadow(lightSpaceLocation, directionalLightShadowMap);
 				if(!isInShadow) {
-					final int[] spotLightSpaceLocation = rasterizer.getVector3();
-					isInShadow = isFragmentInShadow(spotLightSpaceLocation, spotLightShadowMap);
+					span.getVector(SPOT_LIGHT_LOCATION, x, lightSpaceLocation);
+					isInShadow = isFragmentInShadow(lightSpaceLocation, spotLightShadowMap);
 				}
 				
-				final int[] lightColorVector = rasterizer.getVector1();
+				span.getVector(LIGHT_COLOR, x, lightColorVector);
 				final int lightColor = getFragmentLightColor(lightColorVector);
 				
 				int color = ColorUtils.multiplyColor(lightColor, texelColor);
@@ -370,17 +433,16 @@ public class GouraudShader extends ThreadedShader {
 				
 				colorBuffer.setPixel(x, y, color);
 				depthBuffer.setPixel(x, y, z);
+				depthPyramid.addShadedFragment(x, y);
 			}
 		}
 		
-		private int getFragmentTexelColor(int[] uv) {
+		private int getFragmentTexelColor(int u, int v) {
 			if(texture == null) {
 				return ColorUtils.WHITE;
 			} else {
 				// The result will be, but pixels are not accessed with fixed point
-				final int u = uv[VECTOR_X] >> FP_BIT;
-				final int v = uv[VECTOR_Y] >> FP_BIT;
-				return texture.getPixel(u, v);
+				return mipMap.getTexel(u >> mipMapShift, v >> mipMapShift);
 			}
 		}
 		
@@ -406,5 +468,13 @@ public class GouraudShader extends ThreadedShader {
 		public ShaderBuffer getShaderBuffer() {
 			return shaderBuffer;
 		}
+
+		public LinearRasterizer getRasterizer() {
+			return rasterizer;
+		}
+		
+		public Frustum getFrustum() {
+			return frustum;
+		}
 	}
 }
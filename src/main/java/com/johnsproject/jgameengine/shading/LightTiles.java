@@ -0,0 +1,172 @@
+package com.johnsproject.jgameengine.shading;
+
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_X;
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_Y;
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_Z;
+import static com.johnsproject.jgameengine.util.TransformationUtils.SUBPIXEL_BIT;
+
+import java.util.List;
+
+import com.johnsproject.jgameengine.model.Camera;
+import com.johnsproject.jgameengine.model.Frustum;
+import com.johnsproject.jgameengine.model.Light;
+import com.johnsproject.jgameengine.model.LightType;
+import com.johnsproject.jgameengine.util.TransformationUtils;
+import com.johnsproject.jgameengine.util.VectorUtils;
+
+/**
+ * The LightTiles split the render target of a camera into tiles of {@value #TILE_SIZE}x{@value #TILE_SIZE} pixels
+ * and store the lights that can reach the pixels of each tile. A point or spot light can only reach the pixels
+ * inside the screen space bounds of the sphere with its {@link Light#getRange() range} around it, a directional
+ * light reaches all pixels. Shaders only need to light a pixel with the lights of its tile, so the cost of lighting
+ * a pixel depends on the number of lights near it and not on the number of lights in the scene.
+ * <br><br>
+ * The lights of each tile are in the same order as in the scene.
+ * Locations outside of the render target, like the vertices of clipped faces, are in a tile with all lights.
+ */
+public class LightTiles {
+
+	private static final int TILE_SIZE_BIT = 4;
+	public static final int TILE_SIZE = 1 << TILE_SIZE_BIT;
+
+	private final int[] lightLocation;
+	private final int[] boundsCorner;
+	private int renderTargetLeft;
+	private int renderTargetTop;
+	private int renderTargetRight;
+	private int renderTargetBottom;
+	private int columns;
+	private int rows;
+	private int allLightsTile;
+	private Light[][] tileLights;
+	private int[] tileLightCounts;
+
+	public LightTiles() {
+		this.lightLocation = VectorUtils.emptyVector();
+		this.boundsCorner = VectorUtils.emptyVector();
+		this.tileLights = new Light[0][0];
+		this.tileLightCounts = new int[0];
+	}
+
+	/**
+	 * Puts the active lights that aren't culled into the tiles they can reach.
+	 *
+	 * @param camera whose render target is split into tiles.
+	 * @param lights to put into the tiles.
+	 */
+	public void update(Camera camera, List<Light> lights) {
+		final Frustum frustum = camera.getFrustum();
+		renderTargetLeft = frustum.getRenderTargetLeft();
+		renderTargetTop = frustum.getRenderTargetTop();
+		renderTargetRight = frustum.getRenderTargetRight() - 1;
+		renderTargetBottom = frustum.getRenderTargetBottom() - 1;
+		columns = Math.max(((renderTargetRight - renderTargetLeft) >> TILE_SIZE_BIT) + 1, 1);
+		rows = Math.max(((renderTargetBottom - renderTargetTop) >> TILE_SIZE_BIT) + 1, 1);
+		// the last tile is the one with all lights
+		final int tileCount = columns * rows + 1;
+		allLightsTile = tileCount - 1;
+		// the tiles are only reallocated if they don't fit, so a smaller render target doesn't allocate
+		if((tileLights.length < tileCount) || (tileLights[0].length < lights.size())) {
+			tileLights = new Light[tileCount][lights.size()];
+			tileLightCounts = new int[tileCount];
+		}
+		for (int i = 0; i < tileCount; i++)
+			tileLightCounts[i] = 0;
+		for (int i = 0; i < lights.size(); i++) {
+			final Light light = lights.get(i);
+			if(!light.isActive() || light.isCulled())
+				continue;
+			addLight(light, allLightsTile);
+			if((light.getType() == LightType.DIRECTIONAL) || !addLightToTiles(light, camera)) {
+				for (int j = 0; j < allLightsTile; j++)
+					addLight(light, j);
+			}
+		}
+	}
+
+	/**
+	 * Adds the given light to the tiles it reaches. Returns false if the bounds of the light
+	 * can't be projected to the screen and the light needs to be added to all tiles.
+	 *
+	 * @param light
+	 * @param camera
+	 * @return
+	 */
+	private boolean addLightToTiles(Light light, Camera camera) {
+		final Frustum frustum = camera.getFrustum();
+		final int range = light.getRange();
+		VectorUtils.copy(lightLocation, light.getTransform().getWorldLocation());
+		VectorUtils.multiplyAffineMatrix(lightLocation, camera.getTransform().getSpaceEnterMatrix());
+		int left = Integer.MAX_VALUE;
+		int right = Integer.MIN_VALUE;
+		int top = Integer.MAX_VALUE;
+		int bottom = Integer.MIN_VALUE;
+		// the screen space bounds of the light are the bounds of the corners of the box around its range
+		for (int i = 0; i < 8; i++) {
+			final long x = (long)lightLocation[VECTOR_X] + ((i & 1) == 0 ? -range : range);
+			final long y = (long)lightLocation[VECTOR_Y] + ((i & 2) == 0 ? -range : range);
+			final long z = (long)lightLocation[VECTOR_Z] + ((i & 4) == 0 ? -range : range);
+			// corners in front of the near plane can't be projected
+			if((z > -frustum.getNear()) || (Math.abs(x) > Integer.MAX_VALUE)
+					|| (Math.abs(y) > Integer.MAX_VALUE) || (z < Integer.MIN_VALUE))
+				return false;
+			boundsCorner[VECTOR_X] = (int)x;
+			boundsCorner[VECTOR_Y] = (int)y;
+			boundsCorner[VECTOR_Z] = (int)z;
+			VectorUtils.multiplyMatrix(boundsCorner, frustum.getProjectionMatrix());
+			TransformationUtils.screenportVector(boundsCorner, frustum);
+			left = Math.min(left, boundsCorner[VECTOR_X] >> SUBPIXEL_BIT);
+			right = Math.max(right, boundsCorner[VECTOR_X] >> SUBPIXEL_BIT);
+			top = Math.min(top, boundsCorner[VECTOR_Y] >> SUBPIXEL_BIT);
+			bottom = Math.max(bottom, boundsCorner[VECTOR_Y] >> SUBPIXEL_BIT);
+		}
+		// leave room for the rounding of the projected locations
+		left = Math.max(left - 1, renderTargetLeft);
+		right = Math.min(right + 1, renderTargetRight);
+		top = Math.max(top - 1, renderTargetTop);
+		bottom = Math.min(bottom + 1, renderTargetBottom);
+		if((left > right) || (top > bottom))
+			return true;
+		final int tileLeft = (left - renderTargetLeft) >> TILE_SIZE_BIT;
+		final int tileRight = (right - renderTargetLeft) >> TILE_SIZE_BIT;
+		final int tileTop = (top - renderTargetTop) >> TILE_SIZE_BIT;
+		final int tileBottom = (bottom - renderTargetTop) >> TILE_SIZE_BIT;
+		for (int y = tileTop; y <= tileBottom; y++) {
+			for (int x = tileLeft; x <= tileRight; x++) {
+				addLight(light, x + y * columns);
+			}
+		}
+		return true;
+	}
+
+	private void addLight(Light light, int tile) {
+		tileLights[tile][tileLightCounts[tile]++] = light;
+	}
+
+	/**
+	 * Returns the tile the given screen space location is in.
+	 *
+	 * @param x
+	 * @param y
+	 * @return The index of the tile.
+	 */
+	public int getTile(int x, int y) {
+		if((x < renderTargetLeft) || (x > renderTargetRight) || (y < renderTargetTop) || (y > renderTargetBottom))
+			return allLightsTile;
+		return ((x - renderTargetLeft) >> TILE_SIZE_BIT) + ((y - renderTargetTop) >> TILE_SIZE_BIT) * columns;
+	}
+
+	/**
+	 * Returns the lights of the given tile. Only the first {@link #getLightCount(int)} lights belong to the tile.
+	 *
+	 * @param tile
+	 * @return The lights of the tile.
+	 */
+	public Light[] getLights(int tile) {
+		return tileLights[tile];
+	}
+
+	public int getLightCount(int tile) {
+		return tileLightCounts[tile];
+	}
+}
@@ -5,10 +5,10 @@ import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_Y;
 import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_Z;
 import static com.johnsproject.jgameengine.util.FixedPointUtils.FP_BIT;
 import static com.johnsproject.jgameengine.util.FixedPointUtils.FP_ONE;
-
-import java.util.List;
+import static com.johnsproject.jgameengine.util.TransformationUtils.SUBPIXEL_BIT;
 
 import com.johnsproject.jgameengine.model.Camera;
+import com.johnsproject.jgameengine.model.DepthPyramid;
 import com.johnsproject.jgameengine.model.Face;
 import com.johnsproject.jgameengine.model.FrameBuffer;
 import com.johnsproject.jgameengine.model.Frustum;
@@ -16,7 +16,8 @@ import com.johnsproject.jgameengine.model.Light;
 import com.johnsproject.jgameengine.model.Material;
 import com.johnsproject.jgameengine.model.Texture;
 import com.johnsproject.jgameengine.model.Vertex;
-import com.johnsproject.jgameengine.rasterization.LinearRasterizer6;
+import com.johnsproject.jgameengine.rasterization.LinearRasterizer;
+import com.johnsproject.jgameengine.rasterization.Span;
 import com.johnsproject.jgameengine.util.ColorUtils;
 import com.johnsproject.jgameengine.util.FixedPointUtils;
 import com.johnsproject.jgameengine.util.TransformationUtils;
@@ -24,6 +25,30 @@ import com.johnsproject.jgameengine.util.VectorUtils;
 
 public class PhongShader extends ThreadedShader {
 	
+	// layout of the attributes interpolated by the rasterizer, vectors take three attributes
+	private static final int U = 0;
+	private static final int V = 1;
+	private static final int LOCATION = 2;
+	private static final int NORMAL = 5;
+	private static final int DIRECTIONAL_LIGHT_LOCATION = 8;
+	private static final int SPOT_LIGHT_LOCATION = 11;
+	private static final int ATTRIBUTE_COUNT = 14;
+
+	
+	public PhongShader() {
+		super();
+	}
+	
+	/**
+	 * Creates a new PhongShader.
+	 * 
+	 * @param halfSpaceRasterization if the faces are drawn with a
+	 * {@link com.johnsproject.jgameengine.rasterization.HalfSpaceRasterizer HalfSpaceRasterizer}.
+	 */
+	public PhongShader(boolean halfSpaceRasterization) {
+		super(halfSpaceRasterization);
+	}
+	
 	@Override
 	public ThreadedVertexShader[] createVertexShaders(int count) {
 		final ThreadedVertexShader[] shaders = new VertexShader[count];
@@ -36,12 +61,16 @@ public class PhongShader extends ThreadedShader {
 	public ThreadedGeometryShader[] createGeometryShaders(int count) {
 		final ThreadedGeometryShader[] shaders = new GeometryShader[count];
 		for (int i = 0; i < shaders.length; i++)
-			shaders[i] = new GeometryShader();
+			shaders[i] = new GeometryShader(this);
 		return shaders;
 	}
 	
 	public boolean isGlobal() {
 		return false;
+	}
+	
+	public int getUsedBuffers() {
+		return FrameBuffer.COLOR_BUFFER | FrameBuffer.DEPTH_BUFFER;
 	}	
 	
 	private static class VertexShader extends ThreadedVertexShader {
@@ -50,6 +79,7 @@ public class PhongShader extends ThreadedShader {
 
 		private Camera camera;
 		private Frustum frustum;
+		private final int[] location = VectorUtils.emptyVector();
 		
 		public void initialize(ShaderBuffer shaderBuffer) {
 			this.shaderBuffer = (ForwardShaderBuffer) shaderBuffer;
@@ -58,11 +88,11 @@ public class PhongShader extends ThreadedShader {
 		}
 		
 		public void vertex(Vertex vertex) {
-			final int[] location = vertex.getLocation();
-			VectorUtils.copy(location, vertex.getWorldLocation());
-			VectorUtils.multiply(location, camera.getTransform().getSpaceEnterMatrix());
-			VectorUtils.multiply(location, frustum.getProjectionMatrix());
+			final int[] location = vertex.getWorldLocation(this.location);
+			VectorUtils.multiplyAffineMatrix(location, camera.getTransform().getSpaceEnterMatrix());
+			VectorUtils.multiplyMatrix(location, frustum.getProjectionMatrix());
 			TransformationUtils.screenportVector(location, frustum);
+			vertex.setLocation(location);
 		}
 
 		public ShaderBuffer getShaderBuffer() {
@@ -73,12 +103,12 @@ public class PhongShader extends ThreadedShader {
 	private static class GeometryShader extends ThreadedGeometryShader {
 
 		private ForwardShaderBuffer shaderBuffer;
-		private final LinearRasterizer6 rasterizer;
+		private final LinearRasterizer rasterizer;
 		
 		private Camera camera;
 		private Frustum frustum;
 		private FrameBuffer frameBuffer;
-		private List<Light> lights;
+		private LightTiles lightTiles;
 		
 		private Frustum directionalLightFrustum;
 		private Texture directionalLightShadowMap;
@@ -87,18 +117,28 @@ public class PhongShader extends ThreadedShader {
 		
 		private final int[] lightDirection;
 		private final int[] viewDirection;
+		private final int[] spotDirection;
 		private final int[] lightSpaceLocation;
+		private final int[] worldLocation;
+		private final int[] worldNormal;
+		private final int[] uv;
 		
 		private Material material;
 		private Texture texture;
+		private Texture mipMap;
+		private int mipMapShift;
 		private int texelColor;
 		private boolean isInShadow;
 
-		public GeometryShader() {
-			this.rasterizer = new LinearRasterizer6(this);
+		public GeometryShader(ThreadedShader shader) {
+			this.rasterizer = shader.createRasterizer(this, ATTRIBUTE_COUNT);
 			this.lightDirection = VectorUtils.emptyVector();
 			this.viewDirection = VectorUtils.emptyVector();
+			this.spotDirection = VectorUtils.emptyVector();
 			this.lightSpaceLocation = VectorUtils.emptyVector();
+			this.worldLocation = VectorUtils.emptyVector();
+			this.worldNormal = VectorUtils.emptyVector();
+			this.uv = VectorUtils.emptyVector();
 		}
 	
 		public void initialize(ShaderBuffer shaderBuffer) {
@@ -106,7 +146,8 @@ public class PhongShader extends ThreadedShader {
 			this.camera = shaderBuffer.getCamera();
 			this.frustum = camera.getFrustum();
 			this.frameBuffer = camera.getRenderTarget();
-			this.lights = shaderBuffer.getLights();
+			rasterizer.setDepthPyramid(frameBuffer.getDepthPyramid());
+			this.lightTiles = this.shaderBuffer.getLightTiles();
 			initialize();
 		}
 		
@@ -134,106 +175,124 @@ public class PhongShader extends ThreadedShader {
 			setWorldSpaceVetors(face);
 			setDirectionalLightSpaceVectors(face);
 			setSpotLightSpaceVectors(face);
-			rasterizer.linearDraw6(face, frustum);
+			rasterizer.draw(face, frustum);
 		}
 		
 		private void setUVs(Face face) {
 			if(texture != null) {
 				// port uvs to texture space
-				int u = face.getUV(0)[VECTOR_X] * texture.getWidth();
-				int v = face.getUV(0)[VECTOR_Y] * texture.getHeight();
-				rasterizer.setVector00(u, v, 0);
-				u = face.getUV(1)[VECTOR_X] * texture.getWidth();
-				v = face.getUV(1)[VECTOR_Y] * texture.getHeight();
-				rasterizer.setVector01(u, v, 0);
-				u = face.getUV(2)[VECTOR_X] * texture.getWidth();
-				v = face.getUV(2)[VECTOR_Y] * texture.getHeight();
-				rasterizer.setVector02(u, v, 0);
+				face.getUV(0, uv);
+				int u = uv[VECTOR_X] * texture.getWidth();
+				int v = uv[VECTOR_Y] * texture.getHeight();
+				rasterizer.setAttribute(0, U, u);
+				rasterizer.setAttribute(0, V, v);
+				face.getUV(1, uv);
+				u = uv[VECTOR_X] * texture.getWidth();
+				v = uv[VECTOR_Y] * texture.getHeight();
+				rasterizer.setAttribute(1, U, u);
+				rasterizer.setAttribute(1, V, v);
+				face.getUV(2, uv);
+				u = uv[VECTOR_X] * texture.getWidth();
+				v = uv[VECTOR_Y] * texture.getHeight();
+				rasterizer.setAttribute(2, U, u);
+				rasterizer.setAttribute(2, V, v);
+				final int mipMapLevel = rasterizer.getMipMapLevel(texture, face, U, V);
+				mipMap = texture.getMipMap(mipMapLevel);
+				mipMapShift = Texture.getMipMapShift(mipMapLevel);
 			}
 		}
 	
 		private void setWorldSpaceVetors(Face face) {
-			rasterizer.setVector10(face.getVertex(0).getWorldLocation());
-			rasterizer.setVector11(face.getVertex(1).getWorldLocation());
-			rasterizer.setVector12(face.getVertex(2).getWorldLocation());
-			rasterizer.setVector20(face.getVertex(0).getWorldNormal());
-			rasterizer.setVector21(face.getVertex(1).getWorldNormal());
-			rasterizer.setVector22(face.getVertex(2).getWorldNormal());
+			rasterizer.setVector(0, LOCATION, face.getVertex(0).getWorldLocation(worldLocation));
+			rasterizer.setVector(1, LOCATION, face.getVertex(1).getWorldLocation(worldLocation));
+			rasterizer.setVector(2, LOCATION, face.getVertex(2).getWorldLocation(worldLocation));
+			rasterizer.setVector(0, NORMAL, getInterpolatedNormal(face.getVertex(0), worldNormal));
+			rasterizer.setVector(1, NORMAL, getInterpolatedNormal(face.getVertex(1), worldNormal));
+			rasterizer.setVector(2, NORMAL, getInterpolatedNormal(face.getVertex(2), worldNormal));
 		}
 		
+		
 		private void setDirectionalLightSpaceVectors(Face face) {
 			if(directionalLightShadowMap != null) {
-				final int[][] lightMatrix = directionalLightFrustum.getProjectionMatrix();
+				final int[] lightMatrix = directionalLightFrustum.getProjectionMatrix();
 				
-				int[] worldLocation = face.getVertex(0).getWorldLocation();
-				rasterizer.setVector30(transformToLightSpace(worldLocation, lightMatrix, directionalLightFrustum));
+				face.getVertex(0).getWorldLocation(worldLocation);
+				rasterizer.setVector(0, DIRECTIONAL_LIGHT_LOCATION, transformToLightSpace(worldLocation, lightMatrix, directionalLightFrustum));
 				
-				worldLocation = face.getVertex(1).getWorldLocation();
-				rasterizer.setVector31(transformToLightSpace(worldLocation, lightMatrix, directionalLightFrustum));
+				face.getVertex(1).getWorldLocation(worldLocation);
+				rasterizer.setVector(1, DIRECTIONAL_LIGHT_LOCATION, transformToLightSpace(worldLocation, lightMatrix, directionalLightFrustum));
 				
-				worldLocation = face.getVertex(2).getWorldLocation();
-				rasterizer.setVector32(transformToLightSpace(worldLocation, lightMatrix, directionalLightFrustum));
+				face.getVertex(2).getWorldLocation(worldLocation);
+				rasterizer.setVector(2, DIRECTIONAL_LIGHT_LOCATION, transformToLightSpace(worldLocation, lightMatrix, directionalLightFrustum));
 			}
 		}
 		
 		private void setSpotLightSpaceVectors(Face face) {
 			if(spotLightShadowMap != null) {
-				final int[][] lightMatrix = spotLightFrustum.getProjectionMatrix();
+				final int[] lightMatrix = spotLightFrustum.getProjectionMatrix();
 				
-				int[] worldLocation = face.getVertex(0).getWorldLocation();
-				rasterizer.setVector40(transformToLightSpace(worldLocation, lightMatrix, spotLightFrustum));
+				face.getVertex(0).getWorldLocation(worldLocation);
+				rasterizer.setVector(0, SPOT_LIGHT_LOCATION, transformToLightSpace(worldLocation, lightMatrix, spotLightFrustum));
 				
-				worldLocation = face.getVertex(1).getWorldLocation();
-				rasterizer.setVector41(transformToLightSpace(worldLocation, lightMatrix, spotLightFrustum));
+				face.getVertex(1).getWorldLocation(worldLocation);
+				rasterizer.setVector(1, SPOT_LIGHT_LOCATION, transformToLightSpace(worldLocation, lightMatrix, spotLightFrustum));
 				
-				worldLocation = face.getVertex(2).getWorldLocation();
-				rasterizer.setVector42(transformToLightSpace(worldLocation, lightMatrix, spotLightFrustum));
+				face.getVertex(2).getWorldLocation(worldLocation);
+				rasterizer.setVector(2, SPOT_LIGHT_LOCATION, transformToLightSpace(worldLocation, lightMatrix, spotLightFrustum));
 			}
 		}
 		
-		private int[] transformToLightSpace(int[] worldLocation, int[][] lightMatrix, Frustum lightFrustum) {
+		private int[] transformToLightSpace(int[] worldLocation, int[] lightMatrix, Frustum lightFrustum) {
 			VectorUtils.copy(lightSpaceLocation, worldLocation);
-			VectorUtils.multiply(lightSpaceLocation, lightMatrix);
+			VectorUtils.multiplyMatrix(lightSpaceLocation, lightMatrix);
 			TransformationUtils.screenportVector(lightSpaceLocation, lightFrustum);
-			// The rasterizer will interpolate fixed point vectors but screen space vectors are not fixed point
-			VectorUtils.multiply(lightSpaceLocation, FP_ONE << FP_BIT);
+			// The rasterizer will interpolate fixed point vectors but screen space vectors are not fixed point,
+			// x and y are in sub-pixels
+			lightSpaceLocation[VECTOR_X] <<= FP_BIT - SUBPIXEL_BIT;
+			lightSpaceLocation[VECTOR_Y] <<= FP_BIT - SUBPIXEL_BIT;
+			lightSpaceLocation[VECTOR_Z] <<= FP_BIT;
 			return lightSpaceLocation;
 		}
 		
-		public void fragment() {
+		public void fragments(Span span) {
 			final Texture depthBuffer = frameBuffer.getDepthBuffer();
 			final Texture colorBuffer = frameBuffer.getColorBuffer();
-			final int x = rasterizer.getLocation()[VECTOR_X];
-			final int y = rasterizer.getLocation()[VECTOR_Y];
-			final int z = rasterizer.getLocation()[VECTOR_Z];
-			if (depthBuffer.getPixel(x, y) > z) {
+			final DepthPyramid depthPyramid = rasterizer.getDepthPyramid();
+			final int y = span.getY();
+			final int dz = span.getDz();
+			int spanZ = span.getZ();
+			for (int x = span.getLeft(); x <= span.getRight(); x++, spanZ += dz) {
+				final int z = spanZ >> FP_BIT;
+				if (depthBuffer.getPixel(x, y) <= z)
+					continue;
 				
-				final int[] uv = rasterizer.getVector0();
-				texelColor = getFragmentTexelColor(uv);
+				final int u = span.getAttribute(U, x);
+				final int v = span.getAttribute(V, x);
+				texelColor = getFragmentTexelColor(u, v);
 				
-				final int[] directionalLightSpaceLocation = rasterizer.getVector3();
-				isInShadow = isFragmentInShadow(directionalLightSpaceLocation, directionalLightShadowMap);
+				// the light space locations are only needed until it's known if the fragment is in shadow
+				span.getVector(DIRECTIONAL_LIGHT_LOCATION, x, lightSpaceLocation);
+				isInShadow = isFragmentInShadow(lightSpaceLocation, directionalLightShadowMap);
 				if(!isInShadow) {
-					final int[] spotLightSpaceLocation = rasterizer.getVector4();
-					isInShadow = isFragmentInShadow(spotLightSpaceLocation, spotLightShadowMap);
+					span.getVector(SPOT_LIGHT_LOCATION, x, lightSpaceLocation);
+					isInShadow = isFragmentInShadow(lightSpaceLocation, spotLightShadowMap);
 				}
 				
-				final int[] location = rasterizer.getVector1();
-				final int[] normal = rasterizer.getVector2();
-				final int color = calculateLights(location, normal, material);			
+				final int[] location = span.getVector(LOCATION, x, worldLocation);
+				final int[] normal = span.getVector(NORMAL, x, worldNormal);
+				final int color = calculateLights(lightTiles.getTile(x, y), location, normal, material);			
 				colorBuffer.setPixel(x, y, color);
 				depthBuffer.setPixel(x, y, z);
+				depthPyramid.addShadedFragment(x, y);
 			}
 		}
 		
-		private int getFragmentTexelColor(int[] uv) {
+		private int getFragmentTexelColor(int u, int v) {
 			if(texture == null) {
 				return ColorUtils.WHITE;
 			} else {
 				// The result will be, but pixels are not accessed with fixed point
-				final int u = uv[VECTOR_X] >> FP_BIT;
-				final int v = uv[VECTOR_Y] >> FP_BIT;
-				return texture.getPixel(u, v);
+				return mipMap.getTexel(u >> mipMapShift, v >> mipMapShift);
 			}
 		}
 		
@@ -249,21 +308,20 @@ public class PhongShader extends ThreadedShader {
 			}
 		}
 		
-		private int calculateLights(int[] location, int[] normal, Material material) {
-			VectorUtils.copy(viewDirection, camera.getTransform().getLocation());
+		private int calculateLights(int tile, int[] location, int[] normal, Material material) {
+			VectorUtils.copy(viewDirection, camera.getTransform().getWorldLocation());
 			VectorUtils.subtract(viewDirection, location);
-			VectorUtils.normalize(viewDirection);
-			VectorUtils.normalize(normal);
-			int color = ColorUtils.BLACK;
-			for (int i = 0; i < lights.size(); i++) {
-				final Light light = lights.get(i);
-				if(!light.isActive() || light.isCulled())
-					continue;
-				final int ambient = ColorUtils.multiplyColor(texelColor, light.getAmbientColor());
+			VectorUtils.fastNormalize(viewDirection);
+			VectorUtils.fastNormalize(normal);
+			int color = ColorUtils.multiplyColor(texelColor, shaderBuffer.getAmbientColor());
+			// only the lights of the tile of this pixel can reach it
+			final Light[] lights = lightTiles.getLights(tile);
+			final int lightCount = lightTiles.getLightCount(tile);
+			for (int i = 0; i < lightCount; i++) {
+				final Light light = lights[i];
 				int lighting = calculateLight(location, normal, material, light);
 				lighting = ColorUtils.multiply(lighting, light.getIntensity());
 				color = ColorUtils.add(color, lighting);
-				color = ColorUtils.add(color, ambient);
 			}
 			return color;
 		}
@@ -335,9 +393,9 @@ public class PhongShader extends ThreadedShader {
 		}
 		
 		private void calculateLightDirection(int[] location, Light light) {
-			VectorUtils.copy(lightDirection, light.getTransform().getLocation());
+			VectorUtils.copy(lightDirection, light.getTransform().getWorldLocation());
 			VectorUtils.subtract(lightDirection, location);
-			VectorUtils.normalize(lightDirection);
+			VectorUtils.fastNormalize(lightDirection);
 		}
 		
 		private int calculateDiffuseColor(int[] normal, Material material, Light light) {
@@ -354,7 +412,7 @@ public class PhongShader extends ThreadedShader {
 			TransformationUtils.reflect(lightDirection, normal);
 			int specularIntensity = (int)VectorUtils.dotProduct(viewDirection, lightDirection);
 			specularIntensity = Math.max(specularIntensity, 0);
-			specularIntensity = FixedPointUtils.pow(specularIntensity, material.getShininess());
+			specularIntensity = FixedPointUtils.fastPow(specularIntensity, material.getShininess());
 			int specular = ColorUtils.multiplyColor(material.getSpecularColor(), texelColor);
 			specular = ColorUtils.multiply(specular, specularIntensity);
 			specular = ColorUtils.multiplyColor(specular, light.getColor());
@@ -365,7 +423,7 @@ public class PhongShader extends ThreadedShader {
 			final int lightConstant = light.getConstantAttenuation();
 			final int lightLinear = light.getLinearAttenuation();
 			final int lightQuadratic = light.getQuadraticAttenuation();
-			final int distance = VectorUtils.distance(light.getTransform().getLocation(), location);
+			final int distance = VectorUtils.distance(light.getTransform().getWorldLocation(), location);
 			final int distanceSquared = FixedPointUtils.multiply(distance, distance);
 			int attenuation = lightConstant;
 			attenuation += FixedPointUtils.multiply(lightLinear, distance);
@@ -375,7 +433,7 @@ public class PhongShader extends ThreadedShader {
 		}
 		
 		private int calculateSpotIntensity(Light light) {
-			int[] direction = VectorUtils.copy(viewDirection, light.getDirection());
+			int[] direction = VectorUtils.copy(spotDirection, light.getDirection());
 			VectorUtils.invert(direction);
 			int theta = (int)VectorUtils.dotProduct(lightDirection, direction);
 			int intesity = theta - light.getSpotSizeCosine();
@@ -387,5 +445,13 @@ public class PhongShader extends ThreadedShader {
 		public ShaderBuffer getShaderBuffer() {
 			return shaderBuffer;
 		}
+
+		public LinearRasterizer getRasterizer() {
+			return rasterizer;
+		}
+		
+		public Frustum getFrustum() {
+			return frustum;
+		}
 	}
 }
@@ -1,7 +1,9 @@
 package com.johnsproject.jgameengine.shading;
 
 import com.johnsproject.jgameengine.model.Face;
+import com.johnsproject.jgameengine.model.Mesh;
 import com.johnsproject.jgameengine.model.Vertex;
+import com.johnsproject.jgameengine.rasterization.Span;
 
 public interface Shader {
 	
@@ -9,6 +11,16 @@ public interface Shader {
 	
 	void vertex(Vertex vertex);
 	
+	/**
+	 * Shades the vertices of the given mesh, from index from (inclusive) to index to (exclusive). 
+	 * Shaders that don't process vertices in batches can just call {@link #vertex(Vertex)} for each vertex.
+	 * 
+	 * @param mesh
+	 * @param from
+	 * @param to
+	 */
+	void vertexRange(Mesh mesh, int from, int to);
+	
 	/**
 	 * Used to notify the {@link ThreadedShader} that all vertices have been shaded
 	 * and it should wait until the queue is empty. No implementation is required.
@@ -17,13 +29,36 @@ public interface Shader {
 	
 	void geometry(Face face);
 	
+	/**
+	 * Shades the faces of the given mesh, from index from (inclusive) to index to (exclusive). 
+	 * Shaders that don't process faces in batches can just call {@link #geometry(Face)} for each face.
+	 * 
+	 * @param mesh
+	 * @param from
+	 * @param to
+	 */
+	void geometryRange(Mesh mesh, int from, int to);
+	
 	/**
 	 * Used to notify the {@link ThreadedShader} that all faces have been shaded
 	 * and it should wait until the queue is empty. No implementation is required.
 	 */
 	void waitForGeometryQueue();
 	
-	void fragment();
+	/**
+	 * Shades the fragments of the given span. The span is only valid during this call, 
+	 * as the rasterizer reuses it for the next span.
+	 * 
+	 * @param span
+	 */
+	void fragments(Span span);
+	
+	/**
+	 * Used to notify the shader that all models have been shaded, so shaders that 
+	 * shade the pixels of the render target after drawing the models, like the 
+	 * {@link DeferredShader}, can do it. No implementation is required.
+	 */
+	void waitForPixelQueue();
 
 	ShaderBuffer getShaderBuffer();
 	
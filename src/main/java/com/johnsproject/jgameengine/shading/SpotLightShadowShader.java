@@ -1,15 +1,12 @@
 package com.johnsproject.jgameengine.shading;
 
-import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_X;
-import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_Y;
-import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_Z;
-
 import com.johnsproject.jgameengine.model.Face;
 import com.johnsproject.jgameengine.model.Frustum;
 import com.johnsproject.jgameengine.model.Light;
 import com.johnsproject.jgameengine.model.Texture;
 import com.johnsproject.jgameengine.model.Vertex;
 import com.johnsproject.jgameengine.rasterization.Rasterizer;
+import com.johnsproject.jgameengine.rasterization.Span;
 import com.johnsproject.jgameengine.util.TransformationUtils;
 import com.johnsproject.jgameengine.util.VectorUtils;
 
@@ -18,6 +15,11 @@ public class SpotLightShadowShader extends ThreadedShader {
 	public boolean isGlobal() {
 		return true;
 	}
+	
+	public int getUsedBuffers() {
+		// shadow shaders only draw to the shadow maps
+		return 0;
+	}
 
 	@Override
 	public ThreadedVertexShader[] createVertexShaders(int count) {
@@ -39,6 +41,7 @@ public class SpotLightShadowShader extends ThreadedShader {
 
 		private ForwardShaderBuffer shaderBuffer;
 		private Frustum lightFrustum;
+		private final int[] location = VectorUtils.emptyVector();
 		
 		public void initialize(ShaderBuffer shaderBuffer) {
 			this.shaderBuffer = (ForwardShaderBuffer) shaderBuffer;
@@ -51,10 +54,10 @@ public class SpotLightShadowShader extends ThreadedShader {
 
 		public void vertex(Vertex vertex) {
 			if(shaderBuffer.getShadowSpotLight() != null) {
-				final int[] location = vertex.getLocation();
-				VectorUtils.copy(location, vertex.getWorldLocation());
-				VectorUtils.multiply(location, lightFrustum.getProjectionMatrix());
+				final int[] location = vertex.getWorldLocation(this.location);
+				VectorUtils.multiplyMatrix(location, lightFrustum.getProjectionMatrix());
 				TransformationUtils.screenportVector(location, lightFrustum);
+				vertex.setLocation(location);
 			}
 		}
 
@@ -97,18 +100,21 @@ public class SpotLightShadowShader extends ThreadedShader {
 			}
 		}
 
-		public void fragment() {
-			final int x = rasterizer.getLocation()[VECTOR_X];
-			final int y = rasterizer.getLocation()[VECTOR_Y];
-			final int z = rasterizer.getLocation()[VECTOR_Z] + shadowBias;
-			if (shadowMap.getPixel(x, y) > z) {
-				shadowMap.setPixel(x, y, z);
-			}
+		public void fragments(Span span) {
+			span.fillDepth(shadowMap, shadowBias);
 		}
 
 		public ShaderBuffer getShaderBuffer() {
 			return shaderBuffer;
 		}
+
+		public Rasterizer getRasterizer() {
+			return rasterizer;
+		}
+		
+		public Frustum getFrustum() {
+			return lightFrustum;
+		}
 		
 	}
 }
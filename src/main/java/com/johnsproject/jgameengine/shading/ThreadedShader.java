@@ -1,39 +1,128 @@
 package com.johnsproject.jgameengine.shading;
 
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_SIZE;
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_X;
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_Y;
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_Z;
+import static com.johnsproject.jgameengine.util.TransformationUtils.SUBPIXEL_BIT;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.johnsproject.jgameengine.RenderPool;
 import com.johnsproject.jgameengine.model.Face;
+import com.johnsproject.jgameengine.model.FrameBuffer;
+import com.johnsproject.jgameengine.model.Frustum;
+import com.johnsproject.jgameengine.model.Mesh;
 import com.johnsproject.jgameengine.model.Vertex;
+import com.johnsproject.jgameengine.rasterization.HalfSpaceRasterizer;
+import com.johnsproject.jgameengine.rasterization.LinearRasterizer;
+import com.johnsproject.jgameengine.rasterization.Rasterizer;
+import com.johnsproject.jgameengine.rasterization.Span;
 
+/**
+ * The ThreadedShader class is the base of the multithreaded shaders. The work is run on the 
+ * {@link RenderPool}, by one vertex and one geometry shader per task the pool can run in parallel. 
+ * Vertices are split into contiguous ranges, sized by the parallelism of the pool, and each range 
+ * is shaded by one vertex shader. Faces are binned into screen tiles of 
+ * {@value #TILE_SIZE}x{@value #TILE_SIZE} pixels and each tile is rasterized by a single 
+ * geometry shader, so no two threads ever write to the same pixel.
+ * <br><br>
+ * The geometry shaders draw their faces with a {@link LinearRasterizer} by default, or with a
+ * {@link HalfSpaceRasterizer} if the shader is created with half-space rasterization. Both draw the
+ * same fragments, the HalfSpaceRasterizer walks the faces in blocks that can be rejected by the depth pyramid at once.
+ */
 public abstract class ThreadedShader implements Shader {
 	
-	private final BlockingQueue<Vertex> vertexQueue;
-	private final BlockingQueue<Face> geometryQueue;
+	private static final int TILE_SIZE_BIT = 5;
+	public static final int TILE_SIZE = 1 << TILE_SIZE_BIT;
+	private static final int MIN_VERTEX_RANGE = 64;
+	
+	private final RenderPool renderPool;
 	private final ThreadedVertexShader[] vertexShaders;
 	private final ThreadedGeometryShader[] geometryShaders;
+	private final AtomicInteger vertexRangeIndex;
+	private final AtomicInteger tileIndex;
+	private final boolean halfSpaceRasterization;
+	
+	private Vertex[] vertices;
+	private int vertexCount;
+	private VertexRange[] vertexRanges;
+	private int vertexRangeCount;
+	private Tile[] tiles;
+	private Tile[] queuedTiles;
+	private int queuedTileCount;
+	private int tileColumns;
+	private int tileRows;
+	private int renderTargetLeft;
+	private int renderTargetRight;
+	private int renderTargetTop;
+	private int renderTargetBottom;
 	
 	public ThreadedShader() {
-		final int coreCount = Runtime.getRuntime().availableProcessors();
-		vertexQueue = new ArrayBlockingQueue<Vertex>(coreCount * 32);
-		geometryQueue = new ArrayBlockingQueue<Face>(coreCount * 32);
+		this(false);
+	}
+	
+	/**
+	 * Creates a new ThreadedShader.
+	 * 
+	 * @param halfSpaceRasterization if the geometry shaders draw the faces with a {@link HalfSpaceRasterizer}
+	 * instead of a {@link LinearRasterizer}.
+	 */
+	public ThreadedShader(boolean halfSpaceRasterization) {
+		this.halfSpaceRasterization = halfSpaceRasterization;
+		renderPool = RenderPool.getInstance();
+		vertexRangeIndex = new AtomicInteger();
+		tileIndex = new AtomicInteger();
+		vertices = new Vertex[MIN_VERTEX_RANGE];
+		vertexRanges = new VertexRange[0];
+		tiles = new Tile[0];
+		queuedTiles = new Tile[0];
 		
-		vertexShaders = createVertexShaders(coreCount);
-		for (int i = 0; i < vertexShaders.length; i++) {
-			vertexShaders[i].setQueue(vertexQueue);
-			vertexShaders[i].start();
-		}
+		final int taskCount = renderPool.getParallelism();
+		vertexShaders = createVertexShaders(taskCount);
+		for (int i = 0; i < vertexShaders.length; i++)
+			vertexShaders[i].setShader(this);
 		
-		geometryShaders = createGeometryShaders(coreCount);
-		for (int i = 0; i < geometryShaders.length; i++) {
-			geometryShaders[i].setQueue(geometryQueue);
-			geometryShaders[i].start();
-		}
+		geometryShaders = createGeometryShaders(taskCount);
+		for (int i = 0; i < geometryShaders.length; i++)
+			geometryShaders[i].setShader(this);
 	}
 
 	public abstract ThreadedVertexShader[] createVertexShaders(int count);
 	
 	public abstract ThreadedGeometryShader[] createGeometryShaders(int count);
+	
+	/**
+	 * Creates the rasterizer the given geometry shader draws its faces with, as set in the constructor.
+	 * 
+	 * @param geometryShader shader the rasterizer passes the fragments to.
+	 * @param attributeCount number of attributes the rasterizer interpolates.
+	 * @return The rasterizer.
+	 */
+	protected LinearRasterizer createRasterizer(ThreadedGeometryShader geometryShader, int attributeCount) {
+		if(halfSpaceRasterization)
+			return new HalfSpaceRasterizer(geometryShader, attributeCount);
+		return new LinearRasterizer(geometryShader, attributeCount);
+	}
+	
+	public boolean isHalfSpaceRasterization() {
+		return halfSpaceRasterization;
+	}
+	
+	/**
+	 * Returns the buffers of the render target this shader draws to, as a combination of 
+	 * {@link FrameBuffer#COLOR_BUFFER}, {@link FrameBuffer#DEPTH_BUFFER} and {@link FrameBuffer#STENCIL_BUFFER}.
+	 * Only the buffers that are used by the shaders are cleared before each frame, so shaders that
+	 * don't draw to all of them should override this method. Shaders that aren't ThreadedShaders
+	 * get all buffers cleared.
+	 * 
+	 * @return The buffers used by this shader.
+	 */
+	public int getUsedBuffers() {
+		return FrameBuffer.COLOR_BUFFER | FrameBuffer.DEPTH_BUFFER | FrameBuffer.STENCIL_BUFFER;
+	}
 
 	public void initialize(ShaderBuffer shaderBuffer) {		
 		for (int i = 0; i < vertexShaders.length; i++)
@@ -41,70 +130,186 @@ public abstract class ThreadedShader implements Shader {
 		
 		for (int i = 0; i < geometryShaders.length; i++)
 			geometryShaders[i].initialize(shaderBuffer);
+		
+		initializeTiles(geometryShaders[0].getFrustum());
+	}
+	
+	private void initializeTiles(Frustum frustum) {
+		renderTargetLeft = frustum.getRenderTargetLeft();
+		renderTargetRight = frustum.getRenderTargetRight() - 1;
+		renderTargetTop = frustum.getRenderTargetTop();
+		renderTargetBottom = frustum.getRenderTargetBottom() - 1;
+		final int columns = Math.max((renderTargetRight >> TILE_SIZE_BIT) + 1, 1);
+		final int rows = Math.max((renderTargetBottom >> TILE_SIZE_BIT) + 1, 1);
+		if((columns != tileColumns) || (rows != tileRows)) {
+			tileColumns = columns;
+			tileRows = rows;
+			tiles = new Tile[columns * rows];
+			for (int y = 0; y < rows; y++) {
+				for (int x = 0; x < columns; x++) {
+					tiles[x + y * columns] = new Tile(x << TILE_SIZE_BIT, y << TILE_SIZE_BIT);
+				}
+			}
+		}
+		for (int i = 0; i < tiles.length; i++)
+			tiles[i].setClip(renderTargetLeft, renderTargetTop, renderTargetRight, renderTargetBottom);
 	}
 	
+	/**
+	 * Stores the given vertex, the stored vertices are shaded in {@link #waitForVertexQueue()}. 
+	 * {@link #vertexRange(Mesh, int, int)} should be preferred as it doesn't need to copy the vertices.
+	 * 
+	 * @param vertex
+	 */
 	public void vertex(Vertex vertex) {
-		try {
-			vertexQueue.put(vertex);
-		} catch (InterruptedException e) {
-			e.printStackTrace();
+		if(vertexCount == vertices.length) {
+			final Vertex[] newVertices = new Vertex[vertices.length * 2];
+			System.arraycopy(vertices, 0, newVertices, 0, vertexCount);
+			vertices = newVertices;
+		}
+		vertices[vertexCount++] = vertex;
+	}
+	
+	/**
+	 * Splits the given range of vertices in one range per vertex shader. 
+	 * The ranges are shaded in {@link #waitForVertexQueue()}.
+	 * 
+	 * @param mesh
+	 * @param from
+	 * @param to
+	 */
+	public void vertexRange(Mesh mesh, int from, int to) {
+		addVertexRanges(mesh.getVertices(), from, to);
+	}
+	
+	private void addVertexRanges(Vertex[] vertices, int from, int to) {
+		final int shaderCount = vertexShaders.length;
+		final int rangeSize = Math.max((to - from + shaderCount - 1) / shaderCount, MIN_VERTEX_RANGE);
+		for (int i = from; i < to; i += rangeSize) {
+			if(vertexRangeCount == vertexRanges.length) {
+				final VertexRange[] newRanges = new VertexRange[vertexRanges.length * 2 + shaderCount];
+				System.arraycopy(vertexRanges, 0, newRanges, 0, vertexRangeCount);
+				for (int j = vertexRangeCount; j < newRanges.length; j++)
+					newRanges[j] = new VertexRange();
+				vertexRanges = newRanges;
+			}
+			vertexRanges[vertexRangeCount++].set(vertices, i, Math.min(i + rangeSize, to));
 		}
 	}
+	
+	private VertexRange nextVertexRange() {
+		final int index = vertexRangeIndex.getAndIncrement();
+		return index < vertexRangeCount ? vertexRanges[index] : null;
+	}
 
+	/**
+	 * Adds the given face to all tiles its screen space bounding box overlaps. 
+	 * The tiles are rasterized in {@link #waitForGeometryQueue()}.
+	 * 
+	 * @param face
+	 */
 	public void geometry(Face face) {
-		try {
-			geometryQueue.put(face);
-		} catch (InterruptedException e) {
-			e.printStackTrace();
+		final int[] locations = face.getMesh().getVertexLocations();
+		final int x0 = locations[face.getVertexIndex(0) * VECTOR_SIZE + VECTOR_X];
+		final int y0 = locations[face.getVertexIndex(0) * VECTOR_SIZE + VECTOR_Y];
+		final int x1 = locations[face.getVertexIndex(1) * VECTOR_SIZE + VECTOR_X];
+		final int y1 = locations[face.getVertexIndex(1) * VECTOR_SIZE + VECTOR_Y];
+		final int x2 = locations[face.getVertexIndex(2) * VECTOR_SIZE + VECTOR_X];
+		final int y2 = locations[face.getVertexIndex(2) * VECTOR_SIZE + VECTOR_Y];
+		// the screen space locations are in sub-pixels
+		final int minX = Math.min(x0, Math.min(x1, x2)) >> SUBPIXEL_BIT;
+		final int maxX = Math.max(x0, Math.max(x1, x2)) >> SUBPIXEL_BIT;
+		final int minY = Math.min(y0, Math.min(y1, y2)) >> SUBPIXEL_BIT;
+		final int maxY = Math.max(y0, Math.max(y1, y2)) >> SUBPIXEL_BIT;
+		if((maxX < renderTargetLeft) || (minX > renderTargetRight) || (maxY < renderTargetTop) || (minY > renderTargetBottom))
+			return;
+		final int left = Math.max(minX, renderTargetLeft) >> TILE_SIZE_BIT;
+		final int right = Math.min(maxX, renderTargetRight) >> TILE_SIZE_BIT;
+		final int top = Math.max(minY, renderTargetTop) >> TILE_SIZE_BIT;
+		final int bottom = Math.min(maxY, renderTargetBottom) >> TILE_SIZE_BIT;
+		for (int y = top; y <= bottom; y++) {
+			for (int x = left; x <= right; x++) {
+				tiles[x + y * tileColumns].faces.add(face);
+			}
 		}
 	}
+	
+	public void geometryRange(Mesh mesh, int from, int to) {
+		for (int i = from; i < to; i++)
+			geometry(mesh.getFace(i));
+	}
 
-	public void fragment() {}
+	public void fragments(Span span) {}
 	
 	public ShaderBuffer getShaderBuffer() {
 		return vertexShaders[0].getShaderBuffer();
 	}
 	
 	public void waitForVertexQueue() {
-		for (int i = 0; i < vertexShaders.length; i++)
-			if((!vertexQueue.isEmpty()) || (vertexShaders[i].getState() != Thread.State.WAITING))
-				i = 0;
+		if(vertexCount > 0)
+			addVertexRanges(vertices, 0, vertexCount);
+		vertexRangeIndex.set(0);
+		renderPool.invoke(vertexShaders, Math.min(vertexRangeCount, vertexShaders.length));
+		vertexRangeCount = 0;
+		vertexCount = 0;
 	}
 	
 	public void waitForGeometryQueue() {
-		for (int i = 0; i < geometryShaders.length; i++)
-			if((!geometryQueue.isEmpty()) || (geometryShaders[i].getState() != Thread.State.WAITING))
-				i = 0;
+		if(queuedTiles.length != tiles.length)
+			queuedTiles = new Tile[tiles.length];
+		queuedTileCount = 0;
+		for (int i = 0; i < tiles.length; i++) {
+			if(!tiles[i].faces.isEmpty())
+				queuedTiles[queuedTileCount++] = tiles[i];
+		}
+		tileIndex.set(0);
+		renderPool.invoke(geometryShaders, Math.min(queuedTileCount, geometryShaders.length));
+		for (int i = 0; i < queuedTileCount; i++)
+			queuedTiles[i].faces.clear();
 	}
 	
-	protected static abstract class ThreadedVertexShader extends Thread implements Shader {
+	private Tile nextTile() {
+		final int index = tileIndex.getAndIncrement();
+		return index < queuedTileCount ? queuedTiles[index] : null;
+	}
+	
+	public void waitForPixelQueue() { }
+	
+	protected static abstract class ThreadedVertexShader implements Shader, Runnable {
 
-		private BlockingQueue<Vertex> queue;
+		private ThreadedShader shader;
 		
-		public ThreadedVertexShader() {
-			super("VertexShaderThread");
+		public void vertexRange(Mesh mesh, int from, int to) {
+			for (int i = from; i < to; i++)
+				vertex(mesh.getVertex(i));
 		}
 		
 		public void waitForVertexQueue() { }
 		
 		public void geometry(Face face) { }
 		
+		public void geometryRange(Mesh mesh, int from, int to) { }
+		
 		public void waitForGeometryQueue() { }
 		
-		public void fragment() { }
+		public void fragments(Span span) { }
+		
+		public void waitForPixelQueue() { }
 		
 		public void run() {
-			while(true) {
-				try {
-					vertex(queue.take());
-				} catch (InterruptedException e) {
-					e.printStackTrace();
-				}
-			}
+			VertexRange range;
+			while((range = shader.nextVertexRange()) != null)
+				vertex(range);
+		}
+
+		private void vertex(VertexRange range) {
+			final Vertex[] vertices = range.vertices;
+			for (int i = range.from; i < range.to; i++)
+				vertex(vertices[i]);
 		}
 
-		private void setQueue(BlockingQueue<Vertex> queue) {
-			this.queue = queue;
+		private void setShader(ThreadedShader shader) {
+			this.shader = shader;
 		}
 		
 		public boolean isGlobal() {
@@ -112,36 +317,116 @@ public abstract class ThreadedShader implements Shader {
 		}
 	}
 	
-	protected static abstract class ThreadedGeometryShader extends Thread implements Shader {
-
-		private BlockingQueue<Face> queue;
+	protected static abstract class ThreadedGeometryShader implements Shader, Runnable {
 		
-		public ThreadedGeometryShader() {
-			super("GeometryShaderThread");
-		}
+		// the vertex normals are normalized, this keeps the precision of the interpolated normals
+		private static final int NORMAL_SCALE_BIT = 2;
+
+		private ThreadedShader shader;
 		
 		public void vertex(Vertex vertex) { }
 		
+		public void vertexRange(Mesh mesh, int from, int to) { }
+		
 		public void waitForVertexQueue() { }
+		
+		public void geometryRange(Mesh mesh, int from, int to) {
+			for (int i = from; i < to; i++)
+				geometry(mesh.getFace(i));
+		}
 
 		public void waitForGeometryQueue() { }
 		
+		public void waitForPixelQueue() { }
+		
 		public void run() {
-			while(true) {
-				try {
-					geometry(queue.take());
-				} catch (InterruptedException e) {
-					e.printStackTrace();
-				}
-			}
+			Tile tile;
+			while((tile = shader.nextTile()) != null)
+				geometry(tile);
+		}
+		
+		private void geometry(Tile tile) {
+			final Rasterizer rasterizer = getRasterizer();
+			rasterizer.setClip(tile.clipLeft, tile.clipTop, tile.clipRight, tile.clipBottom);
+			final List<Face> faces = tile.faces;
+			for (int i = 0; i < faces.size(); i++)
+				geometry(faces.get(i));
+			rasterizer.resetClip();
 		}
 
-		private void setQueue(BlockingQueue<Face> queue) {
-			this.queue = queue;
+		private void setShader(ThreadedShader shader) {
+			this.shader = shader;
 		}
 		
 		public boolean isGlobal() {
 			return false;
 		}
+		
+		/**
+		 * Returns the world normal of the given vertex scaled up, so it keeps its precision 
+		 * when interpolated by the rasterizer. The interpolated normals need to be normalized.
+		 * 
+		 * @param vertex
+		 * @param result
+		 * @return
+		 */
+		protected static int[] getInterpolatedNormal(Vertex vertex, int[] result) {
+			vertex.getWorldNormal(result);
+			result[VECTOR_X] <<= NORMAL_SCALE_BIT;
+			result[VECTOR_Y] <<= NORMAL_SCALE_BIT;
+			result[VECTOR_Z] <<= NORMAL_SCALE_BIT;
+			return result;
+		}
+		
+		/**
+		 * Returns the rasterizer this shader draws faces with.
+		 * 
+		 * @return
+		 */
+		public abstract Rasterizer getRasterizer();
+		
+		/**
+		 * Returns the frustum whose render target the faces are drawn into.
+		 * 
+		 * @return
+		 */
+		public abstract Frustum getFrustum();
+	}
+	
+	private static final class VertexRange {
+		
+		private Vertex[] vertices;
+		private int from;
+		private int to;
+		
+		public void set(Vertex[] vertices, int from, int to) {
+			this.vertices = vertices;
+			this.from = from;
+			this.to = to;
+		}
+	}
+	
+	private static final class Tile {
+		
+		private final int left;
+		private final int top;
+		private final List<Face> faces;
+		private int clipLeft;
+		private int clipRight;
+		private int clipTop;
+		private int clipBottom;
+		
+		public Tile(int left, int top) {
+			this.left = left;
+			this.top = top;
+			this.faces = new ArrayList<Face>();
+		}
+		
+		public void setClip(int left, int top, int right, int bottom) {
+			clipLeft = Math.max(this.left, left);
+			clipTop = Math.max(this.top, top);
+			clipRight = Math.min(this.left + TILE_SIZE - 1, right);
+			clipBottom = Math.min(this.top + TILE_SIZE - 1, bottom);
+		}
 	}
 }
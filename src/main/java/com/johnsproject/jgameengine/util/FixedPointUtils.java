@@ -39,6 +39,40 @@ public final class FixedPointUtils {
 			32365, 32449, 32524, 32588, 32643, 32688, 32723, 32748, 32763, 32767
 	};
 	
+	// precision of the lookup tables and of the intermediate values of the fast math methods
+	private static final byte LUT_BIT = 24;
+	private static final long LUT_ONE = 1L << LUT_BIT;
+	private static final byte RSQRT_LUT_SIZE_BIT = 10;
+	private static final byte LOG_LUT_SIZE_BIT = 10;
+	private static final int LOG_LUT_INTERPOLATION_BIT = LUT_BIT - LOG_LUT_SIZE_BIT;
+	
+	/**
+	 * 1 / sqrt of the center of each mantissa interval in the range 0.25 - 1.
+	 * The first quarter of the table is not used.
+	 */
+	private static final int[] rsqrtLUT = new int[1 << RSQRT_LUT_SIZE_BIT];
+	/**
+	 * log2(1 + i / size) for each index i, including the index of log2(2).
+	 */
+	private static final int[] log2LUT = new int[(1 << LOG_LUT_SIZE_BIT) + 1];
+	/**
+	 * 2^(i / size) for each index i, including the index of 2^1.
+	 */
+	private static final int[] exp2LUT = new int[(1 << LOG_LUT_SIZE_BIT) + 1];
+	
+	static {
+		final int rsqrtSize = rsqrtLUT.length;
+		for (int i = rsqrtSize >> 2; i < rsqrtSize; i++) {
+			final double center = (i + 0.5) / rsqrtSize;
+			rsqrtLUT[i] = (int) Math.round(LUT_ONE / Math.sqrt(center));
+		}
+		final int logSize = log2LUT.length - 1;
+		for (int i = 0; i <= logSize; i++) {
+			log2LUT[i] = (int) Math.round(LUT_ONE * Math.log(1 + (double) i / logSize) / Math.log(2));
+			exp2LUT[i] = (int) Math.round(LUT_ONE * Math.pow(2, (double) i / logSize));
+		}
+	}
+	
 	private FixedPointUtils() { }
 	
 	/**
@@ -311,6 +345,135 @@ public final class FixedPointUtils {
 		}
 		return (int) result;
 	}
+	
+	/**
+	 * Returns the reciprocal square root of the given number, 1 / sqrt(number). 
+	 * If number <= 0 the method returns 0.
+	 * <br><br>
+	 * It uses a lookup table and one Newton-Raphson step instead of a loop, the relative 
+	 * error of the result is less than 0.0002% before it's rounded to fixed point.
+	 * 
+	 * @param number fixed point number.
+	 * @return fixed point result.
+	 */
+	public static int inverseSqrt(long number) {
+		if(number <= 0) {
+			return 0;
+		}
+		final int exponent = oddBitLength(number);
+		final long inverseSqrt = inverseSqrtMantissa(mantissa(number, exponent));
+		// number = mantissa * 2^exponent and 1 / sqrt(2^exponent / FP_ONE) = 2^((FP_BIT - exponent) / 2)
+		return (int) shiftRound(inverseSqrt, LUT_BIT - FP_BIT - ((FP_BIT - exponent) >> 1));
+	}
+	
+	/**
+	 * Returns the square root of the given number. If number <= 0 the method returns 0.
+	 * <br><br>
+	 * It uses {@link #inverseSqrt(long) the reciprocal square root}, so the relative 
+	 * error of the result is less than 0.0002% before it's rounded to fixed point, 
+	 * while the result of {@link #sqrt(long)} is up to 1/128 too small.
+	 * 
+	 * @param number fixed point number.
+	 * @return fixed point result.
+	 */
+	public static int fastSqrt(long number) {
+		if(number <= 0) {
+			return 0;
+		}
+		final int exponent = oddBitLength(number);
+		final long mantissa = mantissa(number, exponent);
+		final long sqrt = (mantissa * inverseSqrtMantissa(mantissa)) >> LUT_BIT;
+		// number = mantissa * 2^exponent and sqrt(2^exponent / FP_ONE) = 2^((exponent + FP_BIT) / 2) / FP_ONE
+		return (int) shiftRound(sqrt, LUT_BIT - ((exponent + FP_BIT) >> 1));
+	}
+	
+	/**
+	 * Returns the smallest odd exponent, where 2^exponent > number, 
+	 * so number / 2^exponent is in the range 0.25 - 1.
+	 */
+	private static int oddBitLength(long number) {
+		final int bitLength = 64 - Long.numberOfLeadingZeros(number);
+		return bitLength | 1;
+	}
+	
+	/**
+	 * Returns number / 2^exponent with a precision of LUT_BIT.
+	 */
+	private static long mantissa(long number, int exponent) {
+		if(exponent > LUT_BIT)
+			return number >> (exponent - LUT_BIT);
+		return number << (LUT_BIT - exponent);
+	}
+	
+	/**
+	 * Returns 1 / sqrt(mantissa) with a precision of LUT_BIT, the mantissa is in the range 0.25 - 1.
+	 */
+	private static long inverseSqrtMantissa(long mantissa) {
+		long inverseSqrt = rsqrtLUT[(int) (mantissa >> (LUT_BIT - RSQRT_LUT_SIZE_BIT))];
+		// Newton-Raphson step, inverseSqrt = inverseSqrt * (3 - mantissa * inverseSqrt^2) / 2
+		final long squared = (inverseSqrt * inverseSqrt) >> LUT_BIT;
+		final long error = (3 << LUT_BIT) - ((mantissa * squared) >> LUT_BIT);
+		inverseSqrt = (inverseSqrt * error) >> (LUT_BIT + 1);
+		return inverseSqrt;
+	}
+	
+	/**
+	 * Returns value / 2^shift rounded, or value * 2^-shift if shift is negative.
+	 */
+	private static long shiftRound(long value, int shift) {
+		if(shift <= 0)
+			return value << -shift;
+		if(shift >= 63)
+			return 0;
+		return (value + (1L << (shift - 1))) >> shift;
+	}
+	
+	/**
+	 * Returns the power of the given number. 
+	 * <br><br>
+	 * It's meant for the range of specular lighting, where base is in the range 0 - 1 and exp is the
+	 * shininess of a material. It uses the lookup tables of log2 and 2^x instead of repeated multiplications, 
+	 * pow(base, exp) = 2^(exp * log2(base)), so the time it takes doesn't depend on exp. In the range 
+	 * 0 - 1 and for exponents up to 256 the result differs from the one of Math.pow by less than 1 fixed point unit, 
+	 * while the rounding of each multiplication of pow adds up to 34 units. If base >= 1 the method returns 
+	 * {@link #pow(long, int)}.
+	 * Unlike pow the fractional part of the exponent is not ignored.
+	 * 
+	 * @param base fixed point number.
+	 * @param exp fixed point number, >= 0.
+	 * @return fixed point result.
+	 */
+	public static int fastPow(int base, int exp) {
+		if(base >= FP_ONE) {
+			return pow(base, exp);
+		}
+		if(exp == 0) {
+			return FP_ONE;
+		}
+		if(base <= 0) {
+			return 0;
+		}
+		// base = 2^(bitLength - 1) * (1 + fraction)
+		final int bitLength = 32 - Integer.numberOfLeadingZeros(base);
+		final long fraction = ((long) base << (LUT_BIT - bitLength + 1)) - LUT_ONE;
+		final long log2 = ((long) (bitLength - 1 - FP_BIT) << LUT_BIT) + lookup(log2LUT, fraction);
+		// log2 < 0 as base < 1, so the exponent of the result is negative
+		final long exp2 = (log2 * exp) >> FP_BIT;
+		final int integral = (int) (exp2 >> LUT_BIT);
+		final long power = lookup(exp2LUT, exp2 & (LUT_ONE - 1));
+		return (int) shiftRound(power, LUT_BIT - FP_BIT - integral);
+	}
+	
+	/**
+	 * Returns the linear interpolated value of the given log2 or exp2 lookup table at x, 
+	 * where x is in the range 0 - 1 with a precision of LUT_BIT.
+	 */
+	private static long lookup(int[] lut, long x) {
+		final int index = (int) (x >> LOG_LUT_INTERPOLATION_BIT);
+		final long weight = x & ((1 << LOG_LUT_INTERPOLATION_BIT) - 1);
+		final long value = lut[index];
+		return value + (((lut[index + 1] - value) * weight) >> LOG_LUT_INTERPOLATION_BIT);
+	}
 
 	/**
 	 * Returns the product of the multiplication of value1 and value2.
@@ -5,18 +5,28 @@ import static com.johnsproject.jgameengine.util.FixedPointUtils.*;
 /**
  * The MatrixUtils class contains methods for generating matrices and performing matrix 
  * operations such as multiply, translate, scale, rotate.
+ * <br><br>
+ * A matrix is a flat int array of {@link #MATRIX_LENGTH} fixed point values, stored column by column.
+ * The value at column c and row r is at index c * {@link #MATRIX_SIZE} + r, and can be accessed 
+ * through the Mcr constants, so the translation of a matrix is at {@link #M30}, {@link #M31} and {@link #M32}.
  * 
  * @author John Ferraz Salomon
  */
 public final class MatrixUtils {
 	
 	public static final byte MATRIX_SIZE = 4;
+	public static final byte MATRIX_LENGTH = MATRIX_SIZE * MATRIX_SIZE;
+	
+	public static final byte M00 = 0, M01 = 1, M02 = 2, M03 = 3;
+	public static final byte M10 = 4, M11 = 5, M12 = 6, M13 = 7;
+	public static final byte M20 = 8, M21 = 9, M22 = 10, M23 = 11;
+	public static final byte M30 = 12, M31 = 13, M32 = 14, M33 = 15;
 
-	public static final int[][] MATRIX_IDENTITY = new int[][] {
-		{FP_ONE, 0, 0, 0},
-		{0, FP_ONE, 0, 0},
-		{0, 0, FP_ONE, 0},
-		{0, 0, 0, FP_ONE}
+	public static final int[] MATRIX_IDENTITY = new int[] {
+		FP_ONE, 0, 0, 0,
+		0, FP_ONE, 0, 0,
+		0, 0, FP_ONE, 0,
+		0, 0, 0, FP_ONE
 	};
 
 	private MatrixUtils() { }
@@ -26,12 +36,12 @@ public final class MatrixUtils {
 	 * 
 	 * @return
 	 */
-	public static int[][] indentityMatrix() {
-		return new int[][] {
-			{FP_ONE, 0, 0, 0},
-			{0, FP_ONE, 0, 0},
-			{0, 0, FP_ONE, 0},
-			{0, 0, 0, FP_ONE}
+	public static int[] indentityMatrix() {
+		return new int[] {
+			FP_ONE, 0, 0, 0,
+			0, FP_ONE, 0, 0,
+			0, 0, FP_ONE, 0,
+			0, 0, 0, FP_ONE
 		};
 	}
 	
@@ -42,14 +52,18 @@ public final class MatrixUtils {
 	 * @param matrix2
 	 * @param result
 	 */
-	public static int[][] add(int[][] matrix1, int[][] matrix2, int[][] result) {
-		for (int i = 0; i < MATRIX_SIZE; i++) {
+	public static int[] add(int[] matrix1, int[] matrix2, int[] result) {
+		for (int i = 0; i < MATRIX_LENGTH; i += MATRIX_SIZE) {
+			final int value0 = matrix2[i];
+			final int value1 = matrix2[i + 1];
+			final int value2 = matrix2[i + 2];
+			final int value3 = matrix2[i + 3];
 			for (int j = 0; j < MATRIX_SIZE; j++) {
-				int res = matrix1[0][j] + matrix2[i][0];
-				res += matrix1[1][j] + matrix2[i][1];
-				res += matrix1[2][j] + matrix2[i][2];
-				res += matrix1[3][j] + matrix2[i][3];
-				result[i][j] = res;
+				int res = matrix1[M00 + j] + value0;
+				res += matrix1[M10 + j] + value1;
+				res += matrix1[M20 + j] + value2;
+				res += matrix1[M30 + j] + value3;
+				result[i + j] = res;
 			}
 		}
 		return result;
@@ -62,14 +76,18 @@ public final class MatrixUtils {
 	 * @param matrix2
 	 * @param result
 	 */
-	public static int[][] subtract(int[][] matrix1, int[][] matrix2, int[][] result) {
-		for (int i = 0; i < MATRIX_SIZE; i++) {
+	public static int[] subtract(int[] matrix1, int[] matrix2, int[] result) {
+		for (int i = 0; i < MATRIX_LENGTH; i += MATRIX_SIZE) {
+			final int value0 = matrix2[i];
+			final int value1 = matrix2[i + 1];
+			final int value2 = matrix2[i + 2];
+			final int value3 = matrix2[i + 3];
 			for (int j = 0; j < MATRIX_SIZE; j++) {
-				int res = matrix1[0][j] - matrix2[i][0];
-				res += matrix1[1][j] - matrix2[i][1];
-				res += matrix1[2][j] - matrix2[i][2];
-				res += matrix1[3][j] - matrix2[i][3];
-				result[i][j] = res;
+				int res = matrix1[M00 + j] - value0;
+				res += matrix1[M10 + j] - value1;
+				res += matrix1[M20 + j] - value2;
+				res += matrix1[M30 + j] - value3;
+				result[i + j] = res;
 			}
 		}
 		return result;
@@ -77,19 +95,24 @@ public final class MatrixUtils {
 
 	/**
 	 * Sets result equals the result of the multiplication of matrix1 and matrix2.
+	 * Result can be matrix2, but not matrix1.
 	 * 
 	 * @param matrix1
 	 * @param matrix2
 	 * @param result
 	 */
-	public static int[][] multiply(int[][] matrix1, int[][] matrix2, int[][] result) {
-		for (int i = 0; i < MATRIX_SIZE; i++) {
+	public static int[] multiply(int[] matrix1, int[] matrix2, int[] result) {
+		for (int i = 0; i < MATRIX_LENGTH; i += MATRIX_SIZE) {
+			final int value0 = matrix2[i];
+			final int value1 = matrix2[i + 1];
+			final int value2 = matrix2[i + 2];
+			final int value3 = matrix2[i + 3];
 			for (int j = 0; j < MATRIX_SIZE; j++) {
-				int res = FixedPointUtils.multiply(matrix1[0][j], matrix2[i][0]);
-				res += FixedPointUtils.multiply(matrix1[1][j], matrix2[i][1]);
-				res += FixedPointUtils.multiply(matrix1[2][j], matrix2[i][2]);
-				res += FixedPointUtils.multiply(matrix1[3][j], matrix2[i][3]);
-				result[i][j] = res;
+				int res = FixedPointUtils.multiply(matrix1[M00 + j], value0);
+				res += FixedPointUtils.multiply(matrix1[M10 + j], value1);
+				res += FixedPointUtils.multiply(matrix1[M20 + j], value2);
+				res += FixedPointUtils.multiply(matrix1[M30 + j], value3);
+				result[i + j] = res;
 			}
 		}
 		return result;
@@ -102,14 +125,18 @@ public final class MatrixUtils {
 	 * @param matrix2
 	 * @param result
 	 */
-	public static int[][] divide(int[][] matrix1, int[][] matrix2, int[][] result) {
-		for (int i = 0; i < MATRIX_SIZE; i++) {
+	public static int[] divide(int[] matrix1, int[] matrix2, int[] result) {
+		for (int i = 0; i < MATRIX_LENGTH; i += MATRIX_SIZE) {
+			final int value0 = matrix2[i];
+			final int value1 = matrix2[i + 1];
+			final int value2 = matrix2[i + 2];
+			final int value3 = matrix2[i + 3];
 			for (int j = 0; j < MATRIX_SIZE; j++) {
-				int res = FixedPointUtils.divide(matrix1[0][j], matrix2[i][0]);
-				res += FixedPointUtils.divide(matrix1[1][j], matrix2[i][1]);
-				res += FixedPointUtils.divide(matrix1[2][j], matrix2[i][2]);
-				res += FixedPointUtils.divide(matrix1[3][j], matrix2[i][3]);
-				result[i][j] = res;
+				int res = FixedPointUtils.divide(matrix1[M00 + j], value0);
+				res += FixedPointUtils.divide(matrix1[M10 + j], value1);
+				res += FixedPointUtils.divide(matrix1[M20 + j], value2);
+				res += FixedPointUtils.divide(matrix1[M30 + j], value3);
+				result[i + j] = res;
 			}
 		}
 		return result;
@@ -122,11 +149,9 @@ public final class MatrixUtils {
 	 * @param value
 	 * @param result
 	 */
-	public static int[][] add(int[][] matrix, int value) {
-		for (int i = 0; i < MATRIX_SIZE; i++) {
-			for (int j = 0; j < MATRIX_SIZE; j++) {
-				matrix[i][j] += value;
-			}
+	public static int[] add(int[] matrix, int value) {
+		for (int i = 0; i < MATRIX_LENGTH; i++) {
+			matrix[i] += value;
 		}
 		return matrix;
 	}
@@ -138,11 +163,9 @@ public final class MatrixUtils {
 	 * @param value
 	 * @param result
 	 */
-	public static int[][] subtract(int[][] matrix, int value) {
-		for (int i = 0; i < MATRIX_SIZE; i++) {
-			for (int j = 0; j < MATRIX_SIZE; j++) {
-				matrix[i][j] -= value;
-			}
+	public static int[] subtract(int[] matrix, int value) {
+		for (int i = 0; i < MATRIX_LENGTH; i++) {
+			matrix[i] -= value;
 		}
 		return matrix;
 	}
@@ -154,11 +177,9 @@ public final class MatrixUtils {
 	 * @param value
 	 * @param result
 	 */
-	public static int[][] multiply(int[][] matrix, int value) {
-		for (int i = 0; i < MATRIX_SIZE; i++) {
-			for (int j = 0; j < MATRIX_SIZE; j++) {
-				matrix[i][j] = FixedPointUtils.multiply(matrix[i][j], value);
-			}
+	public static int[] multiply(int[] matrix, int value) {
+		for (int i = 0; i < MATRIX_LENGTH; i++) {
+			matrix[i] = FixedPointUtils.multiply(matrix[i], value);
 		}
 		return matrix;
 	}
@@ -170,11 +191,9 @@ public final class MatrixUtils {
 	 * @param value
 	 * @param result
 	 */
-	public static int[][] divide(int[][] matrix, int value) {
-		for (int i = 0; i < MATRIX_SIZE; i++) {
-			for (int j = 0; j < MATRIX_SIZE; j++) {
-				matrix[i][j] = FixedPointUtils.divide(matrix[i][j], value);
-			}
+	public static int[] divide(int[] matrix, int value) {
+		for (int i = 0; i < MATRIX_LENGTH; i++) {
+			matrix[i] = FixedPointUtils.divide(matrix[i], value);
 		}
 		return matrix;
 	}
@@ -185,10 +204,10 @@ public final class MatrixUtils {
 	 * @param matrix
 	 * @param result
 	 */
-	public static int[][] transpose(int[][] matrix, int[][] result) {
+	public static int[] transpose(int[] matrix, int[] result) {
 		for (int i = 0; i < MATRIX_SIZE; i++) {
 			for (int j = 0; j < MATRIX_SIZE; j++) {
-				result[i][j] = matrix[j][i];
+				result[i * MATRIX_SIZE + j] = matrix[j * MATRIX_SIZE + i];
 			}
 		}
 		return result;
@@ -199,31 +218,31 @@ public final class MatrixUtils {
 	 * 
 	 * @param matrix
 	 */
-	public static int determinant(int[][] matrix) {
-		return	FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[3][0], matrix[2][1]), FixedPointUtils.multiply(matrix[1][2], matrix[0][3])) - 
-				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[2][0], matrix[3][1]), FixedPointUtils.multiply(matrix[1][2], matrix[0][3])) -
-				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[3][0], matrix[1][1]), FixedPointUtils.multiply(matrix[2][2], matrix[0][3])) + 
-				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[1][0], matrix[3][1]), FixedPointUtils.multiply(matrix[2][2], matrix[0][3])) +
-				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[2][0], matrix[1][1]), FixedPointUtils.multiply(matrix[3][2], matrix[0][3])) - 
-				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[1][0], matrix[2][1]), FixedPointUtils.multiply(matrix[3][2], matrix[0][3])) -
-				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[3][0], matrix[2][1]), FixedPointUtils.multiply(matrix[0][2], matrix[1][3])) + 
-				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[2][0], matrix[3][1]), FixedPointUtils.multiply(matrix[0][2], matrix[1][3])) +
-				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[3][0], matrix[0][1]), FixedPointUtils.multiply(matrix[2][2], matrix[1][3])) - 
-				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[0][0], matrix[3][1]), FixedPointUtils.multiply(matrix[2][2], matrix[1][3])) -
-				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[2][0], matrix[0][1]), FixedPointUtils.multiply(matrix[3][2], matrix[1][3])) + 
-				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[0][0], matrix[2][1]), FixedPointUtils.multiply(matrix[3][2], matrix[1][3])) +
-				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[3][0], matrix[1][1]), FixedPointUtils.multiply(matrix[0][2], matrix[2][3])) - 
-				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[1][0], matrix[3][1]), FixedPointUtils.multiply(matrix[0][2], matrix[2][3])) -
-				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[3][0], matrix[0][1]), FixedPointUtils.multiply(matrix[1][2], matrix[2][3])) + 
-				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[0][0], matrix[3][1]), FixedPointUtils.multiply(matrix[1][2], matrix[2][3])) +
-				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[1][0], matrix[0][1]), FixedPointUtils.multiply(matrix[3][2], matrix[2][3])) - 
-				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[0][0], matrix[1][1]), FixedPointUtils.multiply(matrix[3][2], matrix[2][3])) -
-				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[2][0], matrix[1][1]), FixedPointUtils.multiply(matrix[0][2], matrix[3][3])) + 
-				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[1][0], matrix[2][1]), FixedPointUtils.multiply(matrix[0][2], matrix[3][3])) +
-				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[2][0], matrix[0][1]), FixedPointUtils.multiply(matrix[1][2], matrix[3][3])) - 
-				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[0][0], matrix[2][1]), FixedPointUtils.multiply(matrix[1][2], matrix[3][3])) -
-				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[1][0], matrix[0][1]), FixedPointUtils.multiply(matrix[2][2], matrix[3][3])) + 
-				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[0][0], matrix[1][1]), FixedPointUtils.multiply(matrix[2][2], matrix[3][3]));
+	public static int determinant(int[] matrix) {
+		return	FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[M30], matrix[M21]), FixedPointUtils.multiply(matrix[M12], matrix[M03])) - 
+				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[M20], matrix[M31]), FixedPointUtils.multiply(matrix[M12], matrix[M03])) -
+				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[M30], matrix[M11]), FixedPointUtils.multiply(matrix[M22], matrix[M03])) + 
+				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[M10], matrix[M31]), FixedPointUtils.multiply(matrix[M22], matrix[M03])) +
+				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[M20], matrix[M11]), FixedPointUtils.multiply(matrix[M32], matrix[M03])) - 
+				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[M10], matrix[M21]), FixedPointUtils.multiply(matrix[M32], matrix[M03])) -
+				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[M30], matrix[M21]), FixedPointUtils.multiply(matrix[M02], matrix[M13])) + 
+				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[M20], matrix[M31]), FixedPointUtils.multiply(matrix[M02], matrix[M13])) +
+				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[M30], matrix[M01]), FixedPointUtils.multiply(matrix[M22], matrix[M13])) - 
+				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[M00], matrix[M31]), FixedPointUtils.multiply(matrix[M22], matrix[M13])) -
+				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[M20], matrix[M01]), FixedPointUtils.multiply(matrix[M32], matrix[M13])) + 
+				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[M00], matrix[M21]), FixedPointUtils.multiply(matrix[M32], matrix[M13])) +
+				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[M30], matrix[M11]), FixedPointUtils.multiply(matrix[M02], matrix[M23])) - 
+				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[M10], matrix[M31]), FixedPointUtils.multiply(matrix[M02], matrix[M23])) -
+				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[M30], matrix[M01]), FixedPointUtils.multiply(matrix[M12], matrix[M23])) + 
+				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[M00], matrix[M31]), FixedPointUtils.multiply(matrix[M12], matrix[M23])) +
+				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[M10], matrix[M01]), FixedPointUtils.multiply(matrix[M32], matrix[M23])) - 
+				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[M00], matrix[M11]), FixedPointUtils.multiply(matrix[M32], matrix[M23])) -
+				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[M20], matrix[M11]), FixedPointUtils.multiply(matrix[M02], matrix[M33])) + 
+				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[M10], matrix[M21]), FixedPointUtils.multiply(matrix[M02], matrix[M33])) +
+				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[M20], matrix[M01]), FixedPointUtils.multiply(matrix[M12], matrix[M33])) - 
+				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[M00], matrix[M21]), FixedPointUtils.multiply(matrix[M12], matrix[M33])) -
+				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[M10], matrix[M01]), FixedPointUtils.multiply(matrix[M22], matrix[M33])) + 
+				FixedPointUtils.multiply(FixedPointUtils.multiply(matrix[M00], matrix[M11]), FixedPointUtils.multiply(matrix[M22], matrix[M33]));
 	}
 	
 	/**
@@ -232,105 +251,105 @@ public final class MatrixUtils {
 	 * @param matrix
 	 * @param result
 	 */
-	public static int[][] inverse(int[][] matrix, int[][] result) {
+	public static int[] inverse(int[] matrix, int[] result) {
 		copy(result, matrix);
 		int determinant = determinant(matrix) + 1;
-		result[0][0] = FixedPointUtils.multiply(matrix[2][1], FixedPointUtils.multiply(matrix[3][2], matrix[1][3])) -
-						FixedPointUtils.multiply(matrix[3][1], FixedPointUtils.multiply(matrix[2][2], matrix[1][3])) +
-						FixedPointUtils.multiply(matrix[3][1], FixedPointUtils.multiply(matrix[1][2], matrix[2][3])) -
-						FixedPointUtils.multiply(matrix[1][1], FixedPointUtils.multiply(matrix[3][2], matrix[2][3])) -
-						FixedPointUtils.multiply(matrix[2][1], FixedPointUtils.multiply(matrix[1][2], matrix[3][3])) +
-						FixedPointUtils.multiply(matrix[1][1], FixedPointUtils.multiply(matrix[2][2], matrix[3][3]));
-		result[1][0] = FixedPointUtils.multiply(matrix[3][0], FixedPointUtils.multiply(matrix[2][2], matrix[1][3])) -
-						FixedPointUtils.multiply(matrix[2][0], FixedPointUtils.multiply(matrix[2][3], matrix[1][3])) -
-						FixedPointUtils.multiply(matrix[3][0], FixedPointUtils.multiply(matrix[2][1], matrix[2][3])) +
-						FixedPointUtils.multiply(matrix[1][0], FixedPointUtils.multiply(matrix[2][3], matrix[2][3])) +
-						FixedPointUtils.multiply(matrix[2][0], FixedPointUtils.multiply(matrix[2][1], matrix[3][3])) -
-						FixedPointUtils.multiply(matrix[1][0], FixedPointUtils.multiply(matrix[2][2], matrix[3][3]));
-		result[2][0] = FixedPointUtils.multiply(matrix[2][0], FixedPointUtils.multiply(matrix[3][1], matrix[1][3])) -
-						FixedPointUtils.multiply(matrix[3][0], FixedPointUtils.multiply(matrix[2][1], matrix[1][3])) +
-						FixedPointUtils.multiply(matrix[3][0], FixedPointUtils.multiply(matrix[1][1], matrix[2][3])) -
-						FixedPointUtils.multiply(matrix[1][0], FixedPointUtils.multiply(matrix[3][1], matrix[2][3])) -
-						FixedPointUtils.multiply(matrix[2][0], FixedPointUtils.multiply(matrix[1][1], matrix[3][3])) +
-						FixedPointUtils.multiply(matrix[1][0], FixedPointUtils.multiply(matrix[2][1], matrix[3][3]));
-		result[3][0] = FixedPointUtils.multiply(matrix[3][0], FixedPointUtils.multiply(matrix[2][1], matrix[1][2])) -
-						FixedPointUtils.multiply(matrix[2][0], FixedPointUtils.multiply(matrix[3][1], matrix[1][2])) -
-						FixedPointUtils.multiply(matrix[3][0], FixedPointUtils.multiply(matrix[1][1], matrix[2][2])) +
-						FixedPointUtils.multiply(matrix[1][0], FixedPointUtils.multiply(matrix[3][1], matrix[2][2])) +
-						FixedPointUtils.multiply(matrix[2][0], FixedPointUtils.multiply(matrix[1][1], matrix[3][2])) -
-						FixedPointUtils.multiply(matrix[1][0], FixedPointUtils.multiply(matrix[2][1], matrix[3][2]));
-		result[0][1] = FixedPointUtils.multiply(matrix[3][1], FixedPointUtils.multiply(matrix[2][2], matrix[0][3])) -
-						FixedPointUtils.multiply(matrix[2][1], FixedPointUtils.multiply(matrix[3][2], matrix[0][3])) -
-						FixedPointUtils.multiply(matrix[3][1], FixedPointUtils.multiply(matrix[0][2], matrix[2][3])) +
-						FixedPointUtils.multiply(matrix[0][1], FixedPointUtils.multiply(matrix[3][2], matrix[2][3])) +
-						FixedPointUtils.multiply(matrix[2][1], FixedPointUtils.multiply(matrix[0][2], matrix[3][3])) -
-						FixedPointUtils.multiply(matrix[0][1], FixedPointUtils.multiply(matrix[2][2], matrix[3][3]));
-		result[1][1] = FixedPointUtils.multiply(matrix[2][0], FixedPointUtils.multiply(matrix[3][2], matrix[0][3])) -
-						FixedPointUtils.multiply(matrix[3][0], FixedPointUtils.multiply(matrix[2][2], matrix[0][3])) +
-						FixedPointUtils.multiply(matrix[3][0], FixedPointUtils.multiply(matrix[0][2], matrix[2][3])) -
-						FixedPointUtils.multiply(matrix[0][0], FixedPointUtils.multiply(matrix[3][2], matrix[2][3])) -
-						FixedPointUtils.multiply(matrix[2][0], FixedPointUtils.multiply(matrix[0][2], matrix[3][3])) +
-						FixedPointUtils.multiply(matrix[0][0], FixedPointUtils.multiply(matrix[2][2], matrix[3][3]));
-		result[2][1] = FixedPointUtils.multiply(matrix[3][0], FixedPointUtils.multiply(matrix[2][1], matrix[0][3])) -
-						FixedPointUtils.multiply(matrix[2][0], FixedPointUtils.multiply(matrix[3][1], matrix[0][3])) -
-						FixedPointUtils.multiply(matrix[3][0], FixedPointUtils.multiply(matrix[0][1], matrix[2][3])) +
-						FixedPointUtils.multiply(matrix[0][0], FixedPointUtils.multiply(matrix[3][1], matrix[2][3])) +
-						FixedPointUtils.multiply(matrix[2][0], FixedPointUtils.multiply(matrix[0][1], matrix[3][3])) -
-						FixedPointUtils.multiply(matrix[0][0], FixedPointUtils.multiply(matrix[2][1], matrix[3][3]));
-		result[3][1] = FixedPointUtils.multiply(matrix[2][0], FixedPointUtils.multiply(matrix[3][1], matrix[0][2])) -
-						FixedPointUtils.multiply(matrix[3][0], FixedPointUtils.multiply(matrix[2][1], matrix[0][2])) +
-						FixedPointUtils.multiply(matrix[3][0], FixedPointUtils.multiply(matrix[0][1], matrix[2][2])) -
-						FixedPointUtils.multiply(matrix[0][0], FixedPointUtils.multiply(matrix[3][1], matrix[2][2])) -
-						FixedPointUtils.multiply(matrix[2][0], FixedPointUtils.multiply(matrix[0][1], matrix[3][2])) +
-						FixedPointUtils.multiply(matrix[0][0], FixedPointUtils.multiply(matrix[2][1], matrix[3][2]));
-		result[0][2] = FixedPointUtils.multiply(matrix[1][1], FixedPointUtils.multiply(matrix[3][2], matrix[0][3])) -
-						FixedPointUtils.multiply(matrix[3][1], FixedPointUtils.multiply(matrix[1][2], matrix[0][3])) +
-						FixedPointUtils.multiply(matrix[3][1], FixedPointUtils.multiply(matrix[0][2], matrix[1][3])) -
-						FixedPointUtils.multiply(matrix[0][1], FixedPointUtils.multiply(matrix[3][2], matrix[1][3])) -
-						FixedPointUtils.multiply(matrix[1][1], FixedPointUtils.multiply(matrix[0][2], matrix[3][3])) +
-						FixedPointUtils.multiply(matrix[0][1], FixedPointUtils.multiply(matrix[1][2], matrix[3][3]));
-		result[1][2] = FixedPointUtils.multiply(matrix[3][0], FixedPointUtils.multiply(matrix[1][2], matrix[0][3])) -
-						FixedPointUtils.multiply(matrix[1][0], FixedPointUtils.multiply(matrix[3][2], matrix[0][3])) -
-						FixedPointUtils.multiply(matrix[3][0], FixedPointUtils.multiply(matrix[0][2], matrix[1][3])) +
-						FixedPointUtils.multiply(matrix[0][0], FixedPointUtils.multiply(matrix[3][2], matrix[1][3])) +
-						FixedPointUtils.multiply(matrix[1][0], FixedPointUtils.multiply(matrix[0][2], matrix[3][3])) -
-						FixedPointUtils.multiply(matrix[0][0], FixedPointUtils.multiply(matrix[1][2], matrix[3][3]));
-		result[2][2] = FixedPointUtils.multiply(matrix[1][0], FixedPointUtils.multiply(matrix[3][1], matrix[0][3])) -
-						FixedPointUtils.multiply(matrix[3][0], FixedPointUtils.multiply(matrix[1][1], matrix[0][3])) +
-						FixedPointUtils.multiply(matrix[3][0], FixedPointUtils.multiply(matrix[0][1], matrix[1][3])) -
-						FixedPointUtils.multiply(matrix[0][0], FixedPointUtils.multiply(matrix[3][1], matrix[1][3])) -
-						FixedPointUtils.multiply(matrix[1][0], FixedPointUtils.multiply(matrix[0][1], matrix[3][3])) +
-						FixedPointUtils.multiply(matrix[0][0], FixedPointUtils.multiply(matrix[1][1], matrix[3][3]));
-		result[3][2] = FixedPointUtils.multiply(matrix[3][0], FixedPointUtils.multiply(matrix[1][1], matrix[0][2])) -
-						FixedPointUtils.multiply(matrix[1][0], FixedPointUtils.multiply(matrix[3][1], matrix[0][2])) -
-						FixedPointUtils.multiply(matrix[3][0], FixedPointUtils.multiply(matrix[0][1], matrix[1][2])) +
-						FixedPointUtils.multiply(matrix[0][0], FixedPointUtils.multiply(matrix[3][1], matrix[1][2])) +
-						FixedPointUtils.multiply(matrix[1][0], FixedPointUtils.multiply(matrix[0][1], matrix[3][2])) -
-						FixedPointUtils.multiply(matrix[0][0], FixedPointUtils.multiply(matrix[1][1], matrix[3][2]));
-		result[0][3] = FixedPointUtils.multiply(matrix[2][1], FixedPointUtils.multiply(matrix[1][2], matrix[0][3])) -
-						FixedPointUtils.multiply(matrix[1][1], FixedPointUtils.multiply(matrix[2][2], matrix[0][3])) -
-						FixedPointUtils.multiply(matrix[2][1], FixedPointUtils.multiply(matrix[0][2], matrix[1][3])) +
-						FixedPointUtils.multiply(matrix[0][1], FixedPointUtils.multiply(matrix[2][2], matrix[1][3])) +
-						FixedPointUtils.multiply(matrix[1][1], FixedPointUtils.multiply(matrix[0][2], matrix[2][3])) -
-						FixedPointUtils.multiply(matrix[0][1], FixedPointUtils.multiply(matrix[1][2], matrix[2][3]));
-		result[1][3] = FixedPointUtils.multiply(matrix[1][0], FixedPointUtils.multiply(matrix[2][2], matrix[0][3])) -
-						FixedPointUtils.multiply(matrix[2][0], FixedPointUtils.multiply(matrix[1][2], matrix[0][3])) +
-						FixedPointUtils.multiply(matrix[2][0], FixedPointUtils.multiply(matrix[0][2], matrix[1][3])) -
-						FixedPointUtils.multiply(matrix[0][0], FixedPointUtils.multiply(matrix[2][2], matrix[1][3])) -
-						FixedPointUtils.multiply(matrix[1][0], FixedPointUtils.multiply(matrix[0][2], matrix[2][3])) +
-						FixedPointUtils.multiply(matrix[0][0], FixedPointUtils.multiply(matrix[1][2], matrix[2][3]));
-		result[2][3] = FixedPointUtils.multiply(matrix[2][0], FixedPointUtils.multiply(matrix[1][1], matrix[0][3])) -
-						FixedPointUtils.multiply(matrix[1][0], FixedPointUtils.multiply(matrix[2][1], matrix[0][3])) -
-						FixedPointUtils.multiply(matrix[2][0], FixedPointUtils.multiply(matrix[0][1], matrix[1][3])) +
-						FixedPointUtils.multiply(matrix[0][0], FixedPointUtils.multiply(matrix[2][1], matrix[1][3])) +
-						FixedPointUtils.multiply(matrix[1][0], FixedPointUtils.multiply(matrix[0][1], matrix[2][3])) -
-						FixedPointUtils.multiply(matrix[0][0], FixedPointUtils.multiply(matrix[1][1], matrix[2][3]));
-		result[3][3] = FixedPointUtils.multiply(matrix[1][0], FixedPointUtils.multiply(matrix[2][1], matrix[0][2])) -
-						FixedPointUtils.multiply(matrix[2][0], FixedPointUtils.multiply(matrix[1][1], matrix[0][2])) +
-						FixedPointUtils.multiply(matrix[2][0], FixedPointUtils.multiply(matrix[0][1], matrix[1][2])) -
-						FixedPointUtils.multiply(matrix[0][0], FixedPointUtils.multiply(matrix[2][1], matrix[1][2])) -
-						FixedPointUtils.multiply(matrix[1][0], FixedPointUtils.multiply(matrix[0][1], matrix[2][2])) +
-						FixedPointUtils.multiply(matrix[0][0], FixedPointUtils.multiply(matrix[1][1], matrix[2][2]));
+		result[M00] = FixedPointUtils.multiply(matrix[M21], FixedPointUtils.multiply(matrix[M32], matrix[M13])) -
+						FixedPointUtils.multiply(matrix[M31], FixedPointUtils.multiply(matrix[M22], matrix[M13])) +
+						FixedPointUtils.multiply(matrix[M31], FixedPointUtils.multiply(matrix[M12], matrix[M23])) -
+						FixedPointUtils.multiply(matrix[M11], FixedPointUtils.multiply(matrix[M32], matrix[M23])) -
+						FixedPointUtils.multiply(matrix[M21], FixedPointUtils.multiply(matrix[M12], matrix[M33])) +
+						FixedPointUtils.multiply(matrix[M11], FixedPointUtils.multiply(matrix[M22], matrix[M33]));
+		result[M10] = FixedPointUtils.multiply(matrix[M30], FixedPointUtils.multiply(matrix[M22], matrix[M13])) -
+						FixedPointUtils.multiply(matrix[M20], FixedPointUtils.multiply(matrix[M32], matrix[M13])) -
+						FixedPointUtils.multiply(matrix[M30], FixedPointUtils.multiply(matrix[M12], matrix[M23])) +
+						FixedPointUtils.multiply(matrix[M10], FixedPointUtils.multiply(matrix[M32], matrix[M23])) +
+						FixedPointUtils.multiply(matrix[M20], FixedPointUtils.multiply(matrix[M12], matrix[M33])) -
+						FixedPointUtils.multiply(matrix[M10], FixedPointUtils.multiply(matrix[M22], matrix[M33]));
+		result[M20] = FixedPointUtils.multiply(matrix[M20], FixedPointUtils.multiply(matrix[M31], matrix[M13])) -
+						FixedPointUtils.multiply(matrix[M30], FixedPointUtils.multiply(matrix[M21], matrix[M13])) +
+						FixedPointUtils.multiply(matrix[M30], FixedPointUtils.multiply(matrix[M11], matrix[M23])) -
+						FixedPointUtils.multiply(matrix[M10], FixedPointUtils.multiply(matrix[M31], matrix[M23])) -
+						FixedPointUtils.multiply(matrix[M20], FixedPointUtils.multiply(matrix[M11], matrix[M33])) +
+						FixedPointUtils.multiply(matrix[M10], FixedPointUtils.multiply(matrix[M21], matrix[M33]));
+		result[M30] = FixedPointUtils.multiply(matrix[M30], FixedPointUtils.multiply(matrix[M21], matrix[M12])) -
+						FixedPointUtils.multiply(matrix[M20], FixedPointUtils.multiply(matrix[M31], matrix[M12])) -
+						FixedPointUtils.multiply(matrix[M30], FixedPointUtils.multiply(matrix[M11], matrix[M22])) +
+						FixedPointUtils.multiply(matrix[M10], FixedPointUtils.multiply(matrix[M31], matrix[M22])) +
+						FixedPointUtils.multiply(matrix[M20], FixedPointUtils.multiply(matrix[M11], matrix[M32])) -
+						FixedPointUtils.multiply(matrix[M10], FixedPointUtils.multiply(matrix[M21], matrix[M32]));
+		result[M01] = FixedPointUtils.multiply(matrix[M31], FixedPointUtils.multiply(matrix[M22], matrix[M03])) -
+						FixedPointUtils.multiply(matrix[M21], FixedPointUtils.multiply(matrix[M32], matrix[M03])) -
+						FixedPointUtils.multiply(matrix[M31], FixedPointUtils.multiply(matrix[M02], matrix[M23])) +
+						FixedPointUtils.multiply(matrix[M01], FixedPointUtils.multiply(matrix[M32], matrix[M23])) +
+						FixedPointUtils.multiply(matrix[M21], FixedPointUtils.multiply(matrix[M02], matrix[M33])) -
+						FixedPointUtils.multiply(matrix[M01], FixedPointUtils.multiply(matrix[M22], matrix[M33]));
+		result[M11] = FixedPointUtils.multiply(matrix[M20], FixedPointUtils.multiply(matrix[M32], matrix[M03])) -
+						FixedPointUtils.multiply(matrix[M30], FixedPointUtils.multiply(matrix[M22], matrix[M03])) +
+						FixedPointUtils.multiply(matrix[M30], FixedPointUtils.multiply(matrix[M02], matrix[M23])) -
+						FixedPointUtils.multiply(matrix[M00], FixedPointUtils.multiply(matrix[M32], matrix[M23])) -
+						FixedPointUtils.multiply(matrix[M20], FixedPointUtils.multiply(matrix[M02], matrix[M33])) +
+						FixedPointUtils.multiply(matrix[M00], FixedPointUtils.multiply(matrix[M22], matrix[M33]));
+		result[M21] = FixedPointUtils.multiply(matrix[M30], FixedPointUtils.multiply(matrix[M21], matrix[M03])) -
+						FixedPointUtils.multiply(matrix[M20], FixedPointUtils.multiply(matrix[M31], matrix[M03])) -
+						FixedPointUtils.multiply(matrix[M30], FixedPointUtils.multiply(matrix[M01], matrix[M23])) +
+						FixedPointUtils.multiply(matrix[M00], FixedPointUtils.multiply(matrix[M31], matrix[M23])) +
+						FixedPointUtils.multiply(matrix[M20], FixedPointUtils.multiply(matrix[M01], matrix[M33])) -
+						FixedPointUtils.multiply(matrix[M00], FixedPointUtils.multiply(matrix[M21], matrix[M33]));
+		result[M31] = FixedPointUtils.multiply(matrix[M20], FixedPointUtils.multiply(matrix[M31], matrix[M02])) -
+						FixedPointUtils.multiply(matrix[M30], FixedPointUtils.multiply(matrix[M21], matrix[M02])) +
+						FixedPointUtils.multiply(matrix[M30], FixedPointUtils.multiply(matrix[M01], matrix[M22])) -
+						FixedPointUtils.multiply(matrix[M00], FixedPointUtils.multiply(matrix[M31], matrix[M22])) -
+						FixedPointUtils.multiply(matrix[M20], FixedPointUtils.multiply(matrix[M01], matrix[M32])) +
+						FixedPointUtils.multiply(matrix[M00], FixedPointUtils.multiply(matrix[M21], matrix[M32]));
+		result[M02] = FixedPointUtils.multiply(matrix[M11], FixedPointUtils.multiply(matrix[M32], matrix[M03])) -
+						FixedPointUtils.multiply(matrix[M31], FixedPointUtils.multiply(matrix[M12], matrix[M03])) +
+						FixedPointUtils.multiply(matrix[M31], FixedPointUtils.multiply(matrix[M02], matrix[M13])) -
+						FixedPointUtils.multiply(matrix[M01], FixedPointUtils.multiply(matrix[M32], matrix[M13])) -
+						FixedPointUtils.multiply(matrix[M11], FixedPointUtils.multiply(matrix[M02], matrix[M33])) +
+						FixedPointUtils.multiply(matrix[M01], FixedPointUtils.multiply(matrix[M12], matrix[M33]));
+		result[M12] = FixedPointUtils.multiply(matrix[M30], FixedPointUtils.multiply(matrix[M12], matrix[M03])) -
+						FixedPointUtils.multiply(matrix[M10], FixedPointUtils.multiply(matrix[M32], matrix[M03])) -
+						FixedPointUtils.multiply(matrix[M30], FixedPointUtils.multiply(matrix[M02], matrix[M13])) +
+						FixedPointUtils.multiply(matrix[M00], FixedPointUtils.multiply(matrix[M32], matrix[M13])) +
+						FixedPointUtils.multiply(matrix[M10], FixedPointUtils.multiply(matrix[M02], matrix[M33])) -
+						FixedPointUtils.multiply(matrix[M00], FixedPointUtils.multiply(matrix[M12], matrix[M33]));
+		result[M22] = FixedPointUtils.multiply(matrix[M10], FixedPointUtils.multiply(matrix[M31], matrix[M03])) -
+						FixedPointUtils.multiply(matrix[M30], FixedPointUtils.multiply(matrix[M11], matrix[M03])) +
+						FixedPointUtils.multiply(matrix[M30], FixedPointUtils.multiply(matrix[M01], matrix[M13])) -
+						FixedPointUtils.multiply(matrix[M00], FixedPointUtils.multiply(matrix[M31], matrix[M13])) -
+						FixedPointUtils.multiply(matrix[M10], FixedPointUtils.multiply(matrix[M01], matrix[M33])) +
+						FixedPointUtils.multiply(matrix[M00], FixedPointUtils.multiply(matrix[M11], matrix[M33]));
+		result[M32] = FixedPointUtils.multiply(matrix[M30], FixedPointUtils.multiply(matrix[M11], matrix[M02])) -
+						FixedPointUtils.multiply(matrix[M10], FixedPointUtils.multiply(matrix[M31], matrix[M02])) -
+						FixedPointUtils.multiply(matrix[M30], FixedPointUtils.multiply(matrix[M01], matrix[M12])) +
+						FixedPointUtils.multiply(matrix[M00], FixedPointUtils.multiply(matrix[M31], matrix[M12])) +
+						FixedPointUtils.multiply(matrix[M10], FixedPointUtils.multiply(matrix[M01], matrix[M32])) -
+						FixedPointUtils.multiply(matrix[M00], FixedPointUtils.multiply(matrix[M11], matrix[M32]));
+		result[M03] = FixedPointUtils.multiply(matrix[M21], FixedPointUtils.multiply(matrix[M12], matrix[M03])) -
+						FixedPointUtils.multiply(matrix[M11], FixedPointUtils.multiply(matrix[M22], matrix[M03])) -
+						FixedPointUtils.multiply(matrix[M21], FixedPointUtils.multiply(matrix[M02], matrix[M13])) +
+						FixedPointUtils.multiply(matrix[M01], FixedPointUtils.multiply(matrix[M22], matrix[M13])) +
+						FixedPointUtils.multiply(matrix[M11], FixedPointUtils.multiply(matrix[M02], matrix[M23])) -
+						FixedPointUtils.multiply(matrix[M01], FixedPointUtils.multiply(matrix[M12], matrix[M23]));
+		result[M13] = FixedPointUtils.multiply(matrix[M10], FixedPointUtils.multiply(matrix[M22], matrix[M03])) -
+						FixedPointUtils.multiply(matrix[M20], FixedPointUtils.multiply(matrix[M12], matrix[M03])) +
+						FixedPointUtils.multiply(matrix[M20], FixedPointUtils.multiply(matrix[M02], matrix[M13])) -
+						FixedPointUtils.multiply(matrix[M00], FixedPointUtils.multiply(matrix[M22], matrix[M13])) -
+						FixedPointUtils.multiply(matrix[M10], FixedPointUtils.multiply(matrix[M02], matrix[M23])) +
+						FixedPointUtils.multiply(matrix[M00], FixedPointUtils.multiply(matrix[M12], matrix[M23]));
+		result[M23] = FixedPointUtils.multiply(matrix[M20], FixedPointUtils.multiply(matrix[M11], matrix[M03])) -
+						FixedPointUtils.multiply(matrix[M10], FixedPointUtils.multiply(matrix[M21], matrix[M03])) -
+						FixedPointUtils.multiply(matrix[M20], FixedPointUtils.multiply(matrix[M01], matrix[M13])) +
+						FixedPointUtils.multiply(matrix[M00], FixedPointUtils.multiply(matrix[M21], matrix[M13])) +
+						FixedPointUtils.multiply(matrix[M10], FixedPointUtils.multiply(matrix[M01], matrix[M23])) -
+						FixedPointUtils.multiply(matrix[M00], FixedPointUtils.multiply(matrix[M11], matrix[M23]));
+		result[M33] = FixedPointUtils.multiply(matrix[M10], FixedPointUtils.multiply(matrix[M21], matrix[M02])) -
+						FixedPointUtils.multiply(matrix[M20], FixedPointUtils.multiply(matrix[M11], matrix[M02])) +
+						FixedPointUtils.multiply(matrix[M20], FixedPointUtils.multiply(matrix[M01], matrix[M12])) -
+						FixedPointUtils.multiply(matrix[M00], FixedPointUtils.multiply(matrix[M21], matrix[M12])) -
+						FixedPointUtils.multiply(matrix[M10], FixedPointUtils.multiply(matrix[M01], matrix[M22])) +
+						FixedPointUtils.multiply(matrix[M00], FixedPointUtils.multiply(matrix[M11], matrix[M22]));
 		divide(result, determinant);
 		return result;
 	}
@@ -341,12 +360,8 @@ public final class MatrixUtils {
 	 * @param target
 	 * @param matrix
 	 */
-	public static int[][] copy(int[][] target, int[][] matrix) {
-		for (int i = 0; i < MATRIX_SIZE; i++) {
-			for (int j = 0; j < MATRIX_SIZE; j++) {
-				target[i][j] = matrix[i][j];
-			}
-		}
+	public static int[] copy(int[] target, int[] matrix) {
+		System.arraycopy(matrix, 0, target, 0, MATRIX_LENGTH);
 		return target;
 	}
 
@@ -357,12 +372,10 @@ public final class MatrixUtils {
 	 * @param matrix2
 	 * @return
 	 */
-	public static boolean equals(int[][] matrix1, int[][] matrix2) {
-		for (int i = 0; i < MATRIX_SIZE; i++) {
-			for (int j = 0; j < MATRIX_SIZE; j++) {
-				if (matrix1[i][j] != matrix2[i][j])
-					return false;
-			}
+	public static boolean equals(int[] matrix1, int[] matrix2) {
+		for (int i = 0; i < MATRIX_LENGTH; i++) {
+			if (matrix1[i] != matrix2[i])
+				return false;
 		}
 		return true;
 	}
@@ -373,12 +386,12 @@ public final class MatrixUtils {
 	 * @param matrix
 	 * @return
 	 */
-	public static String toString(int[][] matrix) {
+	public static String toString(int[] matrix) {
 		String result = "";
 		for (int i = 0; i < MATRIX_SIZE; i++) {
 			result += '|';
 			for (int j = 0; j < MATRIX_SIZE; j++) {
-				result += FixedPointUtils.toDouble(matrix[j][i]) + ",";
+				result += FixedPointUtils.toDouble(matrix[j * MATRIX_SIZE + i]) + ",";
 			}
 			result += "|\n";
 		}
@@ -8,40 +8,56 @@ import com.johnsproject.jgameengine.model.Frustum;
 
 public final class TransformationUtils {
 	
+	/**
+	 * The x and y of screen space vectors are in sub-pixels, so triangles can be drawn with more 
+	 * precision than a pixel. A pixel is 1 << {@value #SUBPIXEL_BIT} sub-pixels wide and high.
+	 */
+	public static final int SUBPIXEL_BIT = 4;
+	public static final int SUBPIXEL_ONE = 1 << SUBPIXEL_BIT;
+	public static final int SUBPIXEL_HALF = SUBPIXEL_ONE >> 1;
+	
 	private TransformationUtils() { }
 
-	public static int[][] orthographicMatrix(int[][] matrix, Frustum frustum) {
+	public static int[] orthographicMatrix(int[] matrix, Frustum frustum) {
 		final int top = frustum.getRenderTargetTop();
 		final int bottom = frustum.getRenderTargetBottom();
 		final int near = frustum.getNear();
 		final int far = frustum.getFar();		
-		final int scaleFactor = FixedPointUtils.multiply(frustum.getFocalLength(), bottom - top + 1);
-		final int[][] projectionMatrix = MatrixUtils.copy(matrix, MatrixUtils.MATRIX_IDENTITY);
-		projectionMatrix[0][0] = scaleFactor >> 5;
-		projectionMatrix[1][1] = -scaleFactor >> 5;
-		projectionMatrix[2][2] = -FixedPointUtils.divide(FP_ONE, far);
-		projectionMatrix[3][2] = -FixedPointUtils.divide(near, far);
-		projectionMatrix[3][3] = FP_ONE;
+		final int scaleFactor = FixedPointUtils.multiply(frustum.getFocalLength(), bottom - top + 1) << SUBPIXEL_BIT;
+		final int[] projectionMatrix = MatrixUtils.copy(matrix, MatrixUtils.MATRIX_IDENTITY);
+		projectionMatrix[M00] = scaleFactor >> 5;
+		projectionMatrix[M11] = -scaleFactor >> 5;
+		projectionMatrix[M22] = -FixedPointUtils.divide(FP_ONE, far);
+		projectionMatrix[M32] = -FixedPointUtils.divide(near, far);
+		projectionMatrix[M33] = FP_ONE;
 		return projectionMatrix;
 	}
 
-	public static int[][] perspectiveMatrix(int[][] matrix, Frustum frustum) {
+	public static int[] perspectiveMatrix(int[] matrix, Frustum frustum) {
 		final int top = frustum.getRenderTargetTop();
 		final int bottom = frustum.getRenderTargetBottom();
 		final int near = frustum.getNear();
 		final int far = frustum.getFar();	
 		final int farNear = far - near;
-		final int scaleFactor = FixedPointUtils.multiply(frustum.getFocalLength(), bottom - top + 1);
-		final int[][] projectionMatrix = MatrixUtils.copy(matrix, MatrixUtils.MATRIX_IDENTITY);
-		projectionMatrix[0][0] = scaleFactor;
-		projectionMatrix[1][1] = -scaleFactor;
-		projectionMatrix[2][2] = -FixedPointUtils.divide(far, farNear);
-		projectionMatrix[3][2] = -FixedPointUtils.divide(FixedPointUtils.multiply(near, far), farNear);
-		projectionMatrix[2][3] = -FP_ONE;
-		projectionMatrix[3][3] = 0;
+		final int scaleFactor = FixedPointUtils.multiply(frustum.getFocalLength(), bottom - top + 1) << SUBPIXEL_BIT;
+		final int[] projectionMatrix = MatrixUtils.copy(matrix, MatrixUtils.MATRIX_IDENTITY);
+		projectionMatrix[M00] = scaleFactor;
+		projectionMatrix[M11] = -scaleFactor;
+		projectionMatrix[M22] = -FixedPointUtils.divide(far, farNear);
+		projectionMatrix[M32] = -FixedPointUtils.divide(FixedPointUtils.multiply(near, far), farNear);
+		projectionMatrix[M23] = -FP_ONE;
+		projectionMatrix[M33] = 0;
 		return projectionMatrix;
 	}
 
+	/**
+	 * Ports the given projected vector to screen space. The x and y of the 
+	 * result are in sub-pixels, see {@link #SUBPIXEL_BIT}.
+	 * 
+	 * @param location
+	 * @param frustum
+	 * @return
+	 */
 	public static int[] screenportVector(int[] location, Frustum frustum) {
 		final int left = frustum.getRenderTargetLeft();
 		final int right = frustum.getRenderTargetRight();
@@ -49,8 +65,8 @@ public final class TransformationUtils {
 		final int bottom = frustum.getRenderTargetBottom();
 		final int halfWidth = left + ((right - left) >> 1);
 		final int halfHeight = top + ((bottom - top) >> 1);
-		location[VECTOR_X] += halfWidth;
-		location[VECTOR_Y] += halfHeight;
+		location[VECTOR_X] += halfWidth << SUBPIXEL_BIT;
+		location[VECTOR_Y] += halfHeight << SUBPIXEL_BIT;
 		return location;
 	}
 	
@@ -167,7 +183,7 @@ public final class TransformationUtils {
 	 * @param z
 	 * @param result
 	 */
-	public static int[][] translationMatrix(int[][] matrix, int[] vector) {
+	public static int[] translationMatrix(int[] matrix, int[] vector) {
 		return translationMatrix(matrix, vector[VECTOR_X], vector[VECTOR_Y], vector[VECTOR_Z]);
 	}
 	
@@ -180,56 +196,56 @@ public final class TransformationUtils {
 	 * @param z
 	 * @param result
 	 */
-	public static int[][] translationMatrix(int[][] matrix, int x, int y , int z) {
+	public static int[] translationMatrix(int[] matrix, int x, int y , int z) {
 		MatrixUtils.copy(matrix, MATRIX_IDENTITY);
-		matrix[3][0] = x;
-		matrix[3][1] = y;
-		matrix[3][2] = z;
+		matrix[M30] = x;
+		matrix[M31] = y;
+		matrix[M32] = z;
 		return matrix;
 	}
 	
-	public static int[][] scaleMatrix(int[][] matrix, int[] vector) {
+	public static int[] scaleMatrix(int[] matrix, int[] vector) {
 		return scaleMatrix(matrix, vector[VECTOR_X], vector[VECTOR_Y], vector[VECTOR_Z]);
 	}
 	
-	public static int[][] scaleMatrix(int[][] matrix, int x, int y, int z) {
+	public static int[] scaleMatrix(int[] matrix, int x, int y, int z) {
 		MatrixUtils.copy(matrix, MATRIX_IDENTITY);
-		matrix[0][0] = x;
-		matrix[1][1] = y;
-		matrix[2][2] = z;
+		matrix[M00] = x;
+		matrix[M11] = y;
+		matrix[M22] = z;
 		return matrix;
 	}
 	
-	public static int[][] xRotationMatrix(int[][] matrix, int angle) {
+	public static int[] xRotationMatrix(int[] matrix, int angle) {
 		MatrixUtils.copy(matrix, MATRIX_IDENTITY);
 		final int cos = FixedPointUtils.cos(angle);
 		final int sin = FixedPointUtils.sin(angle);
-		matrix[1][1] = cos;
-		matrix[1][2] = sin;
-		matrix[2][1] = -sin;
-		matrix[2][2] = cos;
+		matrix[M11] = cos;
+		matrix[M12] = sin;
+		matrix[M21] = -sin;
+		matrix[M22] = cos;
 		return matrix;
 	}
 	
-	public static int[][] yRotationMatrix(int[][] matrix, int angle) {
+	public static int[] yRotationMatrix(int[] matrix, int angle) {
 		MatrixUtils.copy(matrix, MATRIX_IDENTITY);
 		final int cos = FixedPointUtils.cos(angle);
 		final int sin = FixedPointUtils.sin(angle);
-		matrix[0][0] = cos;
-		matrix[0][2] = -sin;
-		matrix[2][0] = sin;
-		matrix[2][2] = cos;
+		matrix[M00] = cos;
+		matrix[M02] = -sin;
+		matrix[M20] = sin;
+		matrix[M22] = cos;
 		return matrix;
 	}
 	
-	public static int[][] zRotationMatrix(int[][] matrix, int angle) {
+	public static int[] zRotationMatrix(int[] matrix, int angle) {
 		MatrixUtils.copy(matrix, MATRIX_IDENTITY);
 		final int cos = FixedPointUtils.cos(angle);
 		final int sin = FixedPointUtils.sin(angle);
-		matrix[0][0] = cos;
-		matrix[0][1] = sin;
-		matrix[1][0] = -sin;
-		matrix[1][1] = cos;
+		matrix[M00] = cos;
+		matrix[M01] = sin;
+		matrix[M10] = -sin;
+		matrix[M11] = cos;
 		return matrix;
 	}
 }
\ No newline at end of file
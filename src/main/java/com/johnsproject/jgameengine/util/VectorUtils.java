@@ -1,6 +1,7 @@
 package com.johnsproject.jgameengine.util;
 
 import static com.johnsproject.jgameengine.util.FixedPointUtils.*;
+import static com.johnsproject.jgameengine.util.MatrixUtils.*;
 
 /**
  * The VectorUtils class contains methods for generating vectors and performing vector 
@@ -210,46 +211,63 @@ public final class VectorUtils {
 
 	/**
 	 * Sets result equals the result of the multiplication of vector and matrix.
+	 * If the last row of the matrix is not the one of an affine matrix, 
+	 * the result is divided by w.
 	 * 
 	 * @param vector
 	 * @param matrix
 	 * @param result
 	 */
-	public static int[] multiply(int[] vector, int[][] matrix) {
+	public static int[] multiplyMatrix(int[] vector, int[] matrix) {
+		final int matrix33 = matrix[M33];
+		if(matrix33 == FP_ONE)
+			return multiplyAffineMatrix(vector, matrix);
 		final int x = vector[VECTOR_X];
 		final int y = vector[VECTOR_Y];
 		final int z = vector[VECTOR_Z];
-		int res = FixedPointUtils.multiply(matrix[0][VECTOR_X], x);
-		res += FixedPointUtils.multiply(matrix[1][VECTOR_X], y);
-		res += FixedPointUtils.multiply(matrix[2][VECTOR_X], z);
-		vector[VECTOR_X] = res + matrix[3][VECTOR_X];
-		
-		res = FixedPointUtils.multiply(matrix[0][VECTOR_Y], x);
-		res += FixedPointUtils.multiply(matrix[1][VECTOR_Y], y);
-		res += FixedPointUtils.multiply(matrix[2][VECTOR_Y], z);
-		vector[VECTOR_Y] = res + matrix[3][VECTOR_Y];
+		multiplyAffineMatrix(vector, matrix);
+		vector[VECTOR_W] = FP_ONE;
+		int res = FixedPointUtils.multiply(matrix[M03], x);
+		res += FixedPointUtils.multiply(matrix[M13], y);
+		res += FixedPointUtils.multiply(matrix[M23], z);
+		int w = res + matrix33;
+		if(w != FP_ONE) {
+			final int precisionBit = FP_BIT >> 1;
+			w = FixedPointUtils.divide(FP_ONE << precisionBit, w == 0 ? 1 : w);
+			vector[VECTOR_X] = FixedPointUtils.multiply(vector[VECTOR_X], w) >> precisionBit;
+			vector[VECTOR_Y] = FixedPointUtils.multiply(vector[VECTOR_Y], w) >> precisionBit;
+			vector[VECTOR_Z] = FixedPointUtils.multiply(vector[VECTOR_Z], w) >> precisionBit;
+		}
+		return vector;
+	}
+	
+	/**
+	 * Sets result equals the result of the multiplication of vector and the affine matrix.
+	 * The last row of the matrix is ignored, so there is no division by w. This is the
+	 * transformation used for model, camera and light space matrices.
+	 * 
+	 * @param vector
+	 * @param matrix
+	 * @param result
+	 */
+	public static int[] multiplyAffineMatrix(int[] vector, int[] matrix) {
+		final int x = vector[VECTOR_X];
+		final int y = vector[VECTOR_Y];
+		final int z = vector[VECTOR_Z];
+		int res = FixedPointUtils.multiply(matrix[M00], x);
+		res += FixedPointUtils.multiply(matrix[M10], y);
+		res += FixedPointUtils.multiply(matrix[M20], z);
+		vector[VECTOR_X] = res + matrix[M30];
 		
-		res = FixedPointUtils.multiply(matrix[0][VECTOR_Z], x);
-		res += FixedPointUtils.multiply(matrix[1][VECTOR_Z], y);
-		res += FixedPointUtils.multiply(matrix[2][VECTOR_Z], z);
-		vector[VECTOR_Z] = res + matrix[3][VECTOR_Z];
+		res = FixedPointUtils.multiply(matrix[M01], x);
+		res += FixedPointUtils.multiply(matrix[M11], y);
+		res += FixedPointUtils.multiply(matrix[M21], z);
+		vector[VECTOR_Y] = res + matrix[M31];
 		
-		final int matrix33 = matrix[3][VECTOR_W];
-		if(matrix33 != FP_ONE) {
-			vector[VECTOR_W] = FP_ONE;
-			res = FixedPointUtils.multiply(matrix[0][VECTOR_W], x);
-			res += FixedPointUtils.multiply(matrix[1][VECTOR_W], y);
-			res += FixedPointUtils.multiply(matrix[2][VECTOR_W], z);
-			int w = res + matrix33;
-			
-			if(w != FP_ONE) {
-				final int precisionBit = FP_BIT >> 1;
-				w = FixedPointUtils.divide(FP_ONE << precisionBit, w == 0 ? 1 : w);
-				vector[VECTOR_X] = FixedPointUtils.multiply(vector[VECTOR_X], w) >> precisionBit;
-				vector[VECTOR_Y] = FixedPointUtils.multiply(vector[VECTOR_Y], w) >> precisionBit;
-				vector[VECTOR_Z] = FixedPointUtils.multiply(vector[VECTOR_Z], w) >> precisionBit;
-			}
-		}
+		res = FixedPointUtils.multiply(matrix[M02], x);
+		res += FixedPointUtils.multiply(matrix[M12], y);
+		res += FixedPointUtils.multiply(matrix[M22], z);
+		vector[VECTOR_Z] = res + matrix[M32];
 		return vector;
 	}
 
@@ -350,6 +368,32 @@ public final class VectorUtils {
 		return vector;
 	}
 	
+	/**
+	 * Sets result equals the normalized vector. 
+	 * <br><br>
+	 * It multiplies the vector with the {@link FixedPointUtils#inverseSqrt(long) reciprocal square root}
+	 * of its squared length, so there is no square root loop and no division. For vectors with a length
+	 * of at least 1 the components of the result differ by less than 0.0001 from the exact ones, while 
+	 * {@link #normalize(int[])} loses precision as the length increases. A vector of length 0 stays 0.
+	 * 
+	 * @param vector
+	 * @param result
+	 */
+	public static int[] fastNormalize(int[] vector) {
+		final long squaredLength = squaredLength(vector);
+		// the reciprocal of a long vector's length would be a small fixed point value without much precision,
+		// so it's calculated for the vector scaled down by 2^shift and the result is scaled down by 2^shift too
+		final int bitLength = 64 - Long.numberOfLeadingZeros(squaredLength);
+		final int shift = Math.max(0, (bitLength - FP_BIT) >> 1);
+		final long magnitude = FixedPointUtils.inverseSqrt(squaredLength >> (shift << 1));
+		final int bit = FP_BIT + shift;
+		final long half = 1L << (bit - 1);
+		vector[VECTOR_X] = (int) ((vector[VECTOR_X] * magnitude + half) >> bit);
+		vector[VECTOR_Y] = (int) ((vector[VECTOR_Y] * magnitude + half) >> bit);
+		vector[VECTOR_Z] = (int) ((vector[VECTOR_Z] * magnitude + half) >> bit);
+		return vector;
+	}
+	
 	/**
 	 * Checks if vector1 is equal to vector2.
 	 * 
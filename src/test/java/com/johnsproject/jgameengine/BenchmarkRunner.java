@@ -0,0 +1,92 @@
+package com.johnsproject.jgameengine;
+
+/**
+ * Runs benchmarks that do the same work in different ways and prints the time each of them takes per unit
+ * of work, and how much faster it is than the first one. The benchmarks are warmed up together before they
+ * are timed one after the other. Each run returns a checksum of its results, so the runner can tell
+ * if all benchmarks computed the same.
+ */
+public class BenchmarkRunner {
+
+	private static final int NAME_WIDTH = 30;
+
+	private final String unit;
+	private final long unitsPerRun;
+	private final int warmupRuns;
+	private final int runs;
+
+	/**
+	 * Creates a BenchmarkRunner.
+	 * 
+	 * @param unit name of the unit of work, like vertex or texel.
+	 * @param unitsPerRun how many units of work one run of a benchmark does.
+	 * @param warmupRuns
+	 * @param runs
+	 */
+	public BenchmarkRunner(String unit, long unitsPerRun, int warmupRuns, int runs) {
+		this.unit = unit;
+		this.unitsPerRun = unitsPerRun;
+		this.warmupRuns = warmupRuns;
+		this.runs = runs;
+	}
+
+	/**
+	 * Warms up and times the given benchmarks and prints their times.
+	 * 
+	 * @param benchmarks
+	 * @return If all benchmarks returned the same checksum.
+	 */
+	public boolean run(Benchmark[] benchmarks) {
+		for (int i = 0; i < warmupRuns; i++) {
+			for (int j = 0; j < benchmarks.length; j++)
+				benchmarks[j].run();
+		}
+		long referenceTime = 0;
+		long referenceChecksum = 0;
+		boolean sameResults = true;
+		for (int i = 0; i < benchmarks.length; i++) {
+			long checksum = 0;
+			final long start = System.nanoTime();
+			for (int j = 0; j < runs; j++)
+				checksum += benchmarks[i].run();
+			final long time = System.nanoTime() - start;
+			if(i == 0) {
+				referenceTime = time;
+				referenceChecksum = checksum;
+			}
+			sameResults &= checksum == referenceChecksum;
+			print(benchmarks[i].getName(), time, referenceTime);
+		}
+		return sameResults;
+	}
+
+	private void print(String name, long time, long referenceTime) {
+		final double nanosecondsPerUnit = (double) time / (runs * unitsPerRun);
+		final double speedup = (double) referenceTime / time;
+		System.out.println(String.format("%-" + NAME_WIDTH + "s %6.2f ns/%s  %5.2fx", name, nanosecondsPerUnit, unit, speedup));
+	}
+
+	public static void printSameResults(boolean sameResults) {
+		System.out.println("Same results: " + sameResults);
+	}
+
+	public abstract static class Benchmark {
+
+		private final String name;
+
+		public Benchmark(String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Does the measured work once.
+		 * 
+		 * @return A checksum of the results.
+		 */
+		public abstract long run();
+	}
+}
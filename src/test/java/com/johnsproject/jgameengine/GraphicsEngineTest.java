@@ -0,0 +1,261 @@
+package com.johnsproject.jgameengine;
+
+import static com.johnsproject.jgameengine.util.FixedPointUtils.FP_ONE;
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_SIZE;
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_X;
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_Y;
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_Z;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.johnsproject.jgameengine.event.EngineEvent;
+import com.johnsproject.jgameengine.io.OBJImporter;
+import com.johnsproject.jgameengine.model.Camera;
+import com.johnsproject.jgameengine.model.DepthPyramid;
+import com.johnsproject.jgameengine.model.FrameBuffer;
+import com.johnsproject.jgameengine.model.Frustum;
+import com.johnsproject.jgameengine.model.Light;
+import com.johnsproject.jgameengine.model.Material;
+import com.johnsproject.jgameengine.model.Mesh;
+import com.johnsproject.jgameengine.model.Model;
+import com.johnsproject.jgameengine.model.Scene;
+import com.johnsproject.jgameengine.model.Transform;
+import com.johnsproject.jgameengine.shading.BasicThreadedShader;
+import com.johnsproject.jgameengine.shading.GouraudShader;
+import com.johnsproject.jgameengine.shading.PhongShader;
+import com.johnsproject.jgameengine.shading.Shader;
+import com.johnsproject.jgameengine.shading.ShaderBuffer;
+import com.johnsproject.jgameengine.util.VectorUtils;
+
+public class GraphicsEngineTest {
+
+	private static final int WIDTH = 320;
+	private static final int HEIGHT = 180;
+
+	@Test
+	public void rotatedChildOfScaledParentCullingTest() throws Exception {
+		final GraphicsEngine engine = new GraphicsEngine(new FrameBuffer(320, 240));
+		final Frustum frustum = new Frustum(0, FP_ONE, 0, FP_ONE, FP_ONE, FP_ONE * 1000);
+		frustum.setRenderTargetSize(320, 240);
+		frustum.recalculateWorldPlanes(new Transform());
+		// a stick along one of the diagonals of the xy plane, its bounding sphere just contains it
+		final int half = FP_ONE * 5;
+		final int[] locations = new int[] {
+				half, -half, 0, FP_ONE,
+				-half, half, 0, FP_ONE,
+				0, 0, 0, FP_ONE
+		};
+		final Mesh mesh = new Mesh(locations, new int[] {0, 1, 2}, new Material[0]);
+		final Transform parent = new Transform();
+		parent.setScale(FP_ONE * 2, FP_ONE, FP_ONE);
+		final Transform transform = new Transform();
+		transform.setParent(parent);
+		final Model model = new Model("Stick", transform, mesh);
+		final int[] vertex = VectorUtils.emptyVector();
+		// rotated by 45 degrees one of the diagonals is stretched by the scale of the parent as a whole
+		for (int angle = -45; angle <= 45; angle += 90) {
+			transform.setRotation(0, 0, angle * FP_ONE);
+			// move the stick out of the right side of the frustum, it may only be culled once both ends are outside
+			for (int x = 0; x < FP_ONE * 100; x += FP_ONE / 4) {
+				parent.setLocation(x, 0, -FP_ONE * 20);
+				boolean isVisible = false;
+				for (int i = 0; i < 2; i++) {
+					System.arraycopy(locations, i * VECTOR_SIZE, vertex, 0, VECTOR_SIZE);
+					VectorUtils.multiplyAffineMatrix(vertex, transform.getSpaceExitMatrix());
+					isVisible |= frustum.isSphereInside(vertex, 0);
+				}
+				if(isVisible)
+					assertTrue("culled at angle " + angle + ", x " + x, engine.isInView(model, frustum));
+			}
+		}
+	}
+
+	@Test
+	public void worldSpaceUpdateTest() throws Exception {
+		final GraphicsEngine engine = new GraphicsEngine(new FrameBuffer(64, 48));
+		final int[] locations = new int[] {
+				0, 0, 0, FP_ONE,
+				FP_ONE, 0, 0, FP_ONE,
+				0, FP_ONE, 0, FP_ONE
+		};
+		final Mesh mesh = new Mesh(locations, new int[] {0, 1, 2}, new Material[0]);
+		final Transform parent = new Transform();
+		final Transform transform = new Transform();
+		transform.setParent(parent);
+		transform.setLocation(FP_ONE * 2, 0, 0);
+		final Model model = new Model("Triangle", transform, mesh);
+		final Scene scene = new Scene();
+		scene.addModel(model);
+		final EngineEvent event = new EngineEvent(scene, 0, 0, 0);
+		final int[] location = VectorUtils.emptyVector();
+		engine.dynamicUpdate(event);
+		assertVector(FP_ONE * 3, 0, 0, mesh.getVertex(1).getWorldLocation(location));
+		// the transform of the model itself doesn't change, but its world space does
+		parent.setLocation(0, FP_ONE * 5, FP_ONE * -4);
+		engine.dynamicUpdate(event);
+		assertVector(FP_ONE * 3, FP_ONE * 5, FP_ONE * -4, mesh.getVertex(1).getWorldLocation(location));
+		mesh.getVertex(1).setLocalLocation(VectorUtils.toVector(FP_ONE * -1, FP_ONE * 2, 0));
+		engine.dynamicUpdate(event);
+		assertVector(FP_ONE, FP_ONE * 7, FP_ONE * -4, mesh.getVertex(1).getWorldLocation(location));
+	}
+	
+	private static void assertVector(int x, int y, int z, int[] vector) {
+		// the matrices of the transforms are rounded
+		final int error = FP_ONE / 256;
+		assertEquals(x, vector[VECTOR_X], error);
+		assertEquals(y, vector[VECTOR_Y], error);
+		assertEquals(z, vector[VECTOR_Z], error);
+	}
+
+	@Test
+	public void parallelWorldSpaceTest() throws Exception {
+		final RenderPool renderPool = RenderPool.getInstance();
+		final int parallelism = renderPool.getParallelism();
+		final Model model = OBJImporter.parseResource(GraphicsEngineTest.class.getClassLoader(), "DefaultTest.obj");
+		final Transform parent = new Transform();
+		parent.setRotation(FP_ONE * 20, FP_ONE * -45, 0);
+		parent.setScale(FP_ONE, FP_ONE * 2, FP_ONE);
+		model.getTransform().setParent(parent);
+		model.getTransform().setLocation(FP_ONE * 3, 0, FP_ONE * -7);
+		model.getTransform().setRotation(0, FP_ONE * 30, FP_ONE * 70);
+		model.getTransform().setScale(FP_ONE / 2, FP_ONE, FP_ONE * 3);
+		final Mesh mesh = model.getMesh();
+		final Scene scene = new Scene();
+		scene.addModel(model);
+		final EngineEvent event = new EngineEvent(scene, 0, 0, 0);
+		final GraphicsEngine engine = new GraphicsEngine(new FrameBuffer(64, 48));
+		try {
+			// the mesh is split into several ranges, that are transformed by one task or shared by several
+			renderPool.setParallelism(1);
+			engine.dynamicUpdate(event);
+			final int[] worldLocations = mesh.getVertexWorldLocations().clone();
+			final int[] vertexWorldNormals = mesh.getVertexWorldNormals().clone();
+			final int[] faceWorldNormals = mesh.getFaceWorldNormals().clone();
+			// the world space has to be calculated again as a whole
+			Arrays.fill(mesh.getVertexWorldLocations(), 0);
+			Arrays.fill(mesh.getVertexWorldNormals(), 0);
+			Arrays.fill(mesh.getFaceWorldNormals(), 0);
+			renderPool.setParallelism(4);
+			mesh.invalidateWorldSpace();
+			engine.dynamicUpdate(event);
+			assertArrayEquals(worldLocations, mesh.getVertexWorldLocations());
+			assertArrayEquals(vertexWorldNormals, mesh.getVertexWorldNormals());
+			assertArrayEquals(faceWorldNormals, mesh.getFaceWorldNormals());
+		} finally {
+			renderPool.setParallelism(parallelism);
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void failedFrameReleasesFrameBufferTest() throws Exception {
+		final GraphicsEngine engine = new GraphicsEngine(new FrameBuffer(64, 48));
+		final SwapChain swapChain = new SwapChain(64, 48, 2);
+		engine.setSwapChain(swapChain);
+		engine.addShader(new GouraudShader() {
+			@Override
+			public void initialize(ShaderBuffer shaderBuffer) {
+				throw new IllegalStateException("Shader failed");
+			}
+		});
+		final Scene scene = new Scene();
+		scene.addCamera(new Camera("Camera", new Transform()));
+		final EngineEvent event = new EngineEvent(scene, 0, 0, 0);
+		// more failed frames than frame buffers, the frame buffers must not be lost
+		for (int i = 0; i < swapChain.getBufferCount() * 2; i++) {
+			try {
+				engine.dynamicUpdate(event);
+				fail("the frame has been rendered");
+			} catch (IllegalStateException e) {
+				assertEquals("Shader failed", e.getMessage());
+			}
+		}
+		for (int i = 0; i < swapChain.getBufferCount(); i++)
+			swapChain.acquire();
+	}
+
+	@Test
+	public void depthPrePassTest() throws Exception {
+		assertSameFrameWithDepthPrePass(new BasicThreadedShader());
+		assertSameFrameWithDepthPrePass(new PhongShader());
+	}
+	
+	private static void assertSameFrameWithDepthPrePass(Shader shader) throws Exception {
+		final FrameBuffer frame = render(shader, false);
+		final FrameBuffer prePassFrame = render(shader, true);
+		final int[] depths = frame.getDepthBuffer().getPixels();
+		int coveredPixels = 0;
+		for (int i = 0; i < depths.length; i++) {
+			if(depths[i] != Integer.MAX_VALUE)
+				coveredPixels++;
+		}
+		assertTrue(coveredPixels > depths.length / 4);
+		assertArrayEquals(frame.getColorBuffer().getPixels(), prePassFrame.getColorBuffer().getPixels());
+		assertArrayEquals(depths, prePassFrame.getDepthBuffer().getPixels());
+		// the faces of the scene overlap, so without the depth pre-pass some pixels are shaded more than once
+		assertTrue(frame.getDepthPyramid().getShadedFragments() > coveredPixels);
+		final DepthPyramid depthPyramid = prePassFrame.getDepthPyramid();
+		assertTrue(depthPyramid.getDepthFragments() > coveredPixels);
+		assertEquals(coveredPixels, depthPyramid.getShadedFragments());
+	}
+
+	@Test
+	public void clearTest() throws Exception {
+		assertClearedAfterShrinking(false);
+		assertClearedAfterShrinking(true);
+	}
+	
+	private static void assertClearedAfterShrinking(boolean writtenAreaClear) throws Exception {
+		final FrameBuffer frameBuffer = new FrameBuffer(WIDTH, HEIGHT);
+		final GraphicsEngine graphicsEngine = new GraphicsEngine(frameBuffer);
+		graphicsEngine.setWrittenAreaClear(writtenAreaClear);
+		final Scene scene = createScene(false);
+		final EngineEvent event = new EngineEvent(scene, 0, 0, 0);
+		graphicsEngine.dynamicUpdate(event);
+		final int[] depths = frameBuffer.getDepthBuffer().getPixels();
+		int coveredPixels = 0;
+		for (int i = 0; i < depths.length; i++) {
+			if(depths[i] != Integer.MAX_VALUE)
+				coveredPixels++;
+		}
+		assertTrue(coveredPixels > depths.length / 4);
+		// the pixels drawn outside of the smaller viewport have to be cleared too
+		graphicsEngine.setRenderScale(FP_ONE / 2);
+		scene.getModels().get(0).setActive(false);
+		graphicsEngine.dynamicUpdate(event);
+		final int[] colors = frameBuffer.getColorBuffer().getPixels();
+		for (int i = 0; i < depths.length; i++) {
+			assertEquals("depth " + i, Integer.MAX_VALUE, depths[i]);
+			assertEquals("color " + i, 0, colors[i]);
+		}
+	}
+
+	private static FrameBuffer render(Shader shader, boolean depthPrePass) throws Exception {
+		final FrameBuffer frameBuffer = new FrameBuffer(WIDTH, HEIGHT);
+		final GraphicsEngine graphicsEngine = new GraphicsEngine(frameBuffer);
+		graphicsEngine.addShader(shader);
+		graphicsEngine.setDefaultShader(shader);
+		graphicsEngine.dynamicUpdate(new EngineEvent(createScene(depthPrePass), 0, 0, 0));
+		return frameBuffer;
+	}
+	
+	private static Scene createScene(boolean depthPrePass) throws Exception {
+		final Scene scene = new Scene();
+		scene.addModel(OBJImporter.parseResource(GraphicsEngineTest.class.getClassLoader(), "DefaultTest.obj"));
+		final Camera camera = new Camera("Camera", new Transform());
+		camera.getTransform().worldTranslate(0, FP_ONE * 10, FP_ONE * 15);
+		camera.getTransform().worldRotate(FP_ONE * -35, 0, 0);
+		camera.setDepthPrePass(depthPrePass);
+		scene.addCamera(camera);
+		final Light light = new Light("DirectionalLight", new Transform());
+		light.getTransform().worldRotate(FP_ONE * -90, 0, 0);
+		scene.addLight(light);
+		scene.setMainDirectionalLight(light);
+		return scene;
+	}
+}
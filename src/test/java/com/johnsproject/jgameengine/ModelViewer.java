@@ -77,6 +77,7 @@ public class ModelViewer implements EngineListener, EngineKeyListener {
 	private final FlatShader flatShader = new FlatShader();
 	private final GouraudShader gouraudShader = new GouraudShader();
 	private final PhongShader phongShader = new PhongShader();
+	private final PhongShader halfSpacePhongShader = new PhongShader(true);
 	
 	private final Scene scene;
 	private Camera camera;
@@ -144,6 +145,7 @@ public class ModelViewer implements EngineListener, EngineKeyListener {
 		graphicsEngine.addShader(flatShader);
 		graphicsEngine.addShader(gouraudShader);
 		graphicsEngine.addShader(phongShader);
+		graphicsEngine.addShader(halfSpacePhongShader);
 		graphicsEngine.setDefaultShader(gouraudShader);
 	}
 	
@@ -168,6 +170,7 @@ public class ModelViewer implements EngineListener, EngineKeyListener {
 		y = createCheckbox("flat shader", false, y, panel, checkboxGroup, handleShaderChange(flatShader));
 		y = createCheckbox("gouraud shader", true, y, panel, checkboxGroup, handleShaderChange(gouraudShader));
 		y = createCheckbox("phong shader", false, y, panel, checkboxGroup, handleShaderChange(phongShader));
+		y = createCheckbox("phong shader (half-space)", false, y, panel, checkboxGroup, handleShaderChange(halfSpacePhongShader));
 		y = createCheckbox("shadows", true, y, panel, null, handleShadowChange());
 		return y;
 	}
@@ -0,0 +1,65 @@
+package com.johnsproject.jgameengine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class RenderPoolTest {
+
+	@Test(timeout = 10000)
+	public void failingTaskTest() throws Exception {
+		final RenderPool pool = RenderPool.getInstance();
+		final AtomicInteger runTasks = new AtomicInteger();
+		final IllegalStateException exception = new IllegalStateException("Task failed");
+		final Runnable[] tasks = new Runnable[8];
+		for (int i = 0; i < tasks.length; i++) {
+			final boolean fails = i == 5;
+			tasks[i] = new Runnable() {
+				public void run() {
+					runTasks.incrementAndGet();
+					if(fails)
+						throw exception;
+				}
+			};
+		}
+		try {
+			pool.invoke(tasks, tasks.length);
+			fail("the exception of the task has been swallowed");
+		} catch (IllegalStateException e) {
+			assertSame(exception, e);
+		}
+		// the other tasks still run, and the next batch doesn't see the old exception
+		assertEquals(tasks.length, runTasks.get());
+		pool.invoke(tasks, 5);
+		assertEquals(tasks.length + 5, runTasks.get());
+	}
+
+	@Test(timeout = 10000)
+	public void interruptedInvokeTest() throws Exception {
+		final RenderPool pool = RenderPool.getInstance();
+		final AtomicInteger doneTasks = new AtomicInteger();
+		final Runnable[] tasks = new Runnable[pool.getParallelism() * 2];
+		for (int i = 0; i < tasks.length; i++) {
+			tasks[i] = new Runnable() {
+				public void run() {
+					try {
+						Thread.sleep(20);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					doneTasks.incrementAndGet();
+				}
+			};
+		}
+		Thread.currentThread().interrupt();
+		pool.invoke(tasks, tasks.length);
+		// the batch is done before invoke returns, and the interrupt isn't lost
+		assertEquals(tasks.length, doneTasks.get());
+		assertTrue(Thread.interrupted());
+	}
+}
@@ -0,0 +1,81 @@
+package com.johnsproject.jgameengine;
+
+import static com.johnsproject.jgameengine.util.FixedPointUtils.FP_BIT;
+import static com.johnsproject.jgameengine.util.FixedPointUtils.FP_ONE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.johnsproject.jgameengine.model.FrameBuffer;
+
+public class ResolutionControllerTest {
+
+	private static final long MILLISECOND = 1000000;
+
+	private long time = 1;
+
+	@Test
+	public void scaleDownAndUpTest() throws Exception {
+		final ResolutionController controller = new ResolutionController(new GraphicsEngine(new FrameBuffer(320, 240)));
+		// slow frames decrease the scale step by step down to the min scale
+		int previousScale = controller.getScale();
+		for (int i = 0; i < 100; i++) {
+			update(controller, 50 * MILLISECOND);
+			assertTrue(controller.getScale() <= previousScale);
+			assertTrue(controller.getScale() >= controller.getMinScale());
+			previousScale = controller.getScale();
+		}
+		assertEquals(controller.getMinScale(), controller.getScale());
+		// fast frames increase it back up to the max scale
+		for (int i = 0; i < 100; i++) {
+			update(controller, 10 * MILLISECOND);
+			assertTrue(controller.getScale() >= previousScale);
+			assertTrue(controller.getScale() <= controller.getMaxScale());
+			previousScale = controller.getScale();
+		}
+		assertEquals(controller.getMaxScale(), controller.getScale());
+	}
+
+	@Test
+	public void scaleLimitsTest() throws Exception {
+		final ResolutionController controller = new ResolutionController(new GraphicsEngine(new FrameBuffer(320, 240)));
+		controller.setMinScale(FP_ONE / 4);
+		controller.setMaxScale(FP_ONE * 3 / 4);
+		controller.setAdjustDelay(1);
+		for (int i = 0; i < 100; i++)
+			update(controller, 100 * MILLISECOND);
+		assertEquals(FP_ONE / 4, controller.getScale());
+		for (int i = 0; i < 100; i++)
+			update(controller, MILLISECOND);
+		assertEquals(FP_ONE * 3 / 4, controller.getScale());
+	}
+
+	@Test
+	public void hysteresisTest() throws Exception {
+		final ResolutionController controller = new ResolutionController(new GraphicsEngine(new FrameBuffer(320, 240)));
+		// frame times between the target frame time and the target frame time minus the hysteresis keep the scale
+		for (int i = 0; i < 500; i++)
+			update(controller, (i % 2 == 0 ? 28 : 32) * MILLISECOND);
+		assertEquals(FP_ONE, controller.getScale());
+		// the frame time grows with the scale, the scale goes down until the frame time is below the
+		// target frame time, and isn't increased again as the frame time would be above it then
+		int previousScale = controller.getScale();
+		int changes = 0;
+		for (int i = 0; i < 1000; i++) {
+			update(controller, (40 * MILLISECOND * controller.getScale()) >> FP_BIT);
+			assertTrue(controller.getScale() <= previousScale);
+			if(controller.getScale() != previousScale)
+				changes++;
+			previousScale = controller.getScale();
+		}
+		assertTrue(changes > 0);
+		assertTrue(changes <= 3);
+		assertTrue(controller.getScale() > controller.getMinScale());
+	}
+
+	private void update(ResolutionController controller, long frameTime) {
+		controller.update(time);
+		time += frameTime;
+	}
+}
@@ -201,7 +201,7 @@ public class SpaceshipGame implements EngineListener {
 	
 	private void moveFireToSpaceship() {		
 		spaceshipFireTransform.setLocation(0, 0, 4 << FP_BIT);
-		VectorUtils.multiply(spaceshipFireTransform.getLocation(), spaceshipTransform.getSpaceExitMatrix());
+		VectorUtils.multiplyAffineMatrix(spaceshipFireTransform.getLocation(), spaceshipTransform.getSpaceExitMatrix());
 		
 		final int[] spaceshipRotation = spaceshipTransform.getRotation();
 		spaceshipFireTransform.setRotation(spaceshipRotation[VECTOR_X], spaceshipRotation[VECTOR_Y], spaceshipRotation[VECTOR_Z]);
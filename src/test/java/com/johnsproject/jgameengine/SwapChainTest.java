@@ -0,0 +1,87 @@
+package com.johnsproject.jgameengine;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import com.johnsproject.jgameengine.model.FrameBuffer;
+
+public class SwapChainTest {
+
+	@Test(timeout = 5000)
+	public void presentCycleTest() throws Exception {
+		final SwapChain swapChain = new SwapChain(16, 8, 3);
+		// go around the chain a few times, the buffers have to be presented in the order they are rendered
+		for (int i = 0; i < 10; i++) {
+			final FrameBuffer first = swapChain.acquire();
+			final FrameBuffer second = swapChain.acquire();
+			swapChain.present(first);
+			swapChain.present(second);
+			assertSame(first, swapChain.acquirePresented());
+			swapChain.release(first);
+			assertSame(second, swapChain.acquirePresented());
+			swapChain.release(second);
+		}
+		// all buffers are free again
+		for (int i = 0; i < swapChain.getBufferCount(); i++)
+			swapChain.acquire();
+	}
+
+	@Test(timeout = 5000)
+	public void discardTest() throws Exception {
+		final SwapChain swapChain = new SwapChain(16, 8, 2);
+		for (int i = 0; i < 10; i++)
+			swapChain.discard(swapChain.acquire());
+		swapChain.acquire();
+		swapChain.acquire();
+	}
+
+	@Test(timeout = 5000)
+	public void foreignFrameBufferTest() throws Exception {
+		final SwapChain swapChain = new SwapChain(16, 8, 2);
+		final FrameBuffer foreign = new FrameBuffer(16, 8);
+		assertFails(swapChain, foreign, false);
+		assertFails(swapChain, foreign, true);
+		// the chain still works
+		final FrameBuffer frameBuffer = swapChain.acquire();
+		swapChain.present(frameBuffer);
+		assertSame(frameBuffer, swapChain.acquirePresented());
+	}
+
+	@Test(timeout = 5000)
+	public void duplicateFrameBufferTest() throws Exception {
+		final SwapChain swapChain = new SwapChain(16, 8, 2);
+		final FrameBuffer frameBuffer = swapChain.acquire();
+		swapChain.present(frameBuffer);
+		// presented twice, or given back while the presenter owns it
+		assertFails(swapChain, frameBuffer, false);
+		assertFails(swapChain, frameBuffer, true);
+		// released before it has been taken by the presenter
+		try {
+			swapChain.release(frameBuffer);
+			fail("release of a presented frame buffer");
+		} catch (IllegalArgumentException e) {}
+		assertSame(frameBuffer, swapChain.acquirePresented());
+		swapChain.release(frameBuffer);
+		try {
+			swapChain.release(frameBuffer);
+			fail("double release");
+		} catch (IllegalArgumentException e) {}
+		// only the two frame buffers of the chain are free
+		final FrameBuffer first = swapChain.acquire();
+		final FrameBuffer second = swapChain.acquire();
+		assertTrue(first != second);
+	}
+
+	private static void assertFails(SwapChain swapChain, FrameBuffer frameBuffer, boolean discard) {
+		try {
+			if(discard)
+				swapChain.discard(frameBuffer);
+			else
+				swapChain.present(frameBuffer);
+			fail("frame buffer has been accepted");
+		} catch (IllegalArgumentException e) {}
+	}
+}
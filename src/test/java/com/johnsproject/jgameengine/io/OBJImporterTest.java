@@ -199,14 +199,15 @@ public class OBJImporterTest {
 		assertNotNull(mesh.getMaterial("Material"));
 		assertNotNull(mesh.getMaterial("Material.001"));
 		
+		final int[] vector = VectorUtils.emptyVector();
 		Vertex vertex = mesh.getVertex(0);
 		assert(vertex.getIndex() == 0);
 		int x = FixedPointUtils.toFixedPoint(-4.198291);
 		int y = FixedPointUtils.toFixedPoint(2.563459);
 		int z = FixedPointUtils.toFixedPoint(-1.020053);
-		assert(vertex.getLocalLocation()[VectorUtils.VECTOR_X] == x);
-		assert(vertex.getLocalLocation()[VectorUtils.VECTOR_Y] == y);
-		assert(vertex.getLocalLocation()[VectorUtils.VECTOR_Z] == z);
+		assert(vertex.getLocalLocation(vector)[VectorUtils.VECTOR_X] == x);
+		assert(vertex.getLocalLocation(vector)[VectorUtils.VECTOR_Y] == y);
+		assert(vertex.getLocalLocation(vector)[VectorUtils.VECTOR_Z] == z);
 		assert(vertex.getMaterial() == mesh.getMaterial("Material.001"));
 		
 		vertex = mesh.getVertex(15);
@@ -214,9 +215,9 @@ public class OBJImporterTest {
 		x = FixedPointUtils.toFixedPoint(-1);
 		y = FixedPointUtils.toFixedPoint(1);
 		z = FixedPointUtils.toFixedPoint(-1);
-		assert(vertex.getLocalLocation()[VectorUtils.VECTOR_X] == x);
-		assert(vertex.getLocalLocation()[VectorUtils.VECTOR_Y] == y);
-		assert(vertex.getLocalLocation()[VectorUtils.VECTOR_Z] == z);
+		assert(vertex.getLocalLocation(vector)[VectorUtils.VECTOR_X] == x);
+		assert(vertex.getLocalLocation(vector)[VectorUtils.VECTOR_Y] == y);
+		assert(vertex.getLocalLocation(vector)[VectorUtils.VECTOR_Z] == z);
 		assert(vertex.getMaterial() == mesh.getMaterial("Material"));
 		
 		Face face = mesh.getFace(0);
@@ -228,24 +229,24 @@ public class OBJImporterTest {
 		x = FixedPointUtils.toFixedPoint(0);
 		y = FixedPointUtils.toFixedPoint(-1);
 		z = FixedPointUtils.toFixedPoint(0);
-		assert(face.getLocalNormal()[VectorUtils.VECTOR_X] == x);
-		assert(face.getLocalNormal()[VectorUtils.VECTOR_Y] == y);
-		assert(face.getLocalNormal()[VectorUtils.VECTOR_Z] == z);
+		assert(face.getLocalNormal(vector)[VectorUtils.VECTOR_X] == x);
+		assert(face.getLocalNormal(vector)[VectorUtils.VECTOR_Y] == y);
+		assert(face.getLocalNormal(vector)[VectorUtils.VECTOR_Z] == z);
 		
 		x = FixedPointUtils.toFixedPoint(1);
 		y = FixedPointUtils.toFixedPoint(0);
-		assert(face.getUV(0)[VectorUtils.VECTOR_X] == x);
-		assert(face.getUV(0)[VectorUtils.VECTOR_Y] == y);
+		assert(face.getUV(0, vector)[VectorUtils.VECTOR_X] == x);
+		assert(face.getUV(0, vector)[VectorUtils.VECTOR_Y] == y);
 		
 		x = FixedPointUtils.toFixedPoint(0);
 		y = FixedPointUtils.toFixedPoint(1);
-		assert(face.getUV(1)[VectorUtils.VECTOR_X] == x);
-		assert(face.getUV(1)[VectorUtils.VECTOR_Y] == y);
+		assert(face.getUV(1, vector)[VectorUtils.VECTOR_X] == x);
+		assert(face.getUV(1, vector)[VectorUtils.VECTOR_Y] == y);
 		
 		x = FixedPointUtils.toFixedPoint(0);
 		y = FixedPointUtils.toFixedPoint(0);
-		assert(face.getUV(2)[VectorUtils.VECTOR_X] == x);
-		assert(face.getUV(2)[VectorUtils.VECTOR_Y] == y);
+		assert(face.getUV(2, vector)[VectorUtils.VECTOR_X] == x);
+		assert(face.getUV(2, vector)[VectorUtils.VECTOR_Y] == y);
 		
 		assert(face.getMaterial() == mesh.getMaterial("Material.001"));
 	}
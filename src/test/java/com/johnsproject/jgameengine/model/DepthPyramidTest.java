@@ -0,0 +1,136 @@
+package com.johnsproject.jgameengine.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class DepthPyramidTest {
+
+	// not a multiple of the block size, so the blocks at the borders are partial
+	private static final int WIDTH = 100;
+	private static final int HEIGHT = 70;
+	private static final int MAX_DEPTH = 1000;
+
+	@Test
+	public void isHiddenIsConservativeTest() throws Exception {
+		for (int seed = 0; seed < 20; seed++) {
+			final Random random = new Random(seed);
+			final Texture depthBuffer = new Texture(WIDTH, HEIGHT);
+			final DepthPyramid depthPyramid = new DepthPyramid(depthBuffer);
+			// areas of similar depths, so that some queries are hidden
+			for (int y = 0; y < HEIGHT; y++) {
+				for (int x = 0; x < WIDTH; x++)
+					depthBuffer.setPixel(x, y, ((x / 13 + y / 11) % 5) * 200 + random.nextInt(100));
+				depthPyramid.markDirty(0, WIDTH - 1, y);
+			}
+			depthPyramid.update();
+			assertQueriesConservative(random, depthBuffer, depthPyramid);
+		}
+	}
+
+	@Test
+	public void partialWritesTest() throws Exception {
+		for (int seed = 0; seed < 20; seed++) {
+			final Random random = new Random(seed);
+			final Texture depthBuffer = new Texture(WIDTH, HEIGHT);
+			depthBuffer.fill(Integer.MAX_VALUE);
+			final DepthPyramid depthPyramid = new DepthPyramid(depthBuffer);
+			for (int i = 0; i < 60; i++) {
+				// draw a rectangle with a depth test and mark the rows it's drawn to, like the rasterizers do
+				final int left = random.nextInt(WIDTH);
+				final int top = random.nextInt(HEIGHT);
+				final int right = Math.min(left + random.nextInt(40), WIDTH - 1);
+				final int bottom = Math.min(top + random.nextInt(30), HEIGHT - 1);
+				final int depth = random.nextInt(MAX_DEPTH);
+				for (int y = top; y <= bottom; y++) {
+					for (int x = left; x <= right; x++) {
+						if(depthBuffer.getPixel(x, y) > depth)
+							depthBuffer.setPixel(x, y, depth);
+					}
+					depthPyramid.markDirty(left, right, y);
+				}
+				// a pyramid that hasn't been updated since is less accurate, but still conservative
+				assertQueriesConservative(random, depthBuffer, depthPyramid);
+				if(i % 4 == 3) {
+					depthPyramid.update();
+					assertBlocksExact(depthBuffer, depthPyramid);
+					assertQueriesConservative(random, depthBuffer, depthPyramid);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void writtenAreaTest() throws Exception {
+		final Texture depthBuffer = new Texture(WIDTH, HEIGHT);
+		final DepthPyramid depthPyramid = new DepthPyramid(depthBuffer);
+		final int[] writtenArea = new int[4];
+		depthPyramid.getWrittenArea(writtenArea);
+		assertTrue((writtenArea[0] >= writtenArea[2]) || (writtenArea[1] >= writtenArea[3]));
+		depthPyramid.markDirty(20, 30, 10);
+		depthPyramid.markDirty(95, 120, 66);
+		depthPyramid.getWrittenArea(writtenArea);
+		assertEquals(16, writtenArea[0]);
+		assertEquals(8, writtenArea[1]);
+		assertEquals(WIDTH, writtenArea[2]);
+		assertEquals(HEIGHT, writtenArea[3]);
+		depthPyramid.reset();
+		depthPyramid.getWrittenArea(writtenArea);
+		assertTrue((writtenArea[0] >= writtenArea[2]) || (writtenArea[1] >= writtenArea[3]));
+	}
+
+	/**
+	 * A query may only be hidden if nothing in its area is behind the given depth.
+	 */
+	private static void assertQueriesConservative(Random random, Texture depthBuffer, DepthPyramid depthPyramid) {
+		for (int i = 0; i < 200; i++) {
+			final int left = random.nextInt(WIDTH + 20) - 10;
+			final int top = random.nextInt(HEIGHT + 20) - 10;
+			final int right = left + random.nextInt(WIDTH);
+			final int bottom = top + random.nextInt(HEIGHT);
+			final int depth = random.nextInt(MAX_DEPTH + 100);
+			if(depthPyramid.isHidden(left, top, right, bottom, depth))
+				assertTrue("area hidden behind " + depth, getMaxDepth(depthBuffer, left, top, right, bottom) <= depth);
+			if(depthPyramid.isHidden(left, right, top, depth))
+				assertTrue("row hidden behind " + depth, getMaxDepth(depthBuffer, left, top, right, top) <= depth);
+		}
+		// something completely in front of the depth buffer is never hidden
+		assertFalse(depthPyramid.isHidden(0, 0, WIDTH - 1, HEIGHT - 1, -1));
+	}
+
+	/**
+	 * After an update each block has the exact biggest depth of its pixels,
+	 * and the biggest depth of the whole buffer gets to the top of the pyramid.
+	 */
+	private static void assertBlocksExact(Texture depthBuffer, DepthPyramid depthPyramid) {
+		final int blockSize = DepthPyramid.BLOCK_SIZE;
+		for (int top = 0; top < HEIGHT; top += blockSize) {
+			for (int left = 0; left < WIDTH; left += blockSize) {
+				final int right = Math.min(left + blockSize, WIDTH) - 1;
+				final int bottom = Math.min(top + blockSize, HEIGHT) - 1;
+				assertExact(depthBuffer, depthPyramid, left, top, right, bottom);
+			}
+		}
+		assertExact(depthBuffer, depthPyramid, 0, 0, WIDTH - 1, HEIGHT - 1);
+	}
+
+	private static void assertExact(Texture depthBuffer, DepthPyramid depthPyramid, int left, int top, int right, int bottom) {
+		final int maxDepth = getMaxDepth(depthBuffer, left, top, right, bottom);
+		assertTrue(depthPyramid.isHidden(left, top, right, bottom, maxDepth));
+		if(maxDepth > Integer.MIN_VALUE)
+			assertFalse(depthPyramid.isHidden(left, top, right, bottom, maxDepth - 1));
+	}
+
+	private static int getMaxDepth(Texture depthBuffer, int left, int top, int right, int bottom) {
+		int maxDepth = Integer.MIN_VALUE;
+		for (int y = Math.max(top, 0); y <= Math.min(bottom, HEIGHT - 1); y++) {
+			for (int x = Math.max(left, 0); x <= Math.min(right, WIDTH - 1); x++)
+				maxDepth = Math.max(maxDepth, depthBuffer.getPixel(x, y));
+		}
+		return maxDepth;
+	}
+}
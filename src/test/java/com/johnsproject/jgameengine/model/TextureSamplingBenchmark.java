@@ -0,0 +1,81 @@
+package com.johnsproject.jgameengine.model;
+
+import static com.johnsproject.jgameengine.util.FixedPointUtils.FP_BIT;
+import static com.johnsproject.jgameengine.util.FixedPointUtils.FP_ONE;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Random;
+
+import com.johnsproject.jgameengine.BenchmarkRunner;
+import com.johnsproject.jgameengine.BenchmarkRunner.Benchmark;
+import com.johnsproject.jgameengine.util.ColorUtils;
+
+/**
+ * Measures the time sampling a texture with {@link Texture#LAYOUT_LINEAR} and {@link Texture#LAYOUT_TILED}
+ * takes, for a screen filling quad rotated by different angles. The quad is sampled span by span,
+ * stepping the uvs like the rasterizer interpolates them, so at 90 degrees each span walks down a column.
+ */
+public class TextureSamplingBenchmark {
+
+	private static final int TEXTURE_SIZE = 2048;
+	private static final int SCREEN_SIZE = 1024;
+	private static final int[] ANGLES = {0, 30, 45, 60, 90};
+	private static final int WARMUP_RUNS = 10;
+	private static final int RUNS = 30;
+
+	public static void main(String[] args) {
+		final BufferedImage image = new BufferedImage(TEXTURE_SIZE, TEXTURE_SIZE, ColorUtils.COLOR_TYPE);
+		final Random random = new Random(0);
+		final int[] imagePixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		for (int i = 0; i < imagePixels.length; i++)
+			imagePixels[i] = random.nextInt();
+		final Texture linear = new Texture(image, Texture.LAYOUT_LINEAR);
+		final Texture tiled = new Texture(image, Texture.LAYOUT_TILED);
+		linear.setWrapMode(Texture.WRAP_REPEAT);
+		tiled.setWrapMode(Texture.WRAP_REPEAT);
+		System.out.println("Texture: " + TEXTURE_SIZE + "x" + TEXTURE_SIZE + ", quad: " + SCREEN_SIZE + "x" + SCREEN_SIZE + ", runs: " + RUNS);
+		final BenchmarkRunner runner = new BenchmarkRunner("texel", (long) SCREEN_SIZE * SCREEN_SIZE, WARMUP_RUNS, RUNS);
+		boolean sameResults = true;
+		for (int i = 0; i < ANGLES.length; i++) {
+			final int angle = ANGLES[i];
+			final Benchmark[] benchmarks = new Benchmark[] {
+				new Benchmark(angle + " degrees linear") {
+					@Override
+					public long run() {
+						return sampleQuad(linear, angle);
+					}
+				},
+				new Benchmark(angle + " degrees tiled") {
+					@Override
+					public long run() {
+						return sampleQuad(tiled, angle);
+					}
+				}
+			};
+			// both layouts have to sample the same texels
+			sameResults &= runner.run(benchmarks);
+		}
+		BenchmarkRunner.printSameResults(sameResults);
+	}
+
+	/**
+	 * Samples the texture for each pixel of the quad, the uvs are in fixed point texels.
+	 */
+	private static int sampleQuad(Texture texture, int angle) {
+		final double radians = Math.toRadians(angle);
+		final int cos = (int) Math.round(Math.cos(radians) * FP_ONE);
+		final int sin = (int) Math.round(Math.sin(radians) * FP_ONE);
+		int sum = 0;
+		for (int y = 0; y < SCREEN_SIZE; y++) {
+			int u = -y * sin;
+			int v = y * cos;
+			for (int x = 0; x < SCREEN_SIZE; x++) {
+				sum += texture.getTexel(u >> FP_BIT, v >> FP_BIT);
+				u += cos;
+				v += sin;
+			}
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,111 @@
+package com.johnsproject.jgameengine.model;
+
+import static com.johnsproject.jgameengine.util.FixedPointUtils.FP_BIT;
+import static com.johnsproject.jgameengine.util.TransformationUtils.SUBPIXEL_BIT;
+import static org.junit.Assert.assertEquals;
+
+import java.awt.image.BufferedImage;
+
+import org.junit.Test;
+
+import com.johnsproject.jgameengine.util.ColorUtils;
+
+public class TextureTest {
+
+	@Test
+	public void getTexelClampTest() throws Exception {
+		final Texture powerOfTwo = createTexture(8, 4);
+		final Texture other = createTexture(6, 3);
+		for (int y = -10; y < 10; y++) {
+			for (int x = -10; x < 10; x++) {
+				assertEquals(powerOfTwo.getPixel(x, y), powerOfTwo.getTexel(x, y));
+				assertEquals(other.getPixel(x, y), other.getTexel(x, y));
+			}
+		}
+	}
+
+	@Test
+	public void getTexelRepeatTest() throws Exception {
+		final Texture powerOfTwo = createTexture(8, 4);
+		final Texture other = createTexture(6, 3);
+		powerOfTwo.setWrapMode(Texture.WRAP_REPEAT);
+		other.setWrapMode(Texture.WRAP_REPEAT);
+		for (int y = -10; y < 10; y++) {
+			for (int x = -10; x < 10; x++) {
+				assertEquals(powerOfTwo.getPixel((x + 16) % 8, (y + 16) % 4), powerOfTwo.getTexel(x, y));
+				assertEquals(other.getPixel((x + 18) % 6, (y + 18) % 3), other.getTexel(x, y));
+			}
+		}
+	}
+
+	@Test
+	public void mipMapTest() throws Exception {
+		final Texture texture = createTexture(8, 4);
+		texture.createMipMaps();
+		assertEquals(4, texture.getMipMapCount());
+		assertEquals(4, texture.getMipMap(1).getWidth());
+		assertEquals(2, texture.getMipMap(1).getHeight());
+		assertEquals(1, texture.getMipMap(3).getWidth());
+		assertEquals(1, texture.getMipMap(3).getHeight());
+		assertEquals(texture.getMipMap(3), texture.getMipMap(10));
+		for (int y = 0; y < 2; y++) {
+			for (int x = 0; x < 4; x++) {
+				int red = 0;
+				for (int i = 0; i < 4; i++)
+					red += ColorUtils.getRed(texture.getPixel((x << 1) + (i & 1), (y << 1) + (i >> 1)));
+				assertEquals((red + 2) >> 2, ColorUtils.getRed(texture.getMipMap(1).getPixel(x, y)));
+			}
+		}
+	}
+
+	@Test
+	public void tiledLayoutTest() throws Exception {
+		final BufferedImage image = new BufferedImage(16, 8, ColorUtils.COLOR_TYPE);
+		final Texture linear = new Texture(image);
+		for (int i = 0; i < linear.getPixels().length; i++)
+			linear.getPixels()[i] = ColorUtils.toColor(255, (i * 37) & 255, (i * 11) & 255, i & 255);
+		linear.createMipMaps();
+		final Texture tiled = new Texture(image, Texture.LAYOUT_TILED);
+		assertEquals(Texture.LAYOUT_LINEAR, linear.getLayout());
+		assertEquals(Texture.LAYOUT_TILED, tiled.getLayout());
+		assertEquals(linear.getMipMapCount(), tiled.getMipMapCount());
+		for (int level = 0; level < linear.getMipMapCount(); level++) {
+			final Texture linearMipMap = linear.getMipMap(level);
+			final Texture tiledMipMap = tiled.getMipMap(level);
+			for (int y = -10; y < 20; y++) {
+				for (int x = -10; x < 20; x++) {
+					assertEquals(linearMipMap.getPixel(x, y), tiledMipMap.getPixel(x, y));
+					assertEquals(linearMipMap.getTexel(x, y), tiledMipMap.getTexel(x, y));
+				}
+			}
+		}
+		// the second and third rows of the first tile
+		assertEquals(linear.getPixel(0, 1), tiled.getPixels()[Texture.TILE_SIZE]);
+		assertEquals(linear.getPixel(1, 2), tiled.getPixels()[2 * Texture.TILE_SIZE + 1]);
+		// tiles that are too small stay linear
+		assertEquals(Texture.LAYOUT_LINEAR, tiled.getMipMap(3).getLayout());
+		assertEquals(Texture.LAYOUT_LINEAR, new Texture(new BufferedImage(12, 8, ColorUtils.COLOR_TYPE), Texture.LAYOUT_TILED).getLayout());
+	}
+
+	@Test
+	public void getMipMapLevelTest() throws Exception {
+		final Texture texture = createTexture(64, 64);
+		texture.createMipMaps();
+		final long pixel = 1L << (SUBPIXEL_BIT << 1);
+		final long texel = 1L << (FP_BIT << 1);
+		assertEquals(0, texture.getMipMapLevel(100 * texel, 100 * pixel));
+		assertEquals(0, texture.getMipMapLevel(100 * texel, 400 * pixel));
+		assertEquals(1, texture.getMipMapLevel(400 * texel, 100 * pixel));
+		assertEquals(2, texture.getMipMapLevel(-1600 * texel, 100 * pixel));
+		assertEquals(6, texture.getMipMapLevel(4096 * texel, pixel));
+		assertEquals(6, texture.getMipMapLevel(4096 * texel, 0));
+	}
+
+	private static Texture createTexture(int width, int height) {
+		final BufferedImage image = new BufferedImage(width, height, ColorUtils.COLOR_TYPE);
+		final Texture texture = new Texture(image);
+		for (int i = 0; i < texture.getPixels().length; i++)
+			texture.getPixels()[i] = ColorUtils.toColor(255, (i * 37) & 255, (i * 11) & 255, i & 255);
+		return texture;
+	}
+}
@@ -0,0 +1,53 @@
+package com.johnsproject.jgameengine.model;
+
+import static com.johnsproject.jgameengine.util.FixedPointUtils.FP_ONE;
+import static com.johnsproject.jgameengine.util.MatrixUtils.MATRIX_LENGTH;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.johnsproject.jgameengine.util.MatrixUtils;
+
+public class TransformTest {
+
+	// MatrixUtils.inverse loses precision with the products of its determinant, mostly in the translation
+	private static final int INVERSE_ERROR = FP_ONE / 64;
+	
+	@Test
+	public void spaceEnterMatrixTest() throws Exception {
+		final Transform transform = new Transform();
+		transform.setLocation(FP_ONE * 5, FP_ONE * -3, FP_ONE * 12);
+		transform.setRotation(FP_ONE * 30, FP_ONE * -60, FP_ONE * 15);
+		assertInverse(transform);
+		// non uniform scales use the inverted squared scale
+		transform.setScale(FP_ONE * 2, FP_ONE / 2, FP_ONE * 3);
+		assertInverse(transform);
+		transform.setScale(-FP_ONE, FP_ONE * 4, FP_ONE / 4);
+		assertInverse(transform);
+	}
+	
+	@Test
+	public void parentedSpaceEnterMatrixTest() throws Exception {
+		final Transform parent = new Transform();
+		parent.setLocation(FP_ONE * -7, FP_ONE * 2, FP_ONE * 3);
+		parent.setRotation(0, FP_ONE * 45, FP_ONE * 20);
+		parent.setScale(FP_ONE * 2, FP_ONE, FP_ONE / 2);
+		final Transform transform = new Transform();
+		transform.setParent(parent);
+		transform.setLocation(FP_ONE, FP_ONE * 4, FP_ONE * -2);
+		transform.setRotation(FP_ONE * 80, 0, FP_ONE * -35);
+		transform.setScale(FP_ONE / 2, FP_ONE * 3, FP_ONE);
+		assertInverse(transform);
+		// the enter matrix of the child changes with the parent
+		parent.setRotation(FP_ONE * 10, FP_ONE * -90, 0);
+		parent.setScale(FP_ONE, FP_ONE * 3, FP_ONE * 2);
+		assertInverse(transform);
+	}
+	
+	private static void assertInverse(Transform transform) {
+		final int[] inverse = MatrixUtils.inverse(transform.getSpaceExitMatrix(), MatrixUtils.indentityMatrix());
+		final int[] enterMatrix = transform.getSpaceEnterMatrix();
+		for (int i = 0; i < MATRIX_LENGTH; i++)
+			assertEquals("element " + i, inverse[i], enterMatrix[i], INVERSE_ERROR);
+	}
+}
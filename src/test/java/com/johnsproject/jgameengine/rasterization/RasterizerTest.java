@@ -0,0 +1,294 @@
+package com.johnsproject.jgameengine.rasterization;
+
+import static com.johnsproject.jgameengine.util.FixedPointUtils.FP_HALF;
+import static com.johnsproject.jgameengine.util.FixedPointUtils.FP_ONE;
+import static com.johnsproject.jgameengine.util.TransformationUtils.SUBPIXEL_BIT;
+import static com.johnsproject.jgameengine.util.TransformationUtils.SUBPIXEL_HALF;
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_SIZE;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.johnsproject.jgameengine.model.DepthPyramid;
+import com.johnsproject.jgameengine.model.Face;
+import com.johnsproject.jgameengine.model.Frustum;
+import com.johnsproject.jgameengine.model.Material;
+import com.johnsproject.jgameengine.model.Mesh;
+import com.johnsproject.jgameengine.model.Texture;
+import com.johnsproject.jgameengine.model.Vertex;
+import com.johnsproject.jgameengine.shading.Shader;
+import com.johnsproject.jgameengine.shading.ShaderBuffer;
+import com.johnsproject.jgameengine.util.VectorUtils;
+
+public class RasterizerTest {
+
+	private static final int WIDTH = 96;
+	private static final int HEIGHT = 64;
+	private static final int CELL_COUNT = 12;
+
+	@Test
+	public void rasterizerFragmentsPerPixelTest() throws Exception {
+		for (int seed = 0; seed < 20; seed++) {
+			final FragmentCounter counter = new FragmentCounter();
+			drawPlane(new Rasterizer(counter), counter, seed);
+			assertEachPixelDrawnOnce(counter);
+		}
+	}
+
+	@Test
+	public void linearRasterizerFragmentsPerPixelTest() throws Exception {
+		for (int seed = 0; seed < 20; seed++) {
+			final FragmentCounter counter = new FragmentCounter();
+			drawPlane(new LinearRasterizer(counter, 3), counter, seed);
+			assertEachPixelDrawnOnce(counter);
+		}
+	}
+
+	@Test
+	public void halfSpaceRasterizerFragmentsPerPixelTest() throws Exception {
+		for (int seed = 0; seed < 20; seed++) {
+			final FragmentCounter counter = new FragmentCounter();
+			drawPlane(new HalfSpaceRasterizer(counter), counter, seed);
+			assertEachPixelDrawnOnce(counter);
+		}
+	}
+
+	@Test
+	public void halfSpaceRasterizerMatchesRasterizerTest() throws Exception {
+		for (int seed = 0; seed < 20; seed++) {
+			final FragmentCounter scanlineCounter = new FragmentCounter();
+			drawPlane(new Rasterizer(scanlineCounter), scanlineCounter, seed);
+			final FragmentCounter halfSpaceCounter = new FragmentCounter();
+			drawPlane(new HalfSpaceRasterizer(halfSpaceCounter), halfSpaceCounter, seed);
+			assertArrayEquals(scanlineCounter.faces, halfSpaceCounter.faces);
+			assertArrayEquals(scanlineCounter.depths, halfSpaceCounter.depths);
+		}
+	}
+
+	@Test
+	public void rasterizerOcclusionTest() throws Exception {
+		for (int seed = 0; seed < 20; seed++) {
+			final DepthWriter writer = new DepthWriter(false);
+			final DepthWriter occlusionWriter = new DepthWriter(true);
+			drawTriangles(new Rasterizer(writer), writer, seed);
+			drawTriangles(new Rasterizer(occlusionWriter), occlusionWriter, seed);
+			assertSameDepths(writer, occlusionWriter);
+		}
+	}
+
+	@Test
+	public void linearRasterizerOcclusionTest() throws Exception {
+		for (int seed = 0; seed < 20; seed++) {
+			final DepthWriter writer = new DepthWriter(false);
+			final DepthWriter occlusionWriter = new DepthWriter(true);
+			drawTriangles(new LinearRasterizer(writer, 3), writer, seed);
+			drawTriangles(new LinearRasterizer(occlusionWriter, 3), occlusionWriter, seed);
+			assertSameDepths(writer, occlusionWriter);
+		}
+	}
+
+	@Test
+	public void halfSpaceRasterizerOcclusionTest() throws Exception {
+		for (int seed = 0; seed < 20; seed++) {
+			final DepthWriter writer = new DepthWriter(false);
+			final DepthWriter occlusionWriter = new DepthWriter(true);
+			drawTriangles(new HalfSpaceRasterizer(writer), writer, seed);
+			drawTriangles(new HalfSpaceRasterizer(occlusionWriter), occlusionWriter, seed);
+			assertSameDepths(writer, occlusionWriter);
+		}
+	}
+
+	/**
+	 * Draws random triangles with a depth test, behind and in front of a triangle that covers the
+	 * render target. If the writer has a depth pyramid, it's updated after each triangle.
+	 */
+	private static void drawTriangles(Rasterizer rasterizer, DepthWriter writer, int seed) {
+		final Random random = new Random(seed);
+		final int triangleCount = 100;
+		final int[] faceVertices = new int[triangleCount * 3];
+		for (int i = 0; i < faceVertices.length; i++)
+			faceVertices[i] = i;
+		final Mesh mesh = new Mesh(new int[faceVertices.length * VECTOR_SIZE], faceVertices, new Material[0]);
+		final int[] location = VectorUtils.emptyVector();
+		for (int i = 0; i < faceVertices.length; i++) {
+			if(i < 3) {
+				location[0] = (i == 1 ? WIDTH * 3 : -WIDTH) << SUBPIXEL_BIT;
+				location[1] = (i == 2 ? HEIGHT * 3 : -HEIGHT) << SUBPIXEL_BIT;
+				location[2] = 30000 + random.nextInt(1000);
+			} else {
+				location[0] = random.nextInt((WIDTH + 16) << SUBPIXEL_BIT) - (8 << SUBPIXEL_BIT);
+				location[1] = random.nextInt((HEIGHT + 16) << SUBPIXEL_BIT) - (8 << SUBPIXEL_BIT);
+				// the rasterizers interpolate the depths in fixed point
+				location[2] = 1000 + random.nextInt(60000);
+			}
+			mesh.getVertex(i).setLocation(location);
+		}
+		final Frustum frustum = new Frustum(0, FP_ONE, 0, FP_ONE, FP_ONE / 10, FP_ONE * 100);
+		frustum.setRenderTargetSize(WIDTH, HEIGHT);
+		rasterizer.setFaceCull(0);
+		rasterizer.setFrustumCull(false);
+		final boolean useDepthPyramid = writer.depthPyramid != null;
+		rasterizer.setDepthPyramid(useDepthPyramid ? writer.depthPyramid : null);
+		for (int i = 0; i < mesh.getFaces().length; i++) {
+			rasterizer.draw(mesh.getFace(i), frustum);
+			if(useDepthPyramid)
+				writer.depthPyramid.update();
+		}
+	}
+
+	/**
+	 * Skipping hidden faces and fragments must not change the depth buffer.
+	 */
+	private static void assertSameDepths(DepthWriter writer, DepthWriter occlusionWriter) {
+		assertArrayEquals(writer.depthBuffer.getPixels(), occlusionWriter.depthBuffer.getPixels());
+		final DepthPyramid depthPyramid = occlusionWriter.depthPyramid;
+		assertTrue(depthPyramid.getRejectedFaces() + depthPyramid.getRejectedFragments() > 0);
+	}
+
+	/**
+	 * Draws a plane, that covers the whole render target and more, made of randomly distorted quads split into
+	 * two triangles along a random diagonal. Some vertices are exactly at pixel centers and borders so the
+	 * fill rule is tested too.
+	 */
+	private static void drawPlane(Rasterizer rasterizer, FragmentCounter counter, int seed) {
+		final Random random = new Random(seed);
+		final int vertexCount = (CELL_COUNT + 1) * (CELL_COUNT + 1);
+		final int[] faceVertices = new int[CELL_COUNT * CELL_COUNT * 2 * 3];
+		int index = 0;
+		for (int y = 0; y < CELL_COUNT; y++) {
+			for (int x = 0; x < CELL_COUNT; x++) {
+				final int vertex00 = x + y * (CELL_COUNT + 1);
+				final int vertex10 = vertex00 + 1;
+				final int vertex01 = vertex00 + CELL_COUNT + 1;
+				final int vertex11 = vertex01 + 1;
+				// the winding of the faces is random too
+				final boolean flip = random.nextBoolean();
+				if(random.nextBoolean()) {
+					index = addFace(faceVertices, index, vertex00, flip ? vertex11 : vertex10, flip ? vertex10 : vertex11);
+					index = addFace(faceVertices, index, vertex00, flip ? vertex01 : vertex11, flip ? vertex11 : vertex01);
+				} else {
+					index = addFace(faceVertices, index, vertex00, flip ? vertex01 : vertex10, flip ? vertex10 : vertex01);
+					index = addFace(faceVertices, index, vertex10, flip ? vertex01 : vertex11, flip ? vertex11 : vertex01);
+				}
+			}
+		}
+		final Mesh mesh = new Mesh(new int[vertexCount * VECTOR_SIZE], faceVertices, new Material[0]);
+		final int cellWidth = ((WIDTH + 16) << SUBPIXEL_BIT) / CELL_COUNT;
+		final int cellHeight = ((HEIGHT + 16) << SUBPIXEL_BIT) / CELL_COUNT;
+		final int[] location = VectorUtils.emptyVector();
+		for (int y = 0; y <= CELL_COUNT; y++) {
+			for (int x = 0; x <= CELL_COUNT; x++) {
+				int locationX = (x * cellWidth) - (8 << SUBPIXEL_BIT);
+				int locationY = (y * cellHeight) - (8 << SUBPIXEL_BIT);
+				// the border vertices stay on the border so that the plane covers the render target
+				if((x > 0) && (x < CELL_COUNT) && (y > 0) && (y < CELL_COUNT)) {
+					locationX += random.nextInt(cellWidth / 2) - cellWidth / 4;
+					locationY += random.nextInt(cellHeight / 2) - cellHeight / 4;
+					switch (random.nextInt(4)) {
+					case 0:
+						// pixel center
+						locationX = (locationX & ~((1 << SUBPIXEL_BIT) - 1)) + SUBPIXEL_HALF;
+						locationY = (locationY & ~((1 << SUBPIXEL_BIT) - 1)) + SUBPIXEL_HALF;
+						break;
+					case 1:
+						// pixel corner
+						locationX &= ~((1 << SUBPIXEL_BIT) - 1);
+						locationY &= ~((1 << SUBPIXEL_BIT) - 1);
+						break;
+					}
+				}
+				location[0] = locationX;
+				location[1] = locationY;
+				location[2] = FP_HALF + random.nextInt(FP_ONE >> 2);
+				mesh.getVertex(x + y * (CELL_COUNT + 1)).setLocation(location);
+			}
+		}
+		final Frustum frustum = new Frustum(0, FP_ONE, 0, FP_ONE, FP_ONE / 10, FP_ONE * 100);
+		frustum.setRenderTargetSize(WIDTH, HEIGHT);
+		rasterizer.setFaceCull(0);
+		rasterizer.setFrustumCull(false);
+		for (int i = 0; i < mesh.getFaces().length; i++) {
+			final Face face = mesh.getFace(i);
+			counter.face = i;
+			rasterizer.draw(face, frustum);
+		}
+	}
+
+	private static int addFace(int[] faceVertices, int index, int vertex0, int vertex1, int vertex2) {
+		faceVertices[index++] = vertex0;
+		faceVertices[index++] = vertex1;
+		faceVertices[index++] = vertex2;
+		return index;
+	}
+
+	private static void assertEachPixelDrawnOnce(FragmentCounter counter) {
+		for (int y = 0; y < HEIGHT; y++) {
+			for (int x = 0; x < WIDTH; x++) {
+				assertEquals("fragments at " + x + ", " + y, 1, counter.fragments[x + y * WIDTH]);
+			}
+		}
+	}
+
+	private static class DepthWriter implements Shader {
+
+		private final Texture depthBuffer = new Texture(WIDTH, HEIGHT);
+		private final DepthPyramid depthPyramid;
+
+		DepthWriter(boolean useDepthPyramid) {
+			depthBuffer.fill(Integer.MAX_VALUE);
+			depthPyramid = useDepthPyramid ? new DepthPyramid(depthBuffer) : null;
+		}
+
+		public void fragments(Span span) {
+			final int y = span.getY();
+			for (int x = span.getLeft(); x <= span.getRight(); x++) {
+				final int z = span.getDepth(x);
+				if(depthBuffer.getPixel(x, y) > z)
+					depthBuffer.setPixel(x, y, z);
+			}
+		}
+
+		public void initialize(ShaderBuffer shaderBuffer) {}
+		public void vertex(Vertex vertex) {}
+		public void vertexRange(Mesh mesh, int from, int to) {}
+		public void waitForVertexQueue() {}
+		public void geometry(Face face) {}
+		public void geometryRange(Mesh mesh, int from, int to) {}
+		public void waitForGeometryQueue() {}
+		public void waitForPixelQueue() {}
+		public ShaderBuffer getShaderBuffer() { return null; }
+		public boolean isGlobal() { return false; }
+	}
+
+	private static class FragmentCounter implements Shader {
+
+		private final int[] fragments = new int[WIDTH * HEIGHT];
+		private final int[] faces = new int[WIDTH * HEIGHT];
+		private final int[] depths = new int[WIDTH * HEIGHT];
+		private int face;
+
+		public void fragments(Span span) {
+			final int y = span.getY();
+			for (int x = span.getLeft(); x <= span.getRight(); x++) {
+				fragments[x + y * WIDTH]++;
+				faces[x + y * WIDTH] = face;
+				depths[x + y * WIDTH] = span.getDepth(x);
+			}
+		}
+
+		public void initialize(ShaderBuffer shaderBuffer) {}
+		public void vertex(Vertex vertex) {}
+		public void vertexRange(Mesh mesh, int from, int to) {}
+		public void waitForVertexQueue() {}
+		public void geometry(Face face) {}
+		public void geometryRange(Mesh mesh, int from, int to) {}
+		public void waitForGeometryQueue() {}
+		public void waitForPixelQueue() {}
+		public ShaderBuffer getShaderBuffer() { return null; }
+		public boolean isGlobal() { return false; }
+	}
+}
@@ -0,0 +1,48 @@
+package com.johnsproject.jgameengine.shading;
+
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_X;
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_Y;
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_Z;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.johnsproject.jgameengine.util.FixedPointUtils;
+import com.johnsproject.jgameengine.util.VectorUtils;
+
+public class DeferredShaderBufferTest {
+
+	private static final double NORMAL_ERROR = 0.001;
+	
+	@Test
+	public void packNormalTest() throws Exception {
+		final double[][] normals = {
+				{1, 0, 0}, {-1, 0, 0}, {0, 1, 0}, {0, -1, 0}, {0, 0, 1}, {0, 0, -1},
+				{1, 1, 0}, {-1, 1, 0}, {1, -1, 0}, {-1, -1, 0},
+				{1, 0, 1}, {0, -1, 1}, {1, 0, -1}, {0, 1, -1},
+				{1, 1, 1}, {-1, 1, 1}, {1, -1, 1}, {-1, -1, 1},
+				{1, 1, -1}, {-1, 1, -1}, {1, -1, -1}, {-1, -1, -1},
+				{0.2, -0.5, -3}, {-0.01, 0.02, -1}, {3, -0.2, -0.1}, {-2, 5, 0.3}
+		};
+		for (int i = 0; i < normals.length; i++) {
+			assertRoundTrip(normals[i]);
+		}
+	}
+	
+	private void assertRoundTrip(double[] direction) {
+		final double length = Math.sqrt(direction[0] * direction[0] + direction[1] * direction[1] + direction[2] * direction[2]);
+		final int[] normal = VectorUtils.toVector(direction[0] / length, direction[1] / length, direction[2] / length);
+		final int packedNormal = DeferredShaderBuffer.packNormal(normal);
+		// 0 marks the pixels of the geometry buffers that haven't been drawn
+		assertTrue(packedNormal != 0);
+		final int[] unpacked = DeferredShaderBuffer.unpackNormal(packedNormal, VectorUtils.emptyVector());
+		final double x = FixedPointUtils.toDouble(unpacked[VECTOR_X]);
+		final double y = FixedPointUtils.toDouble(unpacked[VECTOR_Y]);
+		final double z = FixedPointUtils.toDouble(unpacked[VECTOR_Z]);
+		final double unpackedLength = Math.sqrt(x * x + y * y + z * z);
+		assertEquals(direction[0] / length, x / unpackedLength, NORMAL_ERROR);
+		assertEquals(direction[1] / length, y / unpackedLength, NORMAL_ERROR);
+		assertEquals(direction[2] / length, z / unpackedLength, NORMAL_ERROR);
+	}
+}
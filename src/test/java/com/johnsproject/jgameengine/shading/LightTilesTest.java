@@ -0,0 +1,78 @@
+package com.johnsproject.jgameengine.shading;
+
+import static com.johnsproject.jgameengine.util.FixedPointUtils.FP_ONE;
+import static com.johnsproject.jgameengine.util.TransformationUtils.SUBPIXEL_BIT;
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_X;
+import static com.johnsproject.jgameengine.util.VectorUtils.VECTOR_Y;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.johnsproject.jgameengine.model.Camera;
+import com.johnsproject.jgameengine.model.Frustum;
+import com.johnsproject.jgameengine.model.Light;
+import com.johnsproject.jgameengine.model.LightType;
+import com.johnsproject.jgameengine.model.Transform;
+import com.johnsproject.jgameengine.util.FixedPointUtils;
+import com.johnsproject.jgameengine.util.TransformationUtils;
+import com.johnsproject.jgameengine.util.VectorUtils;
+
+public class LightTilesTest {
+
+	@Test
+	public void brightLightRangeTest() throws Exception {
+		final Frustum frustum = new Frustum(0, FP_ONE, 0, FP_ONE, FP_ONE, FP_ONE * 1000);
+		frustum.setRenderTargetSize(320, 240);
+		final Camera camera = new Camera("Camera", new Transform(), frustum);
+		final Light light = new Light("PointLight", new Transform());
+		light.setType(LightType.POINT);
+		light.getTransform().setLocation(FP_ONE * -250, 0, FP_ONE * -300);
+		light.setIntensity(FP_ONE * 8);
+		final List<Light> lights = new ArrayList<Light>();
+		lights.add(light);
+		final LightTiles lightTiles = new LightTiles();
+		lightTiles.update(camera, lights);
+		// a location that is further away from the light than the range of a light with an intensity of 1
+		final int[] location = VectorUtils.toVector(FP_ONE * -50, 0, FP_ONE * -300);
+		final int distance = FP_ONE * 200;
+		assertTrue(isLit(light, distance));
+		assertTrue(light.getRange() >= distance);
+		VectorUtils.multiplyMatrix(location, frustum.getProjectionMatrix());
+		TransformationUtils.screenportVector(location, frustum);
+		final int x = location[VECTOR_X] >> SUBPIXEL_BIT;
+		final int y = location[VECTOR_Y] >> SUBPIXEL_BIT;
+		assertTrue((x >= 0) && (x < 320) && (y >= 0) && (y < 240));
+		final int tile = lightTiles.getTile(x, y);
+		boolean isInTile = false;
+		for (int i = 0; i < lightTiles.getLightCount(tile); i++)
+			isInTile |= lightTiles.getLights(tile)[i] == light;
+		assertTrue(isInTile);
+	}
+
+	@Test
+	public void rangeTest() throws Exception {
+		final Light light = new Light("PointLight", new Transform());
+		light.setType(LightType.POINT);
+		final int[] intensities = {FP_ONE / 4, FP_ONE, FP_ONE * 2, FP_ONE * 16};
+		for (int i = 0; i < intensities.length; i++) {
+			light.setIntensity(intensities[i]);
+			// the light doesn't change 8 bit colors past its range, but does a bit before it
+			assertTrue(!isLit(light, light.getRange() + FP_ONE));
+			assertTrue(isLit(light, light.getRange() - (light.getRange() >> 4)));
+		}
+	}
+
+	/**
+	 * Does the light change 8 bit colors at the given distance, like the shaders attenuate it?
+	 */
+	private static boolean isLit(Light light, int distance) {
+		final double d = FixedPointUtils.toDouble(distance);
+		final double attenuation = FixedPointUtils.toDouble(light.getConstantAttenuation())
+				+ FixedPointUtils.toDouble(light.getLinearAttenuation()) * d
+				+ FixedPointUtils.toDouble(light.getQuadraticAttenuation()) * d * d;
+		return (FixedPointUtils.toDouble(light.getIntensity()) / attenuation) * 255 >= 0.5;
+	}
+}
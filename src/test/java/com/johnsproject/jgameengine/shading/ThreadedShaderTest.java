@@ -0,0 +1,70 @@
+package com.johnsproject.jgameengine.shading;
+
+import static com.johnsproject.jgameengine.util.FixedPointUtils.FP_ONE;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.johnsproject.jgameengine.GraphicsEngine;
+import com.johnsproject.jgameengine.event.EngineEvent;
+import com.johnsproject.jgameengine.io.OBJImporter;
+import com.johnsproject.jgameengine.model.Camera;
+import com.johnsproject.jgameengine.model.FrameBuffer;
+import com.johnsproject.jgameengine.model.Light;
+import com.johnsproject.jgameengine.model.Scene;
+import com.johnsproject.jgameengine.model.Transform;
+
+public class ThreadedShaderTest {
+
+	private static final int WIDTH = 320;
+	private static final int HEIGHT = 180;
+
+	@Test
+	public void halfSpaceRasterizationTest() throws Exception {
+		assertSameFrame(new BasicThreadedShader(false), new BasicThreadedShader(true));
+		assertSameFrame(new FlatShader(false), new FlatShader(true));
+		assertSameFrame(new GouraudShader(false), new GouraudShader(true));
+		assertSameFrame(new PhongShader(false), new PhongShader(true));
+	}
+
+	/**
+	 * Both rasterizers draw the same fragments with the same depth and attributes,
+	 * so a shader has to render the same frame with either of them.
+	 */
+	private static void assertSameFrame(ThreadedShader linearShader, ThreadedShader halfSpaceShader) throws Exception {
+		assertFalse(linearShader.isHalfSpaceRasterization());
+		assertTrue(halfSpaceShader.isHalfSpaceRasterization());
+		final FrameBuffer linearFrame = render(linearShader);
+		final FrameBuffer halfSpaceFrame = render(halfSpaceShader);
+		final int[] colors = linearFrame.getColorBuffer().getPixels();
+		int drawnPixels = 0;
+		for (int i = 0; i < colors.length; i++) {
+			if(colors[i] != 0)
+				drawnPixels++;
+		}
+		assertTrue(drawnPixels > colors.length / 4);
+		assertArrayEquals(colors, halfSpaceFrame.getColorBuffer().getPixels());
+		assertArrayEquals(linearFrame.getDepthBuffer().getPixels(), halfSpaceFrame.getDepthBuffer().getPixels());
+	}
+
+	private static FrameBuffer render(Shader shader) throws Exception {
+		final FrameBuffer frameBuffer = new FrameBuffer(WIDTH, HEIGHT);
+		final GraphicsEngine graphicsEngine = new GraphicsEngine(frameBuffer);
+		graphicsEngine.addShader(shader);
+		graphicsEngine.setDefaultShader(shader);
+		final Scene scene = new Scene();
+		scene.addModel(OBJImporter.parseResource(ThreadedShaderTest.class.getClassLoader(), "DefaultTest.obj"));
+		final Camera camera = new Camera("Camera", new Transform());
+		camera.getTransform().worldTranslate(0, FP_ONE * 10, FP_ONE * 15);
+		camera.getTransform().worldRotate(FP_ONE * -35, 0, 0);
+		scene.addCamera(camera);
+		final Light light = new Light("DirectionalLight", new Transform());
+		light.getTransform().worldRotate(FP_ONE * -90, 0, 0);
+		scene.addLight(light);
+		scene.setMainDirectionalLight(light);
+		graphicsEngine.dynamicUpdate(new EngineEvent(scene, 0, 0, 0));
+		return frameBuffer;
+	}
+}
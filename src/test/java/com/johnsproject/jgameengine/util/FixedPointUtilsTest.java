@@ -233,4 +233,58 @@ public class FixedPointUtilsTest {
 			assert((fpSqrt >= mathSqrt - precision) && (fpSqrt <= mathSqrt + precision));
 		}
 	}
+	
+	@Test
+	public void fastSqrtTest() throws Exception {
+		// from 1/32768 to 32767, the result of sqrt is up to 1/128 too small
+		for (long i = 1; i < ((long)FixedPointUtils.FP_ONE << FixedPointUtils.FP_BIT); i += 1 + (i >> 6)) {
+			int sqrt = FixedPointUtils.sqrt(i);
+			int fastSqrt = FixedPointUtils.fastSqrt(i);
+			assert((fastSqrt >= sqrt) && (fastSqrt <= sqrt + (FixedPointUtils.FP_ONE >> 7) + 1));
+			double mathSqrt = Math.sqrt(FixedPointUtils.toDouble(i)) * FixedPointUtils.FP_ONE;
+			// documented relative error before rounding and the rounding
+			double precision = mathSqrt * 0.000002 + 0.5;
+			assert((fastSqrt >= mathSqrt - precision) && (fastSqrt <= mathSqrt + precision));
+		}
+		assert(FixedPointUtils.fastSqrt(0) == 0);
+		assert(FixedPointUtils.fastSqrt(-FixedPointUtils.FP_ONE) == 0);
+	}
+	
+	@Test
+	public void inverseSqrtTest() throws Exception {
+		for (long i = 1; i < ((long)FixedPointUtils.FP_ONE << FixedPointUtils.FP_BIT); i += 1 + (i >> 6)) {
+			double mathInverseSqrt = FixedPointUtils.FP_ONE / Math.sqrt(FixedPointUtils.toDouble(i));
+			int inverseSqrt = FixedPointUtils.inverseSqrt(i);
+			double precision = mathInverseSqrt * 0.000002 + 0.5;
+			assert((inverseSqrt >= mathInverseSqrt - precision) && (inverseSqrt <= mathInverseSqrt + precision));
+			// the division of the exact square root is only as precise as the square root
+			if(i >= FixedPointUtils.FP_ONE) {
+				int exactInverseSqrt = FixedPointUtils.divide(FixedPointUtils.FP_ONE, FixedPointUtils.sqrt(i));
+				precision = exactInverseSqrt / 128d + 1;
+				assert((inverseSqrt >= exactInverseSqrt - precision) && (inverseSqrt <= exactInverseSqrt + precision));
+			}
+		}
+		assert(FixedPointUtils.inverseSqrt(0) == 0);
+	}
+	
+	@Test
+	public void fastPowTest() throws Exception {
+		for (int exp = 0; exp <= 256; exp++) {
+			int fpExp = FixedPointUtils.toFixedPoint(exp);
+			for (int base = 0; base < FixedPointUtils.FP_ONE; base += 7) {
+				double mathPow = Math.pow(FixedPointUtils.toDouble(base), exp) * FixedPointUtils.FP_ONE;
+				int fastPow = FixedPointUtils.fastPow(base, fpExp);
+				assert((fastPow >= mathPow - 1) && (fastPow <= mathPow + 1));
+				// the rounding of each multiplication of pow adds up to 34 units
+				int pow = FixedPointUtils.pow(base, fpExp);
+				assert((fastPow >= pow - 35) && (fastPow <= pow + 35));
+			}
+		}
+		// base >= 1 falls back to pow
+		for (int i = 0; i < 16; i++) {
+			int fpValue = FixedPointUtils.toFixedPoint(2);
+			int fpExp = FixedPointUtils.toFixedPoint(i);
+			assert(FixedPointUtils.fastPow(fpValue, fpExp) == FixedPointUtils.pow(fpValue, fpExp));
+		}
+	}
 }
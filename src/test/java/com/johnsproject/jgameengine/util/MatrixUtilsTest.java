@@ -1,7 +1,7 @@
 package com.johnsproject.jgameengine.util;
 
 
-import static com.johnsproject.jgameengine.util.MatrixUtils.MATRIX_SIZE;
+import static com.johnsproject.jgameengine.util.MatrixUtils.*;
 
 import org.junit.Test;
 
@@ -17,7 +17,7 @@ public class MatrixUtilsTest {
 			double precision = 0.000000000000000000000000000000000001;
 			double value1 = i;
 			int fpValue1 = FixedPointUtils.toFixedPoint(i);
-			int[][] fpMatrix1 = MatrixUtils.indentityMatrix();
+			int[] fpMatrix1 = MatrixUtils.indentityMatrix();
 			// fill matrix
 			MatrixUtils.add(fpMatrix1, fpValue1);
 			double[][] matrix1 = toMatrix(fpMatrix1);
@@ -46,9 +46,9 @@ public class MatrixUtilsTest {
 		for (int i = 1; i < 128; i++) {
 			double precision = 0.0001;
 			int fpValue = FixedPointUtils.toFixedPoint(i);
-			int[][] fpMatrix1 = MatrixUtils.indentityMatrix();
-			int[][] fpMatrix2 = MatrixUtils.indentityMatrix();
-			int[][] fpResult = MatrixUtils.indentityMatrix();
+			int[] fpMatrix1 = MatrixUtils.indentityMatrix();
+			int[] fpMatrix2 = MatrixUtils.indentityMatrix();
+			int[] fpResult = MatrixUtils.indentityMatrix();
 			// fill matrix
 			MatrixUtils.add(fpMatrix1, fpValue);
 			MatrixUtils.add(fpMatrix2, fpValue);
@@ -79,11 +79,11 @@ public class MatrixUtilsTest {
 		for (int i = 1; i < 16; i++) {
 			double precision = 0.000000001;
 			int fpValue = FixedPointUtils.toFixedPoint(i);
-			int[][] fpMatrix1 = MatrixUtils.indentityMatrix();
-			fpMatrix1[0][0] = fpValue;
-			fpMatrix1[1][1] = fpValue;
-			fpMatrix1[2][2] = fpValue;
-			fpMatrix1[3][3] = fpValue;
+			int[] fpMatrix1 = MatrixUtils.indentityMatrix();
+			fpMatrix1[M00] = fpValue;
+			fpMatrix1[M11] = fpValue;
+			fpMatrix1[M22] = fpValue;
+			fpMatrix1[M33] = fpValue;
 			double[][] matrix1 = toMatrix(fpMatrix1);
 			double fpResult = MatrixUtils.determinant(fpMatrix1);
 			fpResult = FixedPointUtils.toDouble((long)fpResult);
@@ -97,13 +97,13 @@ public class MatrixUtilsTest {
 		for (int i = 1; i < 16; i++) {
 			double precision = 0.0001;
 			int fpValue = FixedPointUtils.toFixedPoint(i);
-			int[][] fpMatrix1 = MatrixUtils.indentityMatrix();
-			fpMatrix1[0][0] = fpValue;
-			fpMatrix1[1][1] = fpValue;
-			fpMatrix1[2][2] = fpValue;
-			fpMatrix1[3][3] = fpValue;
+			int[] fpMatrix1 = MatrixUtils.indentityMatrix();
+			fpMatrix1[M00] = fpValue;
+			fpMatrix1[M11] = fpValue;
+			fpMatrix1[M22] = fpValue;
+			fpMatrix1[M33] = fpValue;
 			double[][] matrix1 = toMatrix(fpMatrix1);
-			int[][] fpResult = MatrixUtils.indentityMatrix();
+			int[] fpResult = MatrixUtils.indentityMatrix();
 			MatrixUtils.inverse(fpMatrix1, fpResult);
 			double[][] result = inverse(matrix1);
 			assertMatrix(result, toMatrix(fpResult), precision);
@@ -140,11 +140,11 @@ public class MatrixUtilsTest {
 		};
 	}
 	
-	static double[][] toMatrix(int[][] matrix) {
+	static double[][] toMatrix(int[] matrix) {
 		double[][] result = new double[MATRIX_SIZE][MATRIX_SIZE];
 		for (int i = 0; i < MATRIX_SIZE; i++) {
 			for (int j = 0; j < MATRIX_SIZE; j++) {
-				result[i][j] = FixedPointUtils.toDouble(matrix[i][j]);
+				result[i][j] = FixedPointUtils.toDouble(matrix[i * MATRIX_SIZE + j]);
 			}
 		}
 		return result;
@@ -275,10 +275,10 @@ public class MatrixUtilsTest {
 						matrix[2][1] * matrix[1][2] * matrix[3][3] +
 						matrix[1][1] * matrix[2][2] * matrix[3][3];
 		result[1][0] = matrix[3][0] * matrix[2][2] * matrix[1][3] -
-						matrix[2][0] * matrix[2][3] * matrix[1][3] -
-						matrix[3][0] * matrix[2][1] * matrix[2][3] +
-						matrix[1][0] * matrix[2][3] * matrix[2][3] +
-						matrix[2][0] * matrix[2][1] * matrix[3][3] -
+						matrix[2][0] * matrix[3][2] * matrix[1][3] -
+						matrix[3][0] * matrix[1][2] * matrix[2][3] +
+						matrix[1][0] * matrix[3][2] * matrix[2][3] +
+						matrix[2][0] * matrix[1][2] * matrix[3][3] -
 						matrix[1][0] * matrix[2][2] * matrix[3][3];
 		result[2][0] = matrix[2][0] * matrix[3][1] * matrix[1][3] -
 						matrix[3][0] * matrix[2][1] * matrix[1][3] +
@@ -70,15 +70,18 @@ public class VectorUtilsTest {
 	public void matrixMultiplyTest() throws Exception {
 		int[] vector1 = VectorUtils.toVector(3f, 6f, 9f);
 		int[] resultVector = VectorUtils.toVector(16f, 35f, 84f);
-		int[][] matrix1 = MatrixUtils.indentityMatrix();
-		matrix1[0][0] = FixedPointUtils.toFixedPoint(2);
-		matrix1[1][1] = FixedPointUtils.toFixedPoint(4);
-		matrix1[2][2] = FixedPointUtils.toFixedPoint(8);
-		matrix1[3][0] = FixedPointUtils.toFixedPoint(10);
-		matrix1[3][1] = FixedPointUtils.toFixedPoint(11);
-		matrix1[3][2] = FixedPointUtils.toFixedPoint(12);
-		VectorUtils.multiply(vector1, matrix1);
+		int[] matrix1 = MatrixUtils.indentityMatrix();
+		matrix1[MatrixUtils.M00] = FixedPointUtils.toFixedPoint(2);
+		matrix1[MatrixUtils.M11] = FixedPointUtils.toFixedPoint(4);
+		matrix1[MatrixUtils.M22] = FixedPointUtils.toFixedPoint(8);
+		matrix1[MatrixUtils.M30] = FixedPointUtils.toFixedPoint(10);
+		matrix1[MatrixUtils.M31] = FixedPointUtils.toFixedPoint(11);
+		matrix1[MatrixUtils.M32] = FixedPointUtils.toFixedPoint(12);
+		VectorUtils.multiplyMatrix(vector1, matrix1);
 		assert(VectorUtils.equals(vector1, resultVector));		
+		vector1 = VectorUtils.toVector(3f, 6f, 9f);
+		VectorUtils.multiplyAffineMatrix(vector1, matrix1);
+		assert(VectorUtils.equals(vector1, resultVector));
 	}
 	
 	@Test
@@ -151,6 +154,27 @@ public class VectorUtilsTest {
 		}
 	}	
 	
+	@Test
+	public void fastNormalizeTest() throws Exception {
+		for (int i = 1; i < 256; i++) {
+			double precision = 0.0001;
+			int[] fpVector1 = VectorUtils.toVector((float)i, (float)(i >> 1), (float)-i * 0.75f);
+			int[] fpVector2 = VectorUtils.toVector((float)i, (float)(i >> 1), (float)-i * 0.75f);
+			double[] vector1 = toVector(fpVector1);
+			VectorUtils.fastNormalize(fpVector1);
+			VectorUtils.normalize(fpVector2);
+			normalize(vector1);
+			assertVector(vector1, toVector(fpVector1), precision);
+			// the exact normalize is only as precise as the length
+			assertVector(toVector(fpVector2), toVector(fpVector1), 0.01);
+			double length = FixedPointUtils.toDouble(VectorUtils.squaredLength(fpVector1));
+			assert((length >= 1 - precision) && (length <= 1 + precision));
+		}
+		int[] fpVector1 = VectorUtils.emptyVector();
+		VectorUtils.fastNormalize(fpVector1);
+		assert(VectorUtils.equals(fpVector1, VectorUtils.emptyVector()));
+	}
+	
 	static double[] toVector(int[] fpVector) {
 		double x = FixedPointUtils.toDouble(fpVector[VectorUtils.VECTOR_X]);
 		double y = FixedPointUtils.toDouble(fpVector[VectorUtils.VECTOR_Y]);
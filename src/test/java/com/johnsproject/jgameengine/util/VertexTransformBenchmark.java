@@ -0,0 +1,140 @@
+package com.johnsproject.jgameengine.util;
+
+import static com.johnsproject.jgameengine.util.FixedPointUtils.*;
+import static com.johnsproject.jgameengine.util.MatrixUtils.*;
+import static com.johnsproject.jgameengine.util.VectorUtils.*;
+
+import com.johnsproject.jgameengine.BenchmarkRunner;
+import com.johnsproject.jgameengine.BenchmarkRunner.Benchmark;
+import com.johnsproject.jgameengine.model.Transform;
+
+/**
+ * Measures the time the vertex transform loop of the graphics engine takes with the int[4][4] matrices
+ * the engine used before, with flat matrices and {@link VectorUtils#multiplyMatrix(int[], int[])},
+ * and with flat matrices and {@link VectorUtils#multiplyAffineMatrix(int[], int[])}.
+ */
+public class VertexTransformBenchmark {
+
+	private static final int VERTEX_COUNT = 100000;
+	private static final int WARMUP_RUNS = 50;
+	private static final int RUNS = 200;
+
+	public static void main(String[] args) {
+		final Transform transform = new Transform();
+		transform.setLocation(FP_ONE * 10, -FP_ONE * 5, FP_ONE * 20);
+		transform.setRotation(FP_ONE * 30, FP_ONE * 45, FP_ONE * 60);
+		transform.setScale(FP_ONE * 2, FP_ONE * 2, FP_ONE * 2);
+		final int[] matrix = transform.getSpaceExitMatrix();
+		final int[][] nestedMatrix = new int[MATRIX_SIZE][MATRIX_SIZE];
+		for (int i = 0; i < MATRIX_SIZE; i++) {
+			for (int j = 0; j < MATRIX_SIZE; j++) {
+				nestedMatrix[i][j] = matrix[i * MATRIX_SIZE + j];
+			}
+		}
+		final int[] localLocations = new int[VERTEX_COUNT * VECTOR_SIZE];
+		final int[] worldLocations = new int[VERTEX_COUNT * VECTOR_SIZE];
+		for (int i = 0; i < localLocations.length; i += VECTOR_SIZE) {
+			localLocations[i + VECTOR_X] = (i % 1000) << (FP_BIT - 4);
+			localLocations[i + VECTOR_Y] = (i % 777) << (FP_BIT - 4);
+			localLocations[i + VECTOR_Z] = (i % 333) << (FP_BIT - 4);
+			localLocations[i + VECTOR_W] = FP_ONE;
+		}
+		System.out.println("Vertices per run: " + VERTEX_COUNT + ", runs: " + RUNS);
+		final Benchmark[] benchmarks = new Benchmark[] {
+			new Benchmark("int[4][4] multiply") {
+				@Override
+				public long run() {
+					return transformNested(localLocations, worldLocations, nestedMatrix);
+				}
+			},
+			new Benchmark("int[16] multiplyMatrix") {
+				@Override
+				public long run() {
+					return transform(localLocations, worldLocations, matrix);
+				}
+			},
+			new Benchmark("int[16] multiplyAffineMatrix") {
+				@Override
+				public long run() {
+					return transformAffine(localLocations, worldLocations, matrix);
+				}
+			}
+		};
+		final BenchmarkRunner runner = new BenchmarkRunner("vertex", VERTEX_COUNT, WARMUP_RUNS, RUNS);
+		// all variants have to transform to the same locations
+		BenchmarkRunner.printSameResults(runner.run(benchmarks));
+	}
+
+	private static int transformNested(int[] localLocations, int[] worldLocations, int[][] matrix) {
+		final int[] vector = VectorUtils.emptyVector();
+		int sum = 0;
+		for (int i = 0; i < localLocations.length; i += VECTOR_SIZE) {
+			System.arraycopy(localLocations, i, vector, 0, VECTOR_SIZE);
+			multiplyNested(vector, matrix);
+			System.arraycopy(vector, 0, worldLocations, i, VECTOR_SIZE);
+			sum += vector[VECTOR_X] ^ vector[VECTOR_Y] ^ vector[VECTOR_Z];
+		}
+		return sum;
+	}
+
+	private static int transform(int[] localLocations, int[] worldLocations, int[] matrix) {
+		final int[] vector = VectorUtils.emptyVector();
+		int sum = 0;
+		for (int i = 0; i < localLocations.length; i += VECTOR_SIZE) {
+			System.arraycopy(localLocations, i, vector, 0, VECTOR_SIZE);
+			VectorUtils.multiplyMatrix(vector, matrix);
+			System.arraycopy(vector, 0, worldLocations, i, VECTOR_SIZE);
+			sum += vector[VECTOR_X] ^ vector[VECTOR_Y] ^ vector[VECTOR_Z];
+		}
+		return sum;
+	}
+
+	private static int transformAffine(int[] localLocations, int[] worldLocations, int[] matrix) {
+		final int[] vector = VectorUtils.emptyVector();
+		int sum = 0;
+		for (int i = 0; i < localLocations.length; i += VECTOR_SIZE) {
+			System.arraycopy(localLocations, i, vector, 0, VECTOR_SIZE);
+			VectorUtils.multiplyAffineMatrix(vector, matrix);
+			System.arraycopy(vector, 0, worldLocations, i, VECTOR_SIZE);
+			sum += vector[VECTOR_X] ^ vector[VECTOR_Y] ^ vector[VECTOR_Z];
+		}
+		return sum;
+	}
+
+	/**
+	 * The vector matrix multiplication as it was done with int[4][4] matrices.
+	 */
+	private static int[] multiplyNested(int[] vector, int[][] matrix) {
+		final int x = vector[VECTOR_X];
+		final int y = vector[VECTOR_Y];
+		final int z = vector[VECTOR_Z];
+		int res = FixedPointUtils.multiply(matrix[0][VECTOR_X], x);
+		res += FixedPointUtils.multiply(matrix[1][VECTOR_X], y);
+		res += FixedPointUtils.multiply(matrix[2][VECTOR_X], z);
+		vector[VECTOR_X] = res + matrix[3][VECTOR_X];
+		res = FixedPointUtils.multiply(matrix[0][VECTOR_Y], x);
+		res += FixedPointUtils.multiply(matrix[1][VECTOR_Y], y);
+		res += FixedPointUtils.multiply(matrix[2][VECTOR_Y], z);
+		vector[VECTOR_Y] = res + matrix[3][VECTOR_Y];
+		res = FixedPointUtils.multiply(matrix[0][VECTOR_Z], x);
+		res += FixedPointUtils.multiply(matrix[1][VECTOR_Z], y);
+		res += FixedPointUtils.multiply(matrix[2][VECTOR_Z], z);
+		vector[VECTOR_Z] = res + matrix[3][VECTOR_Z];
+		final int matrix33 = matrix[3][VECTOR_W];
+		if(matrix33 != FP_ONE) {
+			vector[VECTOR_W] = FP_ONE;
+			res = FixedPointUtils.multiply(matrix[0][VECTOR_W], x);
+			res += FixedPointUtils.multiply(matrix[1][VECTOR_W], y);
+			res += FixedPointUtils.multiply(matrix[2][VECTOR_W], z);
+			int w = res + matrix33;
+			if(w != FP_ONE) {
+				final int precisionBit = FP_BIT >> 1;
+				w = FixedPointUtils.divide(FP_ONE << precisionBit, w == 0 ? 1 : w);
+				vector[VECTOR_X] = FixedPointUtils.multiply(vector[VECTOR_X], w) >> precisionBit;
+				vector[VECTOR_Y] = FixedPointUtils.multiply(vector[VECTOR_Y], w) >> precisionBit;
+				vector[VECTOR_Z] = FixedPointUtils.multiply(vector[VECTOR_Z], w) >> precisionBit;
+			}
+		}
+		return vector;
+	}
+}